@@ -0,0 +1,148 @@
+package abc.ast;
+
+import java.util.Arrays;
+
+/**
+ * A mutable record of the accidentals written so far in the current measure of one voice.
+ *
+ * A note is identified as it is written: by its basenote letter, upper or lower case, and the number of
+ * octave marks after it. The record is a fixed array with one slot per such note, so looking up or
+ * writing an accidental never allocates, and moving to the next measure is O(1): every slot is stamped with
+ * the measure it was written in, and a slot stamped with an earlier measure counts as empty.
+ * A tracker belongs to one voice and must not be shared between threads.
+ */
+public class AccidentalTracker {
+
+    /**
+     * Passed to apply and returned by written when a note has no accidental.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    /**
+     * Octave marks beyond this many are treated as this many. Such notes already lie outside the MIDI range.
+     */
+    static final int MAX_OCTAVE_MARKS = 8;
+
+    private static final int LETTERS = 14;
+    private static final int OCTAVES = 2 * MAX_OCTAVE_MARKS + 1;
+
+    private final KeySignature key;
+    private final int[] semitones = new int[LETTERS * OCTAVES];
+    private final int[] measures = new int[LETTERS * OCTAVES];
+    private int measure = 1;
+
+    //Abstraction function
+    //  Represents, for the current measure, the accidental written last on each note: the note with
+    //  basenote slot / OCTAVES (0 to 6 for 'A' to 'G', 7 to 13 for 'a' to 'g') and slot % OCTAVES - MAX_OCTAVE_MARKS
+    //  octave marks was last written with semitones[slot] if measures[slot] == measure, and not written otherwise.
+    //  A note with nothing written has the accidental given by key.
+    //Rep invariant
+    //  key != null
+    //  measure != 0, so a slot that was never written is never stamped with the current measure
+    //Rep exposure
+    //  All fields are private; key is immutable and arrays are never returned.
+
+    /**
+     * Make a tracker for one voice of a tune, at the start of its first measure.
+     * @param header the header of the tune, whose key signature gives the accidental of notes with none written
+     */
+    public AccidentalTracker(TuneHeader header) {
+        key = header.key();
+        checkRep();
+    }
+
+    /**
+     * Asserts check rep
+     */
+    private void checkRep() {
+        assert key != null;
+        assert measure != 0;
+    }
+
+    /**
+     * @param basenote basenote letter as written, 'A' to 'G' or 'a' to 'g'
+     * @param octaveMarks number of "'" after the note, or minus the number of ","
+     * @param accidental semitones of the accidental written on the note, or NONE
+     * @return the semitones by which the note is raised: accidental if it is not NONE, otherwise the
+     *         accidental written last on the same note in this measure, otherwise the one given by the key
+     */
+    public int apply(char basenote, int octaveMarks, int accidental) {
+        int slot = slot(basenote, octaveMarks);
+        if (accidental != NONE) {
+            semitones[slot] = accidental;
+            measures[slot] = measure;
+            return accidental;
+        }
+        if (measures[slot] == measure) {
+            return semitones[slot];
+        }
+        return key.semitones(basenote);
+    }
+
+    /**
+     * @param basenote basenote letter as written, 'A' to 'G' or 'a' to 'g'
+     * @param octaveMarks number of "'" after the note, or minus the number of ","
+     * @return the semitones of the accidental written last on that note in this measure, or NONE
+     */
+    public int written(char basenote, int octaveMarks) {
+        int slot = slot(basenote, octaveMarks);
+        return measures[slot] == measure ? semitones[slot] : NONE;
+    }
+
+    /**
+     * Forget every accidental written so far, as at a barline.
+     */
+    public void nextMeasure() {
+        measure++;
+        if (measure == 0) {
+            // after 2^32 measures the stamps would be ambiguous, so start over
+            Arrays.fill(measures, 0);
+            measure = 1;
+        }
+        checkRep();
+    }
+
+    private static int slot(char basenote, int octaveMarks) {
+        int letter = basenote >= 'a' ? basenote - 'a' + 7 : basenote - 'A';
+        int octave = Math.max(-MAX_OCTAVE_MARKS, Math.min(MAX_OCTAVE_MARKS, octaveMarks));
+        return letter * OCTAVES + octave + MAX_OCTAVE_MARKS;
+    }
+
+    /**
+     * @param accidental an accidental as written in abc: "^^", "^", "=", "_", "__", or "" for none
+     * @return its semitones, or NONE for ""
+     */
+    public static int semitones(String accidental) {
+        switch (accidental) {
+        case "^^":
+            return 2;
+        case "^":
+            return 1;
+        case "=":
+            return 0;
+        case "_":
+            return -1;
+        case "__":
+            return -2;
+        default:
+            return NONE;
+        }
+    }
+
+    /**
+     * @param octave octave marks as written in abc: a run of "'" or a run of ","
+     * @return the number of "'", or minus the number of ","
+     */
+    public static int octaveMarks(String octave) {
+        int marks = 0;
+        for (int i = 0; i < octave.length(); i++) {
+            if (octave.charAt(i) == '\'') {
+                marks++;
+            }
+            else if (octave.charAt(i) == ',') {
+                marks--;
+            }
+        }
+        return marks;
+    }
+}
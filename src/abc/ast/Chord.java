@@ -12,39 +12,51 @@ public class Chord implements Music, NoteOrChord {
     
     //private fields
     private final List<Note> notes; 
-    private final double duration;
+    private final Rational duration;
+    private final int hashCode;
     
     // Abstraction function
     //    represents one chord of duration duration in music sheet
     // Rep invariant
     //    notes.size() > 0
     //    duration >= 0
-    //    duration == notes.get(0).duration()   //according to specification handout
+    //    duration.equals(notes.get(0).exactDuration())   //according to specification handout
     //    notes != null
     //    values in notes != null
+    //    hashCode == 31 * duration.hashCode() + notes.hashCode()
     // Safety from rep exposure
     //    all fields are private and final
-    //    double is immutable
+    //    Rational is immutable
     //    notes is mutable, but no public method in this class returns a reference to notes to the client,
     //          and all return values are immutable
     
     public Chord(List<Note> host, double duration){
+        this(host, Rational.valueOf(duration));
+    }
+    
+    /**
+     * Make a chord of notes that start together
+     * @param host the notes of the chord
+     * @param duration the exact length of the chord in beats, the length of its first note
+     */
+    public Chord(List<Note> host, Rational duration){
         this.duration = duration;
         this.notes = new ArrayList<>();
         for (Note n: host){
             notes.add(n);
         }
+        this.hashCode = 31 * duration.hashCode() + notes.hashCode();
         checkRep();
     }
     
     private void checkRep(){
         assert this.notes != null;
         assert this.notes.size() > 0;
-        assert duration >= 0;
+        assert duration.signum() >= 0;
         for (Note n: this.notes){
             assert n != null;
         }
-        assert duration == notes.get(0).duration();
+        assert duration.equals(notes.get(0).exactDuration());
     }
     
     private List<Note> getNotes(){
@@ -52,21 +64,37 @@ public class Chord implements Music, NoteOrChord {
     }
     
     @Override
-    public double duration(){
+    public Rational exactDuration(){
         return this.duration;
     }
     
     @Override
-    public void play(SequencePlayer player, double start){
+    public long minimalTicksPerBeat(){
+        long ticksPerBeat = 1;
+        for (Note note: this.getNotes()){
+            ticksPerBeat = Rational.lcm(ticksPerBeat, note.minimalTicksPerBeat());
+        }
+        return ticksPerBeat;
+    }
+    
+    @Override
+    public void play(EventSink player, Rational start){
         for (Note note: this.getNotes()){
             note.play(player, start);
         }
     }
     
+    @Override
+    public void compile(CompiledScore.Builder score, Rational start){
+        for (Note note: this.getNotes()){
+            note.compile(score, start);
+        }
+    }
+    
     @Override
     public Music transpose(int semitonesUp){
         List<Note> inputList = new ArrayList<>();
-        double newDuration = this.getNotes().get(0).transpose(semitonesUp).duration();
+        Rational newDuration = this.getNotes().get(0).transpose(semitonesUp).exactDuration();
         for (Note note: this.getNotes()){
             inputList.add((Note)note.transpose(semitonesUp));
         }
@@ -76,7 +104,7 @@ public class Chord implements Music, NoteOrChord {
     @Override
     public Music transposePitch(Pitch pitch, int semitonesUp){
         List<Note> inputList = new ArrayList<>();
-        double newDuration = this.getNotes().get(0).transpose(semitonesUp).duration();
+        Rational newDuration = this.getNotes().get(0).transpose(semitonesUp).exactDuration();
         for (Note note: this.getNotes()){
             inputList.add((Note)note.transposePitch(pitch, semitonesUp));
         }
@@ -95,7 +123,8 @@ public class Chord implements Music, NoteOrChord {
         Chord thatChord = (Chord) obj;
         List<Note> thisNotes = this.getNotes();
         List<Note> thatChordNotes = thatChord.getNotes();
-        if (this.duration() != thatChord.duration() || thisNotes.size() != thatChordNotes.size()){
+        if (this.hashCode != thatChord.hashCode
+                || !this.duration.equals(thatChord.duration) || thisNotes.size() != thatChordNotes.size()){
             return false;
         }
         else{
@@ -110,8 +139,7 @@ public class Chord implements Music, NoteOrChord {
     
     @Override
     public int hashCode() {
-        Double d = this.duration();
-        return d.hashCode();
+        return this.hashCode;
     }
     
     /**
@@ -129,28 +157,30 @@ public class Chord implements Music, NoteOrChord {
     }
     
     @Override
-    public void tupletPlay(SequencePlayer player, double start, int length) {
-        double durationFactor;
-        
-        switch(length){
-            case 2: 
-                durationFactor = 1.5;
-                break;
-            case 3: 
-                durationFactor = 2.0/3.0;
-                break;
-            case 4: 
-                durationFactor = 0.75;
-                break;
-            default: 
-                throw new RuntimeException("Unreachable");
+    public long tupletTicksPerBeat(int length) {
+        long ticksPerBeat = 1;
+        for (Note note: this.getNotes()){
+            ticksPerBeat = Rational.lcm(ticksPerBeat, note.tupletTicksPerBeat(length));
         }
+        return ticksPerBeat;
+    }
+    
+    @Override
+    public void tupletCompile(CompiledScore.Builder score, Rational start, int length) {
+        for (Note note: this.getNotes()){
+            note.tupletCompile(score, start, length);
+        }
+    }
+    
+    @Override
+    public void tupletPlay(EventSink player, Rational start, int length) {
+        Rational durationFactor = Tuplet.durationFactor(length);
         List<Note> newNotes = new ArrayList<>();
         for (Note n: this.getNotes()){
-            Note newNote = new Note(n.duration() * durationFactor, n.getPitch());
+            Note newNote = new Note(n.exactDuration().times(durationFactor), n.getPitch());
             newNotes.add(newNote);
         }
-        Chord newChord = new Chord(newNotes, newNotes.get(0).duration());
+        Chord newChord = new Chord(newNotes, newNotes.get(0).exactDuration());
         newChord.play(player, start);
     }
 }
\ No newline at end of file
@@ -0,0 +1,352 @@
+package abc.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import abc.sound.EventSink;
+import abc.sound.NoteSchedule;
+
+/**
+ * An immutable flat score of the notes of some music, compiled once and then played, exported or analysed
+ * as often as needed without walking the Music AST again.
+ *
+ * Notes are kept in parallel primitive arrays of start tick, duration in ticks, MIDI pitch and voice index,
+ * sorted by start tick once when the score is built. Notes that start on the same tick stay in the order
+ * the music plays them.
+ *
+ * As a NoteSchedule, a score can be written out, for example by MidiFileWriter, without the Music AST.
+ */
+public class CompiledScore implements NoteSchedule {
+
+    private final int ticksPerBeat;
+    private final int[] startTicks;
+    private final int[] durationTicks;
+    private final int[] pitches;
+    private final int[] voices;
+    private final List<String> voiceNames;
+    private final int endTick;
+
+    //Abstraction function
+    //  Represents the notes i, 0 <= i < pitches.length, each of MIDI pitch pitches[i] played in voice
+    //  voiceNames.get(voices[i]) from tick startTicks[i] for durationTicks[i] ticks, with ticksPerBeat ticks per beat.
+    //  The score lasts endTick ticks.
+    //Rep invariant
+    //  ticksPerBeat > 0
+    //  startTicks, durationTicks, pitches and voices have the same length
+    //  startTicks is sorted in ascending order, and startTicks[i] >= 0, durationTicks[i] >= 0
+    //  0 <= voices[i] < voiceNames.size()
+    //  endTick == max(startTicks[i] + durationTicks[i]), or 0 if there are no notes
+    //Rep exposure
+    //  All fields are private and final. The arrays are built by the Builder and never returned;
+    //  EventSink.addNotes only reads them. voiceNames is unmodifiable.
+
+    private CompiledScore(int ticksPerBeat, int[] startTicks, int[] durationTicks, int[] pitches, int[] voices,
+            List<String> voiceNames) {
+        this.ticksPerBeat = ticksPerBeat;
+        this.startTicks = startTicks;
+        this.durationTicks = durationTicks;
+        this.pitches = pitches;
+        this.voices = voices;
+        this.voiceNames = Collections.unmodifiableList(new ArrayList<>(voiceNames));
+        int end = 0;
+        for (int i = 0; i < startTicks.length; i++) {
+            end = Math.max(end, startTicks[i] + durationTicks[i]);
+        }
+        this.endTick = end;
+        checkRep();
+    }
+
+    /**
+     * Asserts check rep
+     */
+    private void checkRep() {
+        assert ticksPerBeat > 0;
+        assert durationTicks.length == startTicks.length;
+        assert pitches.length == startTicks.length;
+        assert voices.length == startTicks.length;
+        for (int i = 0; i < startTicks.length; i++) {
+            assert startTicks[i] >= 0 && durationTicks[i] >= 0;
+            assert i == 0 || startTicks[i - 1] <= startTicks[i];
+            assert 0 <= voices[i] && voices[i] < voiceNames.size();
+        }
+    }
+
+    /**
+     * Make a score from notes already compiled, for example by an earlier run.
+     * @param ticksPerBeat the ticks per beat of the score, > 0
+     * @param startTicks the start tick of each note, >= 0 and in ascending order
+     * @param durationTicks the duration in ticks of each note, >= 0
+     * @param pitches the MIDI pitch of each note
+     * @param voices the index in voiceNames of the voice of each note
+     * @param voiceNames the names of the voices, in the order they are played
+     * @return the score of those notes; the arrays are copied
+     * @throws IllegalArgumentException if the arrays differ in length or break the rules above
+     */
+    public static CompiledScore of(int ticksPerBeat, int[] startTicks, int[] durationTicks, int[] pitches,
+            int[] voices, List<String> voiceNames) {
+        int size = startTicks.length;
+        if (ticksPerBeat <= 0) {
+            throw new IllegalArgumentException("ticks per beat must be positive: " + ticksPerBeat);
+        }
+        if (durationTicks.length != size || pitches.length != size || voices.length != size) {
+            throw new IllegalArgumentException("note arrays differ in length");
+        }
+        for (int i = 0; i < size; i++) {
+            if (startTicks[i] < 0 || durationTicks[i] < 0 || (i > 0 && startTicks[i - 1] > startTicks[i])
+                    || voices[i] < 0 || voices[i] >= voiceNames.size()) {
+                throw new IllegalArgumentException("bad note " + i);
+            }
+            if ((long) startTicks[i] + durationTicks[i] > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("note " + i + " ends after the last tick");
+            }
+        }
+        return new CompiledScore(ticksPerBeat, startTicks.clone(), durationTicks.clone(), pitches.clone(),
+                voices.clone(), voiceNames);
+    }
+
+    /**
+     * Compile music with the ticks per beat chosen by Music.ticksPerBeat.
+     * @param music the music to compile
+     * @return the notes of music, as music.play would play them from beat 0
+     */
+    public static CompiledScore compile(Music music) {
+        return compile(music, Music.ticksPerBeat(music));
+    }
+
+    /**
+     * Compile music.
+     * @param music the music to compile
+     * @param ticksPerBeat the ticks per beat of the score, > 0
+     * @return the notes of music, as music.play would play them from beat 0 on a player with ticksPerBeat
+     */
+    public static CompiledScore compile(Music music, int ticksPerBeat) {
+        Builder score = new Builder(ticksPerBeat);
+        music.compile(score, Rational.ZERO);
+        return score.build();
+    }
+
+    /**
+     * @return the ticks per beat of this score
+     */
+    public int ticksPerBeat() {
+        return ticksPerBeat;
+    }
+
+    /**
+     * @return the number of notes in this score
+     */
+    public int size() {
+        return startTicks.length;
+    }
+
+    /**
+     * @param i the index of a note, 0 <= i < size(), in order of start tick
+     * @return the tick at which note i starts
+     */
+    public int startTick(int i) {
+        return startTicks[i];
+    }
+
+    /**
+     * @param i the index of a note, 0 <= i < size(), in order of start tick
+     * @return the number of ticks for which note i plays
+     */
+    public int durationTicks(int i) {
+        return durationTicks[i];
+    }
+
+    /**
+     * @param i the index of a note, 0 <= i < size(), in order of start tick
+     * @return the MIDI pitch of note i
+     */
+    public int pitch(int i) {
+        return pitches[i];
+    }
+
+    /**
+     * @param i the index of a note, 0 <= i < size(), in order of start tick
+     * @return the index in voiceNames() of the voice note i belongs to
+     */
+    public int voice(int i) {
+        return voices[i];
+    }
+
+    /**
+     * @return the names of the voices of this score, in the order they are played; a note outside any Voice
+     *         belongs to a voice named ""
+     */
+    public List<String> voiceNames() {
+        return voiceNames;
+    }
+
+    /**
+     * @return the tick at which the last note of this score ends, or 0 if it has no notes
+     */
+    public int endTick() {
+        return endTick;
+    }
+
+    /**
+     * Schedule every note of this score on a player.
+     * @param player the player; must have the same ticks per beat as this score
+     */
+    public void play(EventSink player) {
+        play(player, 0);
+    }
+
+    /**
+     * Schedule every note of this score on a player, transposed as it is rendered.
+     * @param player the player; must have the same ticks per beat as this score
+     * @param semitonesUp semitones by which to transpose every note
+     */
+    public void play(EventSink player, int semitonesUp) {
+        assert player.getTicksPerBeat() == ticksPerBeat;
+        int[] notes = pitches;
+        if (semitonesUp != 0) {
+            notes = new int[pitches.length];
+            for (int i = 0; i < pitches.length; i++) {
+                notes[i] = pitches[i] + semitonesUp;
+            }
+        }
+        player.addNotes(notes, startTicks, durationTicks, startTicks.length);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(startTicks) + Arrays.hashCode(pitches);
+    }
+
+    /**
+     * Indicates whether two objects are equal as defined below
+     * @param obj any object
+     * @return true if and only if this and obj are CompiledScore instances with the same ticks per beat,
+     *         the same voices and the same notes in the same order
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof CompiledScore)) return false;
+        CompiledScore that = (CompiledScore) obj;
+        return this.ticksPerBeat == that.ticksPerBeat && Arrays.equals(this.startTicks, that.startTicks)
+                && Arrays.equals(this.durationTicks, that.durationTicks) && Arrays.equals(this.pitches, that.pitches)
+                && Arrays.equals(this.voices, that.voices) && this.voiceNames.equals(that.voiceNames);
+    }
+
+    /**
+     * @return a String with the ticks per beat and one line per note: start tick, duration, pitch and voice index
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("ticksPerBeat=" + ticksPerBeat + "\n");
+        for (int i = 0; i < startTicks.length; i++) {
+            out.append(startTicks[i]).append(' ').append(durationTicks[i]).append(' ')
+                .append(pitches[i]).append(' ').append(voices[i]).append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * A mutable score being compiled, to which Music.compile adds notes in the order it would play them.
+     * A builder must not be shared between threads.
+     */
+    public static class Builder {
+
+        private static final int INITIAL_CAPACITY = 256;
+
+        private final int ticksPerBeat;
+        private int[] startTicks = new int[INITIAL_CAPACITY];
+        private int[] durationTicks = new int[INITIAL_CAPACITY];
+        private int[] pitches = new int[INITIAL_CAPACITY];
+        private int[] voices = new int[INITIAL_CAPACITY];
+        private int size = 0;
+        private final List<String> voiceNames = new ArrayList<>();
+
+        //Abstraction function
+        //  Represents the first size notes of the arrays, as in CompiledScore, not yet sorted;
+        //  notes added from now on belong to the last voice of voiceNames, or to a new voice "" if it is empty.
+        //Rep invariant
+        //  ticksPerBeat > 0, 0 <= size <= every array's length, and the arrays have the same length
+        //Rep exposure
+        //  All fields are private and never returned.
+
+        /**
+         * Make an empty score.
+         * @param ticksPerBeat the ticks per beat of the score, > 0
+         */
+        public Builder(int ticksPerBeat) {
+            if (ticksPerBeat <= 0) {
+                throw new IllegalArgumentException("ticks per beat must be positive: " + ticksPerBeat);
+            }
+            this.ticksPerBeat = ticksPerBeat;
+        }
+
+        /**
+         * @return the ticks per beat of the score
+         */
+        public int ticksPerBeat() {
+            return ticksPerBeat;
+        }
+
+        /**
+         * Start a new voice; notes added from now on belong to it.
+         * @param name the name of the voice
+         */
+        public void startVoice(String name) {
+            voiceNames.add(name);
+        }
+
+        /**
+         * Add a note, from the tick its start falls in to the tick its end falls in, as Note.play schedules it.
+         * @param pitch the MIDI pitch of the note
+         * @param start when the note starts in beats, >= 0
+         * @param duration how long the note lasts in beats, >= 0
+         * @throws ArithmeticException if the note ends after the last tick an int can hold
+         */
+        public void addNote(int pitch, Rational start, Rational duration) {
+            long startTick = start.floorTicks(ticksPerBeat);
+            long endTick = start.plus(duration).floorTicks(ticksPerBeat);
+            if (voiceNames.isEmpty()) {
+                startVoice("");
+            }
+            if (size == startTicks.length) {
+                int capacity = size * 2;
+                startTicks = Arrays.copyOf(startTicks, capacity);
+                durationTicks = Arrays.copyOf(durationTicks, capacity);
+                pitches = Arrays.copyOf(pitches, capacity);
+                voices = Arrays.copyOf(voices, capacity);
+            }
+            startTicks[size] = Math.toIntExact(startTick);
+            durationTicks[size] = Math.toIntExact(endTick - startTick);
+            pitches[size] = pitch;
+            voices[size] = voiceNames.size() - 1;
+            size++;
+        }
+
+        /**
+         * Sort the notes added so far by start tick, keeping notes that start together in the order they were added.
+         * @return the compiled score
+         */
+        public CompiledScore build() {
+            // sort (start tick, index) pairs packed into longs, so the sort is on primitives and stable
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) startTicks[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] sortedStarts = new int[size];
+            int[] sortedDurations = new int[size];
+            int[] sortedPitches = new int[size];
+            int[] sortedVoices = new int[size];
+            for (int i = 0; i < size; i++) {
+                int from = (int) keys[i];
+                sortedStarts[i] = startTicks[from];
+                sortedDurations[i] = durationTicks[from];
+                sortedPitches[i] = pitches[from];
+                sortedVoices[i] = voices[from];
+            }
+            return new CompiledScore(ticksPerBeat, sortedStarts, sortedDurations, sortedPitches, sortedVoices,
+                    voiceNames);
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package abc.ast;
 
-import abc.sound.Pitch;
+import abc.sound.EventSink;
 
-import abc.sound.SequencePlayer;
+import abc.sound.Pitch;
 
 /**
  * Concat is an immutable data type that represents two pieces of music
@@ -12,12 +12,16 @@ public class Concat implements Music{
     
     private final Music first;
     private final Music second;
+    private final Rational duration;
+    private final int hashCode;
     
     //Abstraction function
     //  Represents two pieces of music that are played one after another
     //Rep invariant
     //  first != null
     //  second != null
+    //  duration == first.exactDuration() + second.exactDuration()
+    //  hashCode == first.hashCode() + second.hashCode()
     //Rep exposure
     //  All fields are private, final and immutable. All return values are immutable 
     
@@ -37,6 +41,8 @@ public class Concat implements Music{
     public Concat(Music first, Music second){
         this.first = first;
         this.second = second;
+        this.duration = first.exactDuration().plus(second.exactDuration());
+        this.hashCode = first.hashCode() + second.hashCode();
         checkRep();
     }
     
@@ -57,14 +63,25 @@ public class Concat implements Music{
     }
     
     @Override
-    public double duration() {
-        return first.duration() + second.duration();
+    public Rational exactDuration() {
+        return duration;
+    }
+
+    @Override
+    public long minimalTicksPerBeat() {
+        return Rational.lcm(first.minimalTicksPerBeat(), second.minimalTicksPerBeat());
     }
 
     @Override
-    public void play(SequencePlayer player, double start) {
+    public void play(EventSink player, Rational start) {
         first.play(player, start);
-        second.play(player, start + first.duration());
+        second.play(player, start.plus(first.exactDuration()));
+    }
+
+    @Override
+    public void compile(CompiledScore.Builder score, Rational start) {
+        first.compile(score, start);
+        second.compile(score, start.plus(first.exactDuration()));
     }
 
     @Override
@@ -79,7 +96,7 @@ public class Concat implements Music{
     
     @Override
     public int hashCode(){
-        return first.hashCode() + second.hashCode();
+        return hashCode;
     }
     
     /**
@@ -92,7 +109,7 @@ public class Concat implements Music{
     public boolean equals(Object obj){
         if (!(obj instanceof Concat)) return false;
         Concat thatConcat = (Concat) obj;
-        return ( this.getFirstMusic().equals(thatConcat.getFirstMusic()) &&
+        return this.hashCode == thatConcat.hashCode && ( this.getFirstMusic().equals(thatConcat.getFirstMusic()) &&
                 this.getSecondMusic().equals(thatConcat.getSecondMusic()) );
     }
     
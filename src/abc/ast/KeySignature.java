@@ -0,0 +1,155 @@
+package abc.ast;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable data type representing the key signature of a tune: the semitones by which the key
+ * raises or lowers each basenote letter when no accidental is written.
+ *
+ * There is one instance per supported key, made once in a static table; valueOf looks a key up by
+ * name and semitones answers for a letter with a single array access.
+ */
+public class KeySignature {
+
+    /** basenote letters in the order sharps are added to a key signature */
+    private static final String SHARP_ORDER = "FCGDAEB";
+    /** basenote letters in the order flats are added to a key signature */
+    private static final String FLAT_ORDER = "BEADGCF";
+
+    private static final Map<String, KeySignature> KEYS = new HashMap<>();
+
+    static {
+        // each row is the number of sharps, or minus the number of flats, followed by the keys that have it
+        // Cb, C# are their enharmonic equivalents B, Db, which sound the same
+        Object[][] rows = {
+            { 0, "C", "Am" },
+            { 1, "G", "Em" },
+            { 2, "D", "Bm" },
+            { 3, "A", "F#m" },
+            { 4, "E", "C#m" },
+            { 5, "B", "G#m", "Cb" },
+            { 6, "F#", "D#m" },
+            { -1, "F", "Dm" },
+            { -2, "Bb", "Gm" },
+            { -3, "Eb", "Cm" },
+            { -4, "Ab", "Fm" },
+            { -5, "Db", "C#", "Bbm" },
+            { -6, "Gb", "Ebm" },
+        };
+        for (Object[] row : rows) {
+            int sharps = (Integer) row[0];
+            for (int i = 1; i < row.length; i++) {
+                String name = (String) row[i];
+                KEYS.put(name, new KeySignature(name, sharps));
+            }
+        }
+    }
+
+    private final String name;
+    private final int sharps;
+    private final int[] semitones;
+
+    //Abstraction function
+    //  Represents the key called name, which raises basenote letter 'A' + i by semitones[i] semitones.
+    //  It has sharps sharps if sharps >= 0, and -sharps flats otherwise.
+    //Rep invariant
+    //  -7 <= sharps <= 7, semitones.length == 7
+    //  semitones[i] == 1 for the first sharps letters of SHARP_ORDER, -1 for the first -sharps letters
+    //  of FLAT_ORDER, and 0 for every other letter
+    //Rep exposure
+    //  All fields are private and final; semitones is never returned.
+
+    private KeySignature(String name, int sharps) {
+        this.name = name;
+        this.sharps = sharps;
+        this.semitones = new int[7];
+        for (int i = 0; i < sharps; i++) {
+            semitones[SHARP_ORDER.charAt(i) - 'A'] = 1;
+        }
+        for (int i = 0; i < -sharps; i++) {
+            semitones[FLAT_ORDER.charAt(i) - 'A'] = -1;
+        }
+        checkRep();
+    }
+
+    /**
+     * Asserts check rep
+     */
+    private void checkRep() {
+        assert name != null;
+        assert -7 <= sharps && sharps <= 7;
+        assert semitones.length == 7;
+    }
+
+    /**
+     * Look up a key signature.
+     * @param key the name of a key as written in the K: field, such as "C", "Eb" or "F#m"
+     * @return the key signature of key
+     * @throws IllegalArgumentException if key is not a supported key
+     */
+    public static KeySignature valueOf(String key) {
+        KeySignature signature = KEYS.get(key);
+        if (signature == null) {
+            throw new IllegalArgumentException("Incompatible key signature: " + key);
+        }
+        return signature;
+    }
+
+    /**
+     * @return the names of every supported key
+     */
+    public static Set<String> names() {
+        return Collections.unmodifiableSet(KEYS.keySet());
+    }
+
+    /**
+     * @return the name of this key, as written in the K: field
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the number of sharps in this key signature, or minus the number of flats
+     */
+    public int sharps() {
+        return sharps;
+    }
+
+    /**
+     * @param basenote a basenote letter, upper or lower case, from A to G
+     * @return the semitones by which this key raises basenote: 1, -1, or 0 if it is natural
+     */
+    public int semitones(char basenote) {
+        return semitones[(basenote & ~0x20) - 'A'];
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    /**
+     * Indicates whether two objects are equal as defined below
+     * @param obj any object
+     * @return true if and only if this and obj are KeySignature instances with the same name and accidentals
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof KeySignature)) return false;
+        KeySignature that = (KeySignature) obj;
+        return this.name.equals(that.name) && Arrays.equals(this.semitones, that.semitones);
+    }
+
+    /**
+     * @return the name of this key, as written in the K: field
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
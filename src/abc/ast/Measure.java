@@ -2,8 +2,8 @@ package abc.ast;
 
 import java.util.List;
 
+import abc.sound.EventSink;
 import abc.sound.Pitch;
-import abc.sound.SequencePlayer;
 
 /**
  * An immutable measure of some music with duration given by a meter. 
@@ -12,14 +12,18 @@ import abc.sound.SequencePlayer;
 public class Measure implements Music {
 
     private final Music music;
-    private final double meter;
+    private final Rational meter;
+    private final Rational duration;
+    private final int hashCode;
     
     // Abstraction function:
     //   Represents a measure with music representing the music to be played in this measure
     //   and meter representing the meter of the piece in which this measure occurs
     // Rep invariant:
     //   music != null
-    //   assert meter >= 0
+    //   meter != null, meter >= 0
+    //   duration == music.exactDuration()
+    //   hashCode == 31 * music.hashCode() + duration.hashCode()
     // Safety from rep exposure:
     //   all fields are private, final, and immutable
     
@@ -29,14 +33,26 @@ public class Measure implements Music {
      * @param meter the meter of the music as a double (e.g. 2/4 = 0.5)
      */
     public Measure(Music music, double meter) {
+        this(music, Rational.valueOf(meter));
+    }
+    
+    /**
+     * Make a new measure with some music and a specified meter
+     * @param music the music contained in this measure
+     * @param meter the meter of the music as an exact fraction (e.g. 2/4 = 1/2)
+     */
+    public Measure(Music music, Rational meter) {
         this.music = music;
         this.meter = meter;
+        this.duration = music.exactDuration();
+        this.hashCode = 31 * music.hashCode() + duration.hashCode();
         checkRep();
     }
     
     private void checkRep(){
         assert this.music != null;
-        assert this.meter >= 0;
+        assert this.meter != null;
+        assert this.meter.signum() >= 0;
     }
     
     private Music getMusic(){
@@ -44,24 +60,34 @@ public class Measure implements Music {
     }
     
     @Override
-    public double duration() {
-        return this.getMusic().duration();
+    public Rational exactDuration() {
+        return this.duration;
     }
 
     @Override
-    public void play(SequencePlayer player, double start) {
+    public long minimalTicksPerBeat() {
+        return this.getMusic().minimalTicksPerBeat();
+    }
+
+    @Override
+    public void play(EventSink player, Rational start) {
         this.getMusic().play(player, start);
         
     }
 
+    @Override
+    public void compile(CompiledScore.Builder score, Rational start) {
+        this.getMusic().compile(score, start);
+    }
+
     @Override
     public Music transpose(int semitonesUp) {
-        return new Measure(this.getMusic().transpose(semitonesUp), this.duration());
+        return new Measure(this.getMusic().transpose(semitonesUp), this.exactDuration());
     }
 
     @Override
     public Music transposePitch(Pitch pitch, int semitonesUp) {
-        return new Measure(this.getMusic().transposePitch(pitch, semitonesUp), this.duration());
+        return new Measure(this.getMusic().transposePitch(pitch, semitonesUp), this.exactDuration());
     }
     
     /**
@@ -74,13 +100,13 @@ public class Measure implements Music {
     public boolean equals(Object obj) {
         if (!(obj instanceof Measure)) return false;
         Measure thatMeasure = (Measure) obj;
-        return this.getMusic().equals(thatMeasure.getMusic()) && this.duration() == thatMeasure.duration();
+        return this.hashCode == thatMeasure.hashCode
+                && this.getMusic().equals(thatMeasure.getMusic()) && this.exactDuration().equals(thatMeasure.exactDuration());
     }
     
     @Override
     public int hashCode() {
-        Double d = this.duration();
-        return d.hashCode();
+        return this.hashCode;
     }
     
     /**
@@ -1,26 +1,31 @@
 package abc.ast;
 
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
-import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
 import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Synthesizer;
 
+import abc.cache.CachedTune;
+import abc.cache.TuneCache;
+import abc.parser.AbcBodyParser;
+import abc.parser.AbcSource;
+import abc.parser.GrammarCache;
+import abc.sound.EventSink;
 import abc.sound.Pitch;
-import abc.sound.SequencePlayer;
-import lib6005.parser.GrammarCompiler;
+import abc.sound.PlaybackEngine;
+import abc.sound.StreamingPlayer;
 import lib6005.parser.ParseTree;
 import lib6005.parser.Parser;
 import lib6005.parser.UnableToParseException;
@@ -32,14 +37,15 @@ import lib6005.parser.UnableToParseException;
 public interface Music {
     
     //Data type definition
-    //  Music = Note + Rest + Chord + Concat + Measure + Repeat + Tuplet + Voice + Piece
-    //  Note = Note(double: d, Pitch: p)
-    //  Rest = Rest(double: d)
+    //  Music = Note + Rest + Chord + Concat + Sequence + Measure + Repeat + Tuplet + Voice + Piece
+    //  Note = Note(Rational: d, Pitch: p)
+    //  Rest = Rest(Rational: d)
     //  Chord = Chord(List<Note>: notes)
     //  Tuplet = Tuplet(List<NoteOrChord>: m, int: length)
     //  Repeat = Repeat(Music: repeated, Music: firstEnd, Music: secondEnd)
     //  Concat = Concat(Music: first, Music: second)
-    //  Measure = Measure(Music: m, double: d)
+    //  Sequence = Sequence(List<Music>: m)
+    //  Measure = Measure(Music: m, Rational: d)
     //  Voice = Voice(Music: melody, String: name)
     //  Piece = Piece(List<Voice>: voices)
     
@@ -138,90 +144,179 @@ public interface Music {
     }
     
     /**
-     * Play an abc file.
+     * The ways parseBody can turn the music lines of a voice into a Music AST.
+     */
+    enum BodyParsing {
+        /** parse with AbcBody.g through parserlib, then walk the ParseTree with buildMusicAST */
+        GRAMMAR,
+        /** parse with the hand-written AbcBodyParser, which builds the AST without a ParseTree */
+        DIRECT
+    }
+    
+    /**
+     * The largest ticks per beat chosen by ticksPerBeat(Music), which is the largest a Standard MIDI File
+     * can store in its 15-bit division field.
+     */
+    public static final int MAX_TICKS_PER_BEAT = 0x7FFF;
+    
+    /**
+     * The version of the parser and compiler. Change it whenever the same abc text would parse or compile
+     * to different notes, so that scores saved by an earlier version are no longer used.
+     */
+    public static final int PARSER_VERSION = 1;
+    
+    /**
+     * Play an abc file, with the fewest ticks per beat that play every note exactly.
+     * @param file the abc file to be played.
+     */
+    public static void playMusic(File file) {
+        playMusic(file, 0);
+    }
+    
+    /**
+     * Play an abc file. A file played before, and not changed since, is loaded from the default TuneCache
+     * instead of being parsed again. A file that cannot be read is reported, and not played.
      * @param file the abc file to be played.
+     * @param ticksPerBeat the ticks per beat to play it with, or 0 to choose them with ticksPerBeat(Music)
      */
     public static void playMusic(File file, int ticksPerBeat) {
-        Map<String, String> header = parseHeader(file);
-        Music music = parseBody(header);
+        CachedTune tune;
         try {
-            SequencePlayer player = new SequencePlayer(Integer.parseInt(header.get("Q2")), ticksPerBeat);
-            music.play(player, 0);
-            player.play();
-        } catch (NumberFormatException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+            tune = TuneCache.getDefault().load(file.toPath(), ticksPerBeat);
+        }
+        catch(IOException e) {
+            System.out.println("Cannot read " + file);
+            return;
+        }
+        
+        //Print out header fields
+        System.out.println(tune.header().text());
+        
+        playScore(tune.header(), tune.score());
+    }
+    
+    /**
+     * Play a compiled tune, each voice on its own track and MIDI channel so that voices in unison do not
+     * cut each other off. Returns as soon as the tune starts; the devices are closed when it ends.
+     * The score is only read, so it can be played again later without parsing or compiling.
+     * @param header the header of the tune, which gives its tempo
+     * @param score the notes of the tune
+     */
+    public static void playScore(TuneHeader header, CompiledScore score) {
+        PlaybackEngine engine;
+        try {
+            engine = new PlaybackEngine();
         } catch (MidiUnavailableException e) {
-            // TODO Auto-generated catch block
             e.printStackTrace();
-        } catch (InvalidMidiDataException e) {
-            // TODO Auto-generated catch block
+            return;
+        }
+        try {
+            engine.play(score, header.tempo()).whenComplete((done, stopped) -> engine.close());
+        } catch (RuntimeException e) {
+            engine.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Play a compiled tune on the default synthesizer, sending its notes as their time comes instead of
+     * scheduling them all first, so that playback starts as soon as the first measure is ready.
+     * @param header the header of the tune, which gives its tempo and the length of a measure
+     * @param score the notes of the tune
+     */
+    public static void streamScore(TuneHeader header, CompiledScore score) {
+        try (Synthesizer synthesizer = MidiSystem.getSynthesizer()) {
+            synthesizer.open();
+            int firstMeasure = (int) header.meter().dividedBy(header.tempoBeat()).floorTicks(score.ticksPerBeat());
+            new StreamingPlayer(synthesizer).play(score, header.tempo(), firstMeasure);
+        } catch (MidiUnavailableException e) {
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
     
     /**
-     * Parse a music file into header and body fields in a map.
+     * Parse the header of a music file, and split its body into voices.
      * @param file music file to parse, must have a valid header followed by a valid body as defined in the grammars.
-     * @return a map for the input.
+     * @return the header of the input, or null if the file cannot be read.
      * @throws IllegalArgumentException if the input string is not valid.
      */
-    static Map<String, String> parseHeader(File file) {
-        String input = "";        
+    static TuneHeader parseHeader(File file) {
         try{
-            
             //Read the given file into a single string.
-            BufferedReader reader = new BufferedReader(new FileReader(file));
-            while(reader.ready()) {
-                input += reader.readLine() + "\n";
-            }
-            reader.close();
+            return parseHeader(AbcSource.read(file.toPath()));
+        }
+        catch(IOException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Parse the header of the text of a music file, and split its body into voices.
+     * @param input text of a music file, must have a valid header followed by a valid body as defined in the grammars.
+     * @return the header of the input, with every field parsed once.
+     * @throws IllegalArgumentException if the input string is not valid.
+     */
+    static TuneHeader parseHeader(CharSequence input) {
+        try{
             
             //Make a header map from the input string.
-            Parser<AbcHeaderGrammar> headerParser = GrammarCompiler.compile(new File("src/abc/parser/AbcHeader.g"), AbcHeaderGrammar.ABC_TUNE);
-            ParseTree<AbcHeaderGrammar> headerTree = headerParser.parse(input);
+            Parser<AbcHeaderGrammar> headerParser = GrammarCache.headerParser();
+            ParseTree<AbcHeaderGrammar> headerTree = headerParser.parse(AbcSource.normalize(input));
             Map<String, String> header = buildHeaderAST(headerTree);
                         
             //Update header based on initial input.
             header = updateMissingFields(header);
-            header = updateKeySignature(header);
             
-            //Print out header fields
-            System.out.println(header.get("entire_header"));
-            
-            return header;
+            return TuneHeader.fromFields(header);
             
         }
         catch(UnableToParseException e) {
             e.printStackTrace();
             throw new IllegalArgumentException();
         }
-        catch(IOException e) {
-            return null;
-        }
     }   
     
     /**
-     * Parse a music file.
-     * @param header a map containing all of the necessary fields to parse an abc file correctly.
+     * Parse a music file, building each voice with the hand-written parser.
+     * @param header the header of the tune, with the music lines of its voices.
      * @return music AST for the input.
      * @throws IllegalArgumentException if the input string is not valid.
      */
-    static Music parseBody(Map<String, String> header) {
+    static Music parseBody(TuneHeader header) {
+        return parseBody(header, BodyParsing.DIRECT);
+    }
+    
+    /**
+     * Parse a music file. Voices are independent once the header is known, so each voice is parsed
+     * as its own task on the common fork-join pool, and the Piece is built once they have all finished.
+     * @param header the header of the tune, with the music lines of its voices.
+     * @param parsing how to parse the music lines of each voice; both ways give equal ASTs.
+     * @return music AST for the input, with its voices in the order they appear in the tune.
+     * @throws IllegalArgumentException if the input string is not valid.
+     */
+    static Music parseBody(TuneHeader header, BodyParsing parsing) {
         try{
             
-            //Make a Music AST from the input and the header map.
-            Parser<AbcBodyGrammar> musicParser = GrammarCompiler.compile(new File("src/abc/parser/AbcBody.g"), AbcBodyGrammar.ABC_MUSIC);
+            List<String> inps = new ArrayList<>();
+            for(String name : header.voiceNames()) {
+                inps.add(header.voiceMusic(name));
+            }
+            
+            //Make a new Voice for each of them, in parallel when there is more than one.
             List<Voice> voices = new ArrayList<>();
-            Set<String> keys = header.keySet();
-            Set<String> inps = new HashSet<>();
-            for(String key : keys) {
-                if(key.contains("voice_")) {
-                    inps.add( header.get(key));
-                }
+            if(inps.size() == 1) {
+                voices.add(parseVoice(inps.get(0), header, parsing));
             }
-            for(String inp : inps) {
-                voices.add((Voice) buildMusicAST(musicParser.parse(inp), header)); //Make a new Voice for each voice parsed by the header.
+            else {
+                List<Callable<Voice>> tasks = new ArrayList<>();
+                for(String inp : inps) {
+                    tasks.add(() -> parseVoice(inp, header, parsing));
+                }
+                for(Future<Voice> voice : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                    voices.add(voice.get());
+                }
             }
             Music musicAst = new Piece(voices); //Combine all the Voices into one Piece.
             
@@ -232,10 +327,35 @@ public interface Music {
             e.printStackTrace();
             throw new IllegalArgumentException();
         }
-        catch(IOException e) {
-            return null;
+        catch(ExecutionException e) {
+            e.getCause().printStackTrace();
+            throw new IllegalArgumentException();
         }
-    }   
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while parsing voices", e);
+        }
+    }
+    
+    /**
+     * Parse the music lines of one voice. Safe to call from several threads at once with the same header.
+     * @param inp the music lines of one voice of header
+     * @param header the header of the tune
+     * @param parsing how to parse inp
+     * @return the voice
+     * @throws UnableToParseException if inp is not valid
+     */
+    static Voice parseVoice(String inp, TuneHeader header, BodyParsing parsing) throws UnableToParseException {
+        switch(parsing) {
+        case GRAMMAR:
+            Parser<AbcBodyGrammar> musicParser = GrammarCache.bodyParser();
+            return (Voice) buildMusicAST(musicParser.parse(inp), header);
+        case DIRECT:
+        default:
+            return new AbcBodyParser(header).parse(inp);
+        }
+    }
+    
     /**
      * Updates the header map with the correct fields of the header if they
      * are missing according to the project specification.
@@ -243,10 +363,10 @@ public interface Music {
      * @return the updated header map
      */
     static Map<String, String> updateMissingFields(Map<String, String> header) {
-        final double meterLimit = 0.75;
-        final String defaultMeter = "1.0";
-        final String defaultLengthLow = "0.0625";
-        final String defaultLengthHigh = "0.125";
+        final Rational meterLimit = Rational.of(3, 4);
+        final String defaultMeter = "1";
+        final String defaultLengthLow = "1/16";
+        final String defaultLengthHigh = "1/8";
         final String defaultTempo = "100";
         final String defaultComposer = "Unknown";
         
@@ -254,8 +374,8 @@ public interface Music {
             header.put("M", defaultMeter);
         }
         if(!header.containsKey("L")) {
-            double meter = Double.parseDouble(header.get("M"));
-            if(meter < meterLimit) {
+            Rational meter = Rational.parse(header.get("M"));
+            if(meter.compareTo(meterLimit) < 0) {
                 header.put("L", defaultLengthLow);
             }
             else {
@@ -272,70 +392,13 @@ public interface Music {
         return header;
     }
     
-    /**
-     * Updates the header map with the correct notes to be sharped or flattened based on the 
-     * key signature.
-     * @param header the current header map
-     * @return the updated header map
-     */
-    static Map<String, String> updateKeySignature(Map<String, String> header) {
-        switch(header.get("K")) {
-        case "Gb":
-        case "Ebm":
-            header.put("key_C", "_");
-        case "Db":
-        case "C#":
-        case "Bbm":
-            header.put("key_G", "_");
-        case "Ab":
-        case "Fm":
-            header.put("key_D", "_");
-        case "Eb":
-        case "Cm":
-            header.put("key_A", "_");
-        case "Bb":
-        case "Gm":
-            header.put("key_E", "_");
-        case "F":
-        case "Dm":
-            header.put("key_B", "_");
-        case "C":
-            return header;
-            
-        case "F#":
-        case "D#m":
-            header.put("key_E", "^");
-        case "B":
-        case "G#m":
-        case "Cb":
-            header.put("key_A", "^");
-        case "E":
-        case "C#m":
-            header.put("key_D", "^");
-        case "A":
-        case "F#m":
-            header.put("key_G", "^");
-        case "D":
-        case "Bm":
-            header.put("key_C", "^");
-        case "G":
-        case "Em":
-            header.put("key_F", "^");
-        case "Am":
-            return header;
-        
-        default:
-            throw new RuntimeException("Incompatible key signature.");
-        }
-    }
-    
     /**
      * Function converts a ParseTree to a map. 
      * @param p ParseTree<AbcHeaderGrammar> that is assumed to have been constructed by the grammar in AbcHeader.g
      * @return the map object containing header information generated from the ParseTree
      */
     static Map<String, String> buildHeaderAST(ParseTree<AbcHeaderGrammar> p) {
-        Map<String, String> header = new HashMap<>();
+        Map<String, String> header = new LinkedHashMap<>(); //keeps voices in the order they first appear
         switch(p.getName()) {
         case ABC_TUNE:
             for(ParseTree<AbcHeaderGrammar> voice : p.childrenByName(AbcHeaderGrammar.ABC_MUSIC)) {
@@ -401,9 +464,7 @@ public interface Music {
             return header;
         case FIELD_DEFAULT_LENGTH:
             ParseTree<AbcHeaderGrammar> fraction = p.childrenByName(AbcHeaderGrammar.NOTE_LENGTH_STRICT).get(0);
-            double numerator = Double.parseDouble(fraction.childrenByName(AbcHeaderGrammar.NUMERATOR).get(0).getContents());
-            double denominator = Double.parseDouble(fraction.childrenByName(AbcHeaderGrammar.DENOMINATOR).get(0).getContents());
-            header.put("L", "" + numerator/denominator);
+            header.put("L", fractionText(fraction));
             return header;
         case FIELD_METER:
             ParseTree<AbcHeaderGrammar> meter = p.childrenByName(AbcHeaderGrammar.METER).get(0);
@@ -412,17 +473,13 @@ public interface Music {
             }
             else {
                 fraction = meter.childrenByName(AbcHeaderGrammar.METER_FRACTION).get(0);
-                numerator = Double.parseDouble(fraction.childrenByName(AbcHeaderGrammar.NUMERATOR).get(0).getContents());
-                denominator = Double.parseDouble(fraction.childrenByName(AbcHeaderGrammar.DENOMINATOR).get(0).getContents());
-                header.put("M", "" + numerator/denominator);
+                header.put("M", fractionText(fraction));
             }
             return header;
         case FIELD_TEMPO:
             ParseTree<AbcHeaderGrammar> tempo = p.childrenByName(AbcHeaderGrammar.TEMPO).get(0);
             fraction = tempo.childrenByName(AbcHeaderGrammar.METER_FRACTION).get(0);
-            numerator = Double.parseDouble(fraction.childrenByName(AbcHeaderGrammar.NUMERATOR).get(0).getContents());
-            denominator = Double.parseDouble(fraction.childrenByName(AbcHeaderGrammar.DENOMINATOR).get(0).getContents());
-            header.put("Q1", "" + numerator/denominator);
+            header.put("Q1", fractionText(fraction));
             header.put("Q2", tempo.childrenByName(AbcHeaderGrammar.NUMBER).get(0).getContents());
             return header;
         case FIELD_VOICE:
@@ -454,65 +511,82 @@ public interface Music {
             throw new RuntimeException("You should never reach here:" + p);
         }
     }
+
+    /**
+     * @param fraction ParseTree of a fraction with one numerator and one denominator child
+     * @return the fraction as "numerator/denominator", exactly as written, for Rational.parse
+     */
+    static String fractionText(ParseTree<AbcHeaderGrammar> fraction) {
+        return fraction.childrenByName(AbcHeaderGrammar.NUMERATOR).get(0).getContents().trim() + "/"
+                + fraction.childrenByName(AbcHeaderGrammar.DENOMINATOR).get(0).getContents().trim();
+    }
+
+    /**
+     * Function converts the ParseTree of one voice to a Music.
+     * @param p ParseTree<AbcBodyGrammar> that is assumed to have been constructed by the grammar in AbcBody.g
+     * @param header the header of the tune
+     * @return the Music object generated from the ParseTree
+     */
+    static Music buildMusicAST(ParseTree<AbcBodyGrammar> p, TuneHeader header) {
+        return buildMusicAST(p, header, new AccidentalTracker(header));
+    }
     
     /**
      * Function converts a ParseTree to a Music. 
      * @param p ParseTree<AbcBodyGrammar> that is assumed to have been constructed by the grammar in AbcBody.g
-     * @param header Map<String, String> contains rules from header of abc file
+     * @param header the header of the tune
+     * @param accidentals the accidentals written so far in the current measure of this voice;
+     *        the voice's own, so that voices can be built at the same time
      * @return the Music object generated from the ParseTree
      */
-    static Music buildMusicAST(ParseTree<AbcBodyGrammar> p, Map<String, String> header) {
+    static Music buildMusicAST(ParseTree<AbcBodyGrammar> p, TuneHeader header, AccidentalTracker accidentals) {
         switch(p.getName()){
         
         case ABC_MUSIC:
-            Music voice = new Rest(0);
+            List<Music> lines = new ArrayList<>();
             for(ParseTree<AbcBodyGrammar> line : p.childrenByName(AbcBodyGrammar.ABC_LINE)){
                 
                 ParseTree<AbcBodyGrammar> child = line.children().get(0);
                 
                 if(child.getName() == AbcBodyGrammar.LINE_OF_MUSIC){
-                    Music m = buildMusicAST(child, header);
-                    voice = new Concat(voice, m);
+                    lines.add(buildMusicAST(child, header, accidentals));
                 }
             }
             
-            return new Voice(voice, "test");
+            return new Voice(new Sequence(lines), "test");
         case LINE_OF_MUSIC:
-            Music m = new Rest(0);
+            List<Music> measures = new ArrayList<>();
             for(ParseTree<AbcBodyGrammar> child : p.children()) {
                 if(child.getName() != AbcBodyGrammar.NEWLINE) {
-                    m = new Concat(m, buildMusicAST(child, header));
+                    measures.add(buildMusicAST(child, header, accidentals));
                 }
             }
-            return m;
+            return new Sequence(measures);
         case ABC_LINE:
             throw new RuntimeException("You should never reach here.");
         
         case ELEMENT:
-            Music element = new Rest(0);
-            if(p.children().get(0).getName() == AbcBodyGrammar.NOTE_ELEMENT ||
-                    p.children().get(0).getName() == AbcBodyGrammar.TUPLET_ELEMENT) {
-                element = buildMusicAST(p.children().get(0), header);
-            }
-            return element;
+            return buildMusicAST(p.children().get(0), header, accidentals);
         case NOTE_ELEMENT:
-            return buildMusicAST(p.children().get(0), header);
+            return buildMusicAST(p.children().get(0), header, accidentals);
         
         case REPEAT_END:
-            Music end = new Rest(0);
+            List<Music> end = new ArrayList<>();
             for(ParseTree<AbcBodyGrammar> elt : p.childrenByName(AbcBodyGrammar.ELEMENT)) {
-                end = new Concat(end, buildMusicAST(elt, header));
+                if(isMusicElement(elt)) {
+                    end.add(buildMusicAST(elt, header, accidentals));
+                }
             }
-            return end;
+            return new Sequence(end);
         
         case NTH_END:
-            return buildMusicAST(p.children().get(0), header);
+            return buildMusicAST(p.children().get(0), header, accidentals);
         
             
         //Handles note and rest
         case NOTE:
            
-            double length = (Double.parseDouble(header.get("L")) / Double.parseDouble(header.get("Q1"))) * MusicHelper.fractionToDouble(p.childrenByName(AbcBodyGrammar.NOTE_LENGTH).get(0).getContents());
+            Rational length = MusicHelper.fractionToRational(p.childrenByName(AbcBodyGrammar.NOTE_LENGTH).get(0).getContents());
 
             ParseTree<AbcBodyGrammar> noteOrRest = p.childrenByName(AbcBodyGrammar.NOTE_OR_REST).get(0);
             
@@ -530,34 +604,25 @@ public interface Music {
                     octave = pitch.childrenByName(AbcBodyGrammar.OCTAVE).get(0).getContents();
                 }
                 
-                //Handle accidental for this note
-                String accidental = "";
-                //First get any accidentals specified by key
-                if(header.containsKey("key_" + basenote.toUpperCase())){
-                    accidental = header.get("key_" + basenote.toUpperCase());
+                String accidental;
+                if(pitch.childrenByName(AbcBodyGrammar.ACCIDENTAL).isEmpty()){
+                    accidental = "";
                 }
-                //Then, get any accidentals specified by previous notes in that measure
-                if(header.containsKey("accidental_" + basenote + octave)){
-                    accidental = header.get("accidental_" + basenote + octave);
-                }
-                //Finally, get the accidental of this particular note
-                //and then update the header
-                if(!(pitch.childrenByName(AbcBodyGrammar.ACCIDENTAL).isEmpty())){
+                else{
                     accidental = pitch.childrenByName(AbcBodyGrammar.ACCIDENTAL).get(0).getContents();
-                    header.put("accidental_" + basenote + octave, accidental);
                 }
                 
-                return MusicHelper.constructNote(accidental, basenote, octave, length);
+                return MusicHelper.constructNote(header, accidentals, accidental, basenote, octave, length);
             }
             else{
-                return new Rest(length);
+                return MusicHelper.constructRest(header, length);
             }
         
         case CHORD:
             List<Note> notes = new ArrayList<>();
-            double chordDuration = buildMusicAST(p.children().get(0), header).duration();
+            Rational chordDuration = buildMusicAST(p.children().get(0), header, accidentals).exactDuration();
             for(ParseTree<AbcBodyGrammar> note : p.children()) {
-                notes.add((Note) buildMusicAST(note, header));
+                notes.add((Note) buildMusicAST(note, header, accidentals));
             }
             return new Chord(notes, chordDuration);
         case TUPLET_ELEMENT:
@@ -567,41 +632,33 @@ public interface Music {
             
             List<NoteOrChord> sequence = new ArrayList<NoteOrChord>();
             for(ParseTree<AbcBodyGrammar> child : p.childrenByName(AbcBodyGrammar.NOTE_ELEMENT)){
-                    sequence.add((NoteOrChord) buildMusicAST(child, header));
+                    sequence.add((NoteOrChord) buildMusicAST(child, header, accidentals));
             }
             return new Tuplet(sequence, tupletLength);
         case MEASURE:
-            Music measure = new Rest(0);
+            List<Music> elements = new ArrayList<>();
             for(ParseTree<AbcBodyGrammar> elt : p.childrenByName(AbcBodyGrammar.ELEMENT)) {
-                measure = new Concat(measure, buildMusicAST(elt, header));
-            }
-            //Remove all accidentals placed in header by the notes in this measure
-            Set<String> accidentalsToRemove = header.keySet().stream().filter(s -> s.contains("accidental_")).collect(Collectors.toSet());
-            Iterator<String> iter = accidentalsToRemove.iterator();
-            while(iter.hasNext()){
-                header.remove(iter.next());
+                if(isMusicElement(elt)) {
+                    elements.add(buildMusicAST(elt, header, accidentals));
+                }
             }
-            
-            return new Measure(measure, Double.parseDouble(header.get("M")));
+            return MusicHelper.constructMeasure(header, accidentals, new Sequence(elements));
         case REPEAT:
-            Music repeat = new Rest(0);
+            List<Music> repeated = new ArrayList<>();
+            for(ParseTree<AbcBodyGrammar> measure : p.childrenByName(AbcBodyGrammar.MEASURE)) {
+                repeated.add(buildMusicAST(measure, header, accidentals));
+            }
             // Test for multiple endings
             if(p.childrenByName(AbcBodyGrammar.NTH_REPEAT).isEmpty()) { // no multiple endings
-                for(ParseTree<AbcBodyGrammar> measures : p.childrenByName(AbcBodyGrammar.MEASURE)) {
-                    repeat = new Concat(repeat, buildMusicAST(measures, header));
-                }
-                repeat = new Concat(repeat, buildMusicAST(p.childrenByName(AbcBodyGrammar.REPEAT_END).get(0), header));
-                return new Repeat(repeat);
+                repeated.add(buildMusicAST(p.childrenByName(AbcBodyGrammar.REPEAT_END).get(0), header, accidentals));
+                return new Repeat(new Sequence(repeated));
             }
             
             else { // two endings
-                for(ParseTree<AbcBodyGrammar> measures : p.childrenByName(AbcBodyGrammar.MEASURE)) {
-                    repeat = new Concat(repeat, buildMusicAST(measures, header));
-                }
-                Music first = buildMusicAST(p.childrenByName(AbcBodyGrammar.REPEAT_END).get(0), header);
-                Music second = buildMusicAST(p.childrenByName(AbcBodyGrammar.NTH_END).get(0), header);
+                Music first = buildMusicAST(p.childrenByName(AbcBodyGrammar.REPEAT_END).get(0), header, accidentals);
+                Music second = buildMusicAST(p.childrenByName(AbcBodyGrammar.NTH_END).get(0), header, accidentals);
                 
-                return new Repeat(repeat, first, second);
+                return new Repeat(new Sequence(repeated), first, second);
             }
         //Don't care for the rest of these cases
         case PARAMETER:
@@ -633,18 +690,79 @@ public interface Music {
         }
     }
     
+    /**
+     * Whether an ELEMENT of the body grammar holds any music. Whitespace and newline elements
+     * take no time and are left out of the Music AST.
+     * @param element ParseTree<AbcBodyGrammar> of an ELEMENT
+     * @return true if and only if element is a NOTE_ELEMENT or a TUPLET_ELEMENT
+     */
+    static boolean isMusicElement(ParseTree<AbcBodyGrammar> element) {
+        AbcBodyGrammar kind = element.children().get(0).getName();
+        return kind == AbcBodyGrammar.NOTE_ELEMENT || kind == AbcBodyGrammar.TUPLET_ELEMENT;
+    }
+    
     /**
      * Gets the length of some singular note in music
-     * @return a double representing the length of the note
+     * @return a double representing the length of the note, the double closest to exactDuration()
+     */
+    public default double duration() {
+        return exactDuration().doubleValue();
+    }
+    
+    /**
+     * Gets the exact length of this music
+     * @return the length of this music in beats
      */
-    public double duration();
+    public Rational exactDuration();
+    
+    /**
+     * Gets the resolution this music needs to be played exactly: the least common multiple of the
+     * denominators of the lengths of its notes and rests, after tuplet scaling. Every start time is a sum
+     * of such lengths, so every note starts and ends on a whole tick.
+     * @return the smallest number of ticks per beat at which every note and rest in this music starts
+     *         and ends on a whole tick, when this music starts on a whole beat
+     * @throws ArithmeticException if that number does not fit in a long
+     */
+    public long minimalTicksPerBeat();
+    
+    /**
+     * Choose the ticks per beat to play or export music with.
+     * @param music the music to be played
+     * @return music.minimalTicksPerBeat(), or MAX_TICKS_PER_BEAT if that is larger, in which case notes
+     *         are moved to the tick their exact time falls in
+     */
+    public static int ticksPerBeat(Music music) {
+        try {
+            return (int) Math.min(music.minimalTicksPerBeat(), MAX_TICKS_PER_BEAT);
+        }
+        catch (ArithmeticException e) {
+            return MAX_TICKS_PER_BEAT;
+        }
+    }
     
     /**
      * Play this piece
-     * @param player Sequence player that plays this music
-     * @param start when to play, requires start >= 0
+     * @param player the player, recorder or other sink on which to schedule the notes of this music
+     * @param start when to play in beats, requires start >= 0; converted exactly with Rational.valueOf
+     */
+    public default void play(EventSink player, double start) {
+        play(player, Rational.valueOf(start));
+    }
+    
+    /**
+     * Play this piece. Every note starts and ends at the tick its exact time falls in,
+     * so rounding never builds up along a voice.
+     * @param player the player, recorder or other sink on which to schedule the notes of this music
+     * @param start when to play in beats, requires start >= 0
+     */
+    public void play(EventSink player, Rational start);
+    
+    /**
+     * Add the notes of this music to a score being compiled, with the start times and durations play would give them
+     * @param score the score to add the notes to
+     * @param start when this music starts in beats, requires start >= 0
      */
-    public void play(SequencePlayer player, double start);
+    public void compile(CompiledScore.Builder score, Rational start);
     
     /**
      * Transpose all notes upward or downward in pitch.
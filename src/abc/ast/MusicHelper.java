@@ -1,7 +1,5 @@
 package abc.ast;
 
-import java.util.Arrays;
-
 import abc.sound.Pitch;
 
 
@@ -49,6 +47,23 @@ public class MusicHelper {
         
     }
     
+    /**
+     * Converts a String in the format "(Number)/(Number)", "Number/", "/Number", "/", "", Number
+     * into the exact fraction it stands for, with the same meaning as fractionToDouble
+     * @param fraction String representing number to convert into a fraction; assumes (Number) is not "0"
+     *      if provided as a denominator
+     * @return exact representation of fraction
+     */
+    public static Rational fractionToRational(String fraction){
+        int slash = fraction.indexOf('/');
+        if(slash < 0){
+            return fraction.isEmpty() ? Rational.ONE : Rational.valueOf(Long.parseLong(fraction));
+        }
+        long numerator = slash > 0 ? Long.parseLong(fraction.substring(0, slash)) : 1;
+        long denominator = slash + 1 < fraction.length() ? Long.parseLong(fraction.substring(slash + 1)) : 2;
+        return Rational.of(numerator, denominator);
+    }
+    
     /**
      * Creates a note 
      * @param accidental String representing the accidental of this note
@@ -66,6 +81,74 @@ public class MusicHelper {
         return new Note(duration, p.transpose(accidentalTranspose).transpose(octaveTranspose));
     }
     
+    /**
+     * Creates the note described by one pitched note of the body grammar. The accidental that applies
+     * is, in order of preference, the one written on the note, the last one written on the same note
+     * earlier in the measure, or the one given by the key signature. A written accidental is remembered
+     * in accidentals until the end of the measure.
+     * @param header the header of the tune
+     * @param accidentals the accidentals written so far in the current measure of one voice;
+     *        updated with the accidental written on this note, if any
+     * @param accidental String representing the accidental written on this note, or "" if there is none
+     * @param basenote String representing the base pitch of this note
+     * @param octave String representing what octave this note is in
+     * @param lengthFactor the note length written after the note, as a multiple of the default length
+     * @return a note with the correct pitch and a duration in beats
+     */
+    public static Note constructNote(TuneHeader header, AccidentalTracker accidentals,
+            String accidental, String basenote, String octave, Rational lengthFactor){
+        return constructNote(header, accidentals, AccidentalTracker.semitones(accidental), basenote.charAt(0),
+                AccidentalTracker.octaveMarks(octave), lengthFactor);
+    }
+    
+    /**
+     * Creates the note described by one pitched note of the body grammar, as constructNote above,
+     * from its parts already converted to numbers.
+     * @param header the header of the tune
+     * @param accidentals the accidentals written so far in the current measure of one voice;
+     *        updated with the accidental written on this note, if any
+     * @param accidental semitones of the accidental written on this note, or AccidentalTracker.NONE
+     * @param basenote the basenote letter as written, 'A' to 'G' or 'a' to 'g'
+     * @param octaveMarks number of "'" written after the note, or minus the number of ","
+     * @param lengthFactor the note length written after the note, as a multiple of the default length
+     * @return a note with the correct pitch and a duration in beats
+     */
+    public static Note constructNote(TuneHeader header, AccidentalTracker accidentals,
+            int accidental, char basenote, int octaveMarks, Rational lengthFactor){
+        int semitonesUp = accidentals.apply(basenote, octaveMarks, accidental) + octaveMarks * Pitch.OCTAVE;
+        if(basenote >= 'a'){
+            semitonesUp += Pitch.OCTAVE;
+        }
+        Pitch p = new Pitch(Character.toUpperCase(basenote));
+        return new Note(noteDuration(header, lengthFactor), p.transpose(semitonesUp));
+    }
+    
+    /**
+     * Creates the rest described by one rest of the body grammar.
+     * @param header the header of the tune
+     * @param lengthFactor the note length written after the rest, as a multiple of the default length
+     * @return a rest with a duration in beats
+     */
+    public static Rest constructRest(TuneHeader header, Rational lengthFactor){
+        return new Rest(noteDuration(header, lengthFactor));
+    }
+    
+    /**
+     * Creates a measure and forgets the accidentals written in it.
+     * @param header the header of the tune
+     * @param accidentals the accidentals written in this measure of one voice; moved on to the next measure
+     * @param music the music in the measure
+     * @return a measure of music with the meter of the tune
+     */
+    public static Measure constructMeasure(TuneHeader header, AccidentalTracker accidentals, Music music){
+        accidentals.nextMeasure();
+        return new Measure(music, header.meter());
+    }
+    
+    private static Rational noteDuration(TuneHeader header, Rational lengthFactor){
+        return header.beatsPerDefaultLength().times(lengthFactor);
+    }
+    
     private static Pitch handlePitch(String basenote){
         switch(basenote){
             case("a"):
@@ -7,14 +7,14 @@ import abc.sound.*;
 */
 public class Note implements Music, NoteOrChord {
     
-    private final double duration;
+    private final Rational duration;
     private final Pitch pitch;
     
     // Abstraction function
     //    Represents one note of duration duration in music sheet
     // Rep invariant
     //    duration >= 0
-    //    pitch != null  
+    //    duration != null, pitch != null  
     // Safety from rep exposure
     //    All fields are private, final, and immutable. All return values are immutable
     
@@ -24,6 +24,15 @@ public class Note implements Music, NoteOrChord {
      * @param p Pitch to play
      */
     public Note(double duration, Pitch p){
+        this(Rational.valueOf(duration), p);
+    }
+    
+    /**
+     * Constructs a note
+     * @param duration exact length in beats. Represents how long the note plays for 
+     * @param p Pitch to play
+     */
+    public Note(Rational duration, Pitch p){
         this.duration = duration;
         this.pitch = p;
         checkRep();
@@ -33,7 +42,8 @@ public class Note implements Music, NoteOrChord {
      * Asserts rep invariant
      */
     private void checkRep(){
-        assert this.duration >= 0;
+        assert this.duration != null;
+        assert this.duration.signum() >= 0;
         assert this.pitch != null;
     }
     
@@ -49,30 +59,41 @@ public class Note implements Music, NoteOrChord {
      * @return duration of this note
      */
     @Override
-    public double duration() {
+    public Rational exactDuration() {
         return this.duration;
     }
     
+    @Override
+    public long minimalTicksPerBeat() {
+        return this.duration.denominator();
+    }
+    
     /**
-     * Play this note
+     * Play this note, from the tick its start falls in to the tick its end falls in
      */
     @Override
-    public void play(SequencePlayer player, double start) {
+    public void play(EventSink player, Rational start) {
         int ticksPerBeat = player.getTicksPerBeat();
         int note = this.pitch.toMidiNote();
-        player.addNote(note, (int)(start * ticksPerBeat), (int)(this.duration * ticksPerBeat));
+        long startTick = start.floorTicks(ticksPerBeat);
+        long endTick = start.plus(this.duration).floorTicks(ticksPerBeat);
+        player.addNote(note, Math.toIntExact(startTick), Math.toIntExact(endTick - startTick));
         
     }
 
+    @Override
+    public void compile(CompiledScore.Builder score, Rational start) {
+        score.addNote(this.pitch.toMidiNote(), start, this.duration);
+    }
+
     @Override
     public Music transpose(int semitonesUp) {
-        return new Note(this.duration(), this.getPitch().transpose(semitonesUp));
+        return new Note(this.duration, this.getPitch().transpose(semitonesUp));
     }
     
     @Override
     public int hashCode(){
-        Double d = this.duration();
-        return d.hashCode() + this.getPitch().hashCode();
+        return this.duration.hashCode() + this.getPitch().hashCode();
     }
     
     /**
@@ -84,7 +105,7 @@ public class Note implements Music, NoteOrChord {
     public boolean equals(Object obj){
         if (!(obj instanceof Note)) return false;
         Note thatNote = (Note) obj;
-        return (this.duration() == thatNote.duration()) && (this.getPitch().equals(thatNote.getPitch()));
+        return this.duration.equals(thatNote.duration) && (this.getPitch().equals(thatNote.getPitch()));
     }
     
     /**
@@ -93,35 +114,30 @@ public class Note implements Music, NoteOrChord {
      */
     @Override
     public String toString(){
-        return pitch.toString() + duration;
+        return pitch.toString() + duration();
     }
 
     @Override
     public Music transposePitch(Pitch pitch, int semitonesUp) {
         if ( this.getPitch().equals(pitch) ) {
-            return new Note(this.duration(), this.getPitch().transpose(semitonesUp));
+            return new Note(this.duration, this.getPitch().transpose(semitonesUp));
         }
-        return new Note(this.duration(), this.getPitch());
+        return new Note(this.duration, this.getPitch());
     }
 
     @Override
-    public void tupletPlay(SequencePlayer player, double start, int length) {
-        double durationFactor;
-        
-        switch(length){
-            case 2: 
-                durationFactor = 1.5;
-                break;
-            case 3: 
-                durationFactor = 2.0/3.0;
-                break;
-            case 4: 
-                durationFactor = 0.75;
-                break;
-            default: 
-                throw new RuntimeException("Unreachable");
-        }
-        Note newNote = new Note(this.duration * durationFactor, this.getPitch());
+    public long tupletTicksPerBeat(int length) {
+        return this.duration.times(Tuplet.durationFactor(length)).denominator();
+    }
+
+    @Override
+    public void tupletCompile(CompiledScore.Builder score, Rational start, int length) {
+        score.addNote(this.pitch.toMidiNote(), start, this.duration.times(Tuplet.durationFactor(length)));
+    }
+
+    @Override
+    public void tupletPlay(EventSink player, Rational start, int length) {
+        Note newNote = new Note(this.duration.times(Tuplet.durationFactor(length)), this.getPitch());
         newNote.play(player, start);
     }
 }
\ No newline at end of file
@@ -8,8 +8,8 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import abc.sound.EventSink;
 import abc.sound.Pitch;
-import abc.sound.SequencePlayer;
 import lib6005.parser.GrammarCompiler;
 import lib6005.parser.ParseTree;
 import lib6005.parser.Parser;
@@ -22,9 +22,35 @@ public interface NoteOrChord extends Music{
     
     /**
      * Play this note or chord in the context of tuplets, whose durations are defined in the ABC Player specifications page
-     * @param player Sequence player that plays this music
-     * @param start when to play, requires start >= 0
+     * @param player the player, recorder or other sink on which to schedule the notes of this music
+     * @param start when to play in beats, requires start >= 0
      * @param length the length of the tuplet in which the note or chord will be played
      */
-    public void tupletPlay(SequencePlayer player, double start, int length);
+    public void tupletPlay(EventSink player, Rational start, int length);
+    
+    /**
+     * Get the ticks per beat this note or chord needs in the context of tuplets, as minimalTicksPerBeat does
+     * @param length the length of the tuplet in which the note or chord will be played
+     * @return the smallest number of ticks per beat at which every note of this, scaled by the tuplet,
+     *         lasts a whole number of ticks
+     */
+    public long tupletTicksPerBeat(int length);
+    
+    /**
+     * Add the notes of this note or chord to a score being compiled in the context of tuplets, as tupletPlay plays them
+     * @param score the score to add the notes to
+     * @param start when to play in beats, requires start >= 0
+     * @param length the length of the tuplet in which the note or chord will be played
+     */
+    public void tupletCompile(CompiledScore.Builder score, Rational start, int length);
+    
+    /**
+     * Play this note or chord in the context of tuplets, as above
+     * @param player the player, recorder or other sink on which to schedule the notes of this music
+     * @param start when to play in beats, requires start >= 0; converted exactly with Rational.valueOf
+     * @param length the length of the tuplet in which the note or chord will be played
+     */
+    public default void tupletPlay(EventSink player, double start, int length) {
+        tupletPlay(player, Rational.valueOf(start), length);
+    }
 }
\ No newline at end of file
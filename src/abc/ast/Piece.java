@@ -4,8 +4,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import abc.sound.EventSink;
 import abc.sound.Pitch;
-import abc.sound.SequencePlayer;
 
 /**
  * An immutable data type representing a piece of music. 
@@ -13,6 +13,8 @@ import abc.sound.SequencePlayer;
 public class Piece implements Music{
     
     private final List<Voice> voices;
+    private final Rational duration;
+    private final int hashCode;
     
     //Abstraction function
     //  Represents a piece of music with voices that each have some melody. The voices can be of different duration
@@ -20,12 +22,22 @@ public class Piece implements Music{
     //  voices != null
     //  values in voice != null
     //  voices.size() > 0
+    //  duration == the largest exactDuration() of the voices
+    //  hashCode == the sum of the hashCode() of the voices
     //Rep exposure
     //  All fields are private and final. 
-    //  voice is mutable, but this class has no mutators methods, and all return values of methods are immutable.
+    //  voices is an unmodifiable copy of the list passed in, and all return values of methods are immutable.
     
     public Piece(List<Voice> voices){
-        this.voices = voices;
+        this.voices = Collections.unmodifiableList(new ArrayList<>(voices));
+        Rational maxDuration = Rational.ZERO;
+        int hash = 0;
+        for (Voice v : this.voices){
+            maxDuration = maxDuration.max(v.exactDuration());
+            hash += v.hashCode();
+        }
+        this.duration = maxDuration;
+        this.hashCode = hash;
         checkRep();
     }
     
@@ -41,23 +53,33 @@ public class Piece implements Music{
     }
     
     @Override
-    public double duration() {
-        double maxDuration = 0;
+    public Rational exactDuration() {
+        return this.duration;
+    }
+
+    @Override
+    public long minimalTicksPerBeat() {
+        long ticksPerBeat = 1;
         for (Voice v : voices){
-            if(v.duration() >= maxDuration){
-              maxDuration = v.duration();  
-            }
+            ticksPerBeat = Rational.lcm(ticksPerBeat, v.minimalTicksPerBeat());
         }
-        return maxDuration;
+        return ticksPerBeat;
     }
 
     @Override
-    public void play(SequencePlayer player, double start) {
+    public void play(EventSink player, Rational start) {
         for(Voice v : voices){
             v.play(player, start);
         }
     }
 
+    @Override
+    public void compile(CompiledScore.Builder score, Rational start) {
+        for(Voice v : voices){
+            v.compile(score, start);
+        }
+    }
+
     @Override
     public Music transpose(int semitonesUp) {
         List<Voice> transposed = new ArrayList<>();
@@ -78,11 +100,7 @@ public class Piece implements Music{
     
     @Override
     public int hashCode(){
-        int hash = 0;
-        for(Voice v : voices){
-            hash += v.hashCode();
-        }
-        return hash;
+        return this.hashCode;
     }
     
     /**
@@ -95,7 +113,7 @@ public class Piece implements Music{
         if(!(obj instanceof Piece)) return false;
         Piece thatPiece = (Piece) obj;
         
-        if(!(this.voices.size() == thatPiece.voices.size())){
+        if(this.hashCode != thatPiece.hashCode || !(this.voices.size() == thatPiece.voices.size())){
             return false;
         }
         
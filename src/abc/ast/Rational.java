@@ -0,0 +1,348 @@
+package abc.ast;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * An immutable exact fraction of two longs, used for every duration and start time in the Music AST
+ * so that sums of tuplet and dotted note lengths never round.
+ *
+ * Arithmetic reduces by the gcd before multiplying to keep the longs small, reuses ZERO and ONE,
+ * and returns an operand unchanged when the other is zero or one. It throws ArithmeticException
+ * rather than silently overflow.
+ */
+public final class Rational implements Comparable<Rational> {
+
+    /** zero */
+    public static final Rational ZERO = new Rational(0, 1);
+    /** one */
+    public static final Rational ONE = new Rational(1, 1);
+
+    /** the largest denominator valueOf(double) tries before it falls back to the exact binary fraction */
+    private static final long MAX_SIMPLE_DENOMINATOR = 1L << 24;
+
+    private final long numerator;
+    private final long denominator;
+
+    // Abstraction function
+    //    represents the number numerator / denominator
+    // Rep invariant
+    //    denominator > 0
+    //    gcd(|numerator|, denominator) == 1, so numerator == 0 implies denominator == 1
+    // Safety from rep exposure
+    //    all fields are private, final and immutable
+
+    private Rational(long numerator, long denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert denominator > 0;
+        assert gcd(Math.abs(numerator), denominator) == 1;
+    }
+
+    /**
+     * @param numerator any long
+     * @param denominator any long other than 0
+     * @return the fraction numerator / denominator
+     * @throws ArithmeticException if denominator is 0, or the reduced fraction does not fit in longs
+     */
+    public static Rational of(long numerator, long denominator) {
+        if (denominator == 0) {
+            throw new ArithmeticException("zero denominator");
+        }
+        if (numerator == 0) {
+            return ZERO;
+        }
+        long g = gcd(Math.abs(numerator), Math.abs(denominator));
+        numerator /= g;
+        denominator /= g;
+        if (denominator < 0) {
+            numerator = Math.negateExact(numerator);
+            denominator = Math.negateExact(denominator);
+        }
+        if (denominator == 1 && numerator == 1) {
+            return ONE;
+        }
+        return new Rational(numerator, denominator);
+    }
+
+    /**
+     * @param value any long
+     * @return the fraction value / 1
+     */
+    public static Rational valueOf(long value) {
+        return of(value, 1);
+    }
+
+    /**
+     * Convert a double, as written in code or parsed from text, to the fraction it stands for.
+     * @param value a finite double
+     * @return the fraction with the smallest denominator that is closer to value than to any other double,
+     *         such as 1/3 for 1.0/3.0 and 157/50 for 3.14; or, if there is none with a denominator of at most 2^24,
+     *         the fraction value is exactly equal to
+     * @throws ArithmeticException if value is not finite or too large for a long
+     */
+    public static Rational valueOf(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new ArithmeticException("not a finite number: " + value);
+        }
+        if (value == Math.rint(value)) {
+            if (Math.abs(value) >= 0x1p63) {
+                throw new ArithmeticException("too large: " + value);
+            }
+            return valueOf((long) value);
+        }
+        // walk the continued fraction of value; its convergents are the best approximations with small denominators
+        long p0 = 0, q0 = 1, p1 = 1, q1 = 0;
+        double rest = value;
+        while (true) {
+            double a = Math.floor(rest);
+            long p2 = (long) a * p1 + p0;
+            long q2 = (long) a * q1 + q0;
+            if (q2 > MAX_SIMPLE_DENOMINATOR || Math.abs(a) > MAX_SIMPLE_DENOMINATOR) {
+                return exact(value);
+            }
+            if ((double) p2 / q2 == value) {
+                return of(p2, q2);
+            }
+            p0 = p1;
+            q0 = q1;
+            p1 = p2;
+            q1 = q2;
+            rest = 1 / (rest - a);
+        }
+    }
+
+    private static Rational exact(double value) {
+        int exponent = Math.getExponent(value) - 52;
+        long mantissa = (long) Math.scalb(value, -exponent);
+        if (exponent >= 0) {
+            return valueOf(Math.multiplyExact(mantissa, 1L << exponent));
+        }
+        if (exponent < -62) {
+            throw new ArithmeticException("too small: " + value);
+        }
+        return of(mantissa, 1L << -exponent);
+    }
+
+    /**
+     * Parse a fraction written as "n/d", "n" or a decimal such as "0.125".
+     * @param text the fraction; d must not be 0
+     * @return the fraction text stands for
+     * @throws NumberFormatException if text is not in one of those forms
+     */
+    public static Rational parse(String text) {
+        int slash = text.indexOf('/');
+        if (slash >= 0) {
+            return of(Long.parseLong(text.substring(0, slash).trim()), Long.parseLong(text.substring(slash + 1).trim()));
+        }
+        String trimmed = text.trim();
+        if (trimmed.indexOf('.') < 0 && trimmed.indexOf('e') < 0 && trimmed.indexOf('E') < 0) {
+            return valueOf(Long.parseLong(trimmed));
+        }
+        return valueOf(Double.parseDouble(trimmed));
+    }
+
+    /**
+     * @return the numerator of this fraction in lowest terms
+     */
+    public long numerator() {
+        return numerator;
+    }
+
+    /**
+     * @return the denominator of this fraction in lowest terms, always > 0
+     */
+    public long denominator() {
+        return denominator;
+    }
+
+    /**
+     * @param that any fraction
+     * @return this + that
+     */
+    public Rational plus(Rational that) {
+        if (that.numerator == 0) {
+            return this;
+        }
+        if (this.numerator == 0) {
+            return that;
+        }
+        if (this.denominator == that.denominator) {
+            return of(Math.addExact(this.numerator, that.numerator), denominator);
+        }
+        long g = gcd(this.denominator, that.denominator);
+        long thisScale = that.denominator / g;
+        long thatScale = this.denominator / g;
+        return of(Math.addExact(Math.multiplyExact(this.numerator, thisScale), Math.multiplyExact(that.numerator, thatScale)),
+                Math.multiplyExact(this.denominator, thisScale));
+    }
+
+    /**
+     * @param that any fraction
+     * @return this - that
+     */
+    public Rational minus(Rational that) {
+        return plus(that.negate());
+    }
+
+    /**
+     * @return -this
+     */
+    public Rational negate() {
+        return numerator == 0 ? this : new Rational(Math.negateExact(numerator), denominator);
+    }
+
+    /**
+     * @param that any fraction
+     * @return this * that
+     */
+    public Rational times(Rational that) {
+        if (that == ONE || this.numerator == 0) {
+            return this;
+        }
+        if (this == ONE || that.numerator == 0) {
+            return that;
+        }
+        long g1 = gcd(Math.abs(this.numerator), that.denominator);
+        long g2 = gcd(Math.abs(that.numerator), this.denominator);
+        return of(Math.multiplyExact(this.numerator / g1, that.numerator / g2),
+                Math.multiplyExact(this.denominator / g2, that.denominator / g1));
+    }
+
+    /**
+     * @param factor any long
+     * @return this * factor
+     */
+    public Rational times(long factor) {
+        if (factor == 1) {
+            return this;
+        }
+        long g = gcd(Math.abs(factor), denominator);
+        return of(Math.multiplyExact(numerator, factor / g), denominator / g);
+    }
+
+    /**
+     * @param that any fraction other than 0
+     * @return this / that
+     * @throws ArithmeticException if that is 0
+     */
+    public Rational dividedBy(Rational that) {
+        if (that.numerator == 0) {
+            throw new ArithmeticException("division by zero");
+        }
+        return times(of(that.denominator, that.numerator));
+    }
+
+    /**
+     * @param that any fraction
+     * @return the larger of this and that
+     */
+    public Rational max(Rational that) {
+        return compareTo(that) >= 0 ? this : that;
+    }
+
+    /**
+     * @return -1, 0 or 1 as this is negative, zero or positive
+     */
+    public int signum() {
+        return Long.signum(numerator);
+    }
+
+    /**
+     * The tick at which a time falls, when every beat is divided into ticksPerBeat ticks.
+     * @param ticksPerBeat ticks per beat, > 0
+     * @return the largest integer not greater than this * ticksPerBeat
+     * @throws ArithmeticException if the result does not fit in a long
+     */
+    public long floorTicks(long ticksPerBeat) {
+        long g = gcd(ticksPerBeat, denominator);
+        return Math.floorDiv(Math.multiplyExact(numerator, ticksPerBeat / g), denominator / g);
+    }
+
+    /**
+     * @param ticksPerBeat ticks per beat, > 0
+     * @return true if and only if this * ticksPerBeat is an integer
+     */
+    public boolean isWholeTicks(long ticksPerBeat) {
+        return ticksPerBeat % denominator == 0;
+    }
+
+    /**
+     * @return the double closest to this fraction
+     */
+    public double doubleValue() {
+        if (Math.abs(numerator) <= (1L << 53) && denominator <= (1L << 53)) {
+            return (double) numerator / denominator; // both exact, so the quotient is correctly rounded
+        }
+        return new BigDecimal(numerator).divide(new BigDecimal(denominator), MathContext.DECIMAL128).doubleValue();
+    }
+
+    @Override
+    public int compareTo(Rational that) {
+        if (this.denominator == that.denominator) {
+            return Long.compare(this.numerator, that.numerator);
+        }
+        try {
+            return Long.compare(Math.multiplyExact(this.numerator, that.denominator),
+                    Math.multiplyExact(that.numerator, this.denominator));
+        }
+        catch (ArithmeticException e) {
+            return BigInteger.valueOf(this.numerator).multiply(BigInteger.valueOf(that.denominator))
+                    .compareTo(BigInteger.valueOf(that.numerator).multiply(BigInteger.valueOf(this.denominator)));
+        }
+    }
+
+    /**
+     * @param a any long >= 0
+     * @param b any long >= 0
+     * @return the greatest common divisor of a and b, or 0 if both are 0
+     */
+    public static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * @param a any long > 0
+     * @param b any long > 0
+     * @return the least common multiple of a and b
+     * @throws ArithmeticException if it does not fit in a long
+     */
+    public static long lcm(long a, long b) {
+        return Math.multiplyExact(a / gcd(a, b), b);
+    }
+
+    /**
+     * Indicates whether two objects are equal as defined below
+     * @param obj any object
+     * @return true if and only if this and obj are Rational instances representing the same number
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Rational)) return false;
+        Rational that = (Rational) obj;
+        return this.numerator == that.numerator && this.denominator == that.denominator;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(numerator) * 31 + Long.hashCode(denominator);
+    }
+
+    /**
+     * @return "n" if this is the integer n, or "n/d" in lowest terms otherwise
+     */
+    @Override
+    public String toString() {
+        return denominator == 1 ? Long.toString(numerator) : numerator + "/" + denominator;
+    }
+}
@@ -1,7 +1,7 @@
 package abc.ast;
 
+import abc.sound.EventSink;
 import abc.sound.Pitch;
-import abc.sound.SequencePlayer;
 
 /**
  * An immutable data type representing a section of music that gets played again.
@@ -12,6 +12,8 @@ public class Repeat implements Music{
     private final Music repeated;
     private final Music firstEnd;
     private final Music secondEnd;
+    private final Rational duration;
+    private final int hashCode;
     
     //Abstraction function
     //  Represents a section of music that gets repeated. Differing
@@ -20,6 +22,8 @@ public class Repeat implements Music{
     //  repeated != null
     //  firstEnd != null
     //  secondEnd != null
+    //  duration == 2 * repeated.exactDuration() + firstEnd.exactDuration() + secondEnd.exactDuration()
+    //  hashCode == 31 * (31 * repeated.hashCode() + firstEnd.hashCode()) + secondEnd.hashCode()
     //Rep Exposure
     //  All fields are private, final, and immutable. Return values are immutable
     
@@ -28,10 +32,7 @@ public class Repeat implements Music{
      * @param m Music that's always repeated
      */
     public Repeat(Music m){
-        repeated = m;
-        firstEnd = new Rest(0);
-        secondEnd = new Rest(0);
-        checkRep();
+        this(m, new Rest(0), new Rest(0));
     }
     
     /**
@@ -44,6 +45,8 @@ public class Repeat implements Music{
         repeated = m;
         firstEnd = first;
         secondEnd = second;
+        duration = m.exactDuration().times(2).plus(first.exactDuration()).plus(second.exactDuration());
+        hashCode = 31 * (31 * m.hashCode() + first.hashCode()) + second.hashCode();
         checkRep();
     }
     /**
@@ -68,21 +71,42 @@ public class Repeat implements Music{
     }
     
     @Override
-    public double duration() {
-        return this.getRepeated().duration() + this.getFirstEnd().duration() 
-                + this.getRepeated().duration() + this.getSecondEnd().duration();
+    public Rational exactDuration() {
+        return this.duration;
+    }
+
+    @Override
+    public long minimalTicksPerBeat() {
+        return Rational.lcm(this.getRepeated().minimalTicksPerBeat(),
+                Rational.lcm(this.getFirstEnd().minimalTicksPerBeat(), this.getSecondEnd().minimalTicksPerBeat()));
     }
 
     @Override
-    public void play(SequencePlayer player, double start) {
+    public void play(EventSink player, Rational start) {
         Music repeated = this.getRepeated();
         Music firstEnd = this.getFirstEnd();
         Music secondEnd = this.getSecondEnd();
+        Rational repeatedDuration = repeated.exactDuration();
+        Rational firstEndStart = start.plus(repeatedDuration);
+        Rational secondTimeStart = firstEndStart.plus(firstEnd.exactDuration());
         
         repeated.play(player, start);
-        firstEnd.play(player, start + repeated.duration());
-        repeated.play(player, start + repeated.duration() + firstEnd.duration());
-        secondEnd.play(player, start + repeated.duration() + firstEnd.duration() + repeated.duration());
+        firstEnd.play(player, firstEndStart);
+        repeated.play(player, secondTimeStart);
+        secondEnd.play(player, secondTimeStart.plus(repeatedDuration));
+    }
+
+    @Override
+    public void compile(CompiledScore.Builder score, Rational start) {
+        Music repeated = this.getRepeated();
+        Rational repeatedDuration = repeated.exactDuration();
+        Rational firstEndStart = start.plus(repeatedDuration);
+        Rational secondTimeStart = firstEndStart.plus(this.getFirstEnd().exactDuration());
+        
+        repeated.compile(score, start);
+        this.getFirstEnd().compile(score, firstEndStart);
+        repeated.compile(score, secondTimeStart);
+        this.getSecondEnd().compile(score, secondTimeStart.plus(repeatedDuration));
     }
 
     @Override
@@ -98,8 +122,7 @@ public class Repeat implements Music{
     
     @Override
     public int hashCode(){
-        Double duration = this.duration();
-        return duration.hashCode();
+        return this.hashCode;
     }
     
     /**
@@ -112,7 +135,8 @@ public class Repeat implements Music{
     public boolean equals(Object obj){
         if (!(obj instanceof Repeat)) return false;
         Repeat thatRepeat = (Repeat) obj;
-        return this.getRepeated().equals(thatRepeat.getRepeated()) 
+        return this.hashCode == thatRepeat.hashCode
+                && this.getRepeated().equals(thatRepeat.getRepeated()) 
                 && this.getFirstEnd().equals(thatRepeat.getFirstEnd()) 
                 && this.getSecondEnd().equals(thatRepeat.getSecondEnd());
     }
@@ -7,12 +7,12 @@ import abc.sound.*;
 */
 public class Rest implements Music {
     
-    private final double duration; 
+    private final Rational duration; 
     
     // Abstraction function
     //    represents one rest of duration duration in music sheet
     // Rep invariant
-    //    duration >= 0
+    //    duration != null, duration >= 0
     // Safety from rep exposure
     //    all fields are private, final, and immutable. Return values are immutable
     
@@ -21,32 +21,51 @@ public class Rest implements Music {
      * @param length the desired length of rest
      */
     public Rest(double duration){
+        this(Rational.valueOf(duration));
+    }
+    
+    /**
+     * Make a new instance of Rest
+     * @param duration the exact length of rest in beats
+     */
+    public Rest(Rational duration){
         this.duration = duration;
         checkRep();
     }
     
     private void checkRep(){
-        assert duration >= 0;
+        assert duration != null;
+        assert duration.signum() >= 0;
     }
     
     @Override
-    public double duration(){
+    public Rational exactDuration(){
         return this.duration;
     }
     
     @Override
-    public void play(SequencePlayer player, double start){
+    public long minimalTicksPerBeat(){
+        return this.duration.denominator();
+    }
+    
+    @Override
+    public void play(EventSink player, Rational start){
+        return;
+    }
+    
+    @Override
+    public void compile(CompiledScore.Builder score, Rational start){
         return;
     }
     
     @Override
     public Music transpose(int semitonesUp){
-        return new Rest(this.duration()); //same duration
+        return new Rest(this.duration); //same duration
     }
     
     @Override
     public Music transposePitch(Pitch pitch, int semitonesUp){
-        return new Rest(this.duration()); //same duration
+        return new Rest(this.duration); //same duration
     }
     
     /**
@@ -58,13 +77,12 @@ public class Rest implements Music {
     public boolean equals(Object obj) {
         if (!(obj instanceof Rest)) return false;
         Rest thatRest = (Rest) obj;
-        return this.duration() == thatRest.duration();
+        return this.duration.equals(thatRest.duration);
     }
     
     @Override
     public int hashCode() {
-        Double d = this.duration();
-        return d.hashCode();
+        return this.duration.hashCode();
     }
     
     
@@ -74,6 +92,6 @@ public class Rest implements Music {
      */
     @Override
     public String toString() {
-        return "z" + duration; // to be implemented
+        return "z" + duration(); // to be implemented
     }
 }
\ No newline at end of file
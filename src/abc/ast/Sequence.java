@@ -0,0 +1,161 @@
+package abc.ast;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import abc.sound.EventSink;
+import abc.sound.Pitch;
+
+/**
+ * Sequence is an immutable data type that represents any number of pieces of music
+ * that are played one after another.
+ *
+ * Unlike a chain of Concats, a Sequence keeps its pieces in one flat array together with the time each
+ * of them starts at, so it plays, transposes and measures its duration in time linear in the number of
+ * pieces, without recursing from one piece into the next.
+ */
+public class Sequence implements Music {
+
+    private final Music[] music;
+    private final Rational[] starts;
+    private final int hashCode;
+
+    //Abstraction function
+    //  Represents music[0], music[1], ..., music[music.length - 1] played one after another;
+    //  music[i] starts starts[i] beats after the sequence does, and the sequence lasts starts[music.length] beats
+    //Rep invariant
+    //  music and all its elements != null
+    //  starts.length == music.length + 1, starts[0] == 0
+    //  starts[i + 1] == starts[i] + music[i].exactDuration()
+    //  hashCode == Arrays.hashCode(music)
+    //Rep exposure
+    //  All fields are private and final. Both arrays are copied in or built by the constructor and never returned;
+    //  getMusic returns an unmodifiable view. Music and Rational are immutable.
+
+    /**
+     * Constructs a Sequence object
+     * @param music the pieces of music to play, in the order they are played; may be empty
+     */
+    public Sequence(List<? extends Music> music) {
+        this.music = music.toArray(new Music[music.size()]);
+        this.starts = new Rational[this.music.length + 1];
+        Rational start = Rational.ZERO;
+        for (int i = 0; i < this.music.length; i++) {
+            starts[i] = start;
+            start = start.plus(this.music[i].exactDuration());
+        }
+        starts[this.music.length] = start;
+        this.hashCode = Arrays.hashCode(this.music);
+        checkRep();
+    }
+
+    /**
+     * Asserts rep invariant
+     */
+    private void checkRep() {
+        assert starts.length == music.length + 1;
+        assert starts[0].signum() == 0;
+        for (int i = 0; i < music.length; i++) {
+            assert music[i] != null;
+            assert starts[i + 1].equals(starts[i].plus(music[i].exactDuration()));
+        }
+    }
+
+    /**
+     * Gets the pieces of music in this sequence
+     * @return an unmodifiable list of the pieces of music in the order they are played
+     */
+    public List<Music> getMusic() {
+        return Collections.unmodifiableList(Arrays.asList(music));
+    }
+
+    /**
+     * Gets the time a piece of music in this sequence starts
+     * @param index the index of a piece of music in this sequence, or the number of pieces for the end
+     * @return the time in beats, from the start of this sequence, at which that piece starts
+     */
+    public Rational startOf(int index) {
+        return starts[index];
+    }
+
+    @Override
+    public Rational exactDuration() {
+        return starts[music.length];
+    }
+
+    @Override
+    public long minimalTicksPerBeat() {
+        long ticksPerBeat = 1;
+        for (Music m : music) {
+            ticksPerBeat = Rational.lcm(ticksPerBeat, m.minimalTicksPerBeat());
+        }
+        return ticksPerBeat;
+    }
+
+    @Override
+    public void play(EventSink player, Rational start) {
+        for (int i = 0; i < music.length; i++) {
+            music[i].play(player, start.plus(starts[i]));
+        }
+    }
+
+    @Override
+    public void compile(CompiledScore.Builder score, Rational start) {
+        for (int i = 0; i < music.length; i++) {
+            music[i].compile(score, start.plus(starts[i]));
+        }
+    }
+
+    @Override
+    public Music transpose(int semitonesUp) {
+        Music[] transposed = new Music[music.length];
+        for (int i = 0; i < music.length; i++) {
+            transposed[i] = music[i].transpose(semitonesUp);
+        }
+        return new Sequence(Arrays.asList(transposed));
+    }
+
+    @Override
+    public Music transposePitch(Pitch pitch, int semitonesUp) {
+        Music[] transposed = new Music[music.length];
+        for (int i = 0; i < music.length; i++) {
+            transposed[i] = music[i].transposePitch(pitch, semitonesUp);
+        }
+        return new Sequence(Arrays.asList(transposed));
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Indicates whether two objects are equal as defined below
+     * @param obj any object
+     * @return true if and only if this and obj are Sequence instances whose pieces of music, in order, are equal
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Sequence)) return false;
+        Sequence thatSequence = (Sequence) obj;
+        return this.hashCode == thatSequence.hashCode && Arrays.equals(this.music, thatSequence.music);
+    }
+
+    /**
+     * Outputs a String representation of a Sequence instance: its pieces of Music in String form,
+     * separated by spaces, in the order they are played
+     * @return String representation of the Sequence instance suitable for reading
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < music.length; i++) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            out.append(music[i]);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,216 @@
+package abc.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable data type representing the header of an abc tune, with every field already parsed
+ * into the form the body builder needs, and the music lines of each voice in the order they first appear.
+ */
+public class TuneHeader {
+
+    private final int index;
+    private final String title;
+    private final String composer;
+    private final Rational meter;
+    private final Rational defaultLength;
+    private final Rational tempoBeat;
+    private final int tempo;
+    private final KeySignature key;
+    private final Map<String, String> voices;
+    private final String text;
+    private final Rational beatsPerDefaultLength;
+
+    //Abstraction function
+    //  Represents the header of tune number index, called title and written by composer, whose measures
+    //  last meter whole notes, whose notes last defaultLength whole notes unless written otherwise,
+    //  and which is played at tempo beats per minute, a beat lasting tempoBeat whole notes.
+    //  It is in the key key.
+    //  voices maps the name of each voice to its music lines, in the order the voices first appear.
+    //  text is the header as written in the abc file.
+    //Rep invariant
+    //  all fields != null
+    //  meter > 0, defaultLength > 0, tempoBeat > 0, tempo > 0
+    //  voices is not empty
+    //  beatsPerDefaultLength == defaultLength / tempoBeat
+    //Rep exposure
+    //  All fields are private and final. KeySignature is immutable and voices is unmodifiable.
+
+    /**
+     * Make a header from its parsed fields.
+     * @param index the reference number X of the tune
+     * @param title the title T of the tune
+     * @param composer the composer C of the tune
+     * @param meter the meter M, as the length of a measure in whole notes; must be > 0
+     * @param defaultLength the default note length L in whole notes; must be > 0
+     * @param tempoBeat the length in whole notes of the beat that tempo counts; must be > 0
+     * @param tempo the tempo Q in beats per minute; must be > 0
+     * @param key the key signature K
+     * @param voices the name of each voice mapped to its music lines, iterated in the order the voices appear
+     * @param text the header as written in the abc file
+     */
+    public TuneHeader(int index, String title, String composer, Rational meter, Rational defaultLength,
+            Rational tempoBeat, int tempo, KeySignature key, Map<String, String> voices, String text) {
+        this.index = index;
+        this.title = title;
+        this.composer = composer;
+        this.meter = meter;
+        this.defaultLength = defaultLength;
+        this.tempoBeat = tempoBeat;
+        this.tempo = tempo;
+        this.key = key;
+        this.voices = Collections.unmodifiableMap(new LinkedHashMap<>(voices));
+        this.text = text;
+        this.beatsPerDefaultLength = defaultLength.dividedBy(tempoBeat);
+        checkRep();
+    }
+
+    /**
+     * Make a header from the map built by Music.buildHeaderAST and completed by Music.updateMissingFields.
+     * This is the only place the numbers in the map are parsed and the key is looked up.
+     * @param fields map with the entries X, T, C, M, L, Q1, Q2 and K, M, L and Q1 being fractions in a form
+     *        Rational.parse accepts, and a voice_ entry for each voice,
+     *        in the order the voices appear
+     * @return the header those fields describe
+     * @throws IllegalArgumentException if K is not a supported key
+     * @throws NumberFormatException if a number is not written in the expected form
+     */
+    public static TuneHeader fromFields(Map<String, String> fields) {
+        Map<String, String> voices = new LinkedHashMap<>();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (field.getKey().startsWith("voice_")) {
+                voices.put(field.getKey().substring("voice_".length()), field.getValue());
+            }
+        }
+        return new TuneHeader(Integer.parseInt(fields.get("X").trim()), fields.get("T"), fields.get("C"),
+                Rational.parse(fields.get("M")), Rational.parse(fields.get("L")),
+                Rational.parse(fields.get("Q1")), Integer.parseInt(fields.get("Q2").trim()),
+                KeySignature.valueOf(fields.get("K")), voices, fields.getOrDefault("entire_header", ""));
+    }
+
+    /**
+     * Asserts check rep
+     */
+    private void checkRep() {
+        assert title != null && composer != null && key != null && text != null;
+        assert meter.signum() > 0 && defaultLength.signum() > 0 && tempoBeat.signum() > 0 && tempo > 0;
+        assert !voices.isEmpty();
+    }
+
+    /**
+     * @return the reference number X of the tune
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * @return the title T of the tune
+     */
+    public String title() {
+        return title;
+    }
+
+    /**
+     * @return the composer C of the tune
+     */
+    public String composer() {
+        return composer;
+    }
+
+    /**
+     * @return the length of a measure in whole notes
+     */
+    public Rational meter() {
+        return meter;
+    }
+
+    /**
+     * @return the default note length L in whole notes
+     */
+    public Rational defaultLength() {
+        return defaultLength;
+    }
+
+    /**
+     * @return the length in whole notes of the beat that tempo() counts
+     */
+    public Rational tempoBeat() {
+        return tempoBeat;
+    }
+
+    /**
+     * @return the tempo in beats per minute
+     */
+    public int tempo() {
+        return tempo;
+    }
+
+    /**
+     * @return the key signature K of the tune
+     */
+    public KeySignature key() {
+        return key;
+    }
+
+    /**
+     * @return the number of beats in a note of the default length, by which every written note length is multiplied
+     */
+    public Rational beatsPerDefaultLength() {
+        return beatsPerDefaultLength;
+    }
+
+    /**
+     * @return the names of the voices, in the order they first appear in the tune
+     */
+    public List<String> voiceNames() {
+        return Collections.unmodifiableList(new ArrayList<>(voices.keySet()));
+    }
+
+    /**
+     * @param voiceName the name of one of this tune's voices
+     * @return the music lines of that voice
+     */
+    public String voiceMusic(String voiceName) {
+        return voices.get(voiceName);
+    }
+
+    /**
+     * @return the header as written in the abc file
+     */
+    public String text() {
+        return text;
+    }
+
+    @Override
+    public int hashCode() {
+        return index + title.hashCode() + voices.hashCode();
+    }
+
+    /**
+     * Indicates whether two objects are equal as defined below
+     * @param obj any object
+     * @return true if and only if this and obj are TuneHeader instances with the same fields and voices
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof TuneHeader)) return false;
+        TuneHeader that = (TuneHeader) obj;
+        return this.index == that.index && this.title.equals(that.title) && this.composer.equals(that.composer)
+                && this.meter.equals(that.meter) && this.defaultLength.equals(that.defaultLength)
+                && this.tempoBeat.equals(that.tempoBeat) && this.tempo == that.tempo && this.key.equals(that.key)
+                && new ArrayList<>(this.voices.entrySet()).equals(new ArrayList<>(that.voices.entrySet()))
+                && this.text.equals(that.text);
+    }
+
+    /**
+     * @return the header as written in the abc file
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+}
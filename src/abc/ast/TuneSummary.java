@@ -0,0 +1,159 @@
+package abc.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable data type representing the fields of the header of an abc tune, without its music:
+ * what a catalog of tunes needs to list or search them.
+ */
+public class TuneSummary {
+
+    private final int index;
+    private final String title;
+    private final String composer;
+    private final Rational meter;
+    private final Rational defaultLength;
+    private final Rational tempoBeat;
+    private final int tempo;
+    private final KeySignature key;
+    private final List<String> voiceNames;
+
+    //Abstraction function
+    //  Represents the header of tune number index, called title and written by composer, whose measures
+    //  last meter whole notes, whose notes last defaultLength whole notes unless written otherwise,
+    //  and which is played at tempo beats per minute, a beat lasting tempoBeat whole notes.
+    //  It is in the key key, and its header names the voices voiceNames, in order.
+    //Rep invariant
+    //  all fields != null
+    //  meter > 0, defaultLength > 0, tempoBeat > 0, tempo > 0
+    //Rep exposure
+    //  All fields are private and final. KeySignature is immutable and voiceNames is unmodifiable.
+
+    /**
+     * Make a summary from its parsed fields.
+     * @param index the reference number X of the tune
+     * @param title the title T of the tune
+     * @param composer the composer C of the tune
+     * @param meter the meter M, as the length of a measure in whole notes; must be > 0
+     * @param defaultLength the default note length L in whole notes; must be > 0
+     * @param tempoBeat the length in whole notes of the beat that tempo counts; must be > 0
+     * @param tempo the tempo Q in beats per minute; must be > 0
+     * @param key the key signature K
+     * @param voiceNames the names given by the V: fields of the header, in order
+     */
+    public TuneSummary(int index, String title, String composer, Rational meter, Rational defaultLength,
+            Rational tempoBeat, int tempo, KeySignature key, List<String> voiceNames) {
+        this.index = index;
+        this.title = title;
+        this.composer = composer;
+        this.meter = meter;
+        this.defaultLength = defaultLength;
+        this.tempoBeat = tempoBeat;
+        this.tempo = tempo;
+        this.key = key;
+        this.voiceNames = Collections.unmodifiableList(new ArrayList<>(voiceNames));
+        checkRep();
+    }
+
+    /**
+     * Asserts check rep
+     */
+    private void checkRep() {
+        assert title != null && composer != null && key != null;
+        assert meter.signum() > 0 && defaultLength.signum() > 0 && tempoBeat.signum() > 0 && tempo > 0;
+    }
+
+    /**
+     * @return the reference number X of the tune
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * @return the title T of the tune
+     */
+    public String title() {
+        return title;
+    }
+
+    /**
+     * @return the composer C of the tune
+     */
+    public String composer() {
+        return composer;
+    }
+
+    /**
+     * @return the length of a measure in whole notes
+     */
+    public Rational meter() {
+        return meter;
+    }
+
+    /**
+     * @return the default note length L in whole notes
+     */
+    public Rational defaultLength() {
+        return defaultLength;
+    }
+
+    /**
+     * @return the length in whole notes of the beat that tempo() counts
+     */
+    public Rational tempoBeat() {
+        return tempoBeat;
+    }
+
+    /**
+     * @return the tempo Q in beats per minute
+     */
+    public int tempo() {
+        return tempo;
+    }
+
+    /**
+     * @return the key signature K of the tune
+     */
+    public KeySignature key() {
+        return key;
+    }
+
+    /**
+     * @return the names given by the V: fields of the header, in order; empty if the tune has a single
+     *         voice that is not named
+     */
+    public List<String> voiceNames() {
+        return voiceNames;
+    }
+
+    @Override
+    public int hashCode() {
+        return index + title.hashCode() + voiceNames.hashCode();
+    }
+
+    /**
+     * Indicates whether two objects are equal as defined below
+     * @param obj any object
+     * @return true if and only if this and obj are TuneSummary instances with the same fields
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof TuneSummary)) return false;
+        TuneSummary that = (TuneSummary) obj;
+        return this.index == that.index && this.title.equals(that.title) && this.composer.equals(that.composer)
+                && this.meter.equals(that.meter) && this.defaultLength.equals(that.defaultLength)
+                && this.tempoBeat.equals(that.tempoBeat) && this.tempo == that.tempo && this.key.equals(that.key)
+                && this.voiceNames.equals(that.voiceNames);
+    }
+
+    /**
+     * @return a String such as "X:1 Title (Composer) K:C"
+     */
+    @Override
+    public String toString() {
+        return "X:" + index + " " + title + " (" + composer + ") K:" + key.name();
+    }
+}
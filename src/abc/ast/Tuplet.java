@@ -1,10 +1,11 @@
 package abc.ast;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import abc.sound.EventSink;
 import abc.sound.Pitch;
-import abc.sound.SequencePlayer;
 
 /**
  * 
@@ -13,8 +14,14 @@ import abc.sound.SequencePlayer;
  */
 public class Tuplet implements Music {
 
+    private static final Rational DUPLET_FACTOR = Rational.of(3, 2);
+    private static final Rational TRIPLET_FACTOR = Rational.of(2, 3);
+    private static final Rational QUADRUPLET_FACTOR = Rational.of(3, 4);
+
     private final List<NoteOrChord> sequence;
     private final int length;
+    private final Rational duration;
+    private final int hashCode;
     
     // Abstraction function:
     //   Represents a tuplet containing length number of notes and/or chords. The notes and/or chords to play are
@@ -24,9 +31,11 @@ public class Tuplet implements Music {
     //   sequence != null
     //   length >= 2
     //   sequence.size() == length
+    //   duration == the sum of the exactDuration() of the notes and chords in sequence, scaled by durationFactor(length)
+    //   hashCode == the sum of the hashCode() of the notes and chords in sequence
     // Safety from rep exposure:
-    //   all fields are private, final, and immutable. notes is never
-    //   sequence is mutable, but it is never modified or returned in the methods of this class.
+    //   all fields are private and final.
+    //   sequence is an unmodifiable copy of the list passed in, and it is never returned in the methods of this class.
     //   Return values are immutable
     
     /**
@@ -35,8 +44,17 @@ public class Tuplet implements Music {
      * @param length the length of the Tuplet
      */
     public Tuplet(List<NoteOrChord> notes, int length) {
-        this.sequence = notes;
+        this.sequence = Collections.unmodifiableList(new ArrayList<>(notes));
         this.length = length;
+        Rational durationFactor = durationFactor(length);
+        Rational totalDuration = Rational.ZERO;
+        int code = 0;
+        for(NoteOrChord m: this.sequence){
+            totalDuration = totalDuration.plus(m.exactDuration().times(durationFactor));
+            code += m.hashCode();
+        }
+        this.duration = totalDuration;
+        this.hashCode = code;
         checkRep();
     }
     
@@ -51,29 +69,35 @@ public class Tuplet implements Music {
     }
     
     @Override
-    public double duration() {
-        double durationFactor;
-        double totalDuration = 0;
-        
-        switch(this.length){
+    public Rational exactDuration() {
+        return this.duration;
+    }
+    
+    @Override
+    public long minimalTicksPerBeat() {
+        long ticksPerBeat = 1;
+        for(NoteOrChord m: sequence){
+            ticksPerBeat = Rational.lcm(ticksPerBeat, m.tupletTicksPerBeat(this.length));
+        }
+        return ticksPerBeat;
+    }
+    
+    /**
+     * Gets the factor by which a tuplet scales the length of each note or chord in it
+     * @param length the length of a tuplet, 2, 3 or 4
+     * @return 3/2 for a duplet, 2/3 for a triplet, 3/4 for a quadruplet
+     */
+    static Rational durationFactor(int length) {
+        switch(length){
             case 2: 
-                durationFactor = 1.5;
-                break;
+                return DUPLET_FACTOR;
             case 3: 
-                durationFactor = 2.0/3.0;
-                break;
+                return TRIPLET_FACTOR;
             case 4: 
-                durationFactor = 0.75;
-                break;
+                return QUADRUPLET_FACTOR;
             default: 
                 throw new RuntimeException("Unreachable");
-        }        
-        
-        for(NoteOrChord m: sequence){
-            totalDuration += m.duration() * durationFactor;
         }
-        
-        return totalDuration;
     }
     
     private List<NoteOrChord> getSequence(){
@@ -89,25 +113,22 @@ public class Tuplet implements Music {
     }
     
     @Override
-    public void play(SequencePlayer player, double start) {
-        double durationFactor;
-        switch(this.getLength()){
-            case 2: 
-                durationFactor = 1.5;
-                break;
-            case 3: 
-                durationFactor = 2.0/3.0;
-                break;
-            case 4: 
-                durationFactor = 0.75;
-                break;
-            default: 
-                throw new RuntimeException("Unreachable");
-        }     
-        double nextStart = 0;
+    public void play(EventSink player, Rational start) {
+        Rational durationFactor = durationFactor(this.getLength());
+        Rational nextStart = start;
         for(NoteOrChord m: sequence){
-            m.tupletPlay(player, start + nextStart, this.getLength());
-            nextStart += (m.duration() * durationFactor); //When played from tuplet, the duration has to be scaled
+            m.tupletPlay(player, nextStart, this.getLength());
+            nextStart = nextStart.plus(m.exactDuration().times(durationFactor)); //When played from tuplet, the duration has to be scaled
+        }
+    }
+
+    @Override
+    public void compile(CompiledScore.Builder score, Rational start) {
+        Rational durationFactor = durationFactor(this.getLength());
+        Rational nextStart = start;
+        for(NoteOrChord m: sequence){
+            m.tupletCompile(score, nextStart, this.getLength());
+            nextStart = nextStart.plus(m.exactDuration().times(durationFactor));
         }
     }
 
@@ -135,11 +156,7 @@ public class Tuplet implements Music {
 
     @Override
     public int hashCode() {
-        int code = 0;
-        for (NoteOrChord m: this.getSequence()){
-            code += m.hashCode();
-        }
-        return code;
+        return this.hashCode;
     }
     
     /**
@@ -154,7 +171,7 @@ public class Tuplet implements Music {
         Tuplet thatTuplet = (Tuplet) obj;
         List<NoteOrChord> thisSequence = this.getSequence();
         List<NoteOrChord> thatTupletSequence = thatTuplet.getSequence();
-        if (this.getLength() != thatTuplet.getLength()){
+        if (this.hashCode != thatTuplet.hashCode || this.getLength() != thatTuplet.getLength()){
             return false;
         }
         else {
@@ -2,8 +2,8 @@ package abc.ast;
 
 import java.util.List;
 
+import abc.sound.EventSink;
 import abc.sound.Pitch;
-import abc.sound.SequencePlayer;
 
 /**
  * An immutable data type that represents one voice's melody.
@@ -12,18 +12,24 @@ public class Voice implements Music{
     
     private final Music melody;
     private final String name;
+    private final Rational duration;
+    private final int hashCode;
     
     //Abstraction function
     //  Represents a single voice with melody melody and name name in sheet music
     //Rep invariant
     //  melody != null
     //  name != null
+    //  duration == melody.exactDuration()
+    //  hashCode == name.hashCode() + melody.hashCode()
     //Rep exposure
     //  All fields are final, private, and immutable. Return values are immutable
    
     public Voice(Music m, String s){
         this.melody = m;
         this.name = s;
+        this.duration = m.exactDuration();
+        this.hashCode = s.hashCode() + m.hashCode();
         checkRep();
     }
     
@@ -44,15 +50,26 @@ public class Voice implements Music{
     }
     
     @Override
-    public double duration() {
-        return this.getMelody().duration();
+    public Rational exactDuration() {
+        return this.duration;
     }
 
     @Override
-    public void play(SequencePlayer player, double start) {
+    public long minimalTicksPerBeat() {
+        return this.getMelody().minimalTicksPerBeat();
+    }
+
+    @Override
+    public void play(EventSink player, Rational start) {
         this.getMelody().play(player, start);
     }
 
+    @Override
+    public void compile(CompiledScore.Builder score, Rational start) {
+        score.startVoice(this.getName());
+        this.getMelody().compile(score, start);
+    }
+
     @Override
     public Music transpose(int semitonesUp) {
         return new Voice(this.getMelody().transpose(semitonesUp), this.getName());
@@ -65,7 +82,7 @@ public class Voice implements Music{
     
     @Override
     public int hashCode(){
-        return this.getName().hashCode() + this.getMelody().hashCode();
+        return this.hashCode;
     }
     
     /**
@@ -78,7 +95,7 @@ public class Voice implements Music{
     public boolean equals(Object obj){
         if (!(obj instanceof Voice)) return false;
         Voice thatVoice = (Voice) obj;
-        return this.getMelody().equals(thatVoice.getMelody()) && this.getName().equals(thatVoice.getName());
+        return this.hashCode == thatVoice.hashCode && this.getMelody().equals(thatVoice.getMelody()) && this.getName().equals(thatVoice.getName());
     }
     
     /**
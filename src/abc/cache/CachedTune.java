@@ -0,0 +1,87 @@
+package abc.cache;
+
+import abc.ast.CompiledScore;
+import abc.ast.TuneHeader;
+
+/**
+ * An immutable tune ready to play: its parsed header and its compiled score, which is all that
+ * playing it needs, so a tune loaded from a TuneCache needs neither grammar.
+ */
+public class CachedTune {
+
+    private final TuneHeader header;
+    private final CompiledScore score;
+
+    //Abstraction function
+    //  Represents the tune whose header is header and whose notes are score
+    //Rep invariant
+    //  header != null, score != null
+    //Rep exposure
+    //  All fields are private and final, and both are immutable.
+
+    /**
+     * Make a tune.
+     * @param header the header of the tune
+     * @param score the notes of the tune
+     */
+    public CachedTune(TuneHeader header, CompiledScore score) {
+        this.header = header;
+        this.score = score;
+        checkRep();
+    }
+
+    /**
+     * Parse and compile the text of a tune.
+     * @param text the text of an abc file
+     * @param ticksPerBeat the ticks per beat to compile it with, or 0 to choose them with Music.ticksPerBeat
+     * @return the tune
+     * @throws IllegalArgumentException if text is not a valid tune
+     */
+    public static CachedTune parse(CharSequence text, int ticksPerBeat) {
+        ParsedTune tune = ParsedTune.parse(text, ticksPerBeat);
+        return new CachedTune(tune.header(), tune.score());
+    }
+
+    /**
+     * Asserts check rep
+     */
+    private void checkRep() {
+        assert header != null && score != null;
+    }
+
+    /**
+     * @return the header of the tune
+     */
+    public TuneHeader header() {
+        return header;
+    }
+
+    /**
+     * @return the notes of the tune
+     */
+    public CompiledScore score() {
+        return score;
+    }
+
+    @Override
+    public int hashCode() {
+        return header.hashCode() + score.hashCode();
+    }
+
+    /**
+     * Indicates whether two objects are equal as defined below
+     * @param obj any object
+     * @return true if and only if this and obj are CachedTune instances with equal headers and equal scores
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof CachedTune)) return false;
+        CachedTune that = (CachedTune) obj;
+        return this.header.equals(that.header) && this.score.equals(that.score);
+    }
+
+    @Override
+    public String toString() {
+        return header.title() + " (" + score.size() + " notes)";
+    }
+}
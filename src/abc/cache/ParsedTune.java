@@ -0,0 +1,144 @@
+package abc.cache;
+
+import abc.ast.CompiledScore;
+import abc.ast.Music;
+import abc.ast.TuneHeader;
+
+/**
+ * An immutable tune kept in memory: its parsed header, its Music AST and its score compiled
+ * with one number of ticks per beat. The AST is kept so that the tune can be compiled again with
+ * other ticks per beat without being parsed again. A tune made from a CachedTune has no AST until
+ * one is needed, when the body of its header is parsed.
+ */
+public class ParsedTune {
+
+    private final TuneHeader header;
+    private final CompiledScore score;
+    // the ticks per beat Music.ticksPerBeat chooses for the tune, or 0 if not known yet
+    private final int chosenTicksPerBeat;
+    // null until first needed, for a tune made from a CachedTune
+    private volatile Music music;
+
+    //Abstraction function
+    //  Represents the tune whose header is header, whose music is music, or Music.parseBody(header) if
+    //  music is null, and whose notes compiled with score.ticksPerBeat() ticks per beat are score
+    //Rep invariant
+    //  header and score != null
+    //  score equals CompiledScore.compile(music(), score.ticksPerBeat())
+    //  chosenTicksPerBeat == 0 or chosenTicksPerBeat == Music.ticksPerBeat(music())
+    //Rep exposure
+    //  All fields are private; all but music are final, and all are immutable.
+    //Thread safety argument
+    //  music is only ever set from null to the AST of header, and is volatile, so a thread sees either
+    //  null or a complete AST. Two threads may both parse it, and the two ASTs are equal.
+
+    private ParsedTune(TuneHeader header, Music music, CompiledScore score, int chosenTicksPerBeat) {
+        this.header = header;
+        this.music = music;
+        this.score = score;
+        this.chosenTicksPerBeat = chosenTicksPerBeat;
+        checkRep();
+    }
+
+    /**
+     * Make a tune from one loaded from a TuneCache, without parsing it.
+     * @param tune a tune
+     * @param ticksPerBeat the ticks per beat tune was loaded with, 0 if they were chosen with Music.ticksPerBeat
+     * @return the tune with the header and score of tune
+     */
+    public static ParsedTune of(CachedTune tune, int ticksPerBeat) {
+        return new ParsedTune(tune.header(), null, tune.score(), ticksPerBeat == 0 ? tune.score().ticksPerBeat() : 0);
+    }
+
+    /**
+     * Parse and compile the text of a tune.
+     * @param text the text of an abc file
+     * @param ticksPerBeat the ticks per beat to compile it with, or 0 to choose them with Music.ticksPerBeat
+     * @return the tune
+     * @throws IllegalArgumentException if text is not a valid tune
+     */
+    public static ParsedTune parse(CharSequence text, int ticksPerBeat) {
+        TuneHeader header = Music.parseHeader(text);
+        Music music = Music.parseBody(header);
+        int chosen = ticksPerBeat == 0 ? Music.ticksPerBeat(music) : 0;
+        return new ParsedTune(header, music, CompiledScore.compile(music, ticksPerBeat == 0 ? chosen : ticksPerBeat),
+                chosen);
+    }
+
+    /**
+     * Asserts check rep
+     */
+    private void checkRep() {
+        assert header != null && score != null;
+        assert chosenTicksPerBeat >= 0;
+    }
+
+    /**
+     * @return the header of the tune
+     */
+    public TuneHeader header() {
+        return header;
+    }
+
+    /**
+     * @return the Music AST of the tune; a tune made from a CachedTune parses it from its header the first time
+     */
+    public Music music() {
+        Music parsed = music;
+        if (parsed == null) {
+            parsed = Music.parseBody(header);
+            music = parsed;
+        }
+        return parsed;
+    }
+
+    /**
+     * @return the notes of the tune
+     */
+    public CompiledScore score() {
+        return score;
+    }
+
+    /**
+     * @param ticksPerBeat the ticks per beat to compile the tune with, or 0 to choose them with Music.ticksPerBeat
+     * @return this tune with its music compiled with ticksPerBeat, which is this tune if it already is
+     */
+    public ParsedTune withTicksPerBeat(int ticksPerBeat) {
+        int chosen = chosenTicksPerBeat;
+        if (ticksPerBeat == 0) {
+            if (chosen == 0) {
+                chosen = Music.ticksPerBeat(music());
+            }
+            ticksPerBeat = chosen;
+        }
+        if (ticksPerBeat == score.ticksPerBeat()) {
+            return this;
+        }
+        Music music = music();
+        return new ParsedTune(header, music, CompiledScore.compile(music, ticksPerBeat), chosen);
+    }
+
+    @Override
+    public int hashCode() {
+        return header.hashCode() + score.hashCode();
+    }
+
+    /**
+     * Indicates whether two objects are equal as defined below
+     * @param obj any object
+     * @return true if and only if this and obj are ParsedTune instances with equal headers and equal scores;
+     *         their music is not compared, since the score is compiled from it, and comparing it would parse
+     *         a tune made from a CachedTune
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ParsedTune)) return false;
+        ParsedTune that = (ParsedTune) obj;
+        return this.header.equals(that.header) && this.score.equals(that.score);
+    }
+
+    @Override
+    public String toString() {
+        return header.title() + " (" + score.size() + " notes)";
+    }
+}
@@ -0,0 +1,266 @@
+package abc.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import abc.parser.AbcSource;
+
+/**
+ * A bounded in-memory cache of parsed tunes, so that playing a file again, while it is unchanged,
+ * needs no parsing and usually no compiling.
+ *
+ * Each file has at most one entry, found by its path and checked against its modification time.
+ * An entry holds the Music AST of the tune and its score compiled for the ticks per beat asked for last;
+ * asking for other ticks per beat compiles the AST again without parsing it. When the estimated size of
+ * the entries passes the limit, the least recently used entries are evicted until it fits.
+ *
+ * A cache can be backed by a TuneCache on disk: a file with no entry is then loaded through the TuneCache,
+ * which only parses it if no earlier session stored it, and its AST is only parsed if it is compiled with
+ * other ticks per beat.
+ *
+ * Tunes are immutable, so a tune returned by load can be played by several threads at once, and stays
+ * valid after its entry is evicted.
+ */
+public class PieceCache {
+
+    /**
+     * The size limit of a cache made with no arguments, in bytes.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    // estimated bytes of an entry, its header and its AST besides their text, of every char of text,
+    // and of every note: four ints in the score and the Note, Pitch and Rational objects of the AST
+    static final long ENTRY_BYTES = 1024;
+    static final long CHAR_BYTES = 2;
+    static final long NOTE_BYTES = 16 + 96;
+
+    private final long maxBytes;
+    // the cache files with no entry are loaded through, or null to parse them
+    private final TuneCache disk;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    //Abstraction function
+    //  Represents the tunes entries.get(path).tune parsed from the files path, as they were when last modified
+    //  at entries.get(path).modified, least recently used first; hits, misses and evictions count the
+    //  loads that found an entry, the loads that did not, and the entries evicted to make room.
+    //Rep invariant
+    //  maxBytes > 0
+    //  bytes == sum of entries.get(path).bytes <= maxBytes
+    //  every entries.get(path).bytes == estimateBytes(entries.get(path).tune)
+    //  hits, misses, evictions >= 0
+    //Rep exposure
+    //  All fields are private and never returned; the tunes returned are immutable.
+    //  disk is shared with its other users, but is only used through its own methods.
+    //Thread safety argument
+    //  Every access to entries, bytes and the counters is in a method synchronized on this.
+    //  A file is parsed outside the lock, so a slow parse does not hold up loads of other files;
+    //  two threads missing on the same file may both parse it, and the entry of the last one is kept.
+
+    /**
+     * An entry of the cache.
+     */
+    private static class Entry {
+        private final long modified;
+        private final ParsedTune tune;
+        private final long bytes;
+
+        Entry(long modified, ParsedTune tune) {
+            this.modified = modified;
+            this.tune = tune;
+            this.bytes = estimateBytes(tune);
+        }
+    }
+
+    /**
+     * Make a cache of at most DEFAULT_MAX_BYTES.
+     */
+    public PieceCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Make a cache that parses the files it has no entry for.
+     * @param maxBytes the most the estimated sizes of the entries add up to, > 0
+     * @throws IllegalArgumentException if maxBytes is not positive
+     */
+    public PieceCache(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    /**
+     * Make a cache.
+     * @param maxBytes the most the estimated sizes of the entries add up to, > 0
+     * @param disk the cache to load the files this cache has no entry for through, or null to parse them
+     * @throws IllegalArgumentException if maxBytes is not positive
+     */
+    public PieceCache(long maxBytes, TuneCache disk) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("size limit must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.disk = disk;
+        checkRep();
+    }
+
+    /**
+     * Asserts check rep
+     */
+    private synchronized void checkRep() {
+        assert maxBytes > 0;
+        long sum = 0;
+        for (Entry entry : entries.values()) {
+            sum += entry.bytes;
+        }
+        assert bytes == sum && bytes <= maxBytes;
+        assert hits >= 0 && misses >= 0 && evictions >= 0;
+    }
+
+    /**
+     * Load a tune, from its entry if the file has not been modified since it was stored, or else by parsing
+     * it, or loading it through the TuneCache backing this cache, and storing a new entry in place of any
+     * old one. A tune too large for the cache is returned without being stored.
+     * @param file the abc file of the tune
+     * @param ticksPerBeat the ticks per beat to compile it with, or 0 to choose them with Music.ticksPerBeat
+     * @return the tune, with its score compiled with ticksPerBeat
+     * @throws IOException if file cannot be read or is not valid UTF-8
+     * @throws IllegalArgumentException if file is not a valid tune
+     */
+    public ParsedTune load(Path file, int ticksPerBeat) throws IOException {
+        Path path = file.toAbsolutePath().normalize();
+        // read the time first, so that a change made while parsing is seen by the next load
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        ParsedTune cached = lookup(path, modified);
+        if (cached != null) {
+            ParsedTune tune = cached.withTicksPerBeat(ticksPerBeat);
+            if (tune != cached) {
+                store(path, modified, tune);
+            }
+            return tune;
+        }
+        ParsedTune tune = disk == null ? ParsedTune.parse(AbcSource.read(path), ticksPerBeat)
+                : ParsedTune.of(disk.load(path, ticksPerBeat), ticksPerBeat);
+        store(path, modified, tune);
+        return tune;
+    }
+
+    private synchronized ParsedTune lookup(Path path, long modified) {
+        Entry entry = entries.get(path);
+        if (entry == null || entry.modified != modified) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.tune;
+    }
+
+    private synchronized void store(Path path, long modified, ParsedTune tune) {
+        Entry entry = new Entry(modified, tune);
+        Entry old = entries.remove(path);
+        if (old != null) {
+            bytes -= old.bytes;
+        }
+        if (entry.bytes <= maxBytes) {
+            entries.put(path, entry);
+            bytes += entry.bytes;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes) {
+                bytes -= eldest.next().bytes;
+                eldest.remove();
+                evictions++;
+            }
+        }
+        checkRep();
+    }
+
+    /**
+     * @param tune a tune
+     * @return a rough estimate of the bytes of memory tune holds on to
+     */
+    static long estimateBytes(ParsedTune tune) {
+        long chars = tune.header().text().length() + tune.header().title().length()
+                + tune.header().composer().length();
+        for (String voice : tune.header().voiceNames()) {
+            chars += voice.length() + tune.header().voiceMusic(voice).length();
+        }
+        return ENTRY_BYTES + CHAR_BYTES * chars + NOTE_BYTES * tune.score().size();
+    }
+
+    /**
+     * Remove every entry. The counts of hits, misses and evictions are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+        checkRep();
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the estimated bytes of every entry together, at most maxBytes()
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the most bytes the entries may take
+     */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the number of loads that found an entry for an unchanged file
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of loads that had to parse the file, or load it through the TuneCache
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of entries evicted to keep the cache within its size limit
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return a String with the number of entries, their size, and the hits, misses and evictions so far
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%d tunes, %d of %d bytes, %d hits, %d misses, %d evictions",
+                entries.size(), bytes, maxBytes, hits, misses, evictions);
+    }
+
+    /**
+     * @return a map from the path of each entry to its tune, least recently used first
+     */
+    synchronized Map<Path, ParsedTune> tunes() {
+        Map<Path, ParsedTune> tunes = new LinkedHashMap<>();
+        for (Map.Entry<Path, Entry> entry : entries.entrySet()) {
+            tunes.put(entry.getKey(), entry.getValue().tune);
+        }
+        return tunes;
+    }
+}
@@ -0,0 +1,170 @@
+package abc.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import abc.ast.Music;
+import abc.parser.AbcSource;
+
+/**
+ * A folder of tunes already parsed and compiled, so that a tune whose file has not changed is loaded
+ * from its binary entry instead of being parsed again.
+ *
+ * An entry is found by its key: the SHA-256 digest of the bytes of the abc file, Music.PARSER_VERSION and
+ * the ticks per beat asked for. Changing the file, the parser or the ticks per beat gives another key,
+ * so an entry can never be stale; entries that are damaged or of an older format are parsed again and
+ * replaced. Entries are written to a temporary file and moved into place, so several players,
+ * in this process or others, can share one folder.
+ */
+public class TuneCache {
+
+    /**
+     * The system property naming the folder getDefault() uses.
+     */
+    public static final String DIRECTORY_PROPERTY = "abc.cache.dir";
+
+    private static final String SUFFIX = ".abcc";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path directory;
+
+    //Abstraction function
+    //  Represents the tunes stored in the files of directory whose names end in SUFFIX,
+    //  each named by the hex digits of the key it is stored under
+    //Rep invariant
+    //  directory != null
+    //Rep exposure
+    //  directory is private, final and immutable.
+    //Thread safety argument
+    //  The only field is final and immutable. Each entry is written whole to its own temporary file and then
+    //  moved over the old one, so a reader sees either the old entry, the new one or none.
+
+    /**
+     * Make a cache in a folder, which is created when the first entry is stored.
+     * @param directory the folder of the entries
+     */
+    public TuneCache(Path directory) {
+        this.directory = directory;
+        checkRep();
+    }
+
+    /**
+     * @return a cache in the folder named by the DIRECTORY_PROPERTY system property, or by default in
+     *         the folder abc-cache of the temporary folder
+     */
+    public static TuneCache getDefault() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null) {
+            return new TuneCache(Paths.get(System.getProperty("java.io.tmpdir"), "abc-cache"));
+        }
+        return new TuneCache(Paths.get(directory));
+    }
+
+    /**
+     * Asserts check rep
+     */
+    private void checkRep() {
+        assert directory != null;
+    }
+
+    /**
+     * @return the folder of the entries
+     */
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * Load a tune, from its entry if it has one, or else by parsing and compiling it and storing an entry.
+     * If the entry cannot be stored the tune is still returned, and is parsed again the next time.
+     * @param file the abc file of the tune
+     * @param ticksPerBeat the ticks per beat to compile it with, or 0 to choose them with Music.ticksPerBeat
+     * @return the tune, equal to CachedTune.parse of the text of file
+     * @throws IOException if file cannot be read or is not valid UTF-8
+     * @throws IllegalArgumentException if file is not a valid tune
+     */
+    public CachedTune load(Path file, int ticksPerBeat) throws IOException {
+        return load(Files.readAllBytes(file), ticksPerBeat);
+    }
+
+    /**
+     * Load a tune from the bytes of its abc file, as load(file, ticksPerBeat) does.
+     * @param content the bytes of an abc file
+     * @param ticksPerBeat the ticks per beat to compile it with, or 0 to choose them with Music.ticksPerBeat
+     * @return the tune
+     * @throws IOException if content is not valid UTF-8
+     * @throws IllegalArgumentException if content is not a valid tune
+     */
+    CachedTune load(byte[] content, int ticksPerBeat) throws IOException {
+        byte[] key = key(content, ticksPerBeat);
+        Path entry = entry(key);
+        try {
+            return TuneCodec.decode(Files.readAllBytes(entry), key);
+        } catch (IOException e) {
+            // not stored yet, damaged or unreadable: parse it and store it again
+        }
+        CachedTune tune = CachedTune.parse(AbcSource.read(new ByteArrayInputStream(content)), ticksPerBeat);
+        store(entry, TuneCodec.encode(tune, key));
+        return tune;
+    }
+
+    /**
+     * @param key the key of an entry
+     * @return the file the entry is stored in
+     */
+    Path entry(byte[] key) {
+        StringBuilder name = new StringBuilder(key.length * 2 + SUFFIX.length());
+        for (byte b : key) {
+            name.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+        }
+        return directory.resolve(name.append(SUFFIX).toString());
+    }
+
+    /**
+     * @param content the bytes of an abc file
+     * @param ticksPerBeat the ticks per beat asked for
+     * @return the key of the entry of content compiled with ticksPerBeat by this version of the parser
+     */
+    static byte[] key(byte[] content, int ticksPerBeat) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content);
+            digest.update(ByteBuffer.allocate(8).putInt(Music.PARSER_VERSION).putInt(ticksPerBeat).array());
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform must support SHA-256
+            throw new AssertionError(e);
+        }
+    }
+
+    private void store(Path entry, byte[] bytes) {
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, "entry", ".tmp");
+            Files.write(temporary, bytes);
+            try {
+                Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // the cache is only an optimization; the tune is parsed again next time
+            try {
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+            } catch (IOException ignored) {
+                // nothing more can be done
+            }
+        }
+    }
+}
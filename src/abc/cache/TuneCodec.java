@@ -0,0 +1,305 @@
+package abc.cache;
+
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import abc.ast.CompiledScore;
+import abc.ast.KeySignature;
+import abc.ast.Rational;
+import abc.ast.TuneHeader;
+
+/**
+ * The binary form of a CachedTune, as TuneCache stores it.
+ *
+ * An entry is laid out as:
+ * <pre>
+ *   magic          4 bytes, "ABCC"
+ *   format         2 bytes, FORMAT_VERSION
+ *   key            1 byte length, then the key the entry was stored under
+ *   payload length 4 bytes
+ *   payload
+ *   checksum       4 bytes, CRC-32 of everything before it
+ * </pre>
+ * Fixed-width numbers are big-endian. The payload is the header fields, then the voice names and notes of
+ * the score. Every number in it is a varint, 7 bits to a byte with the high bit set on all but the last,
+ * and signed numbers are zigzag encoded first. Notes are sorted by start tick, so each start is written as
+ * its distance from the one before, and each pitch as its difference from the one before; in most tunes
+ * every note then takes four bytes.
+ */
+final class TuneCodec {
+
+    /**
+     * The first four bytes of every entry.
+     */
+    static final int MAGIC = 0x41424343; // "ABCC"
+
+    /**
+     * The version of the layout above. Change it whenever the layout changes.
+     */
+    static final short FORMAT_VERSION = 1;
+
+    // magic, format, key length, payload length and checksum
+    private static final int FRAME_BYTES = 4 + 2 + 1 + 4 + 4;
+
+    private TuneCodec() {}
+
+    /**
+     * Encode a tune.
+     * @param tune the tune to encode
+     * @param key the key the entry is stored under, at most 255 bytes
+     * @return the entry for tune
+     */
+    static byte[] encode(CachedTune tune, byte[] key) {
+        assert key.length <= 0xFF;
+        Writer payload = new Writer();
+        TuneHeader header = tune.header();
+        payload.writeSigned(header.index());
+        payload.writeString(header.title());
+        payload.writeString(header.composer());
+        payload.writeRational(header.meter());
+        payload.writeRational(header.defaultLength());
+        payload.writeRational(header.tempoBeat());
+        payload.writeUnsigned(header.tempo());
+        payload.writeString(header.key().name());
+        payload.writeUnsigned(header.voiceNames().size());
+        for (String name : header.voiceNames()) {
+            payload.writeString(name);
+            payload.writeString(header.voiceMusic(name));
+        }
+        payload.writeString(header.text());
+
+        CompiledScore score = tune.score();
+        payload.writeUnsigned(score.ticksPerBeat());
+        payload.writeUnsigned(score.voiceNames().size());
+        for (String name : score.voiceNames()) {
+            payload.writeString(name);
+        }
+        payload.writeUnsigned(score.size());
+        int start = 0;
+        int pitch = 0;
+        for (int i = 0; i < score.size(); i++) {
+            payload.writeUnsigned(score.startTick(i) - start);
+            payload.writeUnsigned(score.durationTicks(i));
+            payload.writeSigned(score.pitch(i) - pitch);
+            payload.writeUnsigned(score.voice(i));
+            start = score.startTick(i);
+            pitch = score.pitch(i);
+        }
+
+        ByteBuffer entry = ByteBuffer.allocate(FRAME_BYTES + key.length + payload.size);
+        entry.putInt(MAGIC);
+        entry.putShort(FORMAT_VERSION);
+        entry.put((byte) key.length);
+        entry.put(key);
+        entry.putInt(payload.size);
+        entry.put(payload.bytes, 0, payload.size);
+        CRC32 crc = new CRC32();
+        crc.update(entry.array(), 0, entry.position());
+        entry.putInt((int) crc.getValue());
+        return entry.array();
+    }
+
+    /**
+     * Decode an entry.
+     * @param entry the bytes of an entry
+     * @param key the key the entry must have been stored under
+     * @return the tune entry holds
+     * @throws StreamCorruptedException if entry is damaged, of another format version, stored under another
+     *         key, or does not describe a valid tune
+     */
+    static CachedTune decode(byte[] entry, byte[] key) throws StreamCorruptedException {
+        try {
+            ByteBuffer frame = ByteBuffer.wrap(entry);
+            if (frame.getInt() != MAGIC) {
+                throw new StreamCorruptedException("not a cache entry");
+            }
+            short format = frame.getShort();
+            if (format != FORMAT_VERSION) {
+                throw new StreamCorruptedException("format version " + format + ", expected " + FORMAT_VERSION);
+            }
+            byte[] stored = new byte[frame.get() & 0xFF];
+            frame.get(stored);
+            if (!Arrays.equals(stored, key)) {
+                throw new StreamCorruptedException("stored under another key");
+            }
+            int length = frame.getInt();
+            if (length < 0 || length != frame.remaining() - 4) {
+                throw new StreamCorruptedException("payload length " + length + " does not match the entry");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(entry, 0, frame.position() + length);
+            if ((int) crc.getValue() != frame.getInt(frame.position() + length)) {
+                throw new StreamCorruptedException("checksum mismatch");
+            }
+            frame.limit(frame.position() + length);
+            return decodePayload(new Reader(frame.slice()));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new StreamCorruptedException("truncated entry");
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new StreamCorruptedException("invalid tune: " + e.getMessage());
+        }
+    }
+
+    private static CachedTune decodePayload(Reader payload) throws StreamCorruptedException {
+        int index = payload.readSigned();
+        String title = payload.readString();
+        String composer = payload.readString();
+        Rational meter = payload.readRational();
+        Rational defaultLength = payload.readRational();
+        Rational tempoBeat = payload.readRational();
+        int tempo = payload.readUnsigned();
+        KeySignature key = KeySignature.valueOf(payload.readString());
+        int voiceCount = payload.readCount();
+        Map<String, String> voices = new LinkedHashMap<>();
+        for (int v = 0; v < voiceCount; v++) {
+            voices.put(payload.readString(), payload.readString());
+        }
+        String text = payload.readString();
+        if (meter.signum() <= 0 || defaultLength.signum() <= 0 || tempoBeat.signum() <= 0 || tempo <= 0
+                || voices.isEmpty()) {
+            throw new StreamCorruptedException("invalid header");
+        }
+        TuneHeader header = new TuneHeader(index, title, composer, meter, defaultLength, tempoBeat, tempo, key,
+                voices, text);
+
+        int ticksPerBeat = payload.readUnsigned();
+        int nameCount = payload.readCount();
+        List<String> voiceNames = new ArrayList<>(nameCount);
+        for (int v = 0; v < nameCount; v++) {
+            voiceNames.add(payload.readString());
+        }
+        int size = payload.readCount();
+        int[] startTicks = new int[size];
+        int[] durationTicks = new int[size];
+        int[] pitches = new int[size];
+        int[] voiceIndices = new int[size];
+        int start = 0;
+        int pitch = 0;
+        for (int i = 0; i < size; i++) {
+            start = Math.addExact(start, payload.readUnsigned());
+            startTicks[i] = start;
+            durationTicks[i] = payload.readUnsigned();
+            pitch += payload.readSigned();
+            pitches[i] = pitch;
+            voiceIndices[i] = payload.readUnsigned();
+        }
+        if (payload.in.hasRemaining()) {
+            throw new StreamCorruptedException("bytes after the last note");
+        }
+        return new CachedTune(header,
+                CompiledScore.of(ticksPerBeat, startTicks, durationTicks, pitches, voiceIndices, voiceNames));
+    }
+
+    /**
+     * A growable buffer that writes varints and strings.
+     */
+    private static class Writer {
+        private byte[] bytes = new byte[1024];
+        private int size = 0;
+
+        private void ensure(int more) {
+            if (size + more > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + more));
+            }
+        }
+
+        void writeUnsigned(int value) {
+            assert value >= 0;
+            writeVarint(value);
+        }
+
+        void writeSigned(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        private void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeRational(Rational value) {
+            writeSigned(value.numerator());
+            writeSigned(value.denominator());
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+    }
+
+    /**
+     * Reads varints and strings from a payload, checking each against what is left of it.
+     */
+    private static class Reader {
+        private final ByteBuffer in;
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        private long readVarint() throws StreamCorruptedException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new StreamCorruptedException("varint too long");
+        }
+
+        long readLong() throws StreamCorruptedException {
+            long zigzag = readVarint();
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        int readSigned() throws StreamCorruptedException {
+            return Math.toIntExact(readLong());
+        }
+
+        int readUnsigned() throws StreamCorruptedException {
+            long value = readVarint();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new StreamCorruptedException("number out of range");
+            }
+            return (int) value;
+        }
+
+        // a count of things each at least one byte long, so it cannot exceed the bytes left
+        int readCount() throws StreamCorruptedException {
+            int count = readUnsigned();
+            if (count > in.remaining()) {
+                throw new StreamCorruptedException("count larger than the entry");
+            }
+            return count;
+        }
+
+        Rational readRational() throws StreamCorruptedException {
+            return Rational.of(readLong(), readLong());
+        }
+
+        String readString() throws StreamCorruptedException {
+            int length = readCount();
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package abc.parser;
+
+import java.util.Arrays;
+
+import lib6005.parser.UnableToParseException;
+
+/**
+ * Splits the music of one voice into the tokens of the body grammar in AbcBody.g, in a single pass over its characters.
+ * Tokens are kept in parallel arrays of kinds and character offsets so that the parser can look ahead
+ * without allocating an object per token.
+ */
+class AbcBodyLexer {
+
+    /**
+     * Kinds of tokens, named after the terminals of AbcBody.g they stand for.
+     */
+    enum Kind {
+        /** accidental? basenote octave? note_length? */
+        NOTE,
+        /** "z" note_length? */
+        REST,
+        /** "[" opening a chord */
+        CHORD_START,
+        /** "]" closing a chord */
+        CHORD_END,
+        /** "(" DIGIT */
+        TUPLET_SPEC,
+        /** "|" */
+        BARLINE,
+        /** "||" | "[|" | "|]" | "|:" */
+        REPEAT_START,
+        /** ":|" */
+        REPEAT_END,
+        /** "[1" | "[2" */
+        NTH_REPEAT,
+        /** "%" text? NEWLINE */
+        COMMENT,
+        /** "\n" */
+        NEWLINE,
+        /** a run of " " and "\t" */
+        WHITESPACE,
+        /** end of input */
+        END
+    }
+
+    private final String text;
+    private Kind[] kinds;
+    private int[] starts;
+    private int[] ends;
+    private int size;
+
+    // Abstraction function
+    //    represents the first size tokens of text; token i is kinds[i] and covers text.substring(starts[i], ends[i]).
+    //    kinds[size] is END.
+    // Rep invariant
+    //    0 <= starts[i] < ends[i] <= starts[i+1] for i < size
+    //    kinds[size] == END and starts[size] == ends[size] == text.length()
+    // Safety from rep exposure
+    //    arrays are never returned; text is immutable
+
+    /**
+     * Split text into tokens.
+     * @param text the music lines of one voice
+     * @throws UnableToParseException if text has a character that cannot start any token of the body grammar
+     */
+    AbcBodyLexer(String text) throws UnableToParseException {
+        this.text = text;
+        int capacity = text.length() / 2 + 2;
+        this.kinds = new Kind[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        lex();
+    }
+
+    /**
+     * @return the number of tokens, not counting the final END token
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param i index of a token, 0 <= i <= size()
+     * @return the kind of token i
+     */
+    Kind kind(int i) {
+        return kinds[i];
+    }
+
+    /**
+     * @param i index of a token, 0 <= i <= size()
+     * @return offset in the text of the first character of token i
+     */
+    int start(int i) {
+        return starts[i];
+    }
+
+    /**
+     * @param i index of a token, 0 <= i <= size()
+     * @return offset in the text just past the last character of token i
+     */
+    int end(int i) {
+        return ends[i];
+    }
+
+    /**
+     * @return the text that was split into tokens
+     */
+    String text() {
+        return text;
+    }
+
+    private void lex() throws UnableToParseException {
+        final int length = text.length();
+        int pos = 0;
+        while (pos < length) {
+            final int start = pos;
+            final char c = text.charAt(pos);
+            final Kind kind;
+            switch (c) {
+            case ' ':
+            case '\t':
+                do {
+                    pos++;
+                } while (pos < length && (text.charAt(pos) == ' ' || text.charAt(pos) == '\t'));
+                kind = Kind.WHITESPACE;
+                break;
+            case '\n':
+                pos++;
+                kind = Kind.NEWLINE;
+                break;
+            case '%':
+                pos = text.indexOf('\n', pos);
+                if (pos < 0) {
+                    throw error(start, "comment without a newline");
+                }
+                pos++;
+                kind = Kind.COMMENT;
+                break;
+            case '|':
+                pos++;
+                if (pos < length && (text.charAt(pos) == '|' || text.charAt(pos) == ']' || text.charAt(pos) == ':')) {
+                    pos++;
+                    kind = Kind.REPEAT_START;
+                }
+                else {
+                    kind = Kind.BARLINE;
+                }
+                break;
+            case '[':
+                pos++;
+                if (pos < length && text.charAt(pos) == '|') {
+                    pos++;
+                    kind = Kind.REPEAT_START;
+                }
+                else if (pos < length && (text.charAt(pos) == '1' || text.charAt(pos) == '2')) {
+                    pos++;
+                    kind = Kind.NTH_REPEAT;
+                }
+                else {
+                    kind = Kind.CHORD_START;
+                }
+                break;
+            case ']':
+                pos++;
+                kind = Kind.CHORD_END;
+                break;
+            case ':':
+                if (pos + 1 >= length || text.charAt(pos + 1) != '|') {
+                    throw error(start, "':' that does not end a repeat");
+                }
+                pos += 2;
+                kind = Kind.REPEAT_END;
+                break;
+            case '(':
+                if (pos + 1 >= length || !isDigit(text.charAt(pos + 1))) {
+                    throw error(start, "'(' without a tuplet length");
+                }
+                pos += 2;
+                kind = Kind.TUPLET_SPEC;
+                break;
+            case 'z':
+                pos = noteLengthEnd(pos + 1);
+                kind = Kind.REST;
+                break;
+            default:
+                pos = noteEnd(pos);
+                kind = Kind.NOTE;
+                break;
+            }
+            add(kind, start, pos);
+        }
+        add(Kind.END, length, length);
+        size--;
+    }
+
+    /**
+     * @param pos offset of the first character of a pitched note
+     * @return offset just past the note, including its octave and note length
+     */
+    private int noteEnd(int pos) throws UnableToParseException {
+        final int start = pos;
+        final int length = text.length();
+        char c = text.charAt(pos);
+        if (c == '^' || c == '_') {
+            pos++;
+            if (pos < length && text.charAt(pos) == c) {
+                pos++;
+            }
+        }
+        else if (c == '=') {
+            pos++;
+        }
+        if (pos >= length || !isBasenote(text.charAt(pos))) {
+            throw error(start, "unexpected character '" + text.charAt(pos < length ? pos : start) + "'");
+        }
+        pos++;
+        if (pos < length && (text.charAt(pos) == '\'' || text.charAt(pos) == ',')) {
+            char mark = text.charAt(pos);
+            do {
+                pos++;
+            } while (pos < length && text.charAt(pos) == mark);
+        }
+        return noteLengthEnd(pos);
+    }
+
+    /**
+     * @param pos offset just past a basenote, octave or rest
+     * @return offset just past the optional note_length starting at pos
+     */
+    private int noteLengthEnd(int pos) {
+        final int length = text.length();
+        while (pos < length && isDigit(text.charAt(pos))) {
+            pos++;
+        }
+        if (pos < length && text.charAt(pos) == '/') {
+            pos++;
+            while (pos < length && isDigit(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        return pos;
+    }
+
+    private void add(Kind kind, int start, int end) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        kinds[size] = kind;
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    /**
+     * Make an exception that reports the line and column of a position in the text.
+     * @param pos offset in the text where the error is
+     * @param problem what is wrong at pos
+     * @return an exception describing the error
+     */
+    UnableToParseException error(int pos, String problem) {
+        int line = 1;
+        int lineStart = 0;
+        for (int i = 0; i < pos && i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        return new UnableToParseException("Error in line " + line + " col " + (pos - lineStart + 1) + ": " + problem);
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isBasenote(char c) {
+        return (c >= 'A' && c <= 'G') || (c >= 'a' && c <= 'g');
+    }
+}
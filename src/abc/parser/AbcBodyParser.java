@@ -0,0 +1,397 @@
+package abc.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import abc.ast.AccidentalTracker;
+import abc.ast.Chord;
+import abc.ast.Music;
+import abc.ast.MusicHelper;
+import abc.ast.Note;
+import abc.ast.NoteOrChord;
+import abc.ast.Rational;
+import abc.ast.Sequence;
+import abc.ast.Repeat;
+import abc.ast.TuneHeader;
+import abc.ast.Tuplet;
+import abc.ast.Voice;
+import abc.parser.AbcBodyLexer.Kind;
+import lib6005.parser.UnableToParseException;
+
+/**
+ * A recursive-descent parser for the body grammar in AbcBody.g that builds the Music AST directly,
+ * without an intermediate ParseTree.
+ *
+ * It accepts exactly the voices that GrammarCache.bodyParser() accepts and builds the same AST that
+ * Music.buildMusicAST builds from their parse trees. Like the grammar, a repeat without a start bar
+ * reaches back to the first measure of the line, and of two choices the one that matches more text wins.
+ */
+public class AbcBodyParser {
+
+    private final TuneHeader header;
+    private AccidentalTracker accidentals;
+    private AbcBodyLexer tokens;
+    private int failedRepeatFrom;
+    private int failedRepeatTo;
+
+    // Abstraction function
+    //    a parser for the voices of the tune described by header
+    // Rep invariant
+    //    header != null; accidentals != null while parsing
+    //    while parsing, no repeat starts at a token i with failedRepeatFrom <= i < failedRepeatTo
+    // Safety from rep exposure
+    //    header is immutable, so parsers for different voices of a tune may share it and run at the same time;
+    //    accidentals is private to this parser
+
+    /**
+     * Make a parser for the voices of one tune. A parser is not safe to use from more than one thread,
+     * but parsers for the same header are independent of each other.
+     * @param header the header of the tune, as made by Music.parseHeader
+     */
+    public AbcBodyParser(TuneHeader header) {
+        this.header = header;
+    }
+
+    /**
+     * Parse the music of one voice.
+     * @param text the music lines of one voice, matching abc_music in AbcBody.g
+     * @return the voice
+     * @throws UnableToParseException if text does not match the body grammar
+     */
+    public Voice parse(String text) throws UnableToParseException {
+        tokens = new AbcBodyLexer(text);
+        failedRepeatFrom = 0;
+        failedRepeatTo = 0;
+        accidentals = new AccidentalTracker(header);
+
+        //abc_music ::= abc_line+
+        List<Music> voice = new ArrayList<>();
+        int pos = 0;
+        while (pos < tokens.size()) {
+            //abc_line ::= line_of_music | comment, whichever is longer
+            if (tokens.kind(pos) == Kind.COMMENT && repeatEnd(pos) < 0) {
+                pos++;
+                continue;
+            }
+            int lineStart = pos;
+            List<Music> line = new ArrayList<>();
+            //line_of_music ::= (measure | repeat)* NEWLINE?
+            while (true) {
+                int end = repeatEnd(pos);
+                if (end >= 0) {
+                    line.add(repeat(pos, end));
+                    pos = end;
+                    continue;
+                }
+                end = measureEnd(pos);
+                if (end == pos) {
+                    break;
+                }
+                line.add(measure(pos, end));
+                pos = end;
+            }
+            if (tokens.kind(pos) == Kind.NEWLINE) {
+                pos++;
+            }
+            if (pos == lineStart) {
+                throw tokens.error(tokens.start(pos), "unexpected " + describe(pos));
+            }
+            voice.add(new Sequence(line));
+        }
+        return new Voice(new Sequence(voice), "test");
+    }
+
+    /*
+     * Recognizers. Each takes the index of a token and returns the index just past the
+     * construct of the grammar that starts there, or -1 if there is none.
+     */
+
+    //note_element ::= note | chord
+    private int noteElementEnd(int i) {
+        Kind kind = tokens.kind(i);
+        if (kind == Kind.NOTE || kind == Kind.REST) {
+            return i + 1;
+        }
+        if (kind == Kind.CHORD_START) {
+            int j = i + 1;
+            while (tokens.kind(j) == Kind.NOTE || tokens.kind(j) == Kind.REST) {
+                j++;
+            }
+            if (j > i + 1 && tokens.kind(j) == Kind.CHORD_END) {
+                return j + 1;
+            }
+        }
+        return -1;
+    }
+
+    //element ::= note_element | tuplet_element | NEWLINE | WHITESPACE
+    private int elementEnd(int i) {
+        switch (tokens.kind(i)) {
+        case NEWLINE:
+        case WHITESPACE:
+            return i + 1;
+        case TUPLET_SPEC:
+            int j = i + 1;
+            int k;
+            while ((k = noteElementEnd(j)) >= 0) {
+                j = k;
+            }
+            return j > i + 1 ? j : -1;
+        default:
+            return noteElementEnd(i);
+        }
+    }
+
+    //measure ::= element* barline? WHITESPACE*, which may match no tokens at all
+    private int measureEnd(int i) {
+        int j = i;
+        int k;
+        while ((k = elementEnd(j)) >= 0) {
+            j = k;
+        }
+        if (tokens.kind(j) == Kind.BARLINE || tokens.kind(j) == Kind.REPEAT_START) {
+            j++;
+        }
+        while (tokens.kind(j) == Kind.WHITESPACE) {
+            j++;
+        }
+        return j;
+    }
+
+    //repeat ::= repeat_start? (measure | comment | NEWLINE)* nth_repeat? repeat_end (comment | NEWLINE)* (nth_repeat nth_end)?
+    private int repeatEnd(int i) {
+        if (failedRepeatFrom <= i && i < failedRepeatTo) {
+            return -1;
+        }
+        int j = bodyEnd(i);
+        int stop = j;
+        if (tokens.kind(j) == Kind.NTH_REPEAT) {
+            j++;
+        }
+        int k;
+        while ((k = elementEnd(j)) >= 0) {
+            j = k;
+        }
+        if (tokens.kind(j) != Kind.REPEAT_END) {
+            // Every later start in this stretch runs into the same stop, so remember the failure.
+            // This keeps parsing linear in the number of tokens.
+            failedRepeatFrom = i;
+            failedRepeatTo = stop;
+            return -1;
+        }
+        j = afterRepeatEnd(j);
+        if (tokens.kind(j) == Kind.NTH_REPEAT) {
+            j = measureEnd(j + 1);
+        }
+        return j;
+    }
+
+    //repeat_start? (measure | comment | NEWLINE)*
+    private int bodyEnd(int i) {
+        int j = i;
+        if (tokens.kind(j) == Kind.REPEAT_START) {
+            j++;
+        }
+        while (true) {
+            if (tokens.kind(j) == Kind.COMMENT) {
+                j++;
+                continue;
+            }
+            int k = measureEnd(j);
+            if (k == j) {
+                return j;
+            }
+            j = k;
+        }
+    }
+
+    //":|" WHITESPACE* (comment | NEWLINE)*
+    private int afterRepeatEnd(int j) {
+        j++;
+        while (tokens.kind(j) == Kind.WHITESPACE) {
+            j++;
+        }
+        while (tokens.kind(j) == Kind.COMMENT || tokens.kind(j) == Kind.NEWLINE) {
+            j++;
+        }
+        return j;
+    }
+
+    /*
+     * Builders. Each takes the token range found by the matching recognizer and builds its Music,
+     * visiting notes in the order they are written so that accidentals carry through measures
+     * exactly as in Music.buildMusicAST.
+     */
+
+    private Music repeat(int i, int end) throws UnableToParseException {
+        int j = i;
+        if (tokens.kind(j) == Kind.REPEAT_START) {
+            j++;
+        }
+        List<Music> repeated = new ArrayList<>();
+        boolean first = true;
+        while (true) {
+            if (tokens.kind(j) == Kind.COMMENT) {
+                j++;
+                first = false;
+                continue;
+            }
+            int k = measureEnd(j);
+            if (k == j) {
+                if (first) {
+                    // the grammar keeps an empty measure when it is the first thing in a repeat
+                    repeated.add(measure(j, j));
+                }
+                break;
+            }
+            repeated.add(measure(j, k));
+            j = k;
+            first = false;
+        }
+        boolean endings = false;
+        if (tokens.kind(j) == Kind.NTH_REPEAT) {
+            endings = true;
+            j++;
+        }
+        List<Music> firstEnd = new ArrayList<>();
+        while (tokens.kind(j) != Kind.REPEAT_END) {
+            int k = elementEnd(j);
+            appendElement(firstEnd, j, k);
+            j = k;
+        }
+        j = afterRepeatEnd(j);
+        if (j == end) {
+            if (endings) {
+                throw tokens.error(tokens.start(j), "first ending without a second ending");
+            }
+            repeated.add(new Sequence(firstEnd));
+            return new Repeat(new Sequence(repeated));
+        }
+        Music secondEnd = measure(j + 1, end);
+        return new Repeat(new Sequence(repeated), new Sequence(firstEnd), secondEnd);
+    }
+
+    private Music measure(int i, int end) throws UnableToParseException {
+        List<Music> measure = new ArrayList<>();
+        int j = i;
+        while (j < end) {
+            int k = elementEnd(j);
+            if (k < 0) {
+                break; //barline and the whitespace after it
+            }
+            appendElement(measure, j, k);
+            j = k;
+        }
+        return MusicHelper.constructMeasure(header, accidentals, new Sequence(measure));
+    }
+
+    private void appendElement(List<Music> music, int i, int end) throws UnableToParseException {
+        switch (tokens.kind(i)) {
+        case NEWLINE:
+        case WHITESPACE:
+            return;
+        case TUPLET_SPEC:
+            music.add(tuplet(i, end));
+            return;
+        default:
+            music.add(noteElement(i, end));
+            return;
+        }
+    }
+
+    private Music tuplet(int i, int end) throws UnableToParseException {
+        int tupletLength = tokens.text().charAt(tokens.start(i) + 1) - '0';
+        List<NoteOrChord> sequence = new ArrayList<>();
+        int j = i + 1;
+        while (j < end) {
+            int k = noteElementEnd(j);
+            sequence.add((NoteOrChord) noteElement(j, k));
+            j = k;
+        }
+        return new Tuplet(sequence, tupletLength);
+    }
+
+    private Music noteElement(int i, int end) throws UnableToParseException {
+        if (tokens.kind(i) != Kind.CHORD_START) {
+            return note(i);
+        }
+        List<Note> notes = new ArrayList<>();
+        for (int j = i + 1; j < end - 1; j++) {
+            Music note = note(j);
+            if (!(note instanceof Note)) {
+                throw tokens.error(tokens.start(j), "rest inside a chord");
+            }
+            notes.add((Note) note);
+        }
+        return new Chord(notes, notes.get(0).exactDuration());
+    }
+
+    //note ::= (pitch | rest) note_length?
+    private Music note(int i) throws UnableToParseException {
+        final String text = tokens.text();
+        final int end = tokens.end(i);
+        int pos = tokens.start(i);
+        if (tokens.kind(i) == Kind.REST) {
+            return MusicHelper.constructRest(header, noteLength(pos + 1, end));
+        }
+        int accidental = AccidentalTracker.NONE;
+        switch (text.charAt(pos)) {
+        case '^':
+            accidental = text.charAt(pos + 1) == '^' ? 2 : 1;
+            break;
+        case '_':
+            accidental = text.charAt(pos + 1) == '_' ? -2 : -1;
+            break;
+        case '=':
+            accidental = 0;
+            break;
+        default:
+            break;
+        }
+        pos += accidental == AccidentalTracker.NONE ? 0 : Math.max(1, Math.abs(accidental));
+        char basenote = text.charAt(pos);
+        pos++;
+        int octaveMarks = 0;
+        for (; pos < end && (text.charAt(pos) == '\'' || text.charAt(pos) == ','); pos++) {
+            octaveMarks += text.charAt(pos) == '\'' ? 1 : -1;
+        }
+        return MusicHelper.constructNote(header, accidentals, accidental, basenote, octaveMarks, noteLength(pos, end));
+    }
+
+    //note_length ::= (numerator)? ("/" (denominator)?)?, with the meaning given by MusicHelper.fractionToRational
+    private Rational noteLength(int pos, int end) throws UnableToParseException {
+        final String text = tokens.text();
+        int slash = pos;
+        while (slash < end && text.charAt(slash) != '/') {
+            slash++;
+        }
+        long numerator = slash > pos ? number(pos, slash) : 1;
+        if (slash == end) {
+            return Rational.valueOf(numerator);
+        }
+        long denominator = slash + 1 < end ? number(slash + 1, end) : 2;
+        if (denominator == 0) {
+            throw tokens.error(slash + 1, "zero note length denominator");
+        }
+        return Rational.of(numerator, denominator);
+    }
+
+    private long number(int pos, int end) throws UnableToParseException {
+        final String text = tokens.text();
+        long value = 0;
+        for (int i = pos; i < end; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw tokens.error(pos, "note length too large");
+            }
+        }
+        return value;
+    }
+
+    private String describe(int i) {
+        if (tokens.kind(i) == Kind.END) {
+            return "end of voice";
+        }
+        return "'" + tokens.text().substring(tokens.start(i), tokens.end(i)).trim() + "'";
+    }
+}
@@ -0,0 +1,152 @@
+package abc.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads the text of an abc file in a single pass, in time linear in its size.
+ * Line endings are normalized to "\n" and the text always ends with a newline, which is the form
+ * the grammars in AbcHeader.g and AbcBody.g expect.
+ */
+public final class AbcSource {
+
+    /**
+     * The charset used when none is given.
+     */
+    public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private AbcSource() {}
+
+    /**
+     * Read a file encoded in DEFAULT_CHARSET.
+     * @param path the file to read
+     * @return the normalized text of the file
+     * @throws IOException if the file cannot be read or is not valid DEFAULT_CHARSET
+     */
+    public static String read(Path path) throws IOException {
+        return read(path, DEFAULT_CHARSET);
+    }
+
+    /**
+     * Read a file.
+     * @param path the file to read
+     * @param charset the encoding of the file
+     * @return the normalized text of the file
+     * @throws IOException if the file cannot be read or is not valid in charset
+     */
+    public static String read(Path path, Charset charset) throws IOException {
+        return decode(Files.readAllBytes(path), charset);
+    }
+
+    /**
+     * Read a stream encoded in DEFAULT_CHARSET until it ends. The stream is not closed.
+     * @param in the stream to read
+     * @return the normalized text of the stream
+     * @throws IOException if the stream cannot be read or is not valid DEFAULT_CHARSET
+     */
+    public static String read(InputStream in) throws IOException {
+        return read(in, DEFAULT_CHARSET);
+    }
+
+    /**
+     * Read a stream until it ends. The stream is not closed.
+     * @param in the stream to read
+     * @param charset the encoding of the stream
+     * @return the normalized text of the stream
+     * @throws IOException if the stream cannot be read or is not valid in charset
+     */
+    public static String read(InputStream in, Charset charset) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(in.available(), BUFFER_SIZE));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, n);
+        }
+        return decode(bytes.toByteArray(), charset);
+    }
+
+    /**
+     * Read characters until the reader ends. The reader is not closed.
+     * Unlike BufferedReader.ready(), this does not stop early on pipes or slow streams.
+     * @param in the reader to read
+     * @return the normalized text of the reader
+     * @throws IOException if the reader cannot be read
+     */
+    public static String read(Reader in) throws IOException {
+        StringBuilder text = new StringBuilder(BUFFER_SIZE);
+        char[] buffer = new char[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            text.append(buffer, 0, n);
+        }
+        return normalize(text);
+    }
+
+    /**
+     * Normalize the line endings of some abc text.
+     * @param text any text
+     * @return text with a leading byte order mark removed, every "\r\n" and "\r" replaced by "\n",
+     *         and a "\n" appended if text is not empty and does not already end with one
+     */
+    public static String normalize(CharSequence text) {
+        int length = text.length();
+        if (text instanceof String && isNormalized(text)) {
+            return (String) text;
+        }
+        StringBuilder out = new StringBuilder(length + 1);
+        int i = (length > 0 && text.charAt(0) == BYTE_ORDER_MARK) ? 1 : 0;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\r') {
+                out.append('\n');
+                if (i + 1 < length && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            }
+            else {
+                out.append(c);
+            }
+        }
+        if (out.length() > 0 && out.charAt(out.length() - 1) != '\n') {
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    private static boolean isNormalized(CharSequence text) {
+        int length = text.length();
+        if (length == 0) {
+            return true;
+        }
+        if (text.charAt(0) == BYTE_ORDER_MARK || text.charAt(length - 1) != '\n') {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) == '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(byte[] bytes, Charset charset) throws CharacterCodingException {
+        CharBuffer chars = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(bytes));
+        return normalize(chars);
+    }
+}
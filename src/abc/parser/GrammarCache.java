@@ -0,0 +1,78 @@
+package abc.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import abc.ast.Music.AbcBodyGrammar;
+import abc.ast.Music.AbcHeaderGrammar;
+import lib6005.parser.GrammarCompiler;
+import lib6005.parser.Parser;
+import lib6005.parser.UnableToParseException;
+
+/**
+ * A process-wide registry of the compiled AbcHeader.g and AbcBody.g grammars.
+ * Each grammar is loaded from the classpath and compiled once, the first time it is asked for,
+ * and the same Parser is handed out to every caller afterwards.
+ * Parsers are safe to share between threads: every parse keeps its state on the stack.
+ */
+public final class GrammarCache {
+
+    /**
+     * Classpath location of the header grammar.
+     */
+    public static final String HEADER_GRAMMAR = "/abc/parser/AbcHeader.g";
+
+    /**
+     * Classpath location of the body grammar.
+     */
+    public static final String BODY_GRAMMAR = "/abc/parser/AbcBody.g";
+
+    private GrammarCache() {}
+
+    // Each holder class is initialized by the JVM the first time its parser is requested.
+    // Class initialization is lazy and runs exactly once, so no further locking is needed.
+    private static class HeaderHolder {
+        static final Parser<AbcHeaderGrammar> PARSER = compile(HEADER_GRAMMAR, AbcHeaderGrammar.ABC_TUNE);
+    }
+
+    private static class BodyHolder {
+        static final Parser<AbcBodyGrammar> PARSER = compile(BODY_GRAMMAR, AbcBodyGrammar.ABC_MUSIC);
+    }
+
+    /**
+     * @return the shared parser for a whole tune, rooted at ABC_TUNE in AbcHeader.g
+     */
+    public static Parser<AbcHeaderGrammar> headerParser() {
+        return HeaderHolder.PARSER;
+    }
+
+    /**
+     * @return the shared parser for the lines of one voice, rooted at ABC_MUSIC in AbcBody.g
+     */
+    public static Parser<AbcBodyGrammar> bodyParser() {
+        return BodyHolder.PARSER;
+    }
+
+    /**
+     * Compile a grammar found on the classpath, without caching the result.
+     * @param resource absolute classpath location of the grammar file
+     * @param root the root nonterminal of the grammar
+     * @return a new parser for the grammar
+     * @throws IllegalStateException if the grammar cannot be found or does not compile
+     */
+    public static <Sym extends Enum<Sym>> Parser<Sym> compile(String resource, Sym root) {
+        InputStream in = GrammarCache.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Grammar " + resource + " is not on the classpath.");
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return GrammarCompiler.compile(reader, root);
+        }
+        catch (IOException | UnableToParseException e) {
+            throw new IllegalStateException("Cannot compile grammar " + resource, e);
+        }
+    }
+}
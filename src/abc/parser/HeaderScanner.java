@@ -0,0 +1,186 @@
+package abc.parser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import abc.ast.KeySignature;
+import abc.ast.Music;
+import abc.ast.Rational;
+import abc.ast.TuneSummary;
+
+/**
+ * Reads the header of an abc file without the grammars: one line at a time, a byte at a time, stopping
+ * at the end of the K: line, so the music of the tune is never read. The fields accepted, and the defaults
+ * given to those left out, are those of AbcHeader.g and Music.parseHeader.
+ *
+ * This is for listing and searching many tunes; a tune that is played is parsed with Music.parseHeader.
+ */
+public final class HeaderScanner {
+
+    /**
+     * The extension of the files scanFolder reads.
+     */
+    public static final String EXTENSION = ".abc";
+
+    // a header is short, so a small buffer reads little more of a file than its header
+    private static final int BUFFER_SIZE = 1024;
+    private static final int NO_BYTE = -2;
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+
+    private HeaderScanner() {}
+
+    /**
+     * Read the header of an abc file.
+     * @param file an abc file
+     * @return the fields of its header
+     * @throws IOException if file cannot be read
+     * @throws IllegalArgumentException if its header is not valid, or the file ends before its K: line
+     */
+    public static TuneSummary scan(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+            return scan(in);
+        }
+    }
+
+    /**
+     * Read the header of an abc file from a stream, up to the end of its K: line. The stream is not closed,
+     * and is left at most one byte after the K: line.
+     * @param in a stream of an abc file encoded in UTF-8; should be buffered, as it is read a byte at a time
+     * @return the fields of its header
+     * @throws IOException if in cannot be read
+     * @throws IllegalArgumentException if its header is not valid, or the stream ends before its K: line
+     */
+    public static TuneSummary scan(InputStream in) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        List<String> voices = new ArrayList<>();
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int next = NO_BYTE;
+        boolean first = true;
+        while (true) {
+            // read one line, ending at "\n", "\r" or "\r\n" as NEWLINE does in AbcHeader.g
+            line.reset();
+            int b = next == NO_BYTE ? in.read() : next;
+            next = NO_BYTE;
+            while (b != -1 && b != '\n' && b != '\r') {
+                line.write(b);
+                b = in.read();
+            }
+            if (b == -1 && line.size() == 0) {
+                throw new IllegalArgumentException("header ends before its K: field");
+            }
+            String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+            if (first && text.startsWith(BYTE_ORDER_MARK)) {
+                text = text.substring(BYTE_ORDER_MARK.length());
+            }
+            if (text.startsWith("%")) {
+                if (first) {
+                    throw new IllegalArgumentException("header must start with its X: field");
+                }
+            }
+            else {
+                if (text.length() < 2 || text.charAt(1) != ':') {
+                    throw new IllegalArgumentException("not a header field: " + text);
+                }
+                char field = text.charAt(0);
+                String value = text.substring(2).trim();
+                if (first != (field == 'X')) {
+                    throw new IllegalArgumentException("X: must be the first field, and only the first: " + text);
+                }
+                if (!first && !fields.containsKey("T") && field != 'T') {
+                    throw new IllegalArgumentException("T: must be the second field: " + text);
+                }
+                first = false;
+                switch (field) {
+                case 'X':
+                case 'T':
+                case 'C':
+                case 'L':
+                    fields.put(String.valueOf(field), value);
+                    break;
+                case 'M':
+                    fields.put("M", value.equals("C") || value.equals("C|") ? "1" : value);
+                    break;
+                case 'Q':
+                    int equals = value.indexOf('=');
+                    if (equals < 0) {
+                        throw new IllegalArgumentException("tempo must be beat=number: " + text);
+                    }
+                    fields.put("Q1", value.substring(0, equals));
+                    fields.put("Q2", value.substring(equals + 1));
+                    break;
+                case 'V':
+                    voices.add(value);
+                    break;
+                case 'K':
+                    fields.put("K", value);
+                    return summary(fields, voices);
+                default:
+                    throw new IllegalArgumentException("not a header field: " + text);
+                }
+            }
+            if (b == '\r') {
+                next = in.read();
+                if (next == '\n') {
+                    next = NO_BYTE;
+                }
+            }
+            else if (b == -1) {
+                throw new IllegalArgumentException("header ends before its K: field");
+            }
+        }
+    }
+
+    private static TuneSummary summary(Map<String, String> fields, List<String> voices) {
+        if (!fields.containsKey("T")) {
+            throw new IllegalArgumentException("header has no T: field");
+        }
+        Music.updateMissingFields(fields);
+        try {
+            return new TuneSummary(Integer.parseInt(fields.get("X")), fields.get("T"), fields.get("C"),
+                    positive(fields.get("M")), positive(fields.get("L")), positive(fields.get("Q1")),
+                    Integer.parseInt(fields.get("Q2").trim()), KeySignature.valueOf(fields.get("K")), voices);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("not a number: " + e.getMessage(), e);
+        }
+    }
+
+    private static Rational positive(String fraction) {
+        Rational value = Rational.parse(fraction);
+        if (value.signum() <= 0) {
+            throw new IllegalArgumentException("not a positive length: " + fraction);
+        }
+        return value;
+    }
+
+    /**
+     * Read the header of every abc file in a folder, skipping files whose header is not valid.
+     * @param folder a folder
+     * @return the fields of the header of each file in folder whose name ends in EXTENSION and whose
+     *         header is valid, by file, in the order the folder lists them
+     * @throws IOException if folder or one of its abc files cannot be read
+     */
+    public static Map<Path, TuneSummary> scanFolder(Path folder) throws IOException {
+        Map<Path, TuneSummary> tunes = new LinkedHashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*" + EXTENSION)) {
+            for (Path file : files) {
+                try {
+                    tunes.put(file, scan(file));
+                } catch (IllegalArgumentException e) {
+                    // not a tune the player could play
+                }
+            }
+        }
+        return tunes;
+    }
+}
@@ -0,0 +1,494 @@
+package abc.player;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+
+import abc.ast.CompiledScore;
+import abc.ast.Music;
+import abc.ast.Music.AbcBodyGrammar;
+import abc.ast.Music.BodyParsing;
+import abc.ast.Music.AbcHeaderGrammar;
+import abc.ast.TuneHeader;
+import abc.ast.Voice;
+import abc.cache.CachedTune;
+import abc.cache.ParsedTune;
+import abc.cache.TuneCache;
+import abc.parser.AbcSource;
+import abc.parser.GrammarCache;
+import abc.parser.HeaderScanner;
+import abc.sound.AudioRenderer;
+import abc.sound.JitterHistogram;
+import abc.sound.NoteCounter;
+import abc.sound.PrecisionScheduler;
+import abc.tunebook.Tunebook;
+import lib6005.parser.Parser;
+import lib6005.parser.UnableToParseException;
+
+/**
+ * Timing comparisons for loading the tunes in the sample_abc folder.
+ * Run with the name of a comparison as the only argument, or with no arguments to run all of them.
+ */
+public class Benchmark {
+
+    private static final String SAMPLE_FOLDER = "sample_abc";
+    private static final int ROUNDS = 5;
+    private static final int JITTER_SPEEDUP = 8;
+    private static final int CACHE_WARMUP_ROUNDS = 500;
+    private static final int TUNEBOOK_TUNES = 50_000;
+    private static final int TUNEBOOK_TUNE = 31_337;
+    private static final int SCAN_ROUNDS = 200;
+
+    public static void main(String[] args) throws IOException, UnableToParseException, InterruptedException {
+        String which = args.length > 0 ? args[0] : "all";
+        List<String> tunes = readSamples();
+        if (which.equals("all") || which.equals("grammar")) {
+            grammarStartup(tunes);
+        }
+        if (which.equals("all") || which.equals("parser")) {
+            bodyParsing(tunes);
+        }
+        if (which.equals("all") || which.equals("voices")) {
+            voiceParsing(tunes);
+        }
+        if (which.equals("all") || which.equals("play")) {
+            playing(tunes);
+        }
+        if (which.equals("all") || which.equals("render")) {
+            rendering(tunes);
+        }
+        if (which.equals("all") || which.equals("jitter")) {
+            jitter(tunes);
+        }
+        if (which.equals("all") || which.equals("cache")) {
+            caching();
+        }
+        if (which.equals("all") || which.equals("tunebook")) {
+            tunebook(tunes);
+        }
+        if (which.equals("all") || which.equals("scan")) {
+            scanning();
+        }
+    }
+
+    /**
+     * Compare the cost of getting a header parser for every tune by compiling AbcHeader.g and AbcBody.g
+     * each time, as every load used to, against fetching them from the GrammarCache.
+     */
+    private static void grammarStartup(List<String> tunes) throws UnableToParseException {
+        // warm up the JIT and the cache so both columns measure steady state
+        GrammarCache.headerParser();
+        GrammarCache.bodyParser();
+
+        long uncached = 0;
+        long cached = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String tune : tunes) {
+                long start = System.nanoTime();
+                Parser<AbcHeaderGrammar> header = GrammarCache.compile(GrammarCache.HEADER_GRAMMAR, AbcHeaderGrammar.ABC_TUNE);
+                GrammarCache.compile(GrammarCache.BODY_GRAMMAR, AbcBodyGrammar.ABC_MUSIC);
+                header.parse(tune);
+                uncached += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                header = GrammarCache.headerParser();
+                GrammarCache.bodyParser();
+                header.parse(tune);
+                cached += System.nanoTime() - start;
+            }
+        }
+        int loads = ROUNDS * tunes.size();
+        report("grammar", "compile per load", uncached, "cached grammars", cached, loads);
+    }
+
+    /**
+     * Compare building the Music AST of every voice by parsing with AbcBody.g and walking the ParseTree
+     * against the hand-written AbcBodyParser.
+     */
+    private static void bodyParsing(List<String> tunes) {
+        List<TuneHeader> headers = new ArrayList<>();
+        for (String tune : tunes) {
+            headers.add(Music.parseHeader(tune));
+        }
+        // warm up both paths
+        for (TuneHeader header : headers) {
+            Music.parseBody(header, BodyParsing.GRAMMAR);
+            Music.parseBody(header, BodyParsing.DIRECT);
+        }
+
+        long grammar = 0;
+        long direct = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (TuneHeader header : headers) {
+                long start = System.nanoTime();
+                Music.parseBody(header, BodyParsing.GRAMMAR);
+                grammar += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Music.parseBody(header, BodyParsing.DIRECT);
+                direct += System.nanoTime() - start;
+            }
+        }
+        report("parser", "AbcBody.g", grammar, "AbcBodyParser", direct, ROUNDS * headers.size());
+    }
+
+    /**
+     * Compare parsing the voices of every tune with more than one voice one after another
+     * against Music.parseBody, which parses them in parallel.
+     */
+    private static void voiceParsing(List<String> tunes) throws UnableToParseException {
+        List<TuneHeader> headers = new ArrayList<>();
+        for (String tune : tunes) {
+            TuneHeader header = Music.parseHeader(tune);
+            if (header.voiceNames().size() > 1) {
+                headers.add(header);
+            }
+        }
+        // warm up both paths
+        for (TuneHeader header : headers) {
+            parseVoicesSequentially(header);
+            Music.parseBody(header);
+        }
+
+        long sequential = 0;
+        long parallel = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (TuneHeader header : headers) {
+                long start = System.nanoTime();
+                parseVoicesSequentially(header);
+                sequential += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Music.parseBody(header);
+                parallel += System.nanoTime() - start;
+            }
+        }
+        report("voices", "one after another", sequential, "fork-join pool", parallel, ROUNDS * headers.size());
+    }
+
+    /**
+     * Compare playing the Music AST of every tune against playing its CompiledScore, both onto a NoteCounter
+     * so that no MIDI device is needed and only the cost of scheduling the notes is measured.
+     */
+    private static void playing(List<String> tunes) {
+        List<Music> music = new ArrayList<>();
+        List<CompiledScore> scores = new ArrayList<>();
+        for (String tune : tunes) {
+            Music body = Music.parseBody(Music.parseHeader(tune));
+            music.add(body);
+            scores.add(CompiledScore.compile(body));
+        }
+        // warm up both paths
+        for (int i = 0; i < music.size(); i++) {
+            music.get(i).play(new NoteCounter(scores.get(i).ticksPerBeat()), 0);
+            scores.get(i).play(new NoteCounter(scores.get(i).ticksPerBeat()));
+        }
+
+        long ast = 0;
+        long compiled = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < music.size(); i++) {
+                int ticksPerBeat = scores.get(i).ticksPerBeat();
+                long start = System.nanoTime();
+                music.get(i).play(new NoteCounter(ticksPerBeat), 0);
+                ast += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                scores.get(i).play(new NoteCounter(ticksPerBeat));
+                compiled += System.nanoTime() - start;
+            }
+        }
+        report("play", "Music AST", ast, "CompiledScore", compiled, ROUNDS * music.size());
+    }
+
+    /**
+     * Measure how many seconds of audio the software synthesizer renders per second, and per second of CPU
+     * time of the whole process so that the worker threads count, rendering every tune to a channel that
+     * discards the bytes, with the voices of each block rendered on one worker thread and on the common
+     * fork-join pool. Only tunes with more than one voice can use more than one thread.
+     */
+    private static void rendering(List<String> tunes) throws IOException {
+        List<AudioRenderer> renderers = new ArrayList<>();
+        for (String tune : tunes) {
+            TuneHeader header = Music.parseHeader(tune);
+            renderers.add(new AudioRenderer(CompiledScore.compile(Music.parseBody(header)), header.tempo()));
+        }
+        WritableByteChannel discard = Channels.newChannel(new OutputStream() {
+            @Override public void write(int b) { }
+            @Override public void write(byte[] b, int off, int len) { }
+        });
+        ExecutorService oneThread = Executors.newSingleThreadExecutor();
+        try {
+            // warm up both paths
+            for (AudioRenderer renderer : renderers) {
+                renderer.render(discard, oneThread);
+                renderer.render(discard, ForkJoinPool.commonPool());
+            }
+
+            double audio = 0;
+            long sequential = 0;
+            long parallel = 0;
+            long sequentialCpu = 0;
+            long parallelCpu = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                for (AudioRenderer renderer : renderers) {
+                    long startCpu = processCpuNanos();
+                    long start = System.nanoTime();
+                    renderer.render(discard, oneThread);
+                    sequential += System.nanoTime() - start;
+                    sequentialCpu += processCpuNanos() - startCpu;
+
+                    startCpu = processCpuNanos();
+                    start = System.nanoTime();
+                    renderer.render(discard, ForkJoinPool.commonPool());
+                    parallel += System.nanoTime() - start;
+                    parallelCpu += processCpuNanos() - startCpu;
+                    audio += renderer.seconds();
+                }
+            }
+            report("render", "one thread", sequential, "fork-join pool", parallel, ROUNDS * renderers.size());
+            System.out.println(String.format("  %.1f s of audio, %d worker threads", audio,
+                    ForkJoinPool.commonPool().getParallelism()));
+            System.out.println(String.format("  %-20s %10.1f s audio/s %10.1f s audio/CPU s", "one thread",
+                    audio / (sequential / 1e9), audio / (sequentialCpu / 1e9)));
+            System.out.println(String.format("  %-20s %10.1f s audio/s %10.1f s audio/CPU s", "fork-join pool",
+                    audio / (parallel / 1e9), audio / (parallelCpu / 1e9)));
+        } finally {
+            oneThread.shutdown();
+        }
+    }
+
+    /**
+     * @return the CPU time used by every thread of this process so far, in nanoseconds, or the time elapsed
+     *         if the JVM does not measure it
+     */
+    private static long processCpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            long cpu = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+            if (cpu >= 0) {
+                return cpu;
+            }
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Measure how late PrecisionScheduler sends its messages, playing the tune with the most notes in real
+     * time, JITTER_SPEEDUP times faster than written, onto a receiver that discards them.
+     */
+    private static void jitter(List<String> tunes) throws InterruptedException {
+        CompiledScore longest = null;
+        int tempo = 0;
+        for (String tune : tunes) {
+            TuneHeader header = Music.parseHeader(tune);
+            CompiledScore score = CompiledScore.compile(Music.parseBody(header));
+            if (longest == null || score.size() > longest.size()) {
+                longest = score;
+                tempo = header.tempo();
+            }
+        }
+        PrecisionScheduler scheduler = new PrecisionScheduler(new Receiver() {
+            @Override public void send(MidiMessage message, long timeStamp) { }
+            @Override public void close() { }
+        });
+        scheduler.play(longest, tempo * JITTER_SPEEDUP);
+        JitterHistogram jitter = scheduler.getJitter();
+        System.out.println(String.format("jitter: %d events", jitter.count()));
+        System.out.println(String.format("  %-20s %10.1f us", "mean", jitter.meanNanos() / 1e3));
+        System.out.println(String.format("  %-20s %10.1f us", "99th percentile below", jitter.percentileNanos(0.99) / 1e3));
+        System.out.println(String.format("  %-20s %10.1f us", "max", jitter.maxNanos() / 1e3));
+        System.out.print(jitter);
+    }
+
+    /**
+     * Compare loading every tune from its file by reading, parsing and compiling it, as a cold load does,
+     * against loading it from a TuneCache in a fresh temporary folder that already holds its entry.
+     */
+    private static void caching() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (File file : sampleFiles()) {
+            files.add(file.toPath());
+        }
+        Path directory = Files.createTempDirectory("abc-cache");
+        TuneCache cache = new TuneCache(directory);
+        try {
+            // warm up both paths, which also stores every entry; a warm load is so short that it takes
+            // many more rounds than a parse before the JIT has compiled it
+            for (Path file : files) {
+                CachedTune.parse(AbcSource.read(file), 0);
+            }
+            for (int round = 0; round < CACHE_WARMUP_ROUNDS; round++) {
+                for (Path file : files) {
+                    cache.load(file, 0);
+                }
+            }
+
+            // each path is timed over whole rounds, so that a collection of the garbage a parse leaves
+            // is not charged to the warm load that happens to follow it
+            long cold = 0;
+            long warm = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (Path file : files) {
+                    CachedTune.parse(AbcSource.read(file), 0);
+                }
+                cold += System.nanoTime() - start;
+
+                System.gc();
+                start = System.nanoTime();
+                for (Path file : files) {
+                    cache.load(file, 0);
+                }
+                warm += System.nanoTime() - start;
+            }
+            report("cache", "parse and compile", cold, "cached entry", warm, ROUNDS * files.size());
+        } finally {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    Files.delete(entry);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Measure opening a tunebook of TUNEBOOK_TUNES tunes, made by numbering copies of the sample tunes one
+     * after another, and playing tune TUNEBOOK_TUNE of it: first when it has to be scanned, and then again
+     * when its saved index is read instead.
+     */
+    private static void tunebook(List<String> tunes) throws IOException {
+        Path directory = Files.createTempDirectory("abc-tunebook");
+        Path book = directory.resolve("book.abc");
+        Path indexes = directory.resolve("indexes");
+        try {
+            try (Writer out = Files.newBufferedWriter(book, StandardCharsets.UTF_8)) {
+                for (int number = 1; number <= TUNEBOOK_TUNES; number++) {
+                    String tune = tunes.get(number % tunes.size());
+                    out.write("X:" + number + tune.substring(tune.indexOf('\n')) + "\n");
+                }
+            }
+
+            // load the grammars first, which every first parse pays for, tunebook or not
+            Music.parseBody(Music.parseHeader(tunes.get(0)));
+
+            long start = System.nanoTime();
+            Tunebook scanned = Tunebook.open(book, indexes);
+            long scan = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Tunebook indexed = Tunebook.open(book, indexes);
+            long index = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            String text = indexed.text(indexed.find(TUNEBOOK_TUNE));
+            long find = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ParsedTune.parse(text, 0);
+            long parse = System.nanoTime() - start;
+
+            System.out.println(String.format("tunebook: %d tunes, %.1f MB", scanned.tunes().size(),
+                    Files.size(book) / 1e6));
+            System.out.println(String.format("  %-20s %10.3f ms", "open, scanning", scan / 1e6));
+            System.out.println(String.format("  %-20s %10.3f ms", "open, indexed", index / 1e6));
+            System.out.println(String.format("  %-20s %10.3f ms", "find X:" + TUNEBOOK_TUNE, find / 1e6));
+            System.out.println(String.format("  %-20s %10.3f ms", "parse it", parse / 1e6));
+        } finally {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(indexes)) {
+                for (Path entry : entries) {
+                    Files.delete(entry);
+                }
+            }
+            Files.delete(indexes);
+            Files.delete(book);
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Compare reading the header of every tune from its file by reading the whole file and parsing its
+     * header with AbcHeader.g, as Music.parseHeader does, against reading it with the HeaderScanner.
+     */
+    private static void scanning() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (File file : sampleFiles()) {
+            files.add(file.toPath());
+        }
+        // warm up both paths; a scan is short, so it takes many rounds before the JIT has compiled it
+        for (int round = 0; round < SCAN_ROUNDS; round++) {
+            for (Path file : files) {
+                Music.parseHeader(AbcSource.read(file));
+                HeaderScanner.scan(file);
+            }
+        }
+
+        long parsed = 0;
+        long scanned = 0;
+        for (int round = 0; round < SCAN_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (Path file : files) {
+                Music.parseHeader(AbcSource.read(file));
+            }
+            parsed += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (Path file : files) {
+                HeaderScanner.scan(file);
+            }
+            scanned += System.nanoTime() - start;
+        }
+        int loads = SCAN_ROUNDS * files.size();
+        report("scan", "parse header", parsed, "HeaderScanner", scanned, loads);
+        System.out.println(String.format("  %-20s %10.0f files/s", "scanned", loads / (scanned / 1e9)));
+    }
+
+    private static List<Voice> parseVoicesSequentially(TuneHeader header) throws UnableToParseException {
+        List<Voice> voices = new ArrayList<>();
+        for (String name : header.voiceNames()) {
+            voices.add(Music.parseVoice(header.voiceMusic(name), header, BodyParsing.DIRECT));
+        }
+        return voices;
+    }
+
+    private static void report(String name, String before, long beforeNanos, String after, long afterNanos, int loads) {
+        System.out.println(String.format("%s: %d loads", name, loads));
+        System.out.println(String.format("  %-20s %10.3f ms/load", before, beforeNanos / 1e6 / loads));
+        System.out.println(String.format("  %-20s %10.3f ms/load", after, afterNanos / 1e6 / loads));
+        System.out.println(String.format("  speedup %.1fx", (double) beforeNanos / afterNanos));
+    }
+
+    private static List<String> readSamples() throws IOException {
+        List<String> tunes = new ArrayList<>();
+        for (File file : sampleFiles()) {
+            tunes.add(AbcSource.read(file.toPath()));
+        }
+        return tunes;
+    }
+
+    private static File[] sampleFiles() throws IOException {
+        File[] files = new File(SAMPLE_FOLDER).listFiles((dir, name) -> name.endsWith(".abc"));
+        if (files == null) {
+            throw new IOException("Run from the project folder so that " + SAMPLE_FOLDER + " can be found.");
+        }
+        return files;
+    }
+}
@@ -1,18 +1,40 @@
 package abc.player;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.sound.midi.MidiUnavailableException;
 
 import abc.ast.*;
+import abc.cache.ParsedTune;
+import abc.cache.PieceCache;
+import abc.cache.TuneCache;
+import abc.parser.HeaderScanner;
+import abc.sound.PlaybackEngine;
+import abc.tunebook.Tunebook;
 
 /**
  * Main entry point of your application.
  */
 public class Main {
 
+    // the tunes played so far, kept so that playing one again needs no parsing or compiling; a tune
+    // played in an earlier session is loaded from the default TuneCache instead of being parsed
+    private static final PieceCache tunes = new PieceCache(PieceCache.DEFAULT_MAX_BYTES, TuneCache.getDefault());
+    // the sequencer and synthesizer every tune is played on, opened for the first tune and kept open
+    private static PlaybackEngine engine;
+
     /**
      * Plays the input file using Java MIDI API and displays
      * header information to the standard output stream.
+     * If the file has been played before and has not changed since, its compiled score is played again
+     * from an in-memory PieceCache, or from the default TuneCache on disk if it was played in an earlier session.
      * 
      * (Your code should not exit the application abnormally using
      * System.exit().)
@@ -20,24 +42,155 @@ public class Main {
      * @param file the name of input abc file
      */
     public static void play(String fileName) {
-        final int ticksPerBeat = 10000;
-        File file = new File(fileName);
-        Music.playMusic(file, ticksPerBeat);
-        
+        play(fileName, false);
+    }
+
+    /**
+     * Plays the input file like play(fileName), either all scheduled before it starts
+     * or streamed to the synthesizer as it plays.
+     *
+     * @param fileName the name of input abc file
+     * @param streaming true to start playing as soon as the first measure is ready
+     */
+    public static void play(String fileName, boolean streaming) {
+        start(fileName, streaming);
     }
 
+    /**
+     * Start playing the input file, and display its header. A tune that is not streamed is played on a
+     * PlaybackEngine shared by every tune, and stops the tune playing before it.
+     *
+     * @param fileName the name of input abc file
+     * @param streaming true to stream the tune, which returns once it has finished
+     * @return a future that completes when the tune has finished, or is cancelled if it is stopped first;
+     *         already completed if the tune was streamed or could not be played
+     */
+    static CompletableFuture<Void> start(String fileName, boolean streaming) {
+        ParsedTune tune;
+        try {
+            tune = tunes.load(Paths.get(fileName), 0);
+        } catch (IOException e) {
+            System.out.println("Cannot read " + fileName);
+            return CompletableFuture.completedFuture(null);
+        }
+        return start(tune, streaming);
+    }
+
+    /**
+     * Start playing one tune of a tunebook, as start(fileName, streaming) plays a file.
+     * Only that tune is parsed; the tunebook is scanned for its tunes only the first time it is opened.
+     *
+     * @param bookName the name of an abc file holding several tunes
+     * @param number the number X of the tune to play
+     * @param streaming true to stream the tune, which returns once it has finished
+     * @return a future that completes when the tune has finished, or is cancelled if it is stopped first;
+     *         already completed if the tune was streamed or could not be played
+     */
+    static CompletableFuture<Void> start(String bookName, int number, boolean streaming) {
+        ParsedTune tune;
+        try {
+            Tunebook book = Tunebook.open(Paths.get(bookName));
+            if (!book.contains(number)) {
+                System.out.println("No tune X:" + number + " in " + bookName);
+                return CompletableFuture.completedFuture(null);
+            }
+            tune = book.parse(number, 0);
+        } catch (IOException e) {
+            System.out.println("Cannot read " + bookName);
+            return CompletableFuture.completedFuture(null);
+        }
+        return start(tune, streaming);
+    }
+
+    private static CompletableFuture<Void> start(ParsedTune tune, boolean streaming) {
+        System.out.println(tune.header().text());
+        if (streaming) {
+            Music.streamScore(tune.header(), tune.score());
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            if (engine == null) {
+                engine = new PlaybackEngine();
+            }
+            return engine.play(tune.score(), tune.header().tempo());
+        } catch (MidiUnavailableException e) {
+            e.printStackTrace();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Wait for a tune to finish.
+     *
+     * @param finished the future of the tune
+     */
+    private static void await(CompletableFuture<Void> finished) {
+        try {
+            finished.join();
+        } catch (CancellationException | CompletionException e) {
+            // stopped early; go on to the next tune
+        }
+    }
+
+    /**
+     * Print the header fields of every tune in the sample_abc folder, read without parsing the tunes.
+     */
+    private static void list() {
+        try {
+            for (Map.Entry<Path, TuneSummary> tune : HeaderScanner.scanFolder(Paths.get("sample_abc")).entrySet()) {
+                String name = tune.getKey().getFileName().toString();
+                System.out.println(name.substring(0, name.length() - HeaderScanner.EXTENSION.length())
+                        + ": " + tune.getValue());
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot read sample_abc");
+        }
+    }
+
+    /**
+     * Play the files named on standard input, until q. A line naming several files, separated by spaces,
+     * is a playlist: each tune starts as soon as the one before it ends. A name such as book#12 plays
+     * tune X:12 of the tunebook book, and l lists the tunes in the sample_abc folder.
+     *
+     * @param args --stream to stream each tune to the synthesizer as it plays
+     */
     public static void main(String[] args) {
+        boolean streaming = args.length > 0 && args[0].equals("--stream");
         Scanner in = new Scanner(System.in);
         while(true) {
-            System.out.println("Enter the name of the file you'd like played. Make sure it is in the sample_abc folder.");
-            String fileName = ("sample_abc/" + in.nextLine() + ".abc");
-            if(fileName.equals("sample_abc/q.abc")) {
+            System.out.println("Enter the name of the file you'd like played, or several to play one after another. Make sure it is in the sample_abc folder; l lists its tunes.");
+            String[] names = in.nextLine().trim().split("\\s+");
+            if(names[0].equals("q")) {
                 break;
             }
+            else if(names[0].equals("l")) {
+                list();
+            }
             else {
-                play(fileName);
+                for (int i = 0; i < names.length; i++) {
+                    int hash = names[i].indexOf('#');
+                    CompletableFuture<Void> finished;
+                    if (hash < 0) {
+                        finished = start("sample_abc/" + names[i] + ".abc", streaming);
+                    }
+                    else {
+                        String book = "sample_abc/" + names[i].substring(0, hash) + ".abc";
+                        try {
+                            finished = start(book, Integer.parseInt(names[i].substring(hash + 1)), streaming);
+                        } catch (NumberFormatException e) {
+                            System.out.println("Not a tune number: " + names[i].substring(hash + 1));
+                            continue;
+                        }
+                    }
+                    if (i < names.length - 1) {
+                        await(finished);
+                    }
+                }
             }
         }
         in.close();
+        if (engine != null) {
+            engine.close();
+        }
     }
 }
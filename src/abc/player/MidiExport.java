@@ -0,0 +1,64 @@
+package abc.player;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import abc.ast.CompiledScore;
+import abc.ast.Music;
+import abc.ast.TuneHeader;
+import abc.sound.MidiFileWriter;
+
+/**
+ * Command-line entry point that writes an abc file to a Standard MIDI File instead of playing it,
+ * so it works on machines with no MIDI device.
+ *
+ * Usage: MidiExport [-0 | -1] input.abc [output.mid]
+ * -0 writes a single track (the default), -1 a tempo track and one track per voice.
+ * The output defaults to the input with its extension replaced by .mid.
+ */
+public class MidiExport {
+
+    private static final String USAGE = "usage: MidiExport [-0 | -1] input.abc [output.mid]";
+
+    /**
+     * Write an abc file to a MIDI file.
+     * @param input the abc file
+     * @param output where to write the MIDI file
+     * @param format MidiFileWriter.SINGLE_TRACK or MidiFileWriter.MULTI_TRACK
+     * @return the compiled score that was written
+     * @throws IOException if the abc file cannot be read or the MIDI file cannot be written
+     * @throws IllegalArgumentException if the abc file is not valid or cannot be written as MIDI
+     */
+    public static CompiledScore export(File input, Path output, int format) throws IOException {
+        TuneHeader header = Music.parseHeader(input);
+        if (header == null) {
+            throw new IOException("Cannot read " + input);
+        }
+        CompiledScore score = CompiledScore.compile(Music.parseBody(header));
+        new MidiFileWriter(format, header.tempo()).write(score, output);
+        return score;
+    }
+
+    public static void main(String[] args) {
+        int format = MidiFileWriter.SINGLE_TRACK;
+        int next = 0;
+        if (next < args.length && (args[next].equals("-0") || args[next].equals("-1"))) {
+            format = args[next].equals("-0") ? MidiFileWriter.SINGLE_TRACK : MidiFileWriter.MULTI_TRACK;
+            next++;
+        }
+        if (next >= args.length || args.length - next > 2) {
+            System.err.println(USAGE);
+            return;
+        }
+        String input = args[next];
+        String output = next + 1 < args.length ? args[next + 1] : input.replaceFirst("(\\.abc)?$", ".mid");
+        try {
+            CompiledScore score = export(new File(input), Paths.get(output), format);
+            System.out.println("Wrote " + score.size() + " notes to " + output);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package abc.player;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import abc.ast.CompiledScore;
+import abc.ast.Music;
+import abc.ast.TuneHeader;
+import abc.sound.AudioRenderer;
+
+/**
+ * Command-line entry point that renders an abc file to a 16-bit, 44.1 kHz WAV file with the built-in
+ * synthesizer, so it works on machines with no audio device or soundbank.
+ *
+ * Usage: WavExport input.abc [output.wav]
+ * The output defaults to the input with its extension replaced by .wav.
+ */
+public class WavExport {
+
+    private static final String USAGE = "usage: WavExport input.abc [output.wav]";
+
+    /**
+     * Render an abc file to a WAV file.
+     * @param input the abc file
+     * @param output where to write the WAV file
+     * @return the renderer that wrote the file
+     * @throws IOException if the abc file cannot be read or the WAV file cannot be written
+     * @throws IllegalArgumentException if the abc file is not valid or is too long for a WAV file
+     */
+    public static AudioRenderer export(File input, Path output) throws IOException {
+        TuneHeader header = Music.parseHeader(input);
+        if (header == null) {
+            throw new IOException("Cannot read " + input);
+        }
+        CompiledScore score = CompiledScore.compile(Music.parseBody(header));
+        AudioRenderer renderer = new AudioRenderer(score, header.tempo());
+        renderer.render(output);
+        return renderer;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println(USAGE);
+            return;
+        }
+        String input = args[0];
+        String output = args.length > 1 ? args[1] : input.replaceFirst("(\\.abc)?$", ".wav");
+        try {
+            AudioRenderer renderer = export(new File(input), Paths.get(output));
+            System.out.println(String.format("Wrote %.1f seconds of audio to %s", renderer.seconds(), output));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package abc.sound;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Renders scheduled notes to 16-bit, 44.1 kHz mono PCM audio in a WAV file, with a built-in software
+ * synthesizer, so that tunes can be rendered on machines with no audio device or soundbank.
+ *
+ * Each voice is synthesized by a wavetable oscillator per note, shaped by an attack-decay-sustain-release
+ * envelope. Audio is rendered a block at a time: every voice renders the block into its own buffer, the
+ * buffers are summed in voice order into one reusable mix buffer, and the mix is converted into a direct
+ * ByteBuffer and written to the output. Memory use depends on the number of voices and notes sounding at
+ * once, never on the length of the tune.
+ *
+ * When there is more than one voice, the voices of a block are rendered in parallel, each on a worker
+ * thread, and the block is mixed once all of them are done. A voice only ever writes its own buffer and
+ * the mix always sums them in the same order, so the audio is bit-identical whatever the number of threads.
+ */
+public class AudioRenderer {
+
+    /** samples per second */
+    public static final int SAMPLE_RATE = 44100;
+    /** frames rendered at a time; large enough that waiting for every voice of a block costs little */
+    static final int BLOCK_FRAMES = 4096;
+
+    private static final int BYTES_PER_SAMPLE = 2;
+    private static final int WAV_HEADER_BYTES = 44;
+    private static final int SECONDS_PER_MINUTE = 60;
+    private static final int MILLISECONDS_PER_SECOND = 1000;
+    private static final int ATTACK_MS = 5;
+    private static final int DECAY_MS = 60;
+    private static final float SUSTAIN = 0.6f;
+    private static final int RELEASE_MS = 80;
+    // scales the mix so that a few notes at full level do not clip
+    private static final float GAIN = 0.25f;
+
+    private final NoteSchedule notes;
+    private final long ticksPerMinute;
+    private final long frames;
+
+    /*
+     * Abstraction function:
+     *   the audio of notes played at ticksPerMinute ticks per minute, frames frames long:
+     *   until the last note has been released and faded out
+     * Rep invariant:
+     *   ticksPerMinute > 0, 0 <= frames and 2 * frames fits the data chunk of a WAV file
+     */
+
+    private void checkRep() {
+        assert ticksPerMinute > 0 : "tempo should be positive";
+        assert frames >= 0 && frames * BYTES_PER_SAMPLE <= Integer.MAX_VALUE - WAV_HEADER_BYTES : "should fit a WAV";
+    }
+
+    /**
+     * Make a renderer for some notes.
+     *
+     * @param notes the notes to render
+     * @param beatsPerMinute the number of beats per minute; must be > 0
+     * @throws IllegalArgumentException if beatsPerMinute is not positive or the audio is too long for a WAV file
+     */
+    public AudioRenderer(NoteSchedule notes, int beatsPerMinute) {
+        if (beatsPerMinute <= 0) {
+            throw new IllegalArgumentException("beats per minute must be positive: " + beatsPerMinute);
+        }
+        this.notes = notes;
+        this.ticksPerMinute = (long) beatsPerMinute * notes.ticksPerBeat();
+        long end = 0;
+        for (int i = 0; i < notes.size(); i++) {
+            end = Math.max(end, frameOf(notes.startTick(i) + notes.durationTicks(i)));
+        }
+        this.frames = notes.size() == 0 ? 0 : end + framesOf(RELEASE_MS);
+        if (frames * BYTES_PER_SAMPLE > Integer.MAX_VALUE - WAV_HEADER_BYTES) {
+            throw new IllegalArgumentException("too long for a WAV file: " + frames + " frames");
+        }
+        checkRep();
+    }
+
+    /**
+     * @return the number of frames of audio, one sample each
+     */
+    public long frames() {
+        return frames;
+    }
+
+    /**
+     * @return the length of the audio in seconds
+     */
+    public double seconds() {
+        return (double) frames / SAMPLE_RATE;
+    }
+
+    /**
+     * @param tick a tick of the notes, >= 0
+     * @return the frame tick falls in
+     */
+    long frameOf(long tick) {
+        return tick * SAMPLE_RATE * SECONDS_PER_MINUTE / ticksPerMinute;
+    }
+
+    private static int framesOf(int milliseconds) {
+        return SAMPLE_RATE * milliseconds / MILLISECONDS_PER_SECOND;
+    }
+
+    /**
+     * @param voice the index of a voice of the notes
+     * @return a synthesizer for that voice, before its first block
+     */
+    VoiceSynth voiceSynth(int voice) {
+        return new VoiceSynth(this, notes, voice, framesOf(ATTACK_MS), framesOf(DECAY_MS), SUSTAIN,
+                framesOf(RELEASE_MS));
+    }
+
+    /**
+     * Render the audio to a new WAV file, replacing any file already at path.
+     *
+     * @param path where to write the file
+     * @throws IOException if the file cannot be written
+     */
+    public void render(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            render(channel);
+        }
+    }
+
+    /**
+     * Render the audio as a WAV file to a channel, which is left open.
+     * Voices are rendered in parallel on the common fork-join pool.
+     *
+     * @param out the channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    public void render(WritableByteChannel out) throws IOException {
+        render(out, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Render the audio as a WAV file to a channel, which is left open.
+     * The audio is the same whichever executor renders it, and however many threads it has.
+     *
+     * @param out the channel to write to
+     * @param executor where to render the voices of each block in parallel; a tune with one voice
+     *                 is rendered on the calling thread
+     * @throws IOException if the channel cannot be written, or the thread is interrupted while waiting for voices
+     */
+    public void render(WritableByteChannel out, ExecutorService executor) throws IOException {
+        writeFully(out, header());
+        int voices = Math.max(1, notes.voiceNames().size());
+        VoiceSynth[] synths = new VoiceSynth[voices];
+        float[][] voiceBuffers = new float[voices][BLOCK_FRAMES];
+        for (int v = 0; v < voices; v++) {
+            synths[v] = voiceSynth(v);
+        }
+        float[] mix = new float[BLOCK_FRAMES];
+        ByteBuffer pcm = ByteBuffer.allocateDirect(BLOCK_FRAMES * BYTES_PER_SAMPLE).order(ByteOrder.LITTLE_ENDIAN);
+        for (long first = 0; first < frames; first += BLOCK_FRAMES) {
+            int count = (int) Math.min(BLOCK_FRAMES, frames - first);
+            if (voices == 1) {
+                synths[0].renderBlock(voiceBuffers[0], first, count);
+            } else {
+                renderVoices(executor, synths, voiceBuffers, first, count);
+            }
+            mix(voiceBuffers, mix, count);
+            pcm.clear();
+            for (int i = 0; i < count; i++) {
+                pcm.putShort(toSample(mix[i]));
+            }
+            pcm.flip();
+            writeFully(out, pcm);
+        }
+    }
+
+    /**
+     * Render one block of every voice on executor, and wait until all of them are done.
+     */
+    private static void renderVoices(ExecutorService executor, VoiceSynth[] synths, float[][] voiceBuffers,
+            long first, int count) throws InterruptedIOException {
+        List<Callable<Void>> tasks = new ArrayList<>(synths.length);
+        for (int v = 0; v < synths.length; v++) {
+            VoiceSynth synth = synths[v];
+            float[] buffer = voiceBuffers[v];
+            tasks.add(() -> {
+                synth.renderBlock(buffer, first, count);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> done : executor.invokeAll(tasks)) {
+                done.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("voice failed to render", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("interrupted while rendering voices");
+            interrupted.initCause(e);
+            throw interrupted;
+        }
+    }
+
+    /**
+     * Sum the voices of a block, always in voice order, so the mix does not depend on how they were rendered.
+     */
+    static void mix(float[][] voiceBuffers, float[] mix, int frames) {
+        System.arraycopy(voiceBuffers[0], 0, mix, 0, frames);
+        for (int v = 1; v < voiceBuffers.length; v++) {
+            float[] buffer = voiceBuffers[v];
+            for (int i = 0; i < frames; i++) {
+                mix[i] += buffer[i];
+            }
+        }
+    }
+
+    private static short toSample(float value) {
+        float scaled = Math.max(-1f, Math.min(1f, value * GAIN));
+        return (short) Math.round(scaled * Short.MAX_VALUE);
+    }
+
+    private ByteBuffer header() {
+        int dataBytes = (int) (frames * BYTES_PER_SAMPLE);
+        ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] { 'R', 'I', 'F', 'F' });
+        header.putInt(WAV_HEADER_BYTES - 8 + dataBytes);
+        header.put(new byte[] { 'W', 'A', 'V', 'E', 'f', 'm', 't', ' ' });
+        header.putInt(16);                                  // length of the format chunk
+        header.putShort((short) 1);                         // PCM
+        header.putShort((short) 1);                         // mono
+        header.putInt(SAMPLE_RATE);
+        header.putInt(SAMPLE_RATE * BYTES_PER_SAMPLE);      // bytes per second
+        header.putShort((short) BYTES_PER_SAMPLE);          // bytes per frame
+        header.putShort((short) (8 * BYTES_PER_SAMPLE));    // bits per sample
+        header.put(new byte[] { 'd', 'a', 't', 'a' });
+        header.putInt(dataBytes);
+        header.flip();
+        return header;
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package abc.sound;
+
+/**
+ * Something that notes can be scheduled on, in ticks: a player, a recorder, a file writer.
+ * Music plays itself onto an EventSink, so it can be played, checked or exported without a MIDI device.
+ */
+public interface EventSink {
+
+    /**
+     * @return the ticks per beat of this sink, > 0
+     */
+    int getTicksPerBeat();
+
+    /**
+     * Schedule a note to be played starting at startTick for the duration of numTicks.
+     *
+     * @param note the pitch value for the note to be played; must be a valid note
+     * @param startTick the starting tick; must be >= 0
+     * @param numTicks the number of ticks for which this note should be played; must be >= 0
+     */
+    void addNote(int note, int startTick, int numTicks);
+
+    /**
+     * Schedule many notes at once: note i plays pitch notes[i] starting at startTicks[i] for numTicks[i] ticks.
+     * The arrays are only read, never kept. By default the notes are added one at a time, in order.
+     *
+     * @param notes the pitch values of the notes; each must be a valid note
+     * @param startTicks the starting ticks of the notes; each must be >= 0
+     * @param numTicks the number of ticks for which each note should be played; each must be >= 0
+     * @param count the number of notes to schedule, the first count elements of each array;
+     *              0 <= count <= the length of every array
+     */
+    default void addNotes(int[] notes, int[] startTicks, int[] numTicks, int count) {
+        for (int i = 0; i < count; i++) {
+            addNote(notes[i], startTicks[i], numTicks[i]);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package abc.sound;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of how late events were sent, compared to when they were meant to be sent.
+ *
+ * Bucket 0 counts events sent exactly on time, and bucket b > 0 counts events between 2^(b-1) and 2^b - 1
+ * nanoseconds late, so a few dozen buckets cover every lateness from a nanosecond to minutes with a
+ * relative precision of a factor of two. Recording an event neither allocates nor takes a lock.
+ *
+ * A histogram is mutable and not thread-safe: it is recorded by one thread, and read once that thread
+ * has finished, or from a copy.
+ */
+public class JitterHistogram {
+
+    /** the number of buckets */
+    public static final int BUCKETS = Long.SIZE;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    /*
+     * Abstraction function:
+     *   count events, totalNanos late in all, the latest maxNanos late, counts[b] of them in bucket b
+     * Rep invariant:
+     *   every counts[b] >= 0 and they sum to count
+     *   0 <= maxNanos <= totalNanos, and maxNanos falls in the last nonempty bucket
+     */
+
+    private void checkRep() {
+        long sum = 0;
+        for (long bucket : counts) {
+            assert bucket >= 0 : "counts cannot be negative";
+            sum += bucket;
+        }
+        assert sum == count : "buckets should add up to the count";
+        assert 0 <= maxNanos && maxNanos <= totalNanos : "the latest event is part of the total";
+        int last = BUCKETS - 1;
+        while (last > 0 && counts[last] == 0) {
+            last--;
+        }
+        assert bucket(maxNanos) == last : "the latest event should be in the last nonempty bucket";
+    }
+
+    /**
+     * Make an empty histogram.
+     */
+    public JitterHistogram() {
+        checkRep();
+    }
+
+    /**
+     * Make a copy of a histogram.
+     *
+     * @param that the histogram to copy
+     */
+    public JitterHistogram(JitterHistogram that) {
+        System.arraycopy(that.counts, 0, this.counts, 0, BUCKETS);
+        this.count = that.count;
+        this.totalNanos = that.totalNanos;
+        this.maxNanos = that.maxNanos;
+        checkRep();
+    }
+
+    /**
+     * Record one event.
+     *
+     * @param lateNanos how many nanoseconds late the event was sent; an early event counts as on time
+     */
+    public void record(long lateNanos) {
+        long late = Math.max(0, lateNanos);
+        counts[bucket(late)]++;
+        count++;
+        totalNanos += late;
+        maxNanos = Math.max(maxNanos, late);
+        // record is on the send path of PrecisionScheduler, so only the parts of the rep invariant
+        // it can break are checked here, without scanning the buckets
+        assert counts[bucket(late)] > 0 && count > 0 : "the event should be counted";
+        assert late <= maxNanos && maxNanos <= totalNanos : "the latest event is part of the total";
+        assert counts[bucket(maxNanos)] > 0 : "the latest event should be in a nonempty bucket";
+    }
+
+    /**
+     * Forget every event recorded.
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+        checkRep();
+    }
+
+    /**
+     * @param lateNanos a lateness in nanoseconds, >= 0
+     * @return the bucket that counts it
+     */
+    public static int bucket(long lateNanos) {
+        return Long.SIZE - Long.numberOfLeadingZeros(lateNanos);
+    }
+
+    /**
+     * @param bucket a bucket, 0 <= bucket < BUCKETS
+     * @return the most nanoseconds late an event in that bucket can be
+     */
+    public static long bucketMaxNanos(int bucket) {
+        // for the last bucket, this overflows to Long.MAX_VALUE
+        return (1L << bucket) - 1;
+    }
+
+    /**
+     * @param bucket a bucket, 0 <= bucket < BUCKETS
+     * @return the number of events recorded in it
+     */
+    public long count(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * @return the number of events recorded
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return the latest any event was, in nanoseconds, or 0 if none was recorded
+     */
+    public long maxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * @return the mean lateness of the events in nanoseconds, or 0 if none was recorded
+     */
+    public double meanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * @param fraction the fraction of events, 0 <= fraction <= 1
+     * @return an upper bound on the lateness of that fraction of the events, to within a factor of two,
+     *         and never more than maxNanos(); 0 if none was recorded
+     */
+    public long percentileNanos(double fraction) {
+        long wanted = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= wanted && seen > 0) {
+                return Math.min(bucketMaxNanos(b), maxNanos);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return one line for each nonempty bucket, giving the lateness it counts and its number of events
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (int b = 0; b < BUCKETS; b++) {
+            if (counts[b] > 0) {
+                long low = b == 0 ? 0 : 1L << (b - 1);
+                out.append(String.format("%12d..%-12d ns %d%n", low, bucketMaxNanos(b), counts[b]));
+            }
+        }
+        return out.toString();
+    }
+}
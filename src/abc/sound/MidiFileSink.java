@@ -0,0 +1,109 @@
+package abc.sound;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An EventSink that writes the notes scheduled on it to a Standard MIDI File, without a MIDI device.
+ *
+ * A MIDI track must be written in order of time, but music schedules a voice or a repeat at a time, so
+ * notes are recorded in memory as they are scheduled, then sorted and streamed out by MidiFileWriter when
+ * the sink is closed. No note can be scheduled after that.
+ */
+public class MidiFileSink implements EventSink, Closeable {
+
+    private final NoteRecorder recorder;
+    private final MidiFileWriter writer;
+    private final WritableByteChannel out;
+    private final boolean closeOut;
+    private boolean closed = false;
+
+    /*
+     * Abstraction function:
+     *   a MIDI file to be written to out by writer, of the notes recorded by recorder;
+     *   it has been written if closed, in which case out has been closed too if closeOut
+     * Rep invariant:
+     *   recorder, writer and out are non-null
+     */
+
+    private void checkRep() {
+        assert recorder != null && writer != null && out != null : "fields should be non-null";
+    }
+
+    /**
+     * Make a sink that writes a format 0 MIDI file to a new file, replacing any file already at path,
+     * when it is closed.
+     *
+     * @param path where to write the file
+     * @param beatsPerMinute the number of beats per minute; must be at least 4
+     * @param ticksPerBeat the number of ticks per beat; must be > 0 and at most 0x7FFF
+     * @throws IOException if the file cannot be opened
+     */
+    public MidiFileSink(Path path, int beatsPerMinute, int ticksPerBeat) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING), true, beatsPerMinute, ticksPerBeat);
+    }
+
+    /**
+     * Make a sink that writes a format 0 MIDI file to a stream, which is left open, when it is closed.
+     *
+     * @param out the stream to write to
+     * @param beatsPerMinute the number of beats per minute; must be at least 4
+     * @param ticksPerBeat the number of ticks per beat; must be > 0 and at most 0x7FFF
+     */
+    public MidiFileSink(OutputStream out, int beatsPerMinute, int ticksPerBeat) {
+        this(Channels.newChannel(out), false, beatsPerMinute, ticksPerBeat);
+    }
+
+    private MidiFileSink(WritableByteChannel out, boolean closeOut, int beatsPerMinute, int ticksPerBeat) {
+        this.recorder = new NoteRecorder(ticksPerBeat);
+        this.writer = new MidiFileWriter(MidiFileWriter.SINGLE_TRACK, beatsPerMinute);
+        this.out = out;
+        this.closeOut = closeOut;
+        checkRep();
+    }
+
+    @Override
+    public int getTicksPerBeat() {
+        return recorder.getTicksPerBeat();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalStateException if this sink has been closed
+     */
+    @Override
+    public void addNote(int note, int startTick, int numTicks) {
+        if (closed) {
+            throw new IllegalStateException("MIDI file already written");
+        }
+        recorder.addNote(note, startTick, numTicks);
+    }
+
+    /**
+     * Write the MIDI file of the notes scheduled so far. Closing a closed sink does nothing.
+     *
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the notes cannot be written to a MIDI file
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.write(recorder.toSchedule(), out);
+        } finally {
+            if (closeOut) {
+                out.close();
+            }
+        }
+    }
+}
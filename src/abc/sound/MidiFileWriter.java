@@ -0,0 +1,301 @@
+package abc.sound;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes scheduled notes to a Standard MIDI File, without the javax.sound.midi Sequencer, Sequence or Track,
+ * so that tunes can be exported on machines that have no MIDI device.
+ *
+ * A format 0 file has one track holding the tempo and every note. A format 1 file has a tempo track followed
+ * by one track per voice, named after the voice. Notes play on the default channel at the default velocity,
+ * as SequencePlayer plays them; a note is turned off with a NOTE_ON of velocity 0, so that every note event
+ * of a track shares one status byte and all but the first are written with running status.
+ *
+ * Events are encoded straight into a small buffer that is flushed to the output as it fills. Each track is
+ * encoded twice, first only to count its length for the chunk header, so the file is never held in memory.
+ */
+public class MidiFileWriter {
+
+    /** Format 0: a single track */
+    public static final int SINGLE_TRACK = 0;
+    /** Format 1: several tracks played together */
+    public static final int MULTI_TRACK = 1;
+
+    // MIDI channel
+    private static final int DEFAULT_CHANNEL = 0;
+    // the volume
+    private static final int DEFAULT_VELOCITY = 100;
+    private static final int NOTE_ON = 0x90;
+    private static final int MAX_PITCH = 127;
+
+    private static final int META = 0xFF;
+    private static final int META_TRACK_NAME = 0x03;
+    private static final int META_TEMPO = 0x51;
+    private static final int META_END_OF_TRACK = 0x2F;
+
+    private static final byte[] HEADER_CHUNK = { 'M', 'T', 'h', 'd' };
+    private static final byte[] TRACK_CHUNK = { 'M', 'T', 'r', 'k' };
+    private static final int HEADER_LENGTH = 6;
+    // the largest ticks per quarter note a file can give, with the top bit of the division clear
+    private static final int MAX_DIVISION = 0x7FFF;
+    // the largest delta time a variable-length quantity of four bytes can hold
+    private static final int MAX_DELTA = 0x0FFFFFFF;
+    // the largest tempo, in microseconds per quarter note, of a tempo meta event
+    private static final int MAX_TEMPO = 0xFFFFFF;
+    private static final int MICROSECONDS_PER_MINUTE = 60000000;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int format;
+    private final int microsecondsPerBeat;
+
+    /*
+     * Rep invariant:
+     *   format is SINGLE_TRACK or MULTI_TRACK,
+     *   0 < microsecondsPerBeat <= MAX_TEMPO
+     */
+
+    private void checkRep() {
+        assert format == SINGLE_TRACK || format == MULTI_TRACK : "format should be 0 or 1";
+        assert 0 < microsecondsPerBeat && microsecondsPerBeat <= MAX_TEMPO : "tempo should fit a tempo event";
+    }
+
+    /**
+     * Make a new MIDI file writer.
+     *
+     * @param format SINGLE_TRACK or MULTI_TRACK
+     * @param beatsPerMinute the number of beats per minute; must be positive and at least 4,
+     *                       the slowest tempo a MIDI file can give
+     * @throws IllegalArgumentException if format or beatsPerMinute is not valid
+     */
+    public MidiFileWriter(int format, int beatsPerMinute) {
+        if (format != SINGLE_TRACK && format != MULTI_TRACK) {
+            throw new IllegalArgumentException("MIDI file format must be 0 or 1: " + format);
+        }
+        if (beatsPerMinute <= 0 || MICROSECONDS_PER_MINUTE / beatsPerMinute > MAX_TEMPO) {
+            throw new IllegalArgumentException("tempo cannot be written to a MIDI file: " + beatsPerMinute);
+        }
+        this.format = format;
+        this.microsecondsPerBeat = MICROSECONDS_PER_MINUTE / beatsPerMinute;
+        checkRep();
+    }
+
+    /**
+     * Write notes to a new MIDI file, replacing any file already at path.
+     *
+     * @param notes the notes to write
+     * @param path where to write the file
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the notes cannot be written to a MIDI file
+     */
+    public void write(NoteSchedule notes, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(notes, channel);
+        }
+    }
+
+    /**
+     * Write notes as a MIDI file to a stream, which is left open.
+     *
+     * @param notes the notes to write
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     * @throws IllegalArgumentException if the notes cannot be written to a MIDI file
+     */
+    public void write(NoteSchedule notes, OutputStream out) throws IOException {
+        write(notes, Channels.newChannel(out));
+    }
+
+    /**
+     * Write notes as a MIDI file to a channel, which is left open.
+     *
+     * @param notes the notes to write
+     * @param out the channel to write to
+     * @throws IOException if the channel cannot be written
+     * @throws IllegalArgumentException if the notes cannot be written to a MIDI file: the ticks per beat
+     *         are more than a MIDI file can give, a pitch is not a valid MIDI note, or two events are too far apart
+     */
+    public void write(NoteSchedule notes, WritableByteChannel out) throws IOException {
+        if (notes.ticksPerBeat() > MAX_DIVISION) {
+            throw new IllegalArgumentException("too many ticks per beat for a MIDI file: " + notes.ticksPerBeat());
+        }
+        for (int i = 0; i < notes.size(); i++) {
+            if (notes.pitch(i) < 0 || notes.pitch(i) > MAX_PITCH) {
+                throw new IllegalArgumentException("not a MIDI note: " + notes.pitch(i));
+            }
+        }
+        int voices = notes.voiceNames().size();
+        ChunkOutput output = new ChunkOutput(out);
+        output.putBytes(HEADER_CHUNK);
+        output.putInt(HEADER_LENGTH);
+        output.putShort(format);
+        output.putShort(format == SINGLE_TRACK ? 1 : voices + 1);
+        output.putShort(notes.ticksPerBeat());
+        if (format == SINGLE_TRACK) {
+            writeTrack(output, notes, events(notes, -1), "", true);
+        } else {
+            writeTrack(output, notes, new long[0], "", true);
+            for (int voice = 0; voice < voices; voice++) {
+                writeTrack(output, notes, events(notes, voice), notes.voiceNames().get(voice), false);
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * @param notes the notes of a tune
+     * @param voice the index of a voice, or -1 for every voice
+     * @return the NoteEvents keys of the events of the notes of voice, sorted
+     */
+    private static long[] events(NoteSchedule notes, int voice) {
+        long[] keys = new long[2 * notes.size()];
+        int count = 0;
+        for (int i = 0; i < notes.size(); i++) {
+            if (voice < 0 || notes.voice(i) == voice) {
+                keys[count++] = NoteEvents.on(notes.startTick(i), i);
+                keys[count++] = NoteEvents.off(notes.startTick(i), notes.startTick(i) + notes.durationTicks(i), i);
+            }
+        }
+        keys = Arrays.copyOf(keys, count);
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Write one track chunk: its length, counted by encoding it once without writing, then its events.
+     */
+    private void writeTrack(ChunkOutput output, NoteSchedule notes, long[] events, String name, boolean tempo)
+            throws IOException {
+        output.startCounting();
+        encodeTrack(output, notes, events, name, tempo);
+        long length = output.stopCounting();
+        output.putBytes(TRACK_CHUNK);
+        output.putInt(Math.toIntExact(length));
+        encodeTrack(output, notes, events, name, tempo);
+    }
+
+    private void encodeTrack(ChunkOutput output, NoteSchedule notes, long[] events, String name, boolean tempo)
+            throws IOException {
+        if (!name.isEmpty()) {
+            byte[] text = name.getBytes(StandardCharsets.UTF_8);
+            output.putVariableLength(0);
+            output.putByte(META);
+            output.putByte(META_TRACK_NAME);
+            output.putVariableLength(text.length);
+            output.putBytes(text);
+        }
+        if (tempo) {
+            output.putVariableLength(0);
+            output.putByte(META);
+            output.putByte(META_TEMPO);
+            output.putByte(3);
+            output.putByte(microsecondsPerBeat >>> 16);
+            output.putByte(microsecondsPerBeat >>> 8);
+            output.putByte(microsecondsPerBeat);
+        }
+        // meta events cancel running status, so the first note event always gives its status
+        int lastTick = 0;
+        boolean running = false;
+        for (long key : events) {
+            int tick = NoteEvents.tick(key);
+            output.putVariableLength(tick - lastTick);
+            lastTick = tick;
+            if (!running) {
+                output.putByte(NOTE_ON | DEFAULT_CHANNEL);
+                running = true;
+            }
+            output.putByte(notes.pitch(NoteEvents.note(key)));
+            output.putByte(NoteEvents.isOn(key) ? DEFAULT_VELOCITY : 0);
+        }
+        output.putVariableLength(0);
+        output.putByte(META);
+        output.putByte(META_END_OF_TRACK);
+        output.putByte(0);
+    }
+
+    /**
+     * Big-endian output to a channel through a buffer, which can instead only count the bytes it is given.
+     */
+    private static class ChunkOutput {
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private boolean counting = false;
+        private long counted = 0;
+
+        ChunkOutput(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void startCounting() {
+            counting = true;
+            counted = 0;
+        }
+
+        long stopCounting() {
+            counting = false;
+            return counted;
+        }
+
+        void putByte(int b) throws IOException {
+            if (counting) {
+                counted++;
+                return;
+            }
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put((byte) b);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            for (byte b : bytes) {
+                putByte(b);
+            }
+        }
+
+        void putShort(int value) throws IOException {
+            putByte(value >>> 8);
+            putByte(value);
+        }
+
+        void putInt(int value) throws IOException {
+            putShort(value >>> 16);
+            putShort(value);
+        }
+
+        /**
+         * Put a variable-length quantity: seven bits per byte, most significant first,
+         * with the top bit set on every byte but the last.
+         * @param value 0 <= value <= MAX_DELTA
+         */
+        void putVariableLength(int value) throws IOException {
+            if (value < 0 || value > MAX_DELTA) {
+                throw new IllegalArgumentException("delta time cannot be written to a MIDI file: " + value);
+            }
+            for (int shift = 21; shift > 0; shift -= 7) {
+                if (value >>> shift != 0) {
+                    putByte(0x80 | (value >>> shift) & 0x7F);
+                }
+            }
+            putByte(value & 0x7F);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
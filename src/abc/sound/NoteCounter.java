@@ -0,0 +1,86 @@
+package abc.sound;
+
+/**
+ * An EventSink that only counts what is scheduled on it, for measuring how fast music can be played
+ * without the cost of storing or sounding the notes.
+ */
+public class NoteCounter implements EventSink {
+
+    private final int ticksPerBeat;
+    private long notes = 0;
+    private long noteTicks = 0;
+    private long endTick = 0;
+
+    /*
+     * Abstraction function:
+     *   a sink with ticksPerBeat ticks per beat on which notes notes have been scheduled, lasting noteTicks
+     *   ticks in all, the last of them ending at endTick
+     * Rep invariant:
+     *   ticksPerBeat > 0, notes >= 0, noteTicks >= 0, endTick >= 0
+     */
+
+    private void checkRep() {
+        assert ticksPerBeat > 0 : "ticks per beat should be positive";
+        assert notes >= 0 && noteTicks >= 0 && endTick >= 0 : "counts should not be negative";
+    }
+
+    /**
+     * Make a counter that has counted nothing.
+     *
+     * @param ticksPerBeat the number of ticks per beat; must be > 0
+     * @throws IllegalArgumentException if ticksPerBeat is not positive
+     */
+    public NoteCounter(int ticksPerBeat) {
+        if (ticksPerBeat <= 0) {
+            throw new IllegalArgumentException("ticks per beat must be positive: " + ticksPerBeat);
+        }
+        this.ticksPerBeat = ticksPerBeat;
+        checkRep();
+    }
+
+    @Override
+    public int getTicksPerBeat() {
+        return ticksPerBeat;
+    }
+
+    @Override
+    public void addNote(int note, int startTick, int numTicks) {
+        notes++;
+        noteTicks += numTicks;
+        endTick = Math.max(endTick, (long) startTick + numTicks);
+    }
+
+    /**
+     * @return the number of notes scheduled so far
+     */
+    public long getNotes() {
+        return notes;
+    }
+
+    /**
+     * @return the number of MIDI note events, NOTE_ON and NOTE_OFF, the notes scheduled so far would need
+     */
+    public long getEvents() {
+        return 2 * notes;
+    }
+
+    /**
+     * @return the sum of the number of ticks of every note scheduled so far
+     */
+    public long getNoteTicks() {
+        return noteTicks;
+    }
+
+    /**
+     * @return the tick at which the last note scheduled so far ends, or 0 if none has been
+     */
+    public long getEndTick() {
+        return endTick;
+    }
+
+    @Override
+    public String toString() {
+        return "NoteCounter(" + notes + " notes, " + noteTicks + " note ticks, ends at tick " + endTick
+                + ", " + ticksPerBeat + " ticks per beat)";
+    }
+}
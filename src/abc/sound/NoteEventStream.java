@@ -0,0 +1,96 @@
+package abc.sound;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The NOTE_ON and NOTE_OFF events of a NoteSchedule, made one at a time as NoteEvents keys in sorted order:
+ * the order SequencePlayer.addNotes puts them in.
+ *
+ * The NOTE_ON events come straight from the notes, which are sorted by start. Only the NOTE_OFF events of
+ * notes that have started are held, in a binary heap of primitives, so memory depends on the number of
+ * notes sounding at once and not on the length of the tune, and once the heap is large enough for the
+ * tune's chords no event allocates.
+ */
+final class NoteEventStream {
+
+    private static final int INITIAL_POLYPHONY = 16;
+
+    private final NoteSchedule notes;
+    // the index of the next note to start
+    private int next = 0;
+    // the NOTE_OFF keys of notes that have started, a min-heap in offs[0..pending)
+    private long[] offs = new long[INITIAL_POLYPHONY];
+    private int pending = 0;
+
+    /*
+     * Abstraction function:
+     *   the events still to come of notes: the NOTE_ON events of notes next.. and the NOTE_OFF events in
+     *   offs[0..pending), merged in key order
+     * Rep invariant:
+     *   0 <= next <= notes.size(), 0 <= pending <= offs.length
+     *   offs[0..pending) is a heap: offs[(k - 1) / 2] <= offs[k]
+     */
+
+    /**
+     * @param notes the notes whose events to make; must not change while the stream is read
+     */
+    NoteEventStream(NoteSchedule notes) {
+        this.notes = notes;
+    }
+
+    /**
+     * @return true if there are events still to come
+     */
+    boolean hasNext() {
+        return next < notes.size() || pending > 0;
+    }
+
+    /**
+     * @return the key of the next event, made by NoteEvents.on or NoteEvents.off for its tick and note index
+     * @throws NoSuchElementException if there are no more events
+     */
+    long next() {
+        if (next < notes.size()) {
+            long on = NoteEvents.on(notes.startTick(next), next);
+            if (pending == 0 || on < offs[0]) {
+                push(NoteEvents.off(notes.startTick(next), notes.startTick(next) + notes.durationTicks(next), next));
+                next++;
+                return on;
+            }
+        } else if (pending == 0) {
+            throw new NoSuchElementException();
+        }
+        return pop();
+    }
+
+    private void push(long key) {
+        if (pending == offs.length) {
+            offs = Arrays.copyOf(offs, pending * 2);
+        }
+        int k = pending++;
+        while (k > 0 && offs[(k - 1) / 2] > key) {
+            offs[k] = offs[(k - 1) / 2];
+            k = (k - 1) / 2;
+        }
+        offs[k] = key;
+    }
+
+    private long pop() {
+        long first = offs[0];
+        long last = offs[--pending];
+        int k = 0;
+        for (int child = 1; child < pending; child = 2 * k + 1) {
+            if (child + 1 < pending && offs[child + 1] < offs[child]) {
+                child++;
+            }
+            if (last <= offs[child]) {
+                break;
+            }
+            offs[k] = offs[child];
+            k = child;
+        }
+        offs[k] = last;
+        return first;
+    }
+}
@@ -0,0 +1,74 @@
+package abc.sound;
+
+/**
+ * Sort keys for the NOTE_ON and NOTE_OFF events of a list of notes, packed into longs so that a list of
+ * events can be sorted by tick once, on primitives, with Arrays.sort.
+ *
+ * Keys sort by tick, then with the NOTE_OFF events of a tick before its NOTE_ON events, so that a note
+ * ending on the tick another one of the same pitch starts does not silence it, then by note index. The
+ * NOTE_OFF event of a note that lasts no ticks is the exception: it sorts just after its own NOTE_ON event,
+ * so that the note is still turned off.
+ */
+final class NoteEvents {
+
+    private static final long ON_BIT = 1L << 31;
+    // set on the NOTE_OFF key of a note that lasts no ticks, which otherwise looks like its NOTE_ON key
+    private static final long AFTER_ON_BIT = 1L;
+
+    private NoteEvents() {
+        // only static methods
+    }
+
+    /**
+     * @param tick the tick of the event, >= 0
+     * @param note the index of the note, 0 <= note < 2^30
+     * @return the key of the NOTE_ON event of that note at tick
+     */
+    static long on(int tick, int note) {
+        return ((long) tick << 32) | ON_BIT | ((long) note << 1);
+    }
+
+    /**
+     * @param tick the tick of the event, >= 0
+     * @param note the index of the note, 0 <= note < 2^30
+     * @return the key of the NOTE_OFF event of that note at tick
+     */
+    private static long off(int tick, int note) {
+        return ((long) tick << 32) | ((long) note << 1);
+    }
+
+    /**
+     * @param startTick the tick the note starts at, >= 0
+     * @param endTick the tick the note ends at, >= startTick
+     * @param note the index of the note, 0 <= note < 2^30
+     * @return the key of the NOTE_OFF event of that note, which sorts after its NOTE_ON event even when
+     *         the note lasts no ticks
+     */
+    static long off(int startTick, int endTick, int note) {
+        return endTick == startTick ? on(startTick, note) | AFTER_ON_BIT : off(endTick, note);
+    }
+
+    /**
+     * @param key a key made by on or off
+     * @return the tick of the event
+     */
+    static int tick(long key) {
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * @param key a key made by on or off
+     * @return the index of the note of the event
+     */
+    static int note(long key) {
+        return (int) ((key & Integer.MAX_VALUE) >>> 1);
+    }
+
+    /**
+     * @param key a key made by on or off
+     * @return true if the event is a NOTE_ON, false if it is a NOTE_OFF
+     */
+    static boolean isOn(long key) {
+        return (key & (ON_BIT | AFTER_ON_BIT)) == ON_BIT;
+    }
+}
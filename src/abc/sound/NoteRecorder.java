@@ -0,0 +1,215 @@
+package abc.sound;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An EventSink that records the notes scheduled on it in memory, in primitive arrays, so that music can be
+ * played and checked without a MIDI device.
+ *
+ * Its toString lists the note events in the same form and order as SequencePlayer.toString, so a recorder
+ * can stand in for a player wherever the scheduled events are compared as text.
+ */
+public class NoteRecorder implements EventSink {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int ticksPerBeat;
+    private int[] notes = new int[INITIAL_CAPACITY];
+    private int[] startTicks = new int[INITIAL_CAPACITY];
+    private int[] numTicks = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /*
+     * Abstraction function:
+     *   the notes i, 0 <= i < size, in the order they were scheduled, each of pitch notes[i]
+     *   from tick startTicks[i] for numTicks[i] ticks, on a sink with ticksPerBeat ticks per beat
+     * Rep invariant:
+     *   ticksPerBeat > 0, 0 <= size <= every array's length, and the arrays have the same length
+     * Rep exposure:
+     *   all fields are private and the arrays are never returned
+     */
+
+    private void checkRep() {
+        assert ticksPerBeat > 0 : "ticks per beat should be positive";
+        assert 0 <= size && size <= notes.length : "size should fit the arrays";
+        assert startTicks.length == notes.length && numTicks.length == notes.length : "arrays should match";
+    }
+
+    /**
+     * Make an empty recorder.
+     *
+     * @param ticksPerBeat the number of ticks per beat; must be > 0
+     * @throws IllegalArgumentException if ticksPerBeat is not positive
+     */
+    public NoteRecorder(int ticksPerBeat) {
+        if (ticksPerBeat <= 0) {
+            throw new IllegalArgumentException("ticks per beat must be positive: " + ticksPerBeat);
+        }
+        this.ticksPerBeat = ticksPerBeat;
+        checkRep();
+    }
+
+    @Override
+    public int getTicksPerBeat() {
+        return ticksPerBeat;
+    }
+
+    @Override
+    public void addNote(int note, int startTick, int numTicks) {
+        if (size == notes.length) {
+            int capacity = size * 2;
+            this.notes = Arrays.copyOf(this.notes, capacity);
+            this.startTicks = Arrays.copyOf(this.startTicks, capacity);
+            this.numTicks = Arrays.copyOf(this.numTicks, capacity);
+        }
+        this.notes[size] = note;
+        this.startTicks[size] = startTick;
+        this.numTicks[size] = numTicks;
+        size++;
+    }
+
+    /**
+     * @return the number of notes recorded
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i the index of a note, 0 <= i < size(), in the order the notes were scheduled
+     * @return the pitch value of note i
+     */
+    public int note(int i) {
+        checkIndex(i);
+        return notes[i];
+    }
+
+    /**
+     * @param i the index of a note, 0 <= i < size(), in the order the notes were scheduled
+     * @return the tick at which note i starts
+     */
+    public int startTick(int i) {
+        checkIndex(i);
+        return startTicks[i];
+    }
+
+    /**
+     * @param i the index of a note, 0 <= i < size(), in the order the notes were scheduled
+     * @return the number of ticks for which note i plays
+     */
+    public int numTicks(int i) {
+        checkIndex(i);
+        return numTicks[i];
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("note " + i + " of " + size);
+        }
+    }
+
+    /**
+     * @return the notes recorded so far as a schedule, sorted by start tick, with notes that start together
+     *         in the order they were scheduled; all notes belong to one voice named ""
+     */
+    public NoteSchedule toSchedule() {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) startTicks[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] sortedNotes = new int[size];
+        int[] sortedStarts = new int[size];
+        int[] sortedTicks = new int[size];
+        for (int i = 0; i < size; i++) {
+            int from = (int) keys[i];
+            sortedNotes[i] = notes[from];
+            sortedStarts[i] = startTicks[from];
+            sortedTicks[i] = numTicks[from];
+        }
+        return new RecordedSchedule(ticksPerBeat, sortedNotes, sortedStarts, sortedTicks);
+    }
+
+    /**
+     * @return a string that displays the recorded notes as a sequence of MIDI events, in the same form and
+     *         order as SequencePlayer.toString: each event turns a note on or off at a tick, events are
+     *         sorted by tick and otherwise kept in the order they were scheduled, and the track ends
+     *         at the last event
+     */
+    @Override
+    public String toString() {
+        // sort (tick, order scheduled) pairs packed into longs; a note's NOTE_ON is scheduled before its NOTE_OFF
+        long[] keys = new long[2 * size];
+        for (int i = 0; i < size; i++) {
+            keys[2 * i] = ((long) startTicks[i] << 32) | (2 * i);
+            keys[2 * i + 1] = ((long) (startTicks[i] + numTicks[i]) << 32) | (2 * i + 1);
+        }
+        Arrays.sort(keys);
+        StringBuilder trackInfo = new StringBuilder();
+        long lastTick = 0;
+        for (long key : keys) {
+            int event = (int) key;
+            boolean on = event % 2 == 0;
+            lastTick = key >>> 32;
+            trackInfo.append("Event: ").append(on ? "NOTE_ON " : "NOTE_OFF").append(" Pitch: ")
+                .append(notes[event / 2]).append(" ").append(" Tick: ").append(lastTick).append("\n");
+        }
+        trackInfo.append("Meta event: END_OF_TRACK Tick: ").append(lastTick).append("\n");
+        return trackInfo.toString();
+    }
+
+    /**
+     * The immutable sorted notes of a recorder, in one voice.
+     */
+    private static class RecordedSchedule implements NoteSchedule {
+
+        private final int ticksPerBeat;
+        private final int[] notes;
+        private final int[] startTicks;
+        private final int[] numTicks;
+
+        RecordedSchedule(int ticksPerBeat, int[] notes, int[] startTicks, int[] numTicks) {
+            this.ticksPerBeat = ticksPerBeat;
+            this.notes = notes;
+            this.startTicks = startTicks;
+            this.numTicks = numTicks;
+        }
+
+        @Override
+        public int ticksPerBeat() {
+            return ticksPerBeat;
+        }
+
+        @Override
+        public int size() {
+            return notes.length;
+        }
+
+        @Override
+        public int startTick(int i) {
+            return startTicks[i];
+        }
+
+        @Override
+        public int durationTicks(int i) {
+            return numTicks[i];
+        }
+
+        @Override
+        public int pitch(int i) {
+            return notes[i];
+        }
+
+        @Override
+        public int voice(int i) {
+            return 0;
+        }
+
+        @Override
+        public List<String> voiceNames() {
+            return notes.length == 0 ? Collections.<String>emptyList() : Collections.singletonList("");
+        }
+    }
+}
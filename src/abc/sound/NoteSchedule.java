@@ -0,0 +1,52 @@
+package abc.sound;
+
+import java.util.List;
+
+/**
+ * A read-only list of notes scheduled in ticks, such as a compiled tune, that can be played or written out
+ * without knowing the music it came from.
+ *
+ * Notes are indexed 0 to size() - 1 in order of start tick. Each note belongs to one of the voices named
+ * by voiceNames().
+ */
+public interface NoteSchedule {
+
+    /**
+     * @return the number of ticks per beat, > 0
+     */
+    int ticksPerBeat();
+
+    /**
+     * @return the number of notes, >= 0
+     */
+    int size();
+
+    /**
+     * @param i the index of a note, 0 <= i < size()
+     * @return the tick at which note i starts, >= 0 and >= startTick(i - 1) for i > 0
+     */
+    int startTick(int i);
+
+    /**
+     * @param i the index of a note, 0 <= i < size()
+     * @return the number of ticks for which note i plays, >= 0
+     */
+    int durationTicks(int i);
+
+    /**
+     * @param i the index of a note, 0 <= i < size()
+     * @return the MIDI pitch of note i
+     */
+    int pitch(int i);
+
+    /**
+     * @param i the index of a note, 0 <= i < size()
+     * @return the index in voiceNames() of the voice note i belongs to
+     */
+    int voice(int i);
+
+    /**
+     * @return the names of the voices, in order
+     */
+    List<String> voiceNames();
+}
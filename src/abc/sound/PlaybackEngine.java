@@ -0,0 +1,387 @@
+package abc.sound;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaEventListener;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Sequencer;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Synthesizer;
+import javax.sound.midi.Track;
+
+/**
+ * A long-lived MIDI sequencer and synthesizer that play one tune after another.
+ *
+ * The devices are opened once, when the engine is made, and stay open until it is closed; each tune only
+ * swaps the sequence the sequencer plays. Playing a tune returns a future that completes when the sequencer
+ * reaches the end of its track, so a caller can wait for a tune, or start the next one as soon as it ends,
+ * without opening devices or sleeping between tunes. Starting a tune while another plays stops the other
+ * and cancels its future.
+ *
+ * Each voice of a tune gets its own track and MIDI channel, so that notes of different voices in unison do
+ * not cut each other off. The tracks are built in parallel, one voice at a time, and never sorted together.
+ * While a tune plays, each voice can be muted, soloed or given a volume without rebuilding its sequence;
+ * every voice starts unmuted at the default volume. There are 15 melodic channels, so beyond 15 voices
+ * channels are shared.
+ */
+public class PlaybackEngine implements AutoCloseable {
+
+    /** the volume a voice starts at */
+    public static final int DEFAULT_VOLUME = 100;
+
+    // the volume
+    private static final int DEFAULT_VELOCITY = 100;
+    // the "end_of_track" meta message type
+    private static final int META_END_OF_TRACK = 47;
+    // the "track name" meta message type
+    private static final int META_TRACK_NAME = 3;
+    // the controller for the volume of a channel
+    private static final int CHANNEL_VOLUME = 7;
+    // the number of valid MIDI pitches, and volumes
+    private static final int MIDI_PITCHES = 128;
+    // the channels voices play on: all sixteen but the percussion channel, 9
+    private static final int CHANNELS = 16;
+    private static final int PERCUSSION_CHANNEL = 9;
+
+    private final Sequencer sequencer;
+    // the synthesizer the sequencer plays on, or null if the sequencer came connected to a device
+    private final Synthesizer synthesizer;
+    // the receiver the sequencer sends to, to which volume changes are sent directly
+    private final Receiver receiver;
+    private final MetaEventListener endOfTrack = this::meta;
+    // the tune playing or last played, and the future of its end
+    private Sequence playing = null;
+    private CompletableFuture<Void> finished = CompletableFuture.completedFuture(null);
+    private boolean closed = false;
+
+    /*
+     * Abstraction function:
+     *   an engine playing on sequencer, and through it on receiver, which belongs to synthesizer if that is
+     *   non-null; playing is the sequence set on the sequencer, with track v for voice v on channel(v), and
+     *   it ends when finished completes; no more tunes can be played once closed
+     * Rep invariant:
+     *   sequencer and receiver are non-null, and until closed, sequencer is open
+     *   finished is non-null, and is done if playing is null
+     * Rep exposure:
+     *   the futures returned by play are shared with callers, who can only complete or cancel them early
+     * Thread safety argument:
+     *   every method that reads or writes the mutable fields is synchronized, including the listener that
+     *   the sequencer calls on its own thread at the end of a track
+     */
+
+    private void checkRep() {
+        assert sequencer != null && receiver != null : "devices should be non-null";
+        assert closed || sequencer.isOpen() : "sequencer should stay open until the engine is closed";
+        assert finished != null && (playing != null || finished.isDone()) : "nothing playing should be finished";
+    }
+
+    /**
+     * Open the default sequencer and synthesizer, and connect them.
+     *
+     * @throws MidiUnavailableException if either device cannot be opened
+     */
+    public PlaybackEngine() throws MidiUnavailableException {
+        this(MidiSystem.getSequencer(false), MidiSystem.getSynthesizer(), null);
+    }
+
+    /**
+     * Open a sequencer that is already connected to a device.
+     *
+     * @param sequencer the sequencer to play with; is closed with the engine
+     * @param receiver the receiver of the device the sequencer sends to, to send volume changes to
+     * @throws MidiUnavailableException if the sequencer cannot be opened
+     */
+    PlaybackEngine(Sequencer sequencer, Receiver receiver) throws MidiUnavailableException {
+        this(sequencer, null, receiver);
+    }
+
+    private PlaybackEngine(Sequencer sequencer, Synthesizer synthesizer, Receiver receiver)
+            throws MidiUnavailableException {
+        this.sequencer = sequencer;
+        this.synthesizer = synthesizer;
+        try {
+            if (synthesizer != null) {
+                synthesizer.open();
+                receiver = synthesizer.getReceiver();
+                sequencer.getTransmitter().setReceiver(receiver);
+            }
+            sequencer.open();
+        } catch (MidiUnavailableException | RuntimeException e) {
+            closeDevices();
+            throw e;
+        }
+        this.receiver = receiver;
+        sequencer.addMetaEventListener(endOfTrack);
+        checkRep();
+    }
+
+    /**
+     * Play notes, stopping whatever is playing first.
+     *
+     * @param notes the notes to play
+     * @param beatsPerMinute the number of beats per minute, > 0
+     * @return a future that completes when the notes have finished, or is cancelled if another tune
+     *         starts or the engine is stopped or closed first
+     * @throws IllegalArgumentException if beatsPerMinute is not positive or a pitch is not a valid MIDI note
+     * @throws IllegalStateException if the engine is closed
+     */
+    public CompletableFuture<Void> play(NoteSchedule notes, int beatsPerMinute) {
+        return play(toSequence(notes), beatsPerMinute);
+    }
+
+    /**
+     * Play a sequence, stopping whatever is playing first.
+     * Track v of the sequence is voice v, and should play on channel(v).
+     *
+     * @param sequence the sequence to play; must not change while it plays
+     * @param beatsPerMinute the number of beats per minute, > 0
+     * @return a future that completes when the sequence has finished, or is cancelled if another tune
+     *         starts or the engine is stopped or closed first
+     * @throws IllegalArgumentException if beatsPerMinute is not positive or the sequencer cannot play sequence
+     * @throws IllegalStateException if the engine is closed
+     */
+    public synchronized CompletableFuture<Void> play(Sequence sequence, int beatsPerMinute) {
+        if (closed) {
+            throw new IllegalStateException("engine is closed");
+        }
+        if (beatsPerMinute <= 0) {
+            throw new IllegalArgumentException("beats per minute must be positive: " + beatsPerMinute);
+        }
+        stop();
+        try {
+            sequencer.setSequence(sequence);
+        } catch (InvalidMidiDataException imde) {
+            throw new IllegalArgumentException("cannot play sequence", imde);
+        }
+        sequencer.setTickPosition(0);
+        sequencer.setTempoInBPM(beatsPerMinute);
+        playing = sequence;
+        for (int voice = 0; voice < sequence.getTracks().length; voice++) {
+            sequencer.setTrackMute(voice, false);
+            sequencer.setTrackSolo(voice, false);
+            sendVolume(voice, DEFAULT_VOLUME);
+        }
+        finished = new CompletableFuture<>();
+        CompletableFuture<Void> result = finished;
+        sequencer.start();
+        checkRep();
+        return result;
+    }
+
+    /**
+     * Stop the tune playing, if any, and cancel its future.
+     */
+    public synchronized void stop() {
+        if (sequencer.isOpen() && sequencer.isRunning()) {
+            sequencer.stop();
+        }
+        finished.cancel(false);
+        checkRep();
+    }
+
+    /**
+     * @return the number of voices of the tune playing or last played, each with its own track
+     */
+    public synchronized int voices() {
+        return playing == null ? 0 : playing.getTracks().length;
+    }
+
+    /**
+     * Mute or unmute a voice of the tune playing.
+     *
+     * @param voice the index of the voice, 0 <= voice < voices()
+     * @param mute true to silence the voice, false to play it
+     * @throws IndexOutOfBoundsException if there is no such voice
+     */
+    public synchronized void setMute(int voice, boolean mute) {
+        checkVoice(voice);
+        sequencer.setTrackMute(voice, mute);
+    }
+
+    /**
+     * Solo a voice of the tune playing, or stop soloing it. While any voice is soloed, only soloed voices play.
+     *
+     * @param voice the index of the voice, 0 <= voice < voices()
+     * @param solo true to solo the voice, false to stop
+     * @throws IndexOutOfBoundsException if there is no such voice
+     */
+    public synchronized void setSolo(int voice, boolean solo) {
+        checkVoice(voice);
+        sequencer.setTrackSolo(voice, solo);
+    }
+
+    /**
+     * Set the volume of a voice of the tune playing, from the next note it plays.
+     *
+     * @param voice the index of the voice, 0 <= voice < voices()
+     * @param volume the MIDI channel volume, 0 <= volume <= 127; voices start at DEFAULT_VOLUME
+     * @throws IndexOutOfBoundsException if there is no such voice
+     * @throws IllegalArgumentException if volume is out of range
+     */
+    public synchronized void setVolume(int voice, int volume) {
+        checkVoice(voice);
+        if (volume < 0 || volume >= MIDI_PITCHES) {
+            throw new IllegalArgumentException("volume out of range: " + volume);
+        }
+        sendVolume(voice, volume);
+    }
+
+    /**
+     * @param voice the index of a voice
+     * @return the MIDI channel the voice plays on, never the percussion channel
+     */
+    public static int channel(int voice) {
+        int channel = voice % (CHANNELS - 1);
+        return channel < PERCUSSION_CHANNEL ? channel : channel + 1;
+    }
+
+    private void checkVoice(int voice) {
+        if (voice < 0 || voice >= voices()) {
+            throw new IndexOutOfBoundsException("voice " + voice + " of " + voices());
+        }
+    }
+
+    private void sendVolume(int voice, int volume) {
+        try {
+            receiver.send(new ShortMessage(ShortMessage.CONTROL_CHANGE, channel(voice), CHANNEL_VOLUME, volume), -1);
+        } catch (InvalidMidiDataException imde) {
+            throw new IllegalArgumentException("volume out of range: " + volume, imde);
+        }
+    }
+
+    /**
+     * @return true if a tune is playing
+     */
+    public synchronized boolean isPlaying() {
+        return !finished.isDone();
+    }
+
+    /**
+     * Stop playing and close the devices. Closing an engine again does nothing.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        stop();
+        sequencer.removeMetaEventListener(endOfTrack);
+        closed = true;
+        closeDevices();
+        checkRep();
+    }
+
+    private void closeDevices() {
+        sequencer.close();
+        if (synthesizer != null) {
+            synthesizer.close();
+        }
+    }
+
+    /**
+     * Complete the future of the tune playing when the sequencer reaches the end of its track.
+     * A sequencer reports the end of a track on its own thread, possibly after the next tune has started,
+     * so the end only counts if the sequencer is still at the end of the tune playing.
+     */
+    private synchronized void meta(MetaMessage meta) {
+        if (meta.getType() == META_END_OF_TRACK && playing != null
+                && sequencer.getSequence() == playing && sequencer.getTickPosition() >= playing.getTickLength()) {
+            finished.complete(null);
+        }
+        checkRep();
+    }
+
+    /**
+     * Make a sequence of notes, with one track for each voice, named after it, of the NOTE_ON and NOTE_OFF
+     * events of its notes in order on channel(voice). The tracks of the voices are built in parallel.
+     *
+     * @param notes the notes of the sequence
+     * @return a sequence with notes.ticksPerBeat() ticks per beat, and at least one track
+     * @throws IllegalArgumentException if a pitch is not a valid MIDI note
+     */
+    static Sequence toSequence(NoteSchedule notes) {
+        VoiceSchedule[] voices = VoiceSchedule.split(notes);
+        Sequence sequence;
+        try {
+            sequence = new Sequence(Sequence.PPQ, notes.ticksPerBeat());
+        } catch (InvalidMidiDataException imde) {
+            throw new IllegalArgumentException("cannot make a sequence of the notes", imde);
+        }
+        if (voices.length <= 1) {
+            Track track = sequence.createTrack();
+            if (voices.length == 1) {
+                fillTrack(track, voices[0], channel(0));
+            }
+            return sequence;
+        }
+        // tracks must be created one at a time, but each can then be filled on its own
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int v = 0; v < voices.length; v++) {
+            Track track = sequence.createTrack();
+            VoiceSchedule voice = voices[v];
+            int channel = channel(v);
+            tasks.add(() -> {
+                fillTrack(track, voice, channel);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> filled : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                filled.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("cannot build a track", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while building tracks", e);
+        }
+        return sequence;
+    }
+
+    /**
+     * Add the name and the note events of one voice to its track.
+     *
+     * @throws IllegalArgumentException if a pitch is not a valid MIDI note
+     */
+    private static void fillTrack(Track track, VoiceSchedule voice, int channel) {
+        // messages already made, by pitch; a MidiEvent only reads its message, so events can share one
+        ShortMessage[] noteOnMessages = new ShortMessage[MIDI_PITCHES];
+        ShortMessage[] noteOffMessages = new ShortMessage[MIDI_PITCHES];
+        try {
+            byte[] name = voice.name().getBytes(StandardCharsets.US_ASCII);
+            track.add(new MidiEvent(new MetaMessage(META_TRACK_NAME, name, name.length), 0));
+            for (NoteEventStream events = new NoteEventStream(voice); events.hasNext(); ) {
+                long key = events.next();
+                int note = voice.pitch(NoteEvents.note(key));
+                if (note < 0 || note >= MIDI_PITCHES) {
+                    throw new IllegalArgumentException("not a MIDI pitch: " + note);
+                }
+                boolean on = NoteEvents.isOn(key);
+                ShortMessage[] messages = on ? noteOnMessages : noteOffMessages;
+                if (messages[note] == null) {
+                    messages[note] = new ShortMessage(on ? ShortMessage.NOTE_ON : ShortMessage.NOTE_OFF, channel,
+                            note, DEFAULT_VELOCITY);
+                }
+                track.add(new MidiEvent(messages[note], NoteEvents.tick(key)));
+            }
+        } catch (InvalidMidiDataException imde) {
+            throw new IllegalArgumentException("cannot make a track of voice " + voice.name(), imde);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package abc.sound;
+
+import java.math.BigInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+
+/**
+ * Plays scheduled notes by sending their MIDI messages to a Receiver from a dedicated thread, paced with
+ * System.nanoTime, as an alternative to the javax Sequencer whose timing cannot be inspected.
+ *
+ * The thread that calls play turns the notes into events with a NoteEventStream and writes them into a
+ * ring buffer, allocated once with the scheduler. The sending thread reads them from the ring and waits for
+ * the time of each one, parking until shortly before it and spinning for the rest, then sends it unstamped.
+ * Every message is sent from one ShortMessage that is reset for each event, so sending allocates nothing.
+ * How late each message was sent is recorded in a JitterHistogram, which can be read after playback.
+ *
+ * A scheduler plays one tune at a time. Its receiver must not keep a message after send returns, which
+ * is true of a Synthesizer's receiver for unstamped messages.
+ */
+public class PrecisionScheduler {
+
+    /** the number of events the ring buffer holds, unless another is given */
+    public static final int DEFAULT_CAPACITY = 4096;
+    /** how long before an event's time the sending thread stops parking and spins */
+    static final long SPIN_NANOS = 200_000;
+    /** how long after play starts the sending thread the first tick is due, so that it is running by then */
+    static final long START_NANOS = 5_000_000;
+
+    // MIDI channel
+    private static final int DEFAULT_CHANNEL = 0;
+    // the volume
+    private static final int DEFAULT_VELOCITY = 100;
+    // the controller that turns off every note of a channel
+    private static final int ALL_NOTES_OFF = 123;
+    // the number of valid MIDI pitches
+    private static final int MIDI_PITCHES = 128;
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+    // how long the thread filling the ring parks when it is full, and the sending thread when it is empty
+    private static final long IDLE_NANOS = 1_000_000;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int BYTE_MASK = 0xFF;
+
+    private final Receiver receiver;
+    // the ring: event i is at i & mask, due dueNanos after the start, with status and data bytes packed in message
+    private final int mask;
+    private final long[] dueNanos;
+    private final int[] message;
+    // the number of events written to and read from the ring since play started; each is written by one thread
+    private volatile long written = 0;
+    private volatile long read = 0;
+    // set once every event of the tune has been written
+    private volatile boolean complete = false;
+    private final ShortMessage sending = new ShortMessage();
+    private final JitterHistogram jitter = new JitterHistogram();
+
+    /*
+     * Abstraction function:
+     *   a scheduler sending to receiver; while playing, the events waiting to be sent are those with
+     *   indices read..written-1 of the ring, and jitter holds how late the events sent so far were
+     * Rep invariant:
+     *   receiver is non-null
+     *   dueNanos.length == message.length == mask + 1, a power of two
+     *   0 <= read <= written <= read + dueNanos.length
+     * Rep exposure:
+     *   receiver is shared with the caller, who opened the device it belongs to;
+     *   getJitter returns a copy
+     * Thread safety argument:
+     *   only the thread in play writes the ring and written, and only the sending thread reads the ring and
+     *   writes read; an entry is written before written is advanced past it, and read before read is advanced
+     *   past it, and the volatile counters publish the entries. The sending thread owns sending and jitter while
+     *   it runs, and play joins it before returning, so jitter is complete when getJitter can read it.
+     */
+
+    private void checkRep() {
+        assert receiver != null : "receiver should be non-null";
+        assert dueNanos.length == mask + 1 && message.length == mask + 1 : "ring arrays should match the mask";
+        assert (dueNanos.length & mask) == 0 : "ring should be a power of two";
+        assert 0 <= read && read <= written && written <= read + dueNanos.length : "ring should not overflow";
+    }
+
+    /**
+     * Make a scheduler with a ring of the default capacity.
+     *
+     * @param receiver where to send the messages; is never closed
+     */
+    public PrecisionScheduler(Receiver receiver) {
+        this(receiver, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Make a scheduler.
+     *
+     * @param receiver where to send the messages; is never closed
+     * @param capacity the least number of events the ring buffer holds, > 0; it is rounded up to a power of two
+     * @throws IllegalArgumentException if capacity is not positive or too large for an array
+     */
+    public PrecisionScheduler(Receiver receiver, int capacity) {
+        if (capacity <= 0 || capacity > 1 << (Integer.SIZE - 2)) {
+            throw new IllegalArgumentException("capacity out of range: " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.receiver = receiver;
+        this.mask = size - 1;
+        this.dueNanos = new long[size];
+        this.message = new int[size];
+        checkRep();
+    }
+
+    /**
+     * @return the number of events the ring buffer holds
+     */
+    public int capacity() {
+        return dueNanos.length;
+    }
+
+    /**
+     * Play notes, returning once the last one has been turned off.
+     * If the calling thread is interrupted, every note is turned off and playback stops.
+     *
+     * @param notes the notes to play; must not change while they are played
+     * @param beatsPerMinute the number of beats per minute, > 0
+     * @throws InterruptedException if the calling thread is interrupted
+     * @throws IllegalArgumentException if beatsPerMinute is not positive or a pitch is not a valid MIDI note
+     * @throws ArithmeticException if a note starts or ends too late for its time in nanoseconds to fit in a long
+     */
+    public void play(NoteSchedule notes, int beatsPerMinute) throws InterruptedException {
+        if (beatsPerMinute <= 0) {
+            throw new IllegalArgumentException("beats per minute must be positive: " + beatsPerMinute);
+        }
+        long ticksPerMinute = (long) beatsPerMinute * notes.ticksPerBeat();
+        NoteEventStream events = new NoteEventStream(notes);
+        written = 0;
+        read = 0;
+        complete = false;
+        jitter.clear();
+        // fill the ring before starting the clock, so the first events are ready on time
+        fill(events, notes, ticksPerMinute);
+        Sender sender = new Sender(System.nanoTime() + START_NANOS);
+        Thread thread = new Thread(sender, "abc-precision-scheduler");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+        boolean finished = false;
+        try {
+            while (events.hasNext()) {
+                while (written - read == dueNanos.length) {
+                    if (!thread.isAlive()) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_NANOS);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                if (!thread.isAlive()) {
+                    break;
+                }
+                fill(events, notes, ticksPerMinute);
+            }
+            complete = true;
+            thread.join();
+            if (sender.failure != null) {
+                throw sender.failure;
+            }
+            finished = true;
+        } finally {
+            if (!finished) {
+                thread.interrupt();
+                thread.join();
+                allNotesOff();
+            }
+            checkRep();
+        }
+    }
+
+    /**
+     * @return how late each message of the last tune played was sent
+     */
+    public JitterHistogram getJitter() {
+        return new JitterHistogram(jitter);
+    }
+
+    /**
+     * Write events into the ring until it is full or there are no more.
+     */
+    private void fill(NoteEventStream events, NoteSchedule notes, long ticksPerMinute) {
+        long w = written;
+        long end = read + dueNanos.length;
+        while (w < end && events.hasNext()) {
+            long key = events.next();
+            int pitch = notes.pitch(NoteEvents.note(key));
+            if (pitch < 0 || pitch >= MIDI_PITCHES) {
+                throw new IllegalArgumentException("not a MIDI pitch: " + pitch);
+            }
+            int status = (NoteEvents.isOn(key) ? ShortMessage.NOTE_ON : ShortMessage.NOTE_OFF) | DEFAULT_CHANNEL;
+            int slot = (int) (w & mask);
+            dueNanos[slot] = nanosOf(NoteEvents.tick(key), ticksPerMinute);
+            message[slot] = status | pitch << BITS_PER_BYTE | DEFAULT_VELOCITY << (2 * BITS_PER_BYTE);
+            w++;
+        }
+        written = w;
+    }
+
+    /**
+     * @return the nanoseconds from the start of a tune to tick, rounded down
+     * @throws ArithmeticException if they do not fit in a long, which takes more than about 292 years
+     */
+    private static long nanosOf(int tick, long ticksPerMinute) {
+        long minutes = tick / ticksPerMinute;
+        long rest = tick % ticksPerMinute;
+        // rest * NANOS_PER_MINUTE / ticksPerMinute < NANOS_PER_MINUTE always fits, but the product
+        // only does for rest below about 1.5e8, so the few ticks past that are worked out exactly apart
+        long restNanos = rest <= Long.MAX_VALUE / NANOS_PER_MINUTE ? rest * NANOS_PER_MINUTE / ticksPerMinute
+                : BigInteger.valueOf(rest).multiply(BigInteger.valueOf(NANOS_PER_MINUTE))
+                        .divide(BigInteger.valueOf(ticksPerMinute)).longValue();
+        return Math.addExact(Math.multiplyExact(minutes, NANOS_PER_MINUTE), restNanos);
+    }
+
+    private void allNotesOff() {
+        try {
+            receiver.send(new ShortMessage(ShortMessage.CONTROL_CHANGE, DEFAULT_CHANNEL, ALL_NOTES_OFF, 0), -1);
+        } catch (InvalidMidiDataException imde) {
+            throw new AssertionError("all notes off is a valid message", imde);
+        }
+    }
+
+    /**
+     * Sends the events in the ring as their time comes, until every event has been written and sent.
+     */
+    private class Sender implements Runnable {
+
+        private final long start;
+        // what stopped the sender early, if anything; read by play after joining it
+        private volatile RuntimeException failure;
+
+        Sender(long start) {
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long r = read;
+                while (true) {
+                    if (r == written) {
+                        if (complete && r == written) {
+                            return;
+                        }
+                        // the ring ran dry; wait for more
+                        LockSupport.parkNanos(IDLE_NANOS);
+                    } else {
+                        int slot = (int) (r & mask);
+                        long due = start + dueNanos[slot];
+                        int packed = message[slot];
+                        if (!waitUntil(due)) {
+                            return;
+                        }
+                        long sent = System.nanoTime();
+                        sending.setMessage(packed & BYTE_MASK, packed >>> BITS_PER_BYTE & BYTE_MASK,
+                                packed >>> (2 * BITS_PER_BYTE) & BYTE_MASK);
+                        receiver.send(sending, -1);
+                        jitter.record(sent - due);
+                        read = ++r;
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                }
+            } catch (InvalidMidiDataException imde) {
+                failure = new IllegalArgumentException("invalid MIDI message", imde);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Park until shortly before deadline, then spin until it.
+         * @return true once deadline has passed, false if the thread was interrupted first
+         */
+        private boolean waitUntil(long deadline) {
+            for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                if (remaining > SPIN_NANOS) {
+                    LockSupport.parkNanos(remaining - SPIN_NANOS);
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package abc.sound;
 
 import java.text.MessageFormat;
+import java.util.Arrays;
 
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MetaEventListener;
@@ -17,7 +18,7 @@ import javax.sound.midi.Track;
 /**
  * Schedules and plays a sequence of notes at given time steps (or "ticks").
  */
-public class SequencePlayer {
+public class SequencePlayer implements EventSink {
 
     // MIDI channel
     private static final int DEFAULT_CHANNEL = 0;
@@ -26,21 +27,31 @@ public class SequencePlayer {
 
     // the "end_of_track" meta message type
     private static final int META_END_OF_TRACK = 47;
+    // the number of valid MIDI pitches
+    private static final int MIDI_PITCHES = 128;
 
     private final Sequencer sequencer;
     private final Track track;
     private final int beatsPerMinute;
     private final int ticksPerBeat;
+    // messages already made, by pitch; a MidiEvent only reads its message, so events can share one
+    private final ShortMessage[] noteOnMessages = new ShortMessage[MIDI_PITCHES];
+    private final ShortMessage[] noteOffMessages = new ShortMessage[MIDI_PITCHES];
+    private long notesAdded = 0;
+    private long eventsAdded = 0;
     /*
      * Rep invariant:
      *   sequencer and track are non-null,
-     *   beatsPerMinute is positive
+     *   beatsPerMinute is positive,
+     *   noteOnMessages[p] and noteOffMessages[p] are null or the NOTE_ON and NOTE_OFF messages for pitch p,
+     *   0 <= notesAdded, 0 <= eventsAdded
      */
 
     private void checkRep() {
         assert sequencer != null : "sequencer should be non-null";
         assert track != null : "track should be non-null";
         assert beatsPerMinute >= 0 : "should be positive number of beats per minute";
+        assert notesAdded >= 0 && eventsAdded >= 0 : "counters should not be negative";
     }
 
     /**
@@ -74,6 +85,7 @@ public class SequencePlayer {
      * @param startTick the starting tick; must be >= 0
      * @param numTicks the number of ticks for which this note should be played; must be >= 0
      */
+    @Override
     public void addNote(int note, int startTick, int numTicks) {
         try {
             // schedule two events in the track, one for starting a note and
@@ -81,15 +93,70 @@ public class SequencePlayer {
             addMidiNoteEvent(ShortMessage.NOTE_ON, note, startTick);
             addMidiNoteEvent(ShortMessage.NOTE_OFF, note, startTick + numTicks);
         } catch (InvalidMidiDataException imde) {
-            String msg = MessageFormat.format("Cannot add note with the pitch {0} at tick {1} " +
-                                              "for duration {2}", note, startTick, numTicks);
-            throw new RuntimeException(msg, imde);
+            throw cannotAddNote(note, startTick, numTicks, imde);
+        }
+        notesAdded++;
+    }
+
+    /**
+     * Schedule many notes at once: note i plays pitch notes[i] starting at startTicks[i] for numTicks[i] ticks.
+     * The note events are sorted by tick once and then appended to the track in order, so the cost is
+     * linear in the number of notes after the sort, whatever order the notes are given in. At the same tick,
+     * notes that end are turned off before notes that start are turned on, and otherwise events keep the
+     * order of their notes; a note that lasts no ticks is turned off just after it is turned on. The arrays
+     * are only read, never kept.
+     *
+     * @param notes the pitch values of the notes; each must be a valid note
+     * @param startTicks the starting ticks of the notes; each must be >= 0
+     * @param numTicks the number of ticks for which each note should be played; each must be >= 0
+     * @param count the number of notes to schedule, the first count elements of each array;
+     *              0 <= count <= the length of every array
+     */
+    @Override
+    public void addNotes(int[] notes, int[] startTicks, int[] numTicks, int count) {
+        long[] keys = new long[2 * count];
+        for (int i = 0; i < count; i++) {
+            keys[2 * i] = NoteEvents.on(startTicks[i], i);
+            keys[2 * i + 1] = NoteEvents.off(startTicks[i], startTicks[i] + numTicks[i], i);
         }
+        Arrays.sort(keys);
+        for (long key : keys) {
+            int i = NoteEvents.note(key);
+            try {
+                addMidiNoteEvent(NoteEvents.isOn(key) ? ShortMessage.NOTE_ON : ShortMessage.NOTE_OFF,
+                        notes[i], NoteEvents.tick(key));
+            } catch (InvalidMidiDataException imde) {
+                throw cannotAddNote(notes[i], startTicks[i], numTicks[i], imde);
+            }
+        }
+        notesAdded += count;
+        checkRep();
+    }
+
+    /**
+     * @return the number of notes scheduled on this player so far
+     */
+    public long getNotesAdded() {
+        return notesAdded;
+    }
+
+    /**
+     * @return the number of MIDI note events, NOTE_ON and NOTE_OFF, added to the track so far
+     */
+    public long getEventsAdded() {
+        return eventsAdded;
+    }
+
+    private static RuntimeException cannotAddNote(int note, int startTick, int numTicks, InvalidMidiDataException imde) {
+        String msg = MessageFormat.format("Cannot add note with the pitch {0} at tick {1} " +
+                                          "for duration {2}", note, startTick, numTicks);
+        return new RuntimeException(msg, imde);
     }
     
     /**
      * @return the ticks per beat of this sequence player
      */
+    @Override
     public int getTicksPerBeat(){
         return this.ticksPerBeat;
                 
@@ -103,8 +170,27 @@ public class SequencePlayer {
      * @throws InvalidMidiDataException
      */
     private void addMidiNoteEvent(int eventType, int note, int tick) throws InvalidMidiDataException {
-        ShortMessage msg = new ShortMessage(eventType, DEFAULT_CHANNEL, note, DEFAULT_VELOCITY);
-        this.track.add(new MidiEvent(msg, tick));
+        this.track.add(new MidiEvent(noteMessage(eventType, note), tick));
+        eventsAdded++;
+    }
+
+    /**
+     * Get the message for a MIDI note event, making it the first time it is needed.
+     *
+     * @param eventType ShortMessage.NOTE_ON or ShortMessage.NOTE_OFF
+     * @param note valid pitch value
+     * @return a message of that type for that pitch on the default channel
+     * @throws InvalidMidiDataException if note is not a valid pitch value
+     */
+    private ShortMessage noteMessage(int eventType, int note) throws InvalidMidiDataException {
+        if (note < 0 || note >= MIDI_PITCHES) {
+            return new ShortMessage(eventType, DEFAULT_CHANNEL, note, DEFAULT_VELOCITY);
+        }
+        ShortMessage[] messages = eventType == ShortMessage.NOTE_ON ? noteOnMessages : noteOffMessages;
+        if (messages[note] == null) {
+            messages[note] = new ShortMessage(eventType, DEFAULT_CHANNEL, note, DEFAULT_VELOCITY);
+        }
+        return messages[note];
     }
 
     /**
@@ -0,0 +1,254 @@
+package abc.sound;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Synthesizer;
+
+/**
+ * Plays scheduled notes by sending their MIDI messages to a Receiver, such as the receiver of a Synthesizer,
+ * as their time comes, instead of building a whole Track before the first note sounds.
+ *
+ * A producer thread turns the notes into NOTE_ON and NOTE_OFF events with a NoteEventStream, and feeds
+ * them through a bounded queue to the thread that called play, which waits for the time of each event and
+ * sends it. Playback starts as soon as the events of the first measure are queued,
+ * or the queue is full. Memory use depends on the size of the queue and the number of notes sounding at
+ * once, never on the length of the tune.
+ *
+ * If the receiver has a clock, messages are sent a little ahead of their time and stamped with the time on
+ * that clock they should sound at, so the device can place them exactly. Otherwise they are sent unstamped,
+ * on time.
+ */
+public class StreamingPlayer {
+
+    /** the number of note events queued between the producer and the player, unless another is given */
+    public static final int DEFAULT_CAPACITY = 1024;
+    /** how long before its time a stamped message is sent */
+    static final long LOOKAHEAD_MICROS = 50_000;
+
+    // MIDI channel
+    private static final int DEFAULT_CHANNEL = 0;
+    // the volume
+    private static final int DEFAULT_VELOCITY = 100;
+    // the controller that turns off every note of a channel
+    private static final int ALL_NOTES_OFF = 123;
+    // the number of valid MIDI pitches
+    private static final int MIDI_PITCHES = 128;
+    private static final long MICROS_PER_MINUTE = 60_000_000L;
+    private static final long NANOS_PER_MICRO = 1000;
+    // the last event in the queue; no key made by NoteEvents is negative
+    private static final long END = -1;
+
+    private final Receiver receiver;
+    private final LongSupplier clockMicros;
+    private final int capacity;
+    // messages already made, by pitch; a receiver only reads a message while it is sent, so sends can share one
+    private final ShortMessage[] noteOnMessages = new ShortMessage[MIDI_PITCHES];
+    private final ShortMessage[] noteOffMessages = new ShortMessage[MIDI_PITCHES];
+    private long startDelayNanos = 0;
+
+    /*
+     * Abstraction function:
+     *   a player that sends to receiver, stamping messages with the time of clockMicros, or sending them
+     *   unstamped if clockMicros is null, through a queue of capacity events;
+     *   the last play started playing startDelayNanos after it was called
+     * Rep invariant:
+     *   receiver is non-null, capacity > 0, startDelayNanos >= 0
+     *   noteOnMessages[p] and noteOffMessages[p] are null or the NOTE_ON and NOTE_OFF messages for pitch p
+     * Rep exposure:
+     *   receiver and clockMicros are shared with the caller, who opened the device they belong to
+     */
+
+    private void checkRep() {
+        assert receiver != null : "receiver should be non-null";
+        assert capacity > 0 : "queue should hold at least one event";
+        assert startDelayNanos >= 0 : "playback cannot start before play is called";
+    }
+
+    /**
+     * Make a player for an open synthesizer, stamping messages with its clock.
+     *
+     * @param synthesizer the synthesizer to play on; must be open, and is left open
+     * @throws MidiUnavailableException if the synthesizer has no receiver to send to
+     */
+    public StreamingPlayer(Synthesizer synthesizer) throws MidiUnavailableException {
+        this(synthesizer.getReceiver(), synthesizer::getMicrosecondPosition, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Make a player for a receiver.
+     *
+     * @param receiver where to send the messages; is never closed
+     * @param clockMicros the clock of the device receiver belongs to, in microseconds, with which to stamp
+     *                    messages; or null to send them unstamped
+     * @param capacity the number of events to queue ahead of the one being played, > 0
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public StreamingPlayer(Receiver receiver, LongSupplier clockMicros, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.receiver = receiver;
+        this.clockMicros = clockMicros;
+        this.capacity = capacity;
+        checkRep();
+    }
+
+    /**
+     * Play notes, returning once the last one has been turned off.
+     * If the calling thread is interrupted, every note is turned off and playback stops.
+     *
+     * @param notes the notes to play; must not change while they are played
+     * @param beatsPerMinute the number of beats per minute, > 0
+     * @param startTicks the tick playback waits to be queued before it starts, such as the end of the
+     *                   first measure, >= 0
+     * @throws InterruptedException if the calling thread is interrupted
+     * @throws IllegalArgumentException if beatsPerMinute is not positive or a pitch is not a valid MIDI note
+     */
+    public void play(NoteSchedule notes, int beatsPerMinute, int startTicks) throws InterruptedException {
+        if (beatsPerMinute <= 0) {
+            throw new IllegalArgumentException("beats per minute must be positive: " + beatsPerMinute);
+        }
+        long called = System.nanoTime();
+        long ticksPerMinute = (long) beatsPerMinute * notes.ticksPerBeat();
+        Producer producer = new Producer(notes, startTicks, new ArrayBlockingQueue<>(capacity));
+        Thread thread = new Thread(producer, "abc-stream-producer");
+        thread.setDaemon(true);
+        thread.start();
+        boolean finished = false;
+        try {
+            producer.ready.await();
+            long start = System.nanoTime();
+            startDelayNanos = start - called;
+            long deviceStart = clockMicros == null ? 0 : clockMicros.getAsLong() + LOOKAHEAD_MICROS;
+            long lookahead = clockMicros == null ? 0 : LOOKAHEAD_MICROS;
+            long micros = 0;
+            for (long key = producer.queue.take(); key != END; key = producer.queue.take()) {
+                micros = NoteEvents.tick(key) * MICROS_PER_MINUTE / ticksPerMinute;
+                waitUntil(start + micros * NANOS_PER_MICRO);
+                int pitch = notes.pitch(NoteEvents.note(key));
+                int eventType = NoteEvents.isOn(key) ? ShortMessage.NOTE_ON : ShortMessage.NOTE_OFF;
+                receiver.send(noteMessage(eventType, pitch), clockMicros == null ? -1 : deviceStart + micros);
+            }
+            if (producer.failure != null) {
+                throw producer.failure;
+            }
+            // the last message was sent early by the lookahead; wait for it to sound
+            waitUntil(start + (micros + lookahead) * NANOS_PER_MICRO);
+            finished = true;
+        } finally {
+            // stops a producer still waiting for room in the queue
+            thread.interrupt();
+            if (!finished) {
+                allNotesOff();
+            }
+            checkRep();
+        }
+    }
+
+    /**
+     * @return the nanoseconds from the last call to play until it started playing, which is the time it took
+     *         to queue the first measure
+     */
+    public long getStartDelayNanos() {
+        return startDelayNanos;
+    }
+
+    private static void waitUntil(long deadline) throws InterruptedException {
+        for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private void allNotesOff() {
+        try {
+            receiver.send(new ShortMessage(ShortMessage.CONTROL_CHANGE, DEFAULT_CHANNEL, ALL_NOTES_OFF, 0), -1);
+        } catch (InvalidMidiDataException imde) {
+            throw new AssertionError("all notes off is a valid message", imde);
+        }
+    }
+
+    /**
+     * Get the message for a MIDI note event, making it the first time it is needed.
+     *
+     * @param eventType ShortMessage.NOTE_ON or ShortMessage.NOTE_OFF
+     * @param note a pitch value
+     * @return a message of that type for that pitch on the default channel
+     * @throws IllegalArgumentException if note is not a valid pitch value
+     */
+    private ShortMessage noteMessage(int eventType, int note) {
+        if (note < 0 || note >= MIDI_PITCHES) {
+            throw new IllegalArgumentException("not a MIDI pitch: " + note);
+        }
+        ShortMessage[] messages = eventType == ShortMessage.NOTE_ON ? noteOnMessages : noteOffMessages;
+        if (messages[note] == null) {
+            try {
+                messages[note] = new ShortMessage(eventType, DEFAULT_CHANNEL, note, DEFAULT_VELOCITY);
+            } catch (InvalidMidiDataException imde) {
+                throw new IllegalArgumentException("not a MIDI pitch: " + note, imde);
+            }
+        }
+        return messages[note];
+    }
+
+    /**
+     * Turns notes into the keys of their events, in order, and puts them in a queue followed by END.
+     */
+    private static class Producer implements Runnable {
+
+        private final NoteSchedule notes;
+        private final int startTicks;
+        private final BlockingQueue<Long> queue;
+        // counted down once the events before startTicks are queued, the queue is full, or there are no more
+        private final CountDownLatch ready = new CountDownLatch(1);
+        // what stopped the producer early, if anything; read by the player after END
+        private volatile RuntimeException failure;
+
+        Producer(NoteSchedule notes, int startTicks, BlockingQueue<Long> queue) {
+            this.notes = notes;
+            this.startTicks = startTicks;
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (NoteEventStream events = new NoteEventStream(notes); events.hasNext(); ) {
+                    put(events.next());
+                }
+            } catch (InterruptedException e) {
+                // the player has stopped, and takes nothing more
+                return;
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                ready.countDown();
+            }
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                // the player has stopped
+            }
+        }
+
+        private void put(long key) throws InterruptedException {
+            if (NoteEvents.tick(key) >= startTicks) {
+                ready.countDown();
+            }
+            if (!queue.offer(key)) {
+                ready.countDown();
+                queue.put(key);
+            }
+        }
+    }
+}
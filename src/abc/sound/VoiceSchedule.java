@@ -0,0 +1,111 @@
+package abc.sound;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The notes of one voice of a NoteSchedule, as a NoteSchedule of their own with a single voice.
+ *
+ * A view of the notes it was split from: it holds only the indices of its notes there, in order,
+ * so they stay sorted by start tick.
+ */
+final class VoiceSchedule implements NoteSchedule {
+
+    private final NoteSchedule notes;
+    private final String name;
+    private final int[] indices;
+
+    /*
+     * Abstraction function:
+     *   the notes notes[indices[0]], ..., notes[indices[indices.length - 1]], all of the voice called name
+     * Rep invariant:
+     *   indices is strictly increasing and within notes
+     * Rep exposure:
+     *   notes is shared with the caller of split, who promises not to change it
+     */
+
+    private VoiceSchedule(NoteSchedule notes, String name, int[] indices) {
+        this.notes = notes;
+        this.name = name;
+        this.indices = indices;
+    }
+
+    /**
+     * Split notes into their voices, in one pass over the notes.
+     *
+     * @param notes the notes to split; must not change while the voices are used
+     * @return one schedule for each voice of notes, in the order of notes.voiceNames()
+     */
+    static VoiceSchedule[] split(NoteSchedule notes) {
+        int voices = notes.voiceNames().size();
+        int[] counts = new int[voices];
+        for (int i = 0; i < notes.size(); i++) {
+            counts[notes.voice(i)]++;
+        }
+        int[][] indices = new int[voices][];
+        for (int v = 0; v < voices; v++) {
+            indices[v] = new int[counts[v]];
+        }
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < notes.size(); i++) {
+            int v = notes.voice(i);
+            indices[v][counts[v]++] = i;
+        }
+        VoiceSchedule[] split = new VoiceSchedule[voices];
+        for (int v = 0; v < voices; v++) {
+            split[v] = new VoiceSchedule(notes, notes.voiceNames().get(v), indices[v]);
+        }
+        return split;
+    }
+
+    /**
+     * @return the name of the voice
+     */
+    String name() {
+        return name;
+    }
+
+    @Override
+    public int ticksPerBeat() {
+        return notes.ticksPerBeat();
+    }
+
+    @Override
+    public int size() {
+        return indices.length;
+    }
+
+    @Override
+    public int startTick(int i) {
+        return notes.startTick(index(i));
+    }
+
+    @Override
+    public int durationTicks(int i) {
+        return notes.durationTicks(index(i));
+    }
+
+    @Override
+    public int pitch(int i) {
+        return notes.pitch(index(i));
+    }
+
+    @Override
+    public int voice(int i) {
+        index(i);
+        return 0;
+    }
+
+    @Override
+    public List<String> voiceNames() {
+        return Collections.singletonList(name);
+    }
+
+    private int index(int i) {
+        if (i < 0 || i >= indices.length) {
+            throw new IndexOutOfBoundsException("note " + i + " of " + indices.length);
+        }
+        return indices[i];
+    }
+}
@@ -0,0 +1,159 @@
+package abc.sound;
+
+import java.util.Arrays;
+
+/**
+ * Synthesizes the notes of one voice of a NoteSchedule, a block of samples at a time, with a wavetable
+ * oscillator and an attack-decay-sustain-release envelope per note.
+ *
+ * Blocks must be rendered in order, from the first. Only the notes sounding in the current block are kept,
+ * so memory does not grow with the length of the tune.
+ */
+class VoiceSynth {
+
+    private static final int INITIAL_POLYPHONY = 16;
+
+    private final AudioRenderer renderer;
+    private final NoteSchedule notes;
+    private final int voice;
+    private final int attack;
+    private final int decay;
+    private final float sustain;
+    private final int release;
+
+    // the index in notes of the next note of this voice that has not started sounding
+    private int next = 0;
+    // the notes sounding, in parallel arrays
+    private int sounding = 0;
+    private double[] phase = new double[INITIAL_POLYPHONY];
+    private double[] increment = new double[INITIAL_POLYPHONY];
+    private long[] startFrame = new long[INITIAL_POLYPHONY];
+    private long[] offFrame = new long[INITIAL_POLYPHONY];
+    private float[] releaseLevel = new float[INITIAL_POLYPHONY];
+
+    /*
+     * Abstraction function:
+     *   the notes of voice in notes, of which the first sounding entries of the arrays are playing:
+     *   note j started at frame startFrame[j], is released at offFrame[j] from envelope level releaseLevel[j],
+     *   and its oscillator is at phase[j], moving increment[j] table entries per frame;
+     *   notes before index next have started, the others have not
+     * Rep invariant:
+     *   0 <= sounding <= every array's length, and the arrays have the same length
+     *   0 <= phase[j] < WaveTable.SIZE, startFrame[j] <= offFrame[j]
+     *   attack, decay, release > 0, 0 <= sustain <= 1
+     */
+
+    /**
+     * Make a synthesizer for one voice, before its first block.
+     * @param renderer the renderer that maps ticks of notes to frames
+     * @param notes the notes of the tune
+     * @param voice the index of the voice to play
+     * @param attack frames for a note to rise to full level, > 0
+     * @param decay frames for a note to fall from full level to sustain, > 0
+     * @param sustain the level a held note stays at, 0 <= sustain <= 1
+     * @param release frames for a released note to fall to silence, > 0
+     */
+    VoiceSynth(AudioRenderer renderer, NoteSchedule notes, int voice, int attack, int decay, float sustain,
+            int release) {
+        this.renderer = renderer;
+        this.notes = notes;
+        this.voice = voice;
+        this.attack = attack;
+        this.decay = decay;
+        this.sustain = sustain;
+        this.release = release;
+    }
+
+    /**
+     * Render the next block of this voice.
+     * @param buffer where to write the block, replacing what is there
+     * @param firstFrame the frame the block starts at, the end of the block rendered before
+     * @param frames the number of frames in the block, 0 <= frames <= buffer.length
+     */
+    void renderBlock(float[] buffer, long firstFrame, int frames) {
+        Arrays.fill(buffer, 0, frames, 0f);
+        long endFrame = firstFrame + frames;
+        while (next < notes.size() && renderer.frameOf(notes.startTick(next)) < endFrame) {
+            if (notes.voice(next) == voice) {
+                start(next);
+            }
+            next++;
+        }
+        int j = 0;
+        while (j < sounding) {
+            if (play(j, buffer, firstFrame, frames)) {
+                j++;
+            } else {
+                stop(j);
+            }
+        }
+    }
+
+    private void start(int note) {
+        if (sounding == phase.length) {
+            int capacity = sounding * 2;
+            phase = Arrays.copyOf(phase, capacity);
+            increment = Arrays.copyOf(increment, capacity);
+            startFrame = Arrays.copyOf(startFrame, capacity);
+            offFrame = Arrays.copyOf(offFrame, capacity);
+            releaseLevel = Arrays.copyOf(releaseLevel, capacity);
+        }
+        long start = renderer.frameOf(notes.startTick(note));
+        long off = renderer.frameOf(notes.startTick(note) + notes.durationTicks(note));
+        phase[sounding] = 0;
+        increment[sounding] = WaveTable.increment(notes.pitch(note), AudioRenderer.SAMPLE_RATE);
+        startFrame[sounding] = start;
+        offFrame[sounding] = off;
+        releaseLevel[sounding] = held(off - start);
+        sounding++;
+    }
+
+    // remove note j, moving the last sounding note into its place
+    private void stop(int j) {
+        sounding--;
+        phase[j] = phase[sounding];
+        increment[j] = increment[sounding];
+        startFrame[j] = startFrame[sounding];
+        offFrame[j] = offFrame[sounding];
+        releaseLevel[j] = releaseLevel[sounding];
+    }
+
+    /**
+     * Add note j to the block.
+     * @return false if the note has finished its release by the end of the block, true otherwise
+     */
+    private boolean play(int j, float[] buffer, long firstFrame, int frames) {
+        long start = startFrame[j];
+        long heldFrames = offFrame[j] - start;
+        long end = offFrame[j] + release;
+        int from = (int) Math.max(0, start - firstFrame);
+        int to = (int) Math.min(frames, end - firstFrame);
+        double p = phase[j];
+        double step = increment[j];
+        for (int i = from; i < to; i++) {
+            long t = firstFrame + i - start;
+            float level = t < heldFrames ? held(t) : releaseLevel[j] * (1f - (float) (t - heldFrames) / release);
+            buffer[i] += WaveTable.sample(p) * level;
+            p += step;
+            if (p >= WaveTable.SIZE) {
+                p -= WaveTable.SIZE;
+            }
+        }
+        phase[j] = p;
+        return firstFrame + frames < end;
+    }
+
+    /**
+     * @param t frames since a note started, >= 0
+     * @return the level of the envelope t frames into a note that is still held
+     */
+    private float held(long t) {
+        if (t < attack) {
+            return (float) t / attack;
+        } else if (t < attack + decay) {
+            return 1f - (1f - sustain) * (t - attack) / decay;
+        } else {
+            return sustain;
+        }
+    }
+}
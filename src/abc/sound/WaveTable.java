@@ -0,0 +1,63 @@
+package abc.sound;
+
+/**
+ * The single cycle of the waveform the software synthesizer plays, and the phase increment of each MIDI pitch.
+ *
+ * The waveform is built once, additively, from the first few harmonics with amplitudes falling as 1/h,
+ * scaled so that its peak is 1. It is read with linear interpolation between table entries.
+ */
+final class WaveTable {
+
+    /** the number of entries in the table, a power of two */
+    static final int SIZE = 4096;
+    private static final int HARMONICS = 6;
+    private static final int MIDI_PITCHES = 128;
+    private static final int CONCERT_A = 69;
+    private static final double CONCERT_A_HZ = 440.0;
+    private static final int SEMITONES_PER_OCTAVE = 12;
+
+    // one more entry than SIZE, a copy of the first, so interpolation never wraps
+    private static final float[] TABLE = build();
+
+    private WaveTable() {
+        // only static methods
+    }
+
+    private static float[] build() {
+        double[] wave = new double[SIZE];
+        double peak = 0;
+        for (int i = 0; i < SIZE; i++) {
+            for (int h = 1; h <= HARMONICS; h++) {
+                wave[i] += Math.sin(2 * Math.PI * h * i / SIZE) / h;
+            }
+            peak = Math.max(peak, Math.abs(wave[i]));
+        }
+        float[] table = new float[SIZE + 1];
+        for (int i = 0; i < SIZE; i++) {
+            table[i] = (float) (wave[i] / peak);
+        }
+        table[SIZE] = table[0];
+        return table;
+    }
+
+    /**
+     * @param phase a position in the cycle, 0 <= phase < SIZE
+     * @return the value of the waveform at phase, between -1 and 1
+     */
+    static float sample(double phase) {
+        int i = (int) phase;
+        float fraction = (float) (phase - i);
+        return TABLE[i] + (TABLE[i + 1] - TABLE[i]) * fraction;
+    }
+
+    /**
+     * @param pitch a MIDI pitch; pitches outside 0..127 are clamped to it
+     * @param sampleRate the number of samples per second, > 0
+     * @return how far the phase of a note of that pitch moves through the table per sample
+     */
+    static double increment(int pitch, int sampleRate) {
+        int clamped = Math.max(0, Math.min(MIDI_PITCHES - 1, pitch));
+        double hertz = CONCERT_A_HZ * Math.pow(2, (clamped - CONCERT_A) / (double) SEMITONES_PER_OCTAVE);
+        return hertz * SIZE / sampleRate;
+    }
+}
@@ -0,0 +1,98 @@
+package abc.tunebook;
+
+/**
+ * An immutable entry of a Tunebook index: where one tune lies in the tunebook file.
+ */
+public class TuneEntry {
+
+    private final int number;
+    private final long start;
+    private final long end;
+    private final String title;
+
+    //Abstraction function
+    //  Represents tune number number, called title, whose text is the bytes start to end, end excluded,
+    //  of a tunebook file
+    //Rep invariant
+    //  0 <= start < end
+    //  title != null
+    //Rep exposure
+    //  All fields are private, final and immutable.
+
+    /**
+     * Make an entry.
+     * @param number the reference number X of the tune
+     * @param start the offset in bytes of the X: line of the tune, >= 0
+     * @param end the offset in bytes just after the last line of the tune, > start
+     * @param title the first title T of the tune, or "" if it has none
+     */
+    public TuneEntry(int number, long start, long end, String title) {
+        this.number = number;
+        this.start = start;
+        this.end = end;
+        this.title = title;
+        checkRep();
+    }
+
+    /**
+     * Asserts check rep
+     */
+    private void checkRep() {
+        assert 0 <= start && start < end;
+        assert title != null;
+    }
+
+    /**
+     * @return the reference number X of the tune
+     */
+    public int number() {
+        return number;
+    }
+
+    /**
+     * @return the offset in bytes of the X: line of the tune
+     */
+    public long start() {
+        return start;
+    }
+
+    /**
+     * @return the offset in bytes just after the last line of the tune
+     */
+    public long end() {
+        return end;
+    }
+
+    /**
+     * @return the first title T of the tune, or "" if it has none
+     */
+    public String title() {
+        return title;
+    }
+
+    @Override
+    public int hashCode() {
+        return number + Long.hashCode(start) + title.hashCode();
+    }
+
+    /**
+     * Indicates whether two objects are equal as defined below
+     * @param obj any object
+     * @return true if and only if this and obj are TuneEntry instances with the same number, byte range and title
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof TuneEntry)) return false;
+        TuneEntry that = (TuneEntry) obj;
+        return this.number == that.number && this.start == that.start && this.end == that.end
+                && this.title.equals(that.title);
+    }
+
+    /**
+     * @return a String such as "X:12 The Title [340, 910)"
+     */
+    @Override
+    public String toString() {
+        return "X:" + number + " " + title + " [" + start + ", " + end + ")";
+    }
+}
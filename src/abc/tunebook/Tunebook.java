@@ -0,0 +1,561 @@
+package abc.tunebook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import abc.cache.ParsedTune;
+import abc.cache.TuneCache;
+import abc.parser.AbcSource;
+
+/**
+ * A tunebook: one abc file holding many tunes, each starting with its X: line, opened so that any one
+ * tune can be parsed without parsing, or even decoding, the others.
+ *
+ * The file is memory-mapped and scanned once for the lines that start with "X:", which gives each tune's
+ * byte range, and for the first T: line of each tune's header. The resulting index is saved in a folder
+ * of indexes, and reused as long as the file has the same size and modification time, so opening a
+ * tunebook again only reads its index. A tune runs from its X: line to the last line before the next
+ * X: line that is not blank; anything before the first X: line is ignored.
+ *
+ * A tunebook must be smaller than 2 GB, the most one mapping can hold.
+ */
+public class Tunebook {
+
+    private static final int MAGIC = 0x41424358; // "ABCX"
+    private static final short FORMAT_VERSION = 1;
+    private static final String SUFFIX = ".abcx";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path path;
+    private final ByteBuffer bytes;
+    private final Index index;
+
+    //Abstraction function
+    //  Represents the tunebook in the file path, whose bytes are bytes, holding the tunes of index
+    //Rep invariant
+    //  the tunes of index end at or before bytes.limit()
+    //Rep exposure
+    //  bytes is read only and is never returned; each read uses its own duplicate of it.
+    //  index is never changed or returned.
+    //Thread safety argument
+    //  Every field is final and none is changed after construction. Reads of bytes go through a duplicate
+    //  made for that read, so threads do not share a buffer position.
+
+    /**
+     * The tunes of a tunebook, in parallel arrays, as they are saved: the number, start and end of each tune
+     * in the order they appear, the UTF-8 bytes of every title one after another, and the tunes in order of
+     * number, so that a tune is found by binary search without building a map.
+     */
+    static class Index {
+        private final int[] numbers;
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] titleOffsets;
+        private final byte[] titles;
+        private final int[] byNumber;
+
+        //Abstraction function
+        //  Represents the tunes i, 0 <= i < numbers.length, numbered numbers[i], with bytes starts[i] to ends[i]
+        //  and titled by the UTF-8 bytes titles[titleOffsets[i]] to titles[titleOffsets[i + 1]]
+        //Rep invariant
+        //  numbers, starts and ends have the same length n, and titleOffsets has length n + 1
+        //  0 <= starts[i] < ends[i] <= starts[i + 1]
+        //  titleOffsets is ascending from 0 to titles.length
+        //  byNumber is a permutation of 0..n-1 in ascending order of numbers[byNumber[k]], then of byNumber[k]
+        //Rep exposure
+        //  All fields are private and never returned.
+
+        private Index(int[] numbers, int[] starts, int[] ends, int[] titleOffsets, byte[] titles, int[] byNumber) {
+            this.numbers = numbers;
+            this.starts = starts;
+            this.ends = ends;
+            this.titleOffsets = titleOffsets;
+            this.titles = titles;
+            this.byNumber = byNumber;
+            checkRep();
+        }
+
+        /**
+         * Asserts check rep
+         */
+        private void checkRep() {
+            int n = numbers.length;
+            assert starts.length == n && ends.length == n && titleOffsets.length == n + 1 && byNumber.length == n;
+            assert titleOffsets[0] == 0 && titleOffsets[n] == titles.length;
+            for (int i = 0; i < n; i++) {
+                assert 0 <= starts[i] && starts[i] < ends[i] && (i == n - 1 || ends[i] <= starts[i + 1]);
+                assert titleOffsets[i] <= titleOffsets[i + 1];
+            }
+            for (int k = 1; k < n; k++) {
+                int a = byNumber[k - 1];
+                int b = byNumber[k];
+                assert numbers[a] < numbers[b] || (numbers[a] == numbers[b] && a < b);
+            }
+        }
+
+        private static Index of(int[] numbers, int[] starts, int[] ends, int[] titleOffsets, byte[] titles) {
+            long[] keys = new long[numbers.length];
+            for (int i = 0; i < numbers.length; i++) {
+                keys[i] = ((long) numbers[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] byNumber = new int[keys.length];
+            for (int k = 0; k < keys.length; k++) {
+                byNumber[k] = (int) keys[k];
+            }
+            return new Index(numbers, starts, ends, titleOffsets, titles, byNumber);
+        }
+
+        /**
+         * @return the number of tunes
+         */
+        int size() {
+            return numbers.length;
+        }
+
+        /**
+         * @return the end of the last tune, or 0 if there are none
+         */
+        int end() {
+            return ends.length == 0 ? 0 : ends[ends.length - 1];
+        }
+
+        /**
+         * @param i the index of a tune, 0 <= i < size()
+         * @return tune i
+         */
+        TuneEntry get(int i) {
+            String title = new String(titles, titleOffsets[i], titleOffsets[i + 1] - titleOffsets[i],
+                    StandardCharsets.UTF_8);
+            return new TuneEntry(numbers[i], starts[i], ends[i], title);
+        }
+
+        /**
+         * @param number a tune number
+         * @return the index of the first tune numbered number, or -1 if there is none
+         */
+        int find(int number) {
+            int low = 0;
+            int high = byNumber.length;
+            // find the first k with numbers[byNumber[k]] >= number
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (numbers[byNumber[middle]] < number) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            return low < byNumber.length && numbers[byNumber[low]] == number ? byNumber[low] : -1;
+        }
+
+        /**
+         * @return every tune, in the order they appear
+         */
+        List<TuneEntry> entries() {
+            return new AbstractList<TuneEntry>() {
+                @Override
+                public TuneEntry get(int i) {
+                    if (i < 0 || i >= numbers.length) {
+                        throw new IndexOutOfBoundsException("tune " + i + " of " + numbers.length);
+                    }
+                    return Index.this.get(i);
+                }
+
+                @Override
+                public int size() {
+                    return numbers.length;
+                }
+            };
+        }
+    }
+
+    private Tunebook(Path path, ByteBuffer bytes, Index index) {
+        this.path = path;
+        this.bytes = bytes;
+        this.index = index;
+        checkRep();
+    }
+
+    /**
+     * Asserts check rep
+     */
+    private void checkRep() {
+        assert index.end() <= bytes.limit();
+    }
+
+    /**
+     * Open a tunebook, with its index kept in the folder of the default TuneCache.
+     * @param book the tunebook file
+     * @return the tunebook
+     * @throws IOException if book cannot be read, or is 2 GB or larger
+     */
+    public static Tunebook open(Path book) throws IOException {
+        return open(book, TuneCache.getDefault().directory());
+    }
+
+    /**
+     * Open a tunebook, reading its index from indexes if it has one for the file as it is now, or else
+     * scanning the file and saving its index there. If the index cannot be saved the tunebook is still opened.
+     * @param book the tunebook file
+     * @param indexes the folder of indexes, which is created when the first index is saved
+     * @return the tunebook
+     * @throws IOException if book cannot be read, or is 2 GB or larger
+     */
+    public static Tunebook open(Path book, Path indexes) throws IOException {
+        Path path = book.toAbsolutePath().normalize();
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        MappedByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("tunebook of 2 GB or more: " + path);
+            }
+            // the mapping stays valid once the channel is closed
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        Path indexFile = indexes.resolve(indexName(path));
+        Index index = readIndex(indexFile, bytes.limit(), modified);
+        if (index == null) {
+            index = scan(bytes);
+            writeIndex(indexFile, bytes.limit(), modified, index);
+        }
+        return new Tunebook(path, bytes, index);
+    }
+
+    /**
+     * Find the tunes of a tunebook, in one pass over its bytes.
+     * @param bytes the bytes of a tunebook, from position 0 to its limit
+     * @return the tunes in bytes, in order; a tune whose X: field is not a number is numbered -1
+     */
+    static Index scan(ByteBuffer bytes) {
+        IntList numbers = new IntList();
+        IntList starts = new IntList();
+        IntList ends = new IntList();
+        IntList titleOffsets = new IntList();
+        ByteArrayOutputStream titles = new ByteArrayOutputStream();
+        titleOffsets.add(0);
+        int size = bytes.limit();
+        int start = -1;
+        boolean titled = false;
+        boolean inHeader = false;
+        int contentEnd = 0;
+        int line = 0;
+        while (line < size) {
+            int eol = line;
+            while (eol < size && bytes.get(eol) != '\n') {
+                eol++;
+            }
+            int next = eol < size ? eol + 1 : size;
+            if (isField(bytes, line, eol, 'X')) {
+                if (start >= 0) {
+                    ends.add(contentEnd);
+                    titleOffsets.add(titles.size());
+                }
+                start = line;
+                numbers.add(parseNumber(bytes, line + 2, eol));
+                starts.add(line);
+                titled = false;
+                inHeader = true;
+                contentEnd = next;
+            }
+            else if (start >= 0) {
+                if (inHeader && !titled && isField(bytes, line, eol, 'T')) {
+                    byte[] title = decode(bytes, line + 2, eol).trim().getBytes(StandardCharsets.UTF_8);
+                    titles.write(title, 0, title.length);
+                    titled = true;
+                }
+                else if (inHeader && isField(bytes, line, eol, 'K')) {
+                    inHeader = false;
+                }
+                if (!isBlank(bytes, line, eol)) {
+                    contentEnd = next;
+                }
+            }
+            line = next;
+        }
+        if (start >= 0) {
+            ends.add(contentEnd);
+            titleOffsets.add(titles.size());
+        }
+        return Index.of(numbers.toArray(), starts.toArray(), ends.toArray(), titleOffsets.toArray(),
+                titles.toByteArray());
+    }
+
+    /**
+     * A growable array of ints.
+     */
+    private static class IntList {
+        private int[] values = new int[64];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static boolean isField(ByteBuffer bytes, int line, int eol, char field) {
+        return eol - line >= 2 && bytes.get(line) == field && bytes.get(line + 1) == ':';
+    }
+
+    private static boolean isBlank(ByteBuffer bytes, int line, int eol) {
+        for (int i = line; i < eol; i++) {
+            byte b = bytes.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int parseNumber(ByteBuffer bytes, int from, int eol) {
+        String digits = decode(bytes, from, eol).trim();
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String decode(ByteBuffer bytes, int from, int to) {
+        ByteBuffer range = bytes.duplicate();
+        range.limit(to);
+        range.position(from);
+        return StandardCharsets.UTF_8.decode(range).toString();
+    }
+
+    /**
+     * @return the absolute path of the tunebook file
+     */
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * @return every tune of the tunebook, in the order they appear; each entry is made when it is got
+     */
+    public List<TuneEntry> tunes() {
+        return index.entries();
+    }
+
+    /**
+     * @param number a tune number
+     * @return true if and only if the tunebook has a tune numbered number
+     */
+    public boolean contains(int number) {
+        return index.find(number) >= 0;
+    }
+
+    /**
+     * @param number the number X of a tune of the tunebook
+     * @return the first tune numbered number
+     * @throws IllegalArgumentException if the tunebook has no tune numbered number
+     */
+    public TuneEntry find(int number) {
+        int i = index.find(number);
+        if (i < 0) {
+            throw new IllegalArgumentException("no tune X:" + number + " in " + path);
+        }
+        return index.get(i);
+    }
+
+    /**
+     * @param tune a tune of this tunebook
+     * @return the text of tune, with its line endings normalized as AbcSource does
+     */
+    public String text(TuneEntry tune) {
+        return AbcSource.normalize(decode(bytes, (int) tune.start(), (int) tune.end()));
+    }
+
+    /**
+     * Parse and compile one tune, decoding only its own bytes.
+     * @param number the number X of a tune of the tunebook
+     * @param ticksPerBeat the ticks per beat to compile it with, or 0 to choose them with Music.ticksPerBeat
+     * @return the first tune numbered number
+     * @throws IllegalArgumentException if the tunebook has no tune numbered number, or it is not a valid tune
+     */
+    public ParsedTune parse(int number, int ticksPerBeat) {
+        return ParsedTune.parse(text(find(number)), ticksPerBeat);
+    }
+
+    /**
+     * @param book the absolute path of a tunebook
+     * @return the name of the index of book in a folder of indexes
+     */
+    static String indexName(Path book) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(book.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + SUFFIX.length());
+            for (byte b : digest) {
+                name.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+            return name.append(SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform must support SHA-256
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Read an index, laid out as written by writeIndex, with bulk reads of each array.
+     * @param indexFile the index file
+     * @param size the size of the tunebook now
+     * @param modified the modification time of the tunebook now
+     * @return the index, or null if there is none, it is damaged or of another format,
+     *         or it was written when the tunebook had another size or modification time
+     */
+    static Index readIndex(Path indexFile, long size, long modified) {
+        try {
+            byte[] all = Files.readAllBytes(indexFile);
+            if (all.length < 4) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(all, 0, all.length - 4);
+            ByteBuffer in = ByteBuffer.wrap(all, 0, all.length - 4);
+            if ((int) crc.getValue() != ByteBuffer.wrap(all).getInt(all.length - 4)) {
+                return null;
+            }
+            if (in.getInt() != MAGIC || in.getShort() != FORMAT_VERSION || in.getLong() != size
+                    || in.getLong() != modified) {
+                return null;
+            }
+            int count = in.getInt();
+            int titleLength = in.getInt();
+            if (count < 0 || titleLength < 0 || (long) count * 20 + 4 + titleLength != in.remaining()) {
+                return null;
+            }
+            int[] numbers = readInts(in, count);
+            int[] starts = readInts(in, count);
+            int[] ends = readInts(in, count);
+            int[] titleOffsets = readInts(in, count + 1);
+            int[] byNumber = readInts(in, count);
+            byte[] titles = new byte[titleLength];
+            in.get(titles);
+            if (!valid(numbers, starts, ends, titleOffsets, titles, byNumber, size)) {
+                return null;
+            }
+            return new Index(numbers, starts, ends, titleOffsets, titles, byNumber);
+        } catch (IOException e) {
+            // missing or unreadable: scan the tunebook again
+            return null;
+        }
+    }
+
+    private static int[] readInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * 4);
+        return values;
+    }
+
+    // the rep invariant of Index, checked whether or not assertions are enabled, for an index read back
+    private static boolean valid(int[] numbers, int[] starts, int[] ends, int[] titleOffsets, byte[] titles,
+            int[] byNumber, long size) {
+        int n = numbers.length;
+        if (titleOffsets[0] != 0 || titleOffsets[n] != titles.length) {
+            return false;
+        }
+        long end = 0;
+        for (int i = 0; i < n; i++) {
+            if (starts[i] < end || ends[i] <= starts[i] || titleOffsets[i] > titleOffsets[i + 1]) {
+                return false;
+            }
+            end = ends[i];
+        }
+        if (end > size) {
+            return false;
+        }
+        for (int k = 0; k < n; k++) {
+            if (byNumber[k] < 0 || byNumber[k] >= n) {
+                return false;
+            }
+            if (k > 0) {
+                int a = byNumber[k - 1];
+                int b = byNumber[k];
+                if (numbers[a] > numbers[b] || (numbers[a] == numbers[b] && a >= b)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Save an index: a magic number, the format version, the size and modification time of the tunebook,
+     * the number of tunes and of title bytes, then the arrays of Index, each int big-endian, and last a CRC-32
+     * of everything before it. The index is written to a temporary file and moved into place.
+     * If it cannot be written, nothing is saved.
+     * @param indexFile the index file
+     * @param size the size of the tunebook
+     * @param modified the modification time of the tunebook
+     * @param index the tunes of the tunebook
+     */
+    static void writeIndex(Path indexFile, long size, long modified, Index index) {
+        int count = index.size();
+        ByteBuffer out = ByteBuffer.allocate(4 + 2 + 8 + 8 + 4 + 4 + count * 20 + 4 + index.titles.length + 4);
+        out.putInt(MAGIC);
+        out.putShort(FORMAT_VERSION);
+        out.putLong(size);
+        out.putLong(modified);
+        out.putInt(count);
+        out.putInt(index.titles.length);
+        for (int[] values : Arrays.asList(index.numbers, index.starts, index.ends, index.titleOffsets, index.byNumber)) {
+            out.asIntBuffer().put(values);
+            out.position(out.position() + values.length * 4);
+        }
+        out.put(index.titles);
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, out.position());
+        out.putInt((int) crc.getValue());
+
+        Path temporary = null;
+        try {
+            Files.createDirectories(indexFile.getParent());
+            temporary = Files.createTempFile(indexFile.getParent(), "index", ".tmp");
+            Files.write(temporary, out.array());
+            try {
+                Files.move(temporary, indexFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // the index is only an optimization; the tunebook is scanned again next time
+            try {
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+            } catch (IOException ignored) {
+                // nothing more can be done
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path + " (" + index.size() + " tunes)";
+    }
+}
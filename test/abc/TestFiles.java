@@ -0,0 +1,53 @@
+package abc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Temporary files for the tests that read and write files, each in a fresh temporary folder.
+ */
+public final class TestFiles {
+
+    private TestFiles() {
+        // only static methods
+    }
+
+    /**
+     * @return a new, empty temporary folder
+     * @throws IOException if the folder cannot be made
+     */
+    public static Path tempFolder() throws IOException {
+        return Files.createTempDirectory("abc-test");
+    }
+
+    /**
+     * Delete a file, or a folder and everything in it. Does nothing if path does not exist.
+     * @param path a file or folder
+     * @throws IOException if something in path cannot be deleted
+     */
+    public static void delete(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(path)) {
+                for (Path file : files) {
+                    delete(file);
+                }
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Write text to a file in UTF-8, replacing the file if it exists.
+     * @param folder the folder of the file
+     * @param name the name of the file
+     * @param text the text to write
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    public static Path write(Path folder, String name, String text) throws IOException {
+        return Files.write(folder.resolve(name), text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,84 @@
+package abc.ast;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests for AccidentalTracker.
+ */
+public class AccidentalTrackerTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for apply(basenote, octaveMarks, accidental):
+     *      accidental NONE, natural, sharp, double flat
+     *      note in key signature, not in key signature
+     *      same note written earlier in this measure, in an earlier measure
+     *      same letter in another octave, other case, beyond MAX_OCTAVE_MARKS
+     * Testing strategy for nextMeasure:
+     *      forgets written accidentals, keeps key signature
+     * Testing strategy for semitones(accidental), octaveMarks(octave):
+     *      every accidental and none; no marks, "'", ",,"
+     */
+
+    // key of D: F and C sharp
+    private static final TuneHeader D_MAJOR = new TuneHeader(1, "t", "c", Rational.ONE, Rational.of(1, 8), Rational.of(1, 8), 100,
+            KeySignature.valueOf("D"), Collections.singletonMap("default", ""), "");
+
+    //covers NONE with and without key signature, written in this measure, next measure
+    @Test
+    public void keySignatureAndMeasure(){
+        AccidentalTracker tracker = new AccidentalTracker(D_MAJOR);
+        assertEquals("F should be sharp in D", 1, tracker.apply('F', 0, AccidentalTracker.NONE));
+        assertEquals("c should be sharp in D", 1, tracker.apply('c', 0, AccidentalTracker.NONE));
+        assertEquals("G should be natural in D", 0, tracker.apply('G', 0, AccidentalTracker.NONE));
+        assertEquals("Natural should apply", 0, tracker.apply('F', 0, 0));
+        assertEquals("Natural should last the measure", 0, tracker.apply('F', 0, AccidentalTracker.NONE));
+        assertEquals("Written natural", 0, tracker.written('F', 0));
+        tracker.nextMeasure();
+        assertEquals("Natural should not last into the next measure", 1, tracker.apply('F', 0, AccidentalTracker.NONE));
+        assertEquals("Nothing written", AccidentalTracker.NONE, tracker.written('F', 0));
+    }
+    //covers sharp and double flat, other octave, other case, beyond MAX_OCTAVE_MARKS
+    @Test
+    public void notesAreAsWritten(){
+        AccidentalTracker tracker = new AccidentalTracker(D_MAJOR);
+        assertEquals("Double flat should apply", -2, tracker.apply('B', -1, -2));
+        assertEquals("Other octave should not change", 0, tracker.apply('B', 0, AccidentalTracker.NONE));
+        assertEquals("Other case should not change", 0, tracker.apply('b', -1, AccidentalTracker.NONE));
+        assertEquals("Same note should change", -2, tracker.apply('B', -1, AccidentalTracker.NONE));
+        assertEquals("Sharp should apply", 1, tracker.apply('E', AccidentalTracker.MAX_OCTAVE_MARKS + 3, 1));
+        assertEquals("Very high notes should share a slot", 1,
+                tracker.apply('E', AccidentalTracker.MAX_OCTAVE_MARKS + 1, AccidentalTracker.NONE));
+    }
+    //covers many measures
+    @Test
+    public void manyMeasures(){
+        AccidentalTracker tracker = new AccidentalTracker(D_MAJOR);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("Measure " + i + " should start from the key", 1, tracker.apply('C', 0, AccidentalTracker.NONE));
+            tracker.apply('C', 0, -1);
+            tracker.nextMeasure();
+        }
+    }
+    //covers semitones and octaveMarks
+    @Test
+    public void conversions(){
+        assertEquals("^^", 2, AccidentalTracker.semitones("^^"));
+        assertEquals("^", 1, AccidentalTracker.semitones("^"));
+        assertEquals("=", 0, AccidentalTracker.semitones("="));
+        assertEquals("_", -1, AccidentalTracker.semitones("_"));
+        assertEquals("__", -2, AccidentalTracker.semitones("__"));
+        assertEquals("none", AccidentalTracker.NONE, AccidentalTracker.semitones(""));
+        assertEquals("no marks", 0, AccidentalTracker.octaveMarks(""));
+        assertEquals("'", 1, AccidentalTracker.octaveMarks("'"));
+        assertEquals(",,", -2, AccidentalTracker.octaveMarks(",,"));
+    }
+}
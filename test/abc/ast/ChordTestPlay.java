@@ -2,17 +2,13 @@ package abc.ast;
 
 import static org.junit.Assert.assertTrue;
 
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiUnavailableException;
-
 import org.junit.Test;
 
-import abc.sound.SequencePlayer;
+import abc.sound.NoteRecorder;
 
 /**
  * 
- * Subclass of ChordTest to test the play and tupletPlay methods, which uses a SequencePlayer
- * @category no_didit
+ * Subclass of ChordTest to test the play and tupletPlay methods, which uses a NoteRecorder
  *
  */
 public class ChordTestPlay extends ChordTest{
@@ -23,23 +19,22 @@ public class ChordTestPlay extends ChordTest{
     private static final int NONZERO_START = 3;
     
    /*
-    * Testing strategy for play(SequencePlayer player, double start):
+    * Testing strategy for play(EventSink player, double start):
     *      Chord followed by Note
     *      Note followed by one Chord followed by Note
     *      Note followed by multiple Chords followed by Note
     *      
-    *  Effectively, we compare to SequencePlayer.toString(), check if our additions to player are inserted in correct order 
+    *  Effectively, we compare to NoteRecorder.toString(), check if our additions to player are inserted in correct order 
     *       for correct duration
     */
    
    //Tests play of a Chord followed by Note
    @Test
-   public void testPlayChordNote() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayChordNote(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        CHORD_MIDDLE_C_AND_C_FLAT.play(player, start);
        MIDDLE_C_NOTE.play(player, start + CHORD_MIDDLE_C_AND_C_FLAT.duration());
        
@@ -92,12 +87,11 @@ public class ChordTestPlay extends ChordTest{
    
    //Tests play of a Note followed by one Chord followed by Note
    @Test
-   public void testPlayNoteSingleChordNote() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayNoteSingleChordNote(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        MIDDLE_G_NOTE.play(player, start);
        CHORD_MIDDLE_C_AND_C_FLAT.play(player, start + MIDDLE_G_NOTE.duration());
        MIDDLE_C_NOTE.play(player, start + MIDDLE_G_NOTE.duration() + CHORD_MIDDLE_C_AND_C_FLAT.duration());
@@ -167,12 +161,11 @@ public class ChordTestPlay extends ChordTest{
    
    //Tests play of a Note followed by multiple Chords followed by Note
    @Test
-   public void testPlayNoteMultipleChordsNote() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayNoteMultipleChordsNote(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        MIDDLE_G_NOTE.play(player, start);
        CHORD_MIDDLE_C_AND_C_FLAT.play(player, start + MIDDLE_G_NOTE.duration());
        CHORD_NONZERO_DURATION_ONE_NOTE.play(player, start + MIDDLE_G_NOTE.duration() + CHORD_MIDDLE_C_AND_C_FLAT.duration());
@@ -258,24 +251,23 @@ public class ChordTestPlay extends ChordTest{
    }
    
    /*
-    * Testing strategy for tupletPlay(SequencePlayer player, double start, int length):
+    * Testing strategy for tupletPlay(EventSink player, double start, int length):
     *      Chord followed by Note
     *      Length = 2, 3, 4
     *      
-    *  Effectively, we compare to SequencePlayer.toString(), check if our additions to player are inserted in correct order 
+    *  Effectively, we compare to NoteRecorder.toString(), check if our additions to player are inserted in correct order 
     *       for correct duration. The method is almost identical to play except for the duration scaling done in tupletPlay
     */
    
    //Tests tupletPlay of a Chord followed by Note, length = 2
    @Test
-   public void testTupletPlayChordNoteLengthTwo() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testTupletPlayChordNoteLengthTwo(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        int length = 2;
        double durationFactor = 1.5;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        CHORD_MIDDLE_C_AND_C_FLAT.tupletPlay(player, start, length);
        MIDDLE_C_NOTE.tupletPlay(player, start + CHORD_MIDDLE_C_AND_C_FLAT.duration() * durationFactor, length);
        
@@ -331,14 +323,13 @@ public class ChordTestPlay extends ChordTest{
    
    //Tests tupletPlay of a Chord followed by Note, length = 3
    @Test
-   public void testTupletPlayChordNoteLengthThree() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testTupletPlayChordNoteLengthThree(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        int length = 3;
        double durationFactor = 2.0/3.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        CHORD_MIDDLE_C_AND_C_FLAT.tupletPlay(player, start, length);
        MIDDLE_C_NOTE.tupletPlay(player, start + CHORD_MIDDLE_C_AND_C_FLAT.duration() * durationFactor, length);
        MIDDLE_G_NOTE.tupletPlay(player, start + CHORD_MIDDLE_C_AND_C_FLAT.duration() * durationFactor
@@ -414,14 +405,13 @@ public class ChordTestPlay extends ChordTest{
    
    //Tests tupletPlay of a Chord followed by Note, length = 4
    @Test
-   public void testTupletPlayChordNoteLengthFour() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testTupletPlayChordNoteLengthFour(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        int length = 4;
        double durationFactor = 0.75;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        CHORD_MIDDLE_C_AND_C_FLAT.tupletPlay(player, start, length);
        MIDDLE_C_NOTE.tupletPlay(player, start + CHORD_MIDDLE_C_AND_C_FLAT.duration() * durationFactor, length);
        MIDDLE_G_NOTE.tupletPlay(player, start + CHORD_MIDDLE_C_AND_C_FLAT.duration() * durationFactor
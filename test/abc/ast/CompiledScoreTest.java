@@ -0,0 +1,167 @@
+package abc.ast;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import abc.sound.Pitch;
+
+/**
+ * Tests for CompiledScore and Music.compile, which builds one.
+ */
+public class CompiledScoreTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for CompiledScore.compile(music, ticksPerBeat):
+     *      music is a Note, Rest, Chord, Tuplet, Concat, Sequence, Measure, Repeat, Voice, Piece
+     *      music has no notes, one voice, several voices whose notes interleave in time
+     *      ticksPerBeat makes every note whole, does not
+     * Testing strategy for CompiledScore.compile(music):
+     *      ticks per beat chosen by Music.ticksPerBeat
+     * Testing strategy for Builder:
+     *      ticksPerBeat is not positive; more notes than the initial capacity
+     * Testing strategy for CompiledScore.of:
+     *      notes valid, arrays copied; arrays of different lengths, starts out of order, voice out of range
+     * Testing strategy for equals, hashCode
+     */
+
+    private static final Pitch C = new Pitch('C');
+    private static final Pitch E = new Pitch('E');
+    private static final Pitch G = new Pitch('G');
+    private static final Note C_HALF = new Note(Rational.of(1, 2), C);
+    private static final Note E_HALF = new Note(Rational.of(1, 2), E);
+    private static final Note G_ONE = new Note(Rational.ONE, G);
+
+    private static String notes(CompiledScore score) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < score.size(); i++) {
+            out.append(score.startTick(i)).append(':').append(score.durationTicks(i)).append(':')
+                .append(score.pitch(i)).append(':').append(score.voice(i)).append(' ');
+        }
+        return out.toString().trim();
+    }
+
+    //covers Rest, no notes
+    @Test
+    public void noNotes(){
+        CompiledScore score = CompiledScore.compile(new Rest(2), 4);
+        assertEquals("No notes", 0, score.size());
+        assertEquals("End tick", 0, score.endTick());
+        assertEquals("No voices", Collections.emptyList(), score.voiceNames());
+    }
+    //covers Note, Chord, Sequence, one voice outside any Voice
+    @Test
+    public void chordAndNotes(){
+        Chord chord = new Chord(Arrays.asList(C_HALF, E_HALF), Rational.of(1, 2));
+        Music music = new Sequence(Arrays.asList(chord, new Rest(Rational.of(1, 2)), G_ONE));
+        CompiledScore score = CompiledScore.compile(music, 2);
+        assertEquals("Notes", "0:1:60:0 0:1:64:0 2:2:67:0", notes(score));
+        assertEquals("One unnamed voice", Arrays.asList(""), score.voiceNames());
+        assertEquals("End tick", 4, score.endTick());
+        assertEquals("Ticks per beat", 2, score.ticksPerBeat());
+    }
+    //covers Tuplet with a chord, whole ticks
+    @Test
+    public void tuplet(){
+        Chord chord = new Chord(Arrays.asList(C_HALF, E_HALF), Rational.of(1, 2));
+        Tuplet triplet = new Tuplet(Arrays.<NoteOrChord>asList(C_HALF, chord, E_HALF), 3);
+        CompiledScore score = CompiledScore.compile(triplet, 3);
+        assertEquals("Triplet eighths should last a third of a beat", "0:1:60:0 1:1:60:0 1:1:64:0 2:1:64:0", notes(score));
+    }
+    //covers ticks per beat that does not make every note whole
+    @Test
+    public void partialTicks(){
+        Tuplet triplet = new Tuplet(Arrays.<NoteOrChord>asList(C_HALF, C_HALF, C_HALF), 3);
+        CompiledScore score = CompiledScore.compile(triplet, 2);
+        assertEquals("Notes should start and end on the tick their time falls in", "0:0:60:0 0:1:60:0 1:1:60:0", notes(score));
+    }
+    //covers Concat, Measure, Repeat with two endings
+    @Test
+    public void repeat(){
+        Music repeated = new Measure(new Concat(C_HALF, E_HALF), Rational.ONE);
+        Repeat repeat = new Repeat(repeated, new Measure(G_ONE, Rational.ONE), new Measure(C_HALF, Rational.ONE));
+        CompiledScore score = CompiledScore.compile(repeat, 2);
+        assertEquals("Repeat should be played out", "0:1:60:0 1:1:64:0 2:2:67:0 4:1:60:0 5:1:64:0 6:1:60:0", notes(score));
+    }
+    //covers Voice, Piece with interleaved voices
+    @Test
+    public void voicesSortedByTime(){
+        Voice upper = new Voice(new Sequence(Arrays.asList(G_ONE, G_ONE)), "upper");
+        Voice lower = new Voice(new Sequence(Arrays.asList(C_HALF, C_HALF, C_HALF, C_HALF)), "lower");
+        CompiledScore score = CompiledScore.compile(new Piece(Arrays.asList(upper, lower)), 2);
+        assertEquals("Notes should be sorted by start, voices in order at the same tick",
+                "0:2:67:0 0:1:60:1 1:1:60:1 2:2:67:0 2:1:60:1 3:1:60:1", notes(score));
+        assertEquals("Voice names", Arrays.asList("upper", "lower"), score.voiceNames());
+        assertEquals("End tick", 4, score.endTick());
+    }
+    //covers ticks per beat chosen by Music.ticksPerBeat, parsed music
+    @Test
+    public void chosenTicksPerBeat(){
+        TuneHeader header = Music.parseHeader("X:1\nT:t\nL:1/4\nK:C\n(3CDE F|\n");
+        CompiledScore score = CompiledScore.compile(Music.parseBody(header));
+        assertEquals("Triplets need three ticks per beat", 3, score.ticksPerBeat());
+        assertEquals("Notes", "0:2:60:0 2:2:62:0 4:2:64:0 6:3:65:0", notes(score));
+    }
+    //covers more notes than the initial capacity
+    @Test
+    public void manyNotes(){
+        final int count = 1000;
+        Note[] notes = new Note[count];
+        Arrays.fill(notes, G_ONE);
+        CompiledScore score = CompiledScore.compile(new Sequence(Arrays.asList(notes)), 1);
+        assertEquals("Size", count, score.size());
+        assertEquals("Last note", count - 1, score.startTick(count - 1));
+        assertEquals("End tick", count, score.endTick());
+    }
+    //covers ticks per beat not positive
+    @Test(expected=IllegalArgumentException.class)
+    public void zeroTicksPerBeat(){
+        new CompiledScore.Builder(0);
+    }
+    //covers of with valid notes, arrays copied
+    @Test
+    public void ofNotes(){
+        int[] starts = {0, 2};
+        CompiledScore score = CompiledScore.of(4, starts, new int[] {2, 4}, new int[] {60, 67}, new int[] {0, 0},
+                Collections.singletonList(""));
+        starts[1] = 5;
+        assertEquals("Same as compiled", CompiledScore.compile(new Sequence(Arrays.asList(C_HALF, G_ONE)), 4), score);
+        assertEquals("Notes", "0:2:60:0 2:4:67:0", notes(score));
+        assertEquals("End tick", 6, score.endTick());
+    }
+    //covers of with arrays of different lengths
+    @Test(expected=IllegalArgumentException.class)
+    public void ofDifferentLengths(){
+        CompiledScore.of(1, new int[] {0}, new int[] {1}, new int[0], new int[] {0}, Collections.singletonList(""));
+    }
+    //covers of with starts out of order
+    @Test(expected=IllegalArgumentException.class)
+    public void ofUnsorted(){
+        CompiledScore.of(1, new int[] {1, 0}, new int[] {1, 1}, new int[] {60, 60}, new int[] {0, 0},
+                Collections.singletonList(""));
+    }
+    //covers of with a voice out of range
+    @Test(expected=IllegalArgumentException.class)
+    public void ofNoSuchVoice(){
+        CompiledScore.of(1, new int[] {0}, new int[] {1}, new int[] {60}, new int[] {1}, Collections.singletonList(""));
+    }
+    //covers equals, hashCode
+    @Test
+    public void equality(){
+        Music music = new Sequence(Arrays.asList(C_HALF, G_ONE));
+        CompiledScore score = CompiledScore.compile(music, 2);
+        CompiledScore same = CompiledScore.compile(new Sequence(Arrays.asList(C_HALF, G_ONE)), 2);
+        assertEquals("Same notes should be equal", score, same);
+        assertEquals("Equal scores should have equal hash codes", score.hashCode(), same.hashCode());
+        assertNotEquals("Different ticks per beat", score, CompiledScore.compile(music, 4));
+        assertNotEquals("Transposed", score, CompiledScore.compile(music.transpose(1), 2));
+    }
+}
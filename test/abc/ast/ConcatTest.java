@@ -47,6 +47,7 @@ public class ConcatTest {
      *      duration is zero
      *      duration is whole number
      *      duration is not whole number
+     *      Concat is a long left-nested chain
      */    
     //covers zero duration
     @Test
@@ -64,6 +65,20 @@ public class ConcatTest {
         assertEquals("Duration should be 8.14", 8.14, CONCAT_MIDDLE_C_NOTE_PI_DURATION.duration(), 0);
     }
     
+    //covers a long left-nested chain, whose duration and hashCode are kept rather than recomputed
+    @Test
+    public void longChainDuration(){
+        final int notes = 100000;
+        Music chain = ZERO_DURATION;
+        Music another = ZERO_DURATION;
+        for (int i = 0; i < notes; i++) {
+            chain = new Concat(chain, ONE_DURATION);
+            another = new Concat(another, ANOTHER_ONE_DURATION);
+        }
+        assertEquals("Duration should be the number of notes", Rational.valueOf(notes), chain.exactDuration());
+        assertEquals("Equal chains should have equal hash codes", chain.hashCode(), another.hashCode());
+    }
+    
     /*
      * Testing strategy for transpose(int semitones):
      *      semitones is 0, >0, <0
@@ -2,17 +2,13 @@ package abc.ast;
 
 import static org.junit.Assert.assertTrue;
 
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiUnavailableException;
-
 import org.junit.Test;
 
-import abc.sound.SequencePlayer;
+import abc.sound.NoteRecorder;
 
 /**
  * 
- * Subclass of ConcatTest to test the play method, which uses a SequencePlayer
- * @category no_didit
+ * Subclass of ConcatTest to test the play method, which uses a NoteRecorder
  *
  */
 public class ConcatTestPlay extends ConcatTest{
@@ -23,23 +19,22 @@ public class ConcatTestPlay extends ConcatTest{
     private static final int NONZERO_START = 3;
     
    /*
-    * Testing strategy for play(SequencePlayer player, double start):
+    * Testing strategy for play(EventSink player, double start):
     *      Concat followed by Note
     *      Note followed by one Concat followed by Note
     *      Note followed by multiple Concats followed by Note
     *      
-    *  Effectively, we compare to SequencePlayer.toString(), check if our additions to player are inserted in correct order 
+    *  Effectively, we compare to NoteRecorder.toString(), check if our additions to player are inserted in correct order 
     *       for correct duration
     */
    
    //Tests play of a Concat followed by Note
    @Test
-   public void testPlayConcatNote() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayConcatNote(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        CONCAT_C_FLAT_NOTE_ONE_DURATION.play(player, start);
        MIDDLE_C_NOTE.play(player, start + CONCAT_C_FLAT_NOTE_ONE_DURATION.duration());
        
@@ -77,12 +72,11 @@ public class ConcatTestPlay extends ConcatTest{
    
    //Tests play of a Note followed by one Concat followed by Note
    @Test
-   public void testPlayNoteSingleConcatNote() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayNoteSingleConcatNote(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        C_FLAT_NOTE.play(player, start);
        CONCAT_ZERO_DURATION_C_FLAT_NOTE.play(player, start + C_FLAT_NOTE.duration());
        MIDDLE_C_NOTE.play(player, start + C_FLAT_NOTE.duration() + CONCAT_ZERO_DURATION_C_FLAT_NOTE.duration());
@@ -135,12 +129,11 @@ public class ConcatTestPlay extends ConcatTest{
    
    //Tests play of a Note followed by multiple Concats followed by Note
    @Test
-   public void testPlayNoteMultipleConcatsNote() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayNoteMultipleConcatsNote(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        C_FLAT_NOTE.play(player, start);
        CONCAT_ZERO_DURATION_C_FLAT_NOTE.play(player, start + C_FLAT_NOTE.duration());
        CONCAT_C_FLAT_NOTE_ONE_DURATION.play(player, start + C_FLAT_NOTE.duration() + CONCAT_ZERO_DURATION_C_FLAT_NOTE.duration());
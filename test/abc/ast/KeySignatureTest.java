@@ -0,0 +1,79 @@
+package abc.ast;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for KeySignature.
+ */
+public class KeySignatureTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for valueOf(key):
+     *      key is major, minor; has no accidentals, sharps, flats, 6 of them; is an enharmonic name; not supported
+     * Testing strategy for semitones(basenote):
+     *      basenote upper case, lower case; sharped, flatted, natural
+     * Testing strategy for equals, hashCode, toString
+     */
+
+    private static final String LETTERS = "ABCDEFG";
+
+    private static String accidentals(KeySignature key) {
+        StringBuilder out = new StringBuilder();
+        for (char letter : LETTERS.toCharArray()) {
+            int semitones = key.semitones(letter);
+            out.append(semitones > 0 ? '^' : semitones < 0 ? '_' : '=');
+        }
+        return out.toString();
+    }
+
+    //covers major with no accidentals, relative minor
+    @Test
+    public void cMajorAndAMinor(){
+        assertEquals("C has no accidentals", "=======", accidentals(KeySignature.valueOf("C")));
+        assertEquals("Am has no accidentals", "=======", accidentals(KeySignature.valueOf("Am")));
+        assertEquals("Sharps", 0, KeySignature.valueOf("Am").sharps());
+    }
+    //covers sharps, six of them, lower case basenote
+    @Test
+    public void sharpKeys(){
+        assertEquals("D sharps F and C", "==^==^=", accidentals(KeySignature.valueOf("D")));
+        assertEquals("F# sharps all but B", "^=^^^^^", accidentals(KeySignature.valueOf("F#")));
+        assertEquals("D#m is F#", KeySignature.valueOf("F#").sharps(), KeySignature.valueOf("D#m").sharps());
+        assertEquals("f is sharp in E", 1, KeySignature.valueOf("E").semitones('f'));
+    }
+    //covers flats, six of them, minor
+    @Test
+    public void flatKeys(){
+        assertEquals("Bb flats B and E", "=_==_==", accidentals(KeySignature.valueOf("Bb")));
+        assertEquals("Cm flats B, E and A", "__==_==", accidentals(KeySignature.valueOf("Cm")));
+        assertEquals("Gb flats all but F", "_____=_", accidentals(KeySignature.valueOf("Gb")));
+        assertEquals("Sharps", -6, KeySignature.valueOf("Ebm").sharps());
+    }
+    //covers enharmonic names
+    @Test
+    public void enharmonicKeys(){
+        assertEquals("Cb sounds as B", accidentals(KeySignature.valueOf("B")), accidentals(KeySignature.valueOf("Cb")));
+        assertEquals("C# sounds as Db", accidentals(KeySignature.valueOf("Db")), accidentals(KeySignature.valueOf("C#")));
+        assertTrue("Every name is supported", KeySignature.names().contains("Bbm"));
+    }
+    //covers an unsupported key
+    @Test(expected=IllegalArgumentException.class)
+    public void unsupportedKey(){
+        KeySignature.valueOf("H");
+    }
+    //covers equals, hashCode and toString
+    @Test
+    public void equality(){
+        assertSame("Keys are made once", KeySignature.valueOf("G"), KeySignature.valueOf("G"));
+        assertNotEquals("Relative keys have different names", KeySignature.valueOf("G"), KeySignature.valueOf("Em"));
+        assertEquals("Hash code", KeySignature.valueOf("G").hashCode(), KeySignature.valueOf("G").hashCode());
+        assertEquals("toString is the name", "F#m", KeySignature.valueOf("F#m").toString());
+    }
+}
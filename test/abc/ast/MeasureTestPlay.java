@@ -2,17 +2,13 @@ package abc.ast;
 
 import static org.junit.Assert.assertTrue;
 
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiUnavailableException;
-
 import org.junit.Test;
 
-import abc.sound.SequencePlayer;
+import abc.sound.NoteRecorder;
 
 /**
  * 
- * Subclass of RepeatTest to test the play method, which uses a SequencePlayer
- * @category no_didit
+ * Subclass of RepeatTest to test the play method, which uses a NoteRecorder
  *
  */
 public class MeasureTestPlay extends MeasureTest{
@@ -23,22 +19,21 @@ public class MeasureTestPlay extends MeasureTest{
     private static final int NONZERO_START = 3;
     
    /*
-    * Testing strategy for play(SequencePlayer player, double start):
+    * Testing strategy for play(EventSink player, double start):
     *      Note followed by one Measure followed by Note
     *      Consecutive Measures
     *      
-    *  Effectively, we compare to SequencePlayer.toString(), check if our additions to player are inserted in correct order 
+    *  Effectively, we compare to NoteRecorder.toString(), check if our additions to player are inserted in correct order 
     *       for correct duration
     */
    
    //Tests play of a Note followed by one Measure followed by Note
    @Test
-   public void testPlayNoteSingleMeasureNote() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayNoteSingleMeasureNote(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        MIDDLE_G_NOTE.play(player, start);
        WHOLE_DURATION_MEASURE.play(player, start + MIDDLE_G_NOTE.duration());
        MIDDLE_C_NOTE.play(player, start + MIDDLE_G_NOTE.duration() + WHOLE_DURATION_MEASURE.duration());
@@ -126,12 +121,11 @@ public class MeasureTestPlay extends MeasureTest{
    
    //Tests play of consecutive measures
    @Test
-   public void testPlayNoteConsecutiveMeasuresNote() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayNoteConsecutiveMeasuresNote(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        WHOLE_DURATION_MEASURE.play(player, start);
        DECIMAL_DURATION_MEASURE.play(player, start + WHOLE_DURATION_MEASURE.duration());
        
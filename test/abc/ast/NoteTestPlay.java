@@ -2,17 +2,13 @@ package abc.ast;
 
 import static org.junit.Assert.*;
 
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiUnavailableException;
-
 import org.junit.Test;
 
+import abc.sound.NoteRecorder;
 import abc.sound.Pitch;
-import abc.sound.SequencePlayer;
 
 /**
- * Subclass of NoteTest to test the play and tupletPlay methods, which uses a SequencePlayer
- * @category no_didit
+ * Subclass of NoteTest to test the play and tupletPlay methods, which uses a NoteRecorder
  */
 
 public class NoteTestPlay extends NoteTest{
@@ -27,12 +23,11 @@ public class NoteTestPlay extends NoteTest{
     
     //Tests play of a single note zero duration
     @Test
-    public void testPlaySingleNoteZeroDuration() throws MidiUnavailableException, InvalidMidiDataException{
+    public void testPlaySingleNoteZeroDuration(){
         int ticksPerBeat = 1000;
-        int beatsPerMinute = 1000;
         double start = 0.0;
         
-        SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+        NoteRecorder player = new NoteRecorder(ticksPerBeat);
         NO_DURATION_NOTE.play(player, start);
         
         String piece = player.toString();
@@ -55,12 +50,11 @@ public class NoteTestPlay extends NoteTest{
     
     //Tests play of a single note nonzero duration
     @Test
-    public void testPlaySingleNoteNonzeroDuration() throws MidiUnavailableException, InvalidMidiDataException{
+    public void testPlaySingleNoteNonzeroDuration(){
         int ticksPerBeat = 1000;
-        int beatsPerMinute = 1000;
         double start = 0.0;
         
-        SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+        NoteRecorder player = new NoteRecorder(ticksPerBeat);
         MID_C.play(player, start);
         
         String piece = player.toString();
@@ -83,12 +77,11 @@ public class NoteTestPlay extends NoteTest{
     
     //Tests play of multiple notes
     @Test
-    public void testPlayMultipleNotes() throws MidiUnavailableException, InvalidMidiDataException{
+    public void testPlayMultipleNotes(){
         int ticksPerBeat = 1000;
-        int beatsPerMinute = 1000;
         double start = 0.0;
         
-        SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+        NoteRecorder player = new NoteRecorder(ticksPerBeat);
         MID_C.play(player, start);
         MID_C.play(player, start + MID_C.duration());
         
@@ -127,23 +120,22 @@ public class NoteTestPlay extends NoteTest{
     }
     
     /**
-     * Testing strategy for tupletPlay(SequencePlayer player, double start, int length):
+     * Testing strategy for tupletPlay(EventSink player, double start, int length):
      *      Note followed by Note
      *      Length = 2, 3, 4
      *      
-     *  Effectively, we compare to SequencePlayer.toString(), check if our additions to player are inserted in correct order 
+     *  Effectively, we compare to NoteRecorder.toString(), check if our additions to player are inserted in correct order 
      *       for correct duration. The method is almost identical to play except for the duration scaling done in tupletPlay
      */
     //Tests tupletPlay of a Note followed by Note, length = 2
     @Test
-    public void testTupletPlayLengthTwo() throws MidiUnavailableException, InvalidMidiDataException{
+    public void testTupletPlayLengthTwo(){
         int ticksPerBeat = 1000;
-        int beatsPerMinute = 1000;
         double start = 0.0;
         int length = 2;
         double durationFactor = 1.5;
         
-        SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+        NoteRecorder player = new NoteRecorder(ticksPerBeat);
         MID_C.tupletPlay(player, start, length);
         MID_C.tupletPlay(player, start + MID_C.duration() * durationFactor, length);
         
@@ -183,14 +175,13 @@ public class NoteTestPlay extends NoteTest{
     
     //Tests tupletPlay of a Note followed by Note, length = 3
     @Test
-    public void testTupletPlayLengthThree() throws MidiUnavailableException, InvalidMidiDataException{
+    public void testTupletPlayLengthThree(){
         int ticksPerBeat = 1000;
-        int beatsPerMinute = 1000;
         double start = 0.0;
         int length = 3;
         double durationFactor = 2.0/3.0;
         
-        SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+        NoteRecorder player = new NoteRecorder(ticksPerBeat);
         MID_C.tupletPlay(player, start, length);
         MID_C.tupletPlay(player, start + MID_C.duration() * durationFactor, length);
         C_FLAT_NOTE.tupletPlay(player, start + MID_C.duration() * durationFactor + MID_C.duration() * durationFactor, length);
@@ -212,7 +203,7 @@ public class NoteTestPlay extends NoteTest{
         String expectedPitchThirdNote = C_FLAT_NOTE.getPitch().toMidiNote() + "";
         String expectedStartNote3 = (int)(MID_C.duration() * durationFactor * ticksPerBeat * 2) + "";
         String expectedEndNote3 = (int)(MID_C.duration() * durationFactor * ticksPerBeat * 2 
-                + C_FLAT_NOTE.duration() * durationFactor * ticksPerBeat)-1 + "";
+                + C_FLAT_NOTE.duration() * durationFactor * ticksPerBeat) + "";
 
         //Test NOTE_ON of event 1
         assertTrue(events[0].contains("NOTE_ON"));
@@ -247,14 +238,13 @@ public class NoteTestPlay extends NoteTest{
     
   //Tests tupletPlay of a Note followed by Note, length = 4
     @Test
-    public void testTupletPlayLengthFour() throws MidiUnavailableException, InvalidMidiDataException{
+    public void testTupletPlayLengthFour(){
         int ticksPerBeat = 1000;
-        int beatsPerMinute = 1000;
         double start = 0.0;
         int length = 4;
         double durationFactor = 0.75;
         
-        SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+        NoteRecorder player = new NoteRecorder(ticksPerBeat);
         MID_C.tupletPlay(player, start, length);
         MID_C.tupletPlay(player, start + MID_C.duration() * durationFactor, length);
         C_FLAT_NOTE.tupletPlay(player, start + MID_C.duration() * durationFactor + MID_C.duration() * durationFactor, length);
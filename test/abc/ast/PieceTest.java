@@ -304,4 +304,35 @@ public class PieceTest {
         assertEquals("Should be true", true, DECIMAL_DURATION_PIECE_TWO_VOICES.equals(ANOTHER_DECIMAL_DURATION_PIECE_TWO_VOICES));
         assertEquals("Hashcode should be same", DECIMAL_DURATION_PIECE_TWO_VOICES.hashCode(), ANOTHER_DECIMAL_DURATION_PIECE_TWO_VOICES.hashCode());
     }
-}
\ No newline at end of file
+
+    /*
+     * Testing strategy for minimalTicksPerBeat() and Music.ticksPerBeat(music):
+     *      every note lasts whole beats, some do not
+     *      voices need the same ticks per beat, different ones
+     *      minimal ticks per beat is at most MAX_TICKS_PER_BEAT, larger
+     */
+    //covers whole beats, one voice
+    @Test
+    public void wholeBeatsTicksPerBeat(){
+        assertEquals("Whole beats should need one tick per beat", 1, WHOLE_DURATION_PIECE_ONE_VOICE.minimalTicksPerBeat());
+        assertEquals("Ticks per beat", 1, Music.ticksPerBeat(WHOLE_DURATION_PIECE_ONE_VOICE));
+    }
+    //covers fractions of beats, voices needing different ticks per beat
+    @Test
+    public void voicesTicksPerBeat(){
+        Voice triplets = new Voice(new Tuplet(Arrays.asList(MIDDLE_C_NOTE, C_FLAT_NOTE, MIDDLE_C_NOTE), 3), UPPER);
+        Voice sixteenths = new Voice(new Concat(new Note(Rational.of(1, 4), MIDDLE_C), MIDDLE_G_NOTE), LOWER);
+        Piece piece = new Piece(Arrays.asList(triplets, sixteenths));
+        assertEquals("Triplets need thirds, sixteenths quarters", 12, piece.minimalTicksPerBeat());
+        assertEquals("3.14 and 3.5 beats need fiftieths", 50, PIECE_TWO_VOICES_MIDDLE_LOWER.minimalTicksPerBeat());
+        assertEquals("Ticks per beat", 50, Music.ticksPerBeat(PIECE_TWO_VOICES_MIDDLE_LOWER));
+    }
+    //covers minimal ticks per beat larger than MAX_TICKS_PER_BEAT
+    @Test
+    public void tooManyTicksPerBeat(){
+        Voice fine = new Voice(new Concat(new Note(Rational.of(1, 40000), MIDDLE_C), MIDDLE_G_NOTE), UPPER);
+        Piece piece = new Piece(Arrays.asList(fine));
+        assertEquals("Minimal ticks per beat", 40000, piece.minimalTicksPerBeat());
+        assertEquals("Ticks per beat should be capped", Music.MAX_TICKS_PER_BEAT, Music.ticksPerBeat(piece));
+    }
+}
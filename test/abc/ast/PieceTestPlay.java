@@ -2,17 +2,13 @@ package abc.ast;
 
 import static org.junit.Assert.assertTrue;
 
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiUnavailableException;
-
 import org.junit.Test;
 
-import abc.sound.SequencePlayer;
+import abc.sound.NoteRecorder;
 
 /**
  * 
- * Subclass of PieceTest to test the play method, which uses a SequencePlayer
- * @category no_didit
+ * Subclass of PieceTest to test the play method, which uses a NoteRecorder
  *
  */
 public class PieceTestPlay extends PieceTest{
@@ -23,21 +19,20 @@ public class PieceTestPlay extends PieceTest{
     private static final int NONZERO_START = 3;
     
    /*
-    * Testing strategy for play(SequencePlayer player, double start):
+    * Testing strategy for play(EventSink player, double start):
     *      Piece has 1 voice, >1 voice
     *      
-    *  Effectively, we compare to SequencePlayer.toString(), check if our additions to player are inserted in correct order 
+    *  Effectively, we compare to NoteRecorder.toString(), check if our additions to player are inserted in correct order 
     *       for correct duration
     */
    
    //Tests play of a Piece with 1 voice
    @Test
-   public void testPlayVoiceOneBar() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayVoiceOneBar(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        WHOLE_DURATION_PIECE_ONE_VOICE.play(player, start);
        
        String piece = player.toString();
@@ -92,12 +87,11 @@ public class PieceTestPlay extends PieceTest{
    
    //Tests play of a Piece with >1 voice
    @Test
-   public void testPlayPieceMoreThanOneVoice() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayPieceMoreThanOneVoice(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        PIECE_TWO_VOICES_MIDDLE_LOWER.play(player, start);
        
        String piece = player.toString();
@@ -0,0 +1,125 @@
+package abc.ast;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for Rational.
+ */
+public class RationalTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for of(numerator, denominator):
+     *      fraction in lowest terms, not in lowest terms; negative denominator; zero numerator; zero denominator
+     * Testing strategy for valueOf(double):
+     *      integer, dyadic fraction, repeating fraction, decimal, not finite
+     * Testing strategy for parse(text):
+     *      "n/d", "n", decimal, not a number
+     * Testing strategy for plus, minus, times, dividedBy:
+     *      same denominators, different denominators, result is an integer, result overflows
+     * Testing strategy for floorTicks(ticksPerBeat):
+     *      time is a whole number of ticks, between ticks; time is negative
+     * Testing strategy for compareTo, equals, hashCode, toString, doubleValue:
+     *      less, equal, greater; cross products overflow a long
+     */
+
+    //covers lowest terms, not lowest terms, negative denominator, zero numerator
+    @Test
+    public void reduced(){
+        assertEquals("Numerator", 2, Rational.of(4, 6).numerator());
+        assertEquals("Denominator", 3, Rational.of(4, 6).denominator());
+        assertEquals("Sign should move to the numerator", Rational.of(-1, 2), Rational.of(3, -6));
+        assertEquals("Denominator should be positive", 2, Rational.of(3, -6).denominator());
+        assertSame("Zero should be ZERO", Rational.ZERO, Rational.of(0, -5));
+        assertSame("One should be ONE", Rational.ONE, Rational.of(7, 7));
+    }
+    //covers zero denominator
+    @Test(expected=ArithmeticException.class)
+    public void zeroDenominator(){
+        Rational.of(1, 0);
+    }
+    //covers integer, dyadic fraction, repeating fraction, decimal
+    @Test
+    public void fromDouble(){
+        assertEquals("Integer", Rational.valueOf(3), Rational.valueOf(3.0));
+        assertEquals("Dyadic fraction", Rational.of(3, 8), Rational.valueOf(0.375));
+        assertEquals("Repeating fraction", Rational.of(1, 3), Rational.valueOf(1.0 / 3.0));
+        assertEquals("Repeating fraction", Rational.of(2, 3), Rational.valueOf(2.0 / 3.0));
+        assertEquals("Decimal", Rational.of(157, 50), Rational.valueOf(3.14));
+        assertEquals("Negative decimal", Rational.of(-1, 10), Rational.valueOf(-0.1));
+    }
+    //covers not finite
+    @Test(expected=ArithmeticException.class)
+    public void fromInfinity(){
+        Rational.valueOf(Double.POSITIVE_INFINITY);
+    }
+    //covers "n/d", "n", decimal
+    @Test
+    public void parse(){
+        assertEquals("Fraction", Rational.of(3, 4), Rational.parse("3/4"));
+        assertEquals("Fraction with spaces", Rational.of(1, 8), Rational.parse(" 1 / 8 "));
+        assertEquals("Integer", Rational.valueOf(100), Rational.parse("100"));
+        assertEquals("Decimal", Rational.of(1, 16), Rational.parse("0.0625"));
+    }
+    //covers not a number
+    @Test(expected=NumberFormatException.class)
+    public void parseNotANumber(){
+        Rational.parse("three");
+    }
+    //covers same denominators, different denominators, integer results
+    @Test
+    public void arithmetic(){
+        assertEquals("Same denominators", Rational.of(2, 3), Rational.of(1, 3).plus(Rational.of(1, 3)));
+        assertEquals("Different denominators", Rational.of(5, 6), Rational.of(1, 2).plus(Rational.of(1, 3)));
+        assertEquals("Thirds should sum to exactly one", Rational.ONE,
+                Rational.of(1, 3).plus(Rational.of(1, 3)).plus(Rational.of(1, 3)));
+        assertEquals("Minus", Rational.of(-1, 6), Rational.of(1, 3).minus(Rational.of(1, 2)));
+        assertEquals("Times", Rational.of(1, 2), Rational.of(3, 4).times(Rational.of(2, 3)));
+        assertEquals("Times long", Rational.valueOf(2), Rational.of(2, 3).times(3));
+        assertEquals("Divided by", Rational.of(9, 8), Rational.of(3, 4).dividedBy(Rational.of(2, 3)));
+        assertEquals("Max", Rational.of(3, 4), Rational.of(2, 3).max(Rational.of(3, 4)));
+        assertEquals("Gcd", 6, Rational.gcd(12, 18));
+        assertEquals("Lcm", 36, Rational.lcm(12, 18));
+    }
+    //covers result overflows
+    @Test(expected=ArithmeticException.class)
+    public void overflow(){
+        Rational.valueOf(Long.MAX_VALUE).plus(Rational.ONE);
+    }
+    //covers whole number of ticks, between ticks, negative time
+    @Test
+    public void ticks(){
+        assertEquals("Whole ticks", 48, Rational.of(2, 3).floorTicks(72));
+        assertTrue("Whole ticks", Rational.of(2, 3).isWholeTicks(72));
+        assertEquals("Between ticks should round down", 666, Rational.of(2, 3).floorTicks(1000));
+        assertFalse("Between ticks", Rational.of(2, 3).isWholeTicks(1000));
+        assertEquals("Negative time should round down", -667, Rational.of(-2, 3).floorTicks(1000));
+    }
+    //covers less, equal, greater, cross products overflowing a long
+    @Test
+    public void comparison(){
+        assertTrue("Less", Rational.of(1, 3).compareTo(Rational.of(1, 2)) < 0);
+        assertEquals("Equal", 0, Rational.of(2, 4).compareTo(Rational.of(1, 2)));
+        assertTrue("Greater", Rational.of(2, 3).compareTo(Rational.of(1, 2)) > 0);
+        Rational big = Rational.of(Long.MAX_VALUE, 3);
+        Rational bigger = Rational.of(Long.MAX_VALUE - 1, 2);
+        assertTrue("Overflowing cross products should still compare", big.compareTo(bigger) < 0);
+    }
+    //covers equals, hashCode, toString, doubleValue
+    @Test
+    public void equality(){
+        assertEquals("Equal fractions", Rational.of(1, 2), Rational.of(2, 4));
+        assertEquals("Equal hash codes", Rational.of(1, 2).hashCode(), Rational.of(2, 4).hashCode());
+        assertNotEquals("Different fractions", Rational.of(1, 2), Rational.of(1, 3));
+        assertEquals("Fraction string", "3/4", Rational.of(3, 4).toString());
+        assertEquals("Integer string", "-2", Rational.valueOf(-2).toString());
+        assertEquals("Double value", 0.75, Rational.of(3, 4).doubleValue(), 0);
+        assertEquals("Double value", 1.0 / 3.0, Rational.of(1, 3).doubleValue(), 0);
+    }
+}
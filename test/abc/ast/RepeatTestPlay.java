@@ -2,17 +2,13 @@ package abc.ast;
 
 import static org.junit.Assert.assertTrue;
 
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiUnavailableException;
-
 import org.junit.Test;
 
-import abc.sound.SequencePlayer;
+import abc.sound.NoteRecorder;
 
 /**
  * 
- * Subclass of RepeatTest to test the play method, which uses a SequencePlayer
- * @category no_didit
+ * Subclass of RepeatTest to test the play method, which uses a NoteRecorder
  *
  */
 public class RepeatTestPlay extends RepeatTest{
@@ -23,21 +19,20 @@ public class RepeatTestPlay extends RepeatTest{
     private static final int NONZERO_START = 3;
     
    /*
-    * Testing strategy for play(SequencePlayer player, double start):
+    * Testing strategy for play(EventSink player, double start):
     *      Measure followed by Repeat (because that's what happens in actual music)
     *      
-    *  Effectively, we compare to SequencePlayer.toString(), check if our additions to player are inserted in correct order 
+    *  Effectively, we compare to NoteRecorder.toString(), check if our additions to player are inserted in correct order 
     *       for correct duration
     */
    
    //Tests play of a Measure followed by a Repeat
    @Test
-   public void testPlayMeasureThenRepeat() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayMeasureThenRepeat(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        WHOLE_DURATION_MEASURE.play(player, start);
        DIFFERENT_END_REPEAT_SECOND_END_NOTE.play(player, start+WHOLE_DURATION_MEASURE.duration());
        
@@ -2,17 +2,13 @@ package abc.ast;
 
 import static org.junit.Assert.assertTrue;
 
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiUnavailableException;
-
 import org.junit.Test;
 
-import abc.sound.SequencePlayer;
+import abc.sound.NoteRecorder;
 
 /**
  * 
- * Subclass of RestTest to test the play method, which uses a SequencePlayer
- * @category no_didit
+ * Subclass of RestTest to test the play method, which uses a NoteRecorder
  *
  */
 public class RestTestPlay extends RestTest{
@@ -23,23 +19,22 @@ public class RestTestPlay extends RestTest{
     private static final int NONZERO_START = 3;
     
    /*
-    * Testing strategy for play(SequencePlayer player, double start):
+    * Testing strategy for play(EventSink player, double start):
     *      Rest followed by Note
     *      Note followed by one Rest followed by Note
     *      Note followed by multiple Rests followed by Note
     *      
-    * Effectively, we compare to SequencePlayer.toString(), check if our additions to player are inserted in correct order 
+    * Effectively, we compare to NoteRecorder.toString(), check if our additions to player are inserted in correct order 
     *       for correct duration 
     */
    
    //Tests play of a Rest followed by Note
    @Test
-   public void testPlayRestNote() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayRestNote(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        ONE_DURATION.play(player, start);
        MIDDLE_C_NOTE.play(player, start + ONE_DURATION.duration());
        
@@ -63,12 +58,11 @@ public class RestTestPlay extends RestTest{
    
    //Tests play of a Note followed by one Rest followed by Note
    @Test
-   public void testPlayNoteSingleRestNote() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayNoteSingleRestNote(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        C_FLAT_NOTE.play(player, start);
        ONE_DURATION.play(player, start + C_FLAT_NOTE.duration());
        MIDDLE_C_NOTE.play(player, start + C_FLAT_NOTE.duration() + ONE_DURATION.duration());
@@ -111,12 +105,11 @@ public class RestTestPlay extends RestTest{
    
    //Tests play of a Note followed by multiple Rests followed by Note
    @Test
-   public void testPlayNoteMultipleRestsNote() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayNoteMultipleRestsNote(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        C_FLAT_NOTE.play(player, start);
        ONE_DURATION.play(player, start + C_FLAT_NOTE.duration());
        PI_DURATION.play(player, start + C_FLAT_NOTE.duration() + ONE_DURATION.duration());
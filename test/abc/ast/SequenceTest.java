@@ -0,0 +1,116 @@
+package abc.ast;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import abc.sound.Pitch;
+
+/**
+ * Tests for the Sequence concrete variant of the Music data type.
+ */
+public class SequenceTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for duration(), exactDuration() and startOf(index):
+     *      no pieces, one piece, several pieces; pieces with fractional durations
+     *      index is the first piece, a later piece, the end
+     * Testing strategy for transpose, transposePitch:
+     *      semitones is 0, > 0; pitch matches some pieces
+     * Testing strategy for getMusic:
+     *      list is unmodifiable
+     * Testing strategy for long sequences:
+     *      many pieces are measured, transposed and compared without recursion
+     * Testing strategy for equals, hashCode, toString
+     */
+
+    private static final Pitch MIDDLE_C = new Pitch('C');
+    private static final Pitch MIDDLE_G = new Pitch('G');
+    private static final Note MIDDLE_C_NOTE = new Note(1.0, MIDDLE_C);
+    private static final Note MIDDLE_G_NOTE = new Note(3.5, MIDDLE_G);
+    private static final Note THIRD_NOTE = new Note(Rational.of(1, 3), MIDDLE_C);
+    private static final Rest PI_DURATION = new Rest(3.14);
+
+    private static final Sequence EMPTY = new Sequence(Collections.<Music>emptyList());
+    private static final Sequence C_G_PI = new Sequence(Arrays.asList(MIDDLE_C_NOTE, MIDDLE_G_NOTE, PI_DURATION));
+
+    //covers no pieces
+    @Test
+    public void emptyDuration(){
+        assertEquals("Duration should be 0", Rational.ZERO, EMPTY.exactDuration());
+        assertEquals("End should be 0", Rational.ZERO, EMPTY.startOf(0));
+    }
+    //covers several pieces, fractional durations, every index
+    @Test
+    public void startsAndDuration(){
+        assertEquals("First piece should start at 0", Rational.ZERO, C_G_PI.startOf(0));
+        assertEquals("Second piece should start after the first", Rational.ONE, C_G_PI.startOf(1));
+        assertEquals("Third piece", Rational.of(9, 2), C_G_PI.startOf(2));
+        assertEquals("End should be the duration", C_G_PI.exactDuration(), C_G_PI.startOf(3));
+        assertEquals("Duration should be 7.64", 7.64, C_G_PI.duration(), 1e-12);
+    }
+    //covers one piece, a duration with no exact double
+    @Test
+    public void thirdsDuration(){
+        Sequence thirds = new Sequence(Arrays.asList(THIRD_NOTE, THIRD_NOTE, THIRD_NOTE));
+        assertEquals("Three thirds should last exactly one beat", Rational.ONE, thirds.exactDuration());
+        assertEquals("One piece", Rational.of(1, 3), new Sequence(Arrays.asList(THIRD_NOTE)).exactDuration());
+        assertEquals("Thirds need three ticks per beat", 3, thirds.minimalTicksPerBeat());
+    }
+    //covers semitones 0 and > 0
+    @Test
+    public void transpose(){
+        assertEquals("Transposing by 0 should give an equal sequence", C_G_PI, C_G_PI.transpose(0));
+        Sequence expected = new Sequence(Arrays.asList(MIDDLE_C_NOTE.transpose(2), MIDDLE_G_NOTE.transpose(2), PI_DURATION));
+        assertEquals("Every note should be transposed", expected, C_G_PI.transpose(2));
+    }
+    //covers pitch matching some pieces
+    @Test
+    public void transposePitch(){
+        Sequence expected = new Sequence(Arrays.asList(MIDDLE_C_NOTE, MIDDLE_G_NOTE.transpose(1), PI_DURATION));
+        assertEquals("Only G should be transposed", expected, C_G_PI.transposePitch(MIDDLE_G, 1));
+    }
+    //covers getMusic unmodifiable
+    @Test(expected=UnsupportedOperationException.class)
+    public void musicUnmodifiable(){
+        assertEquals("Pieces in order", Arrays.asList(MIDDLE_C_NOTE, MIDDLE_G_NOTE, PI_DURATION), C_G_PI.getMusic());
+        C_G_PI.getMusic().set(0, PI_DURATION);
+    }
+    //covers many pieces
+    @Test
+    public void longSequence(){
+        final int notes = 100000;
+        List<Music> music = new ArrayList<>();
+        for (int i = 0; i < notes; i++) {
+            music.add(i % 2 == 0 ? MIDDLE_C_NOTE : THIRD_NOTE);
+        }
+        Sequence sequence = new Sequence(music);
+        assertEquals("Duration", Rational.of(notes / 2 * 4, 3), sequence.exactDuration());
+        assertEquals("Last piece should start after all the others", Rational.of(notes / 2 * 4 - 1, 3),
+                sequence.startOf(notes - 1));
+        assertEquals("Transposing by 0 should give an equal sequence", sequence, sequence.transpose(0));
+    }
+    //covers equals, hashCode, toString
+    @Test
+    public void equality(){
+        Sequence same = new Sequence(Arrays.asList(new Note(1, MIDDLE_C), MIDDLE_G_NOTE, new Rest(3.14)));
+        assertEquals("Equal pieces should be equal", C_G_PI, same);
+        assertEquals("Equal sequences should have equal hash codes", C_G_PI.hashCode(), same.hashCode());
+        assertNotEquals("Different order should not be equal",
+                new Sequence(Arrays.asList(MIDDLE_G_NOTE, MIDDLE_C_NOTE, PI_DURATION)), C_G_PI);
+        assertNotEquals("A Concat of the same pieces is a different variant",
+                new Concat(MIDDLE_C_NOTE, MIDDLE_G_NOTE), new Sequence(Arrays.asList(MIDDLE_C_NOTE, MIDDLE_G_NOTE)));
+        assertEquals("Pieces separated by spaces", "C1.0 G3.5 z3.14", C_G_PI.toString());
+        assertEquals("Empty", "", EMPTY.toString());
+    }
+}
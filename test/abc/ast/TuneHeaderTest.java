@@ -0,0 +1,116 @@
+package abc.ast;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for TuneHeader and for Music.parseHeader, which makes one.
+ */
+public class TuneHeaderTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for Music.parseHeader(CharSequence):
+     *      header has all fields, only the required fields X, T and K
+     *      meter is a fraction, C, C|; tempo given, not given
+     *      fractions with and without an exact double
+     *      key has no accidentals, sharps, flats, is not supported
+     *      body has one voice, several voices, a voice that appears more than once
+     * Testing strategy for TuneHeader:
+     *      key is looked up once as a KeySignature
+     *      voiceNames is unmodifiable
+     *      equals and hashCode
+     */
+
+    //covers all fields, fraction meter, tempo given, key with sharps, one voice
+    @Test
+    public void allFields(){
+        TuneHeader header = Music.parseHeader("X: 3\nT:Title\nC:Someone\nM:3/4\nL:1/8\nQ:1/4=140\nK:D\nA B c|\n");
+        assertEquals("Index", 3, header.index());
+        assertEquals("Title", "Title", header.title());
+        assertEquals("Composer", "Someone", header.composer());
+        assertEquals("Meter", Rational.of(3, 4), header.meter());
+        assertEquals("Default length", Rational.of(1, 8), header.defaultLength());
+        assertEquals("Tempo beat", Rational.of(1, 4), header.tempoBeat());
+        assertEquals("Tempo", 140, header.tempo());
+        assertEquals("Key", KeySignature.valueOf("D"), header.key());
+        assertEquals("Eighth notes should be half a beat", Rational.of(1, 2), header.beatsPerDefaultLength());
+        assertEquals("F should be sharp", 1, header.key().semitones('F'));
+        assertEquals("c should be sharp", 1, header.key().semitones('c'));
+        assertEquals("G should be natural", 0, header.key().semitones('G'));
+        assertEquals("One default voice", Arrays.asList("default"), header.voiceNames());
+        assertEquals("Voice music", "A B c|\n", header.voiceMusic("default"));
+        assertTrue("Text should be the header as written", header.text().startsWith("X: 3\nT:Title\n"));
+    }
+    //covers only required fields, missing tempo, key with flats
+    @Test
+    public void missingFields(){
+        TuneHeader header = Music.parseHeader("X:1\nT:Title\nK:Eb\nE|\n");
+        assertEquals("Composer", "Unknown", header.composer());
+        assertEquals("Meter", Rational.ONE, header.meter());
+        assertEquals("Default length", Rational.of(1, 8), header.defaultLength());
+        assertEquals("Tempo beat should be the default length", Rational.of(1, 8), header.tempoBeat());
+        assertEquals("Tempo", 100, header.tempo());
+        assertEquals("A should be flat", -1, header.key().semitones('a'));
+        assertEquals("B should be flat", -1, header.key().semitones('B'));
+        assertEquals("E should be flat", -1, header.key().semitones('E'));
+        assertEquals("C should be natural", 0, header.key().semitones('C'));
+    }
+    //covers common time and cut time meters with a short meter's default length
+    @Test
+    public void meterSymbols(){
+        assertEquals("C is 4/4", Rational.ONE, Music.parseHeader("X:1\nT:t\nM:C\nK:C\nC|\n").meter());
+        TuneHeader header = Music.parseHeader("X:1\nT:t\nM:2/4\nK:C\nC|\n");
+        assertEquals("Short meter should have sixteenth notes", Rational.of(1, 16), header.defaultLength());
+    }
+    //covers fractions that have no exact double, kept exact
+    @Test
+    public void exactFractions(){
+        TuneHeader header = Music.parseHeader("X:1\nT:t\nM:7/12\nL:1/12\nQ:1/3=90\nK:C\nC|\n");
+        assertEquals("Meter", Rational.of(7, 12), header.meter());
+        assertEquals("Default length", Rational.of(1, 12), header.defaultLength());
+        assertEquals("Tempo beat", Rational.of(1, 3), header.tempoBeat());
+        assertEquals("Twelfth notes should be a quarter of a beat", Rational.of(1, 4), header.beatsPerDefaultLength());
+    }
+    //covers several voices in order, a voice that appears more than once
+    @Test
+    public void voicesInOrder(){
+        TuneHeader header = Music.parseHeader("X:1\nT:t\nV:b\nV:a\nK:C\nV:b\nC|\nV:a\nD|\nV:b\nE|\n");
+        assertEquals("Voices should be in the order they first appear", Arrays.asList("b", "a"), header.voiceNames());
+        assertEquals("Lines of a voice should be joined", "C|\n\nE|\n", header.voiceMusic("b"));
+        assertEquals("Other voice", "D|\n", header.voiceMusic("a"));
+    }
+    //covers voiceNames being unmodifiable
+    @Test(expected=UnsupportedOperationException.class)
+    public void voiceNamesUnmodifiable(){
+        List<String> names = Music.parseHeader("X:1\nT:t\nK:C\nC|\n").voiceNames();
+        names.add("other");
+    }
+    //covers an unsupported key
+    @Test(expected=IllegalArgumentException.class)
+    public void unsupportedKey(){
+        Music.parseHeader("X:1\nT:t\nK:A#\nC|\n");
+    }
+    //covers equals and hashCode
+    @Test
+    public void equality(){
+        TuneHeader header = new TuneHeader(1, "t", "c", Rational.ONE, Rational.of(1, 8), Rational.of(1, 4), 100, KeySignature.valueOf("C"),
+                Collections.singletonMap("default", "C|\n"), "X:1\n");
+        TuneHeader same = new TuneHeader(1, "t", "c", Rational.ONE, Rational.of(1, 8), Rational.of(1, 4), 100, KeySignature.valueOf("C"),
+                Collections.singletonMap("default", "C|\n"), "X:1\n");
+        TuneHeader other = new TuneHeader(1, "t", "c", Rational.ONE, Rational.of(1, 8), Rational.of(1, 4), 120, KeySignature.valueOf("C"),
+                Collections.singletonMap("default", "C|\n"), "X:1\n");
+        assertEquals("Same fields should be equal", header, same);
+        assertEquals("Equal headers should have equal hash codes", header.hashCode(), same.hashCode());
+        assertNotEquals("Different tempo should not be equal", header, other);
+    }
+}
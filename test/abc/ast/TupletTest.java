@@ -80,6 +80,7 @@ public class TupletTest {
      *      duration is zero
      *      duration is not zero:
      *          duplet, triplet, quadruplet
+     *          triplet whose duration has no exact double
      */    
     //covers zero duration
     @Test
@@ -101,6 +102,36 @@ public class TupletTest {
     public void quadrupletDuration(){
         assertEquals("Duration should be 14.5 * 3 / 4", 14.5* 3 / 4, QUADRUPLET_WITH_CHORD.duration(), 0);
     }
+    //covers triplet whose duration has no exact double
+    @Test
+    public void exactTripletDuration(){
+        Note eighth = new Note(Rational.of(1, 2), MIDDLE_C);
+        Tuplet triplet = new Tuplet(Arrays.asList(eighth, eighth, eighth), 3);
+        assertEquals("Three triplet eighths should last exactly one beat", Rational.ONE, triplet.exactDuration());
+        Note third = new Note(Rational.of(1, 3), MIDDLE_C);
+        Tuplet thirds = new Tuplet(Arrays.asList(third, third, third), 3);
+        assertEquals("Duration should be exactly 2/3", Rational.of(2, 3), thirds.exactDuration());
+    }
+    
+    /*
+     * Testing strategy for minimalTicksPerBeat():
+     *      duplet, triplet, quadruplet; with a chord
+     */
+    //covers duplet
+    @Test
+    public void dupletTicksPerBeat(){
+        assertEquals("Duplet of whole beats should need halves", 2, DUPLET_MIDDLE_C_NOTE_C_FLAT_NOTE.minimalTicksPerBeat());
+    }
+    //covers triplet
+    @Test
+    public void tripletTicksPerBeat(){
+        assertEquals("Triplet should need thirds", 3, TRIPLET_C_FLAT_MIDDLE_G_MIDDLE_C.minimalTicksPerBeat());
+    }
+    //covers quadruplet with a chord
+    @Test
+    public void quadrupletTicksPerBeat(){
+        assertEquals("3.5 * 3 / 4 should need eighths", 8, QUADRUPLET_WITH_CHORD.minimalTicksPerBeat());
+    }
     
     /*
      * Testing strategy for transpose(int semitones):
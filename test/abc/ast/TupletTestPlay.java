@@ -2,17 +2,13 @@ package abc.ast;
 
 import static org.junit.Assert.assertTrue;
 
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiUnavailableException;
-
 import org.junit.Test;
 
-import abc.sound.SequencePlayer;
+import abc.sound.NoteRecorder;
 
 /**
  * 
- * Subclass of TupletTest to test the play method, which uses a SequencePlayer
- * @category no_didit
+ * Subclass of TupletTest to test the play method, which uses a NoteRecorder
  *
  */
 public class TupletTestPlay extends TupletTest{
@@ -23,24 +19,23 @@ public class TupletTestPlay extends TupletTest{
     private static final int NONZERO_START = 3;
     
    /*
-    * Testing strategy for play(SequencePlayer player, double start):
+    * Testing strategy for play(EventSink player, double start):
     *      Tuplet's length is 2, 3, 4
     *      Tuplet followed by Note
     *      
-    *  Effectively, we compare to SequencePlayer.toString(), check if our additions to player are inserted in correct order 
+    *  Effectively, we compare to NoteRecorder.toString(), check if our additions to player are inserted in correct order 
     *       for correct duration
     */
    
    //Tests play of a Duplet followed by Note, tuplet length is 2
    @Test
-   public void testPlayTupletNoteLengthTwo() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayTupletNoteLengthTwo(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        int length = 2;
        double durationFactor = 1.5;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        DUPLET_MIDDLE_C_NOTE_C_FLAT_NOTE.play(player, start);
        MIDDLE_C_NOTE.play(player, start + DUPLET_MIDDLE_C_NOTE_C_FLAT_NOTE.duration());
        
@@ -94,14 +89,13 @@ public class TupletTestPlay extends TupletTest{
    
    //Tests play of a Triplet followed by Note, tuplet length is 3
    @Test
-   public void testPlayTripletNoteLengthThree() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayTripletNoteLengthThree(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        int length = 3;
        double durationFactor = 2.0/3.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        TRIPLET_C_FLAT_MIDDLE_G_MIDDLE_C.play(player, start);
        MIDDLE_C_NOTE.play(player, start + TRIPLET_C_FLAT_MIDDLE_G_MIDDLE_C.duration());
        
@@ -125,8 +119,9 @@ public class TupletTestPlay extends TupletTest{
        
        String expectedPitchTripletMiddleG = MIDDLE_G_NOTE.getPitch().toMidiNote() + "";
        String expectedStartTripletMiddleG =  (int)((start + C_FLAT_NOTE.duration() * durationFactor) * ticksPerBeat) + "";
-       String expectedDurationTripletMiddleG = (int)((C_FLAT_NOTE.duration() * durationFactor
-               + MIDDLE_G_NOTE.duration() * durationFactor)* ticksPerBeat) + "";
+       // exactly 3 beats: summing the two thirds as doubles would fall just short of a tick
+       String expectedDurationTripletMiddleG = C_FLAT_NOTE.exactDuration().plus(MIDDLE_G_NOTE.exactDuration())
+               .times(Rational.of(2, 3)).floorTicks(ticksPerBeat) + "";
  
        //Test NOTE_ON event Triplet's MIDDLE_G_NOTE
        assertTrue(events[2].contains("NOTE_ON"));
@@ -139,9 +134,9 @@ public class TupletTestPlay extends TupletTest{
        assertTrue(events[3].contains(expectedDurationTripletMiddleG));
        
        String expectedPitchTripletMiddleC = MIDDLE_C_NOTE.getPitch().toMidiNote() + "";
-       String expectedStartTripletMiddleC =  (int)((start + C_FLAT_NOTE.duration() * durationFactor
-               + MIDDLE_G_NOTE.duration() * durationFactor)* ticksPerBeat) + "";
-       String expectedDurationTripletMiddleC = (int)((start + TRIPLET_C_FLAT_MIDDLE_G_MIDDLE_C.duration()) * ticksPerBeat - 1) + "";
+       String expectedStartTripletMiddleC =  C_FLAT_NOTE.exactDuration().plus(MIDDLE_G_NOTE.exactDuration())
+               .times(Rational.of(2, 3)).floorTicks(ticksPerBeat) + "";
+       String expectedDurationTripletMiddleC = (int)((start + TRIPLET_C_FLAT_MIDDLE_G_MIDDLE_C.duration()) * ticksPerBeat) + "";
        
        //Test NOTE_ON event Triplet's MIDDLE_C_NOTE
        assertTrue(events[4].contains("NOTE_ON"));
@@ -170,14 +165,13 @@ public class TupletTestPlay extends TupletTest{
    
  //Tests play of a Quadruplet followed by Note, tuplet length is 4
    @Test
-   public void testPlayQuadrupletNoteLengthFour() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayQuadrupletNoteLengthFour(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        int length = 4;
        double durationFactor = 0.75;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        QUADRUPLET_WITH_CHORD.play(player, start);
        MIDDLE_C_NOTE.play(player, start + QUADRUPLET_WITH_CHORD.duration());
        
@@ -2,17 +2,13 @@ package abc.ast;
 
 import static org.junit.Assert.assertTrue;
 
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiUnavailableException;
-
 import org.junit.Test;
 
-import abc.sound.SequencePlayer;
+import abc.sound.NoteRecorder;
 
 /**
  * 
- * Subclass of VoiceTest to test the play method, which uses a SequencePlayer
- * @category no_didit
+ * Subclass of VoiceTest to test the play method, which uses a NoteRecorder
  *
  */
 public class VoiceTestPlay extends VoiceTest{
@@ -23,21 +19,20 @@ public class VoiceTestPlay extends VoiceTest{
     private static final int NONZERO_START = 3;
     
    /*
-    * Testing strategy for play(SequencePlayer player, double start):
+    * Testing strategy for play(EventSink player, double start):
     *      Voice has 1 bar, >1 bar
     *      
-    *  Effectively, we compare to SequencePlayer.toString(), check if our additions to player are inserted in correct order 
+    *  Effectively, we compare to NoteRecorder.toString(), check if our additions to player are inserted in correct order 
     *       for correct duration
     */
    
    //Tests play of a Voice with 1 bar
    @Test
-   public void testPlayVoiceOneBar() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayVoiceOneBar(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        VOICE_ONE_BAR_UPPER.play(player, start);
        
        String piece = player.toString();
@@ -93,12 +88,11 @@ public class VoiceTestPlay extends VoiceTest{
    
    //Tests play of a Voice with >1 bar
    @Test
-   public void testPlayVoiceMoreThanOneBar() throws MidiUnavailableException, InvalidMidiDataException{
+   public void testPlayVoiceMoreThanOneBar(){
        int ticksPerBeat = 1000;
-       int beatsPerMinute = 1000;
        double start = 0.0;
        
-       SequencePlayer player = new SequencePlayer(beatsPerMinute, ticksPerBeat);
+       NoteRecorder player = new NoteRecorder(ticksPerBeat);
        VOICE_THREE_BAR_LOWER.play(player, start);
        MIDDLE_C_NOTE.play(player, start + VOICE_THREE_BAR_LOWER.duration());
        
@@ -0,0 +1,228 @@
+package abc.cache;
+
+import static abc.TestFiles.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests for PieceCache and ParsedTune, each using a fresh temporary folder.
+ */
+public class PieceCacheTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for PieceCache.load:
+     *      file not cached, cached and unchanged, cached and modified since; same file by another path
+     *      ticks per beat 0, the same as cached, other than cached
+     *      cache full: evicts the least recently used, evicts several; a tune larger than the cache
+     *      file missing; loaded from several threads at once
+     *      backed by a TuneCache: entry on disk, no entry on disk; other ticks per beat than on disk
+     * Testing strategy for PieceCache:
+     *      size limit not positive; clear; toString
+     * Testing strategy for ParsedTune.withTicksPerBeat:
+     *      same ticks per beat, other ticks per beat, 0; tune made from a CachedTune
+     */
+
+    private static final String SCALE = "X:1\nT:Scale\nM:4/4\nL:1/4\nQ:1/4=120\nK:C\nC D E F | G A B c |]\n";
+    private static final String SHORT = "X:2\nT:Short\nM:4/4\nL:1/4\nK:C\nC4 |]\n";
+    private static final String EIGHTHS = "X:3\nT:Eighths\nM:4/4\nL:1/8\nK:C\nC D E F G A B c |]\n";
+
+    private static long bytes(String text) {
+        return PieceCache.estimateBytes(ParsedTune.parse(text, 0));
+    }
+
+    //covers not cached, cached and unchanged, same file by another path, ticks per beat 0
+    @Test
+    public void hitsAndMisses() throws IOException {
+        Path folder = tempFolder();
+        try {
+            PieceCache cache = new PieceCache();
+            Path file = write(folder, "scale.abc", SCALE);
+            ParsedTune first = cache.load(file, 0);
+            assertEquals("Same as parsing", ParsedTune.parse(SCALE, 0), first);
+            assertEquals("Missed", 1, cache.misses());
+            assertSame("Same tune again", first, cache.load(file, 0));
+            assertSame("Same file by another path", first, cache.load(folder.resolve("x/../scale.abc"), 0));
+            assertEquals("Hits", 2, cache.hits());
+            assertEquals("One entry", 1, cache.size());
+            assertEquals("Its size", bytes(SCALE), cache.bytes());
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers cached and modified since
+    @Test
+    public void modified() throws IOException {
+        Path folder = tempFolder();
+        try {
+            PieceCache cache = new PieceCache();
+            Path file = write(folder, "tune.abc", SCALE);
+            cache.load(file, 0);
+            write(folder, "tune.abc", SHORT);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+            assertEquals("Parsed again", ParsedTune.parse(SHORT, 0), cache.load(file, 0));
+            assertEquals("Missed twice", 2, cache.misses());
+            assertEquals("Entry replaced", 1, cache.size());
+            assertEquals("Size replaced", bytes(SHORT), cache.bytes());
+            assertEquals("Not an eviction", 0, cache.evictions());
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers ticks per beat the same as cached, other than cached; withTicksPerBeat
+    @Test
+    public void ticksPerBeat() throws IOException {
+        Path folder = tempFolder();
+        try {
+            PieceCache cache = new PieceCache();
+            Path file = write(folder, "scale.abc", SCALE);
+            ParsedTune chosen = cache.load(file, 0);
+            assertSame("Same as chosen", chosen, cache.load(file, chosen.score().ticksPerBeat()));
+            ParsedTune twelve = cache.load(file, 12);
+            assertEquals("Compiled again", 12, twelve.score().ticksPerBeat());
+            assertSame("Without parsing", chosen.music(), twelve.music());
+            assertEquals("All hits", 1, cache.misses());
+            assertSame("Kept", twelve, cache.load(file, 12));
+            assertSame("Unchanged", twelve, twelve.withTicksPerBeat(12));
+            assertEquals("Chosen again", chosen, twelve.withTicksPerBeat(0));
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers backed by a TuneCache, entry on disk, no entry on disk, other ticks per beat than on disk,
+    //tune made from a CachedTune
+    @Test
+    public void backedByDisk() throws IOException {
+        Path folder = tempFolder();
+        try {
+            TuneCache disk = new TuneCache(folder.resolve("entries"));
+            Path scale = write(folder, "scale.abc", SCALE);
+            Path shortTune = write(folder, "short.abc", SHORT);
+            // an entry that is not the file's tune shows that the file was not parsed
+            disk.load(scale, 0);
+            byte[] key = TuneCache.key(Files.readAllBytes(scale), 0);
+            Files.write(disk.entry(key), TuneCodec.encode(CachedTune.parse(EIGHTHS, 0), key));
+
+            PieceCache cache = new PieceCache(PieceCache.DEFAULT_MAX_BYTES, disk);
+            ParsedTune loaded = cache.load(scale, 0);
+            assertEquals("From the disk entry", CachedTune.parse(EIGHTHS, 0).score(), loaded.score());
+            assertSame("Kept in memory", loaded, cache.load(scale, 0));
+            assertEquals("Hit", 1, cache.hits());
+            assertEquals("AST parsed from the cached header", ParsedTune.parse(EIGHTHS, 0).music(), loaded.music());
+            assertEquals("Compiled again", ParsedTune.parse(EIGHTHS, 12), cache.load(scale, 12));
+
+            assertEquals("Parsed and stored", ParsedTune.parse(SHORT, 0), cache.load(shortTune, 0));
+            assertTrue("On disk", Files.exists(disk.entry(TuneCache.key(Files.readAllBytes(shortTune), 0))));
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers cache full, evicts the least recently used, evicts several, a tune larger than the cache
+    @Test
+    public void eviction() throws IOException {
+        Path folder = tempFolder();
+        try {
+            Path scale = write(folder, "scale.abc", SCALE);
+            Path shortTune = write(folder, "short.abc", SHORT);
+            Path eighths = write(folder, "eighths.abc", EIGHTHS);
+            PieceCache cache = new PieceCache(bytes(SCALE) + bytes(EIGHTHS));
+            cache.load(scale, 0);
+            cache.load(shortTune, 0);
+            cache.load(scale, 0);
+            cache.load(eighths, 0);
+            assertEquals("Least recently used evicted", Arrays.asList(scale.toAbsolutePath(), eighths.toAbsolutePath()),
+                    new ArrayList<>(cache.tunes().keySet()));
+            assertEquals("One eviction", 1, cache.evictions());
+            assertTrue("Within the limit", cache.bytes() <= cache.maxBytes());
+
+            PieceCache small = new PieceCache(bytes(SHORT) + 1);
+            assertTrue("Too large to keep", bytes(EIGHTHS) > small.maxBytes());
+            small.load(shortTune, 0);
+            assertEquals("Still returned", ParsedTune.parse(EIGHTHS, 0), small.load(eighths, 0));
+            assertEquals("Not kept", 1, small.size());
+            assertEquals("Nothing evicted for it", 0, small.evictions());
+
+            PieceCache two = new PieceCache(bytes(SHORT) + bytes(SHORT));
+            two.load(shortTune, 0);
+            write(folder, "short2.abc", SHORT);
+            two.load(folder.resolve("short2.abc"), 0);
+            two.load(eighths, 0);
+            assertEquals("Evicts several", 2, two.evictions());
+            assertEquals("Only the newest", 1, two.size());
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers file missing
+    @Test(expected=IOException.class)
+    public void missingFile() throws IOException {
+        Path folder = tempFolder();
+        try {
+            new PieceCache().load(folder.resolve("none.abc"), 0);
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers loaded from several threads at once
+    @Test
+    public void concurrentLoads() throws IOException, InterruptedException, ExecutionException {
+        Path folder = tempFolder();
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            PieceCache cache = new PieceCache();
+            Path file = write(folder, "scale.abc", SCALE);
+            ParsedTune expected = ParsedTune.parse(SCALE, 0);
+            List<Callable<ParsedTune>> loads = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                loads.add(() -> cache.load(file, 0));
+            }
+            for (Future<ParsedTune> tune : threads.invokeAll(loads)) {
+                assertEquals("Same tune", expected, tune.get());
+            }
+            assertEquals("Every load counted", 16, cache.hits() + cache.misses());
+            assertEquals("One entry", 1, cache.size());
+        } finally {
+            threads.shutdown();
+            delete(folder);
+        }
+    }
+    //covers clear, toString
+    @Test
+    public void clear() throws IOException {
+        Path folder = tempFolder();
+        try {
+            PieceCache cache = new PieceCache();
+            cache.load(write(folder, "scale.abc", SCALE), 0);
+            cache.clear();
+            assertEquals("No entries", 0, cache.size());
+            assertEquals("No bytes", 0, cache.bytes());
+            assertEquals("Misses kept", 1, cache.misses());
+            assertTrue("Stats", cache.toString().contains("0 hits, 1 misses, 0 evictions"));
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers size limit not positive
+    @Test(expected=IllegalArgumentException.class)
+    public void zeroLimit() {
+        new PieceCache(0);
+    }
+}
@@ -0,0 +1,166 @@
+package abc.cache;
+
+import static abc.TestFiles.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import abc.ast.Music;
+
+/**
+ * Tests for TuneCache and TuneCodec, each using a fresh temporary folder.
+ */
+public class TuneCacheTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for TuneCache.load:
+     *      entry missing, present, damaged, of another format version, stored under another key
+     *      folder does not exist yet, cannot be created
+     *      ticks per beat 0, chosen by the caller; same text with different ticks per beat
+     *      file changed since it was stored; file missing
+     * Testing strategy for TuneCodec:
+     *      one voice, several voices; no notes, notes falling in pitch, notes starting together
+     *      non-ASCII text; entry truncated, a byte changed
+     */
+
+    private static final String SCALE = "X:1\nT:Scale\nM:4/4\nL:1/4\nQ:1/4=120\nK:C\nC D E F | G A B c | c B A G |]\n";
+    private static final String VOICES = "X:7\nT:Tv\u00e5 r\u00f6ster\nC:Anon\nV:1\nV:2\nM:3/4\nL:1/8\nQ:1/4=90\nK:G\n"
+            + "V:1\nC2 z2 B2|]\nV:2\nA,6|]\n";
+    private static final String REST = "X:2\nT:Silence\nK:C\nz4 |]\n";
+
+    private static Path entry(TuneCache cache, Path file, int ticksPerBeat) throws IOException {
+        return cache.entry(TuneCache.key(Files.readAllBytes(file), ticksPerBeat));
+    }
+
+    //covers entry missing then present, folder does not exist yet, ticks per beat 0
+    @Test
+    public void storedThenLoaded() throws IOException {
+        Path folder = tempFolder();
+        try {
+            TuneCache cache = new TuneCache(folder.resolve("entries"));
+            Path file = write(folder, "scale.abc", SCALE);
+            CachedTune cold = cache.load(file, 0);
+            assertEquals("Same as parsing", CachedTune.parse(SCALE, 0), cold);
+            Path entry = entry(cache, file, 0);
+            assertTrue("Entry stored", Files.exists(entry));
+
+            // an entry for the same key that holds another tune shows the next load reads the entry
+            Files.write(entry, TuneCodec.encode(CachedTune.parse(VOICES, 0), TuneCache.key(Files.readAllBytes(file), 0)));
+            assertEquals("Loaded from the entry", CachedTune.parse(VOICES, 0), cache.load(file, 0));
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers entry damaged, of another format version, stored under another key
+    @Test
+    public void damagedEntriesReplaced() throws IOException {
+        Path folder = tempFolder();
+        try {
+            TuneCache cache = new TuneCache(folder);
+            Path file = write(folder, "scale.abc", SCALE);
+            CachedTune tune = cache.load(file, 0);
+            Path entry = entry(cache, file, 0);
+            byte[] good = Files.readAllBytes(entry);
+
+            byte[] flipped = good.clone();
+            flipped[flipped.length / 2] ^= 1;
+            Files.write(entry, flipped);
+            assertEquals("Damaged entry parsed again", tune, cache.load(file, 0));
+            assertArrayEquals("And replaced", good, Files.readAllBytes(entry));
+
+            byte[] older = good.clone();
+            older[5]++;
+            Files.write(entry, older);
+            assertEquals("Other format parsed again", tune, cache.load(file, 0));
+            assertArrayEquals("And replaced", good, Files.readAllBytes(entry));
+
+            Files.write(entry, TuneCodec.encode(CachedTune.parse(VOICES, 0), new byte[] {1, 2, 3}));
+            assertEquals("Entry of another key parsed again", tune, cache.load(file, 0));
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers ticks per beat chosen, same text with different ticks per beat, file changed
+    @Test
+    public void keys() throws IOException {
+        Path folder = tempFolder();
+        try {
+            TuneCache cache = new TuneCache(folder);
+            Path file = write(folder, "scale.abc", SCALE);
+            assertEquals("Chosen ticks per beat", 12, cache.load(file, 12).score().ticksPerBeat());
+            assertEquals("Chosen separately", 1, cache.load(file, 0).score().ticksPerBeat());
+            assertEquals("Still chosen", 12, cache.load(file, 12).score().ticksPerBeat());
+            assertFalse("Different keys", entry(cache, file, 0).equals(entry(cache, file, 12)));
+
+            write(folder, "scale.abc", REST);
+            assertEquals("Changed file parsed again", CachedTune.parse(REST, 0), cache.load(file, 0));
+            assertFalse("Parser version in the key", Arrays.equals(TuneCache.key(new byte[0], 0),
+                    TuneCache.key(new byte[] {0, 0, 0, (byte) Music.PARSER_VERSION}, 0)));
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers folder cannot be created
+    @Test
+    public void folderUnwritable() throws IOException {
+        Path folder = tempFolder();
+        try {
+            Path file = write(folder, "scale.abc", SCALE);
+            // a folder inside a file cannot be created, so nothing is stored
+            TuneCache cache = new TuneCache(file.resolve("entries"));
+            assertEquals("Still loaded", CachedTune.parse(SCALE, 0), cache.load(file, 0));
+            assertEquals("Loaded again", CachedTune.parse(SCALE, 0), cache.load(file, 0));
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers file missing
+    @Test(expected=IOException.class)
+    public void missingFile() throws IOException {
+        Path folder = tempFolder();
+        try {
+            new TuneCache(folder).load(folder.resolve("none.abc"), 0);
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers several voices, notes starting together, falling in pitch, non-ASCII text, no notes
+    @Test
+    public void codecRoundTrip() throws IOException {
+        byte[] key = {4, 2};
+        for (String text : Arrays.asList(SCALE, VOICES, REST)) {
+            CachedTune tune = CachedTune.parse(text, 0);
+            assertEquals("Round trip", tune, TuneCodec.decode(TuneCodec.encode(tune, key), key));
+        }
+        CachedTune voices = TuneCodec.decode(TuneCodec.encode(CachedTune.parse(VOICES, 0), key), key);
+        assertEquals("Title", "Tv\u00e5 r\u00f6ster", voices.header().title());
+        assertEquals("Voices", Arrays.asList("1", "2"), voices.header().voiceNames());
+        assertEquals("Voices of the score", 2, voices.score().voiceNames().size());
+    }
+    //covers entry truncated
+    @Test(expected=StreamCorruptedException.class)
+    public void truncated() throws IOException {
+        byte[] key = {1};
+        byte[] entry = TuneCodec.encode(CachedTune.parse(SCALE, 0), key);
+        TuneCodec.decode(Arrays.copyOf(entry, entry.length - 5), key);
+    }
+    //covers a byte changed
+    @Test(expected=StreamCorruptedException.class)
+    public void checksum() throws IOException {
+        byte[] key = {1};
+        byte[] entry = TuneCodec.encode(CachedTune.parse(SCALE, 0), key);
+        entry[entry.length - 10]++;
+        TuneCodec.decode(entry, key);
+    }
+}
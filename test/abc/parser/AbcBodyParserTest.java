@@ -0,0 +1,187 @@
+package abc.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import abc.ast.Chord;
+import abc.ast.KeySignature;
+import abc.ast.Measure;
+import abc.ast.Music;
+import abc.ast.Music.BodyParsing;
+import abc.ast.Note;
+import abc.ast.NoteOrChord;
+import abc.ast.Rational;
+import abc.ast.Piece;
+import abc.ast.Repeat;
+import abc.ast.Rest;
+import abc.ast.Sequence;
+import abc.ast.TuneHeader;
+import abc.ast.Tuplet;
+import abc.ast.Voice;
+import abc.sound.Pitch;
+import lib6005.parser.UnableToParseException;
+
+/**
+ * Tests for the hand-written parser of the body grammar, AbcBodyParser, and its lexer.
+ */
+public class AbcBodyParserTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for parse(String text):
+     *      text is every file in sample_abc: AST equals the one built from AbcBody.g
+     *      text has notes with and without accidentals, octaves, note lengths; rests; chords; tuplets
+     *      text has a repeat with one ending, with two endings, without a start bar
+     *      text has comments between measures
+     *      text is not in the grammar
+ *      header is shared by parsers of several voices: accidentals stay in their voice
+     * Testing strategy for Music.parseBody(header, parsing) with several voices:
+ *      parsing is GRAMMAR, DIRECT; result equals parsing the voices one after another
+ * Testing strategy for AbcBodyLexer:
+     *      barlines of one and two characters, chord start vs nth repeat, unexpected character
+     */
+
+    private static TuneHeader header() {
+        return new TuneHeader(1, "test", "Unknown", Rational.ONE, Rational.of(1, 4), Rational.of(1, 4), 100, KeySignature.valueOf("C"),
+                Collections.singletonMap("default", ""), "");
+    }
+
+    private static Music seq(Music... music) {
+        return new Sequence(Arrays.asList(music));
+    }
+
+    private static Music measure(Music... music) {
+        return new Measure(seq(music), 1.0);
+    }
+
+    private static final Note C = new Note(1, new Pitch('C'));
+    private static final Note D = new Note(1, new Pitch('D'));
+    private static final Note E = new Note(1, new Pitch('E'));
+
+    //covers every file in sample_abc
+    @Test
+    public void sampleFilesMatchGrammar(){
+        File[] files = new File("sample_abc").listFiles((dir, name) -> name.endsWith(".abc"));
+        assertTrue("sample_abc should have tunes", files.length > 0);
+        for (File file : files) {
+            TuneHeader header = Music.parseHeader(file);
+            Music grammar = Music.parseBody(header, BodyParsing.GRAMMAR);
+            Music direct = Music.parseBody(header, BodyParsing.DIRECT);
+            assertEquals("AST of " + file.getName() + " should match the grammar", grammar, direct);
+        }
+    }
+    //covers notes with accidentals, octaves and note lengths, and a rest
+    @Test
+    public void notesAndRest() throws UnableToParseException{
+        Voice voice = new AbcBodyParser(header()).parse("^C2 _e'/ z3/4 D,,|\n");
+        Music expected = seq(seq(measure(new Note(2, new Pitch('C').transpose(1)),
+                new Note(0.5, new Pitch('E').transpose(Pitch.OCTAVE - 1 + Pitch.OCTAVE)),
+                new Rest(0.75),
+                new Note(1, new Pitch('D').transpose(-2 * Pitch.OCTAVE))), measure()));
+        assertEquals("Voice should have one measure and a newline measure", new Voice(expected, "test"), voice);
+    }
+    //covers an accidental carried through the rest of a measure, but not into the next
+    @Test
+    public void accidentalLastsOneMeasure() throws UnableToParseException{
+        Voice voice = new AbcBodyParser(header()).parse("^C C|C\n");
+        Note sharp = new Note(1, new Pitch('C').transpose(1));
+        Music expected = seq(seq(measure(sharp, sharp), measure(C)));
+        assertEquals("Second measure should be natural", new Voice(expected, "test"), voice);
+    }
+    //covers chord and tuplet
+    @Test
+    public void chordAndTuplet() throws UnableToParseException{
+        Voice voice = new AbcBodyParser(header()).parse("[CE] (3CDE|\n");
+        Music chord = new Chord(Arrays.asList(C, E), 1);
+        Music triplet = new Tuplet(Arrays.<NoteOrChord>asList(C, D, E), 3);
+        Music expected = seq(seq(measure(chord, triplet), measure()));
+        assertEquals("Voice should have a chord and a triplet", new Voice(expected, "test"), voice);
+    }
+    //covers repeat without a start bar and with one ending
+    @Test
+    public void repeatWithoutStartBar() throws UnableToParseException{
+        Voice voice = new AbcBodyParser(header()).parse("C|D:|E|\n");
+        Music expected = seq(seq(new Repeat(seq(measure(C), measure(D), seq())), measure(E), measure()));
+        assertEquals("Repeat should start at the beginning of the line", new Voice(expected, "test"), voice);
+    }
+    //covers repeat with two endings and a comment
+    @Test
+    public void repeatWithTwoEndings() throws UnableToParseException{
+        Voice voice = new AbcBodyParser(header()).parse("|:C|\n%comment\n[1D:|[2E|\n");
+        Music expected = seq(seq(new Repeat(seq(measure(C), measure()), seq(D), measure(E)), measure()));
+        assertEquals("Repeat should have two endings", new Voice(expected, "test"), voice);
+    }
+    //covers a comment line
+    @Test
+    public void commentLine() throws UnableToParseException{
+        Voice voice = new AbcBodyParser(header()).parse("C|\n%comment\nD|\n");
+        Music expected = seq(seq(measure(C), measure()), seq(measure(D), measure()));
+        assertEquals("Comment should separate two lines", new Voice(expected, "test"), voice);
+    }
+    //covers two voices sharing one header, with an accidental carried to the end of a measure in only one of them
+    @Test
+    public void voicesShareHeader() throws UnableToParseException{
+        TuneHeader header = header();
+        AbcBodyParser first = new AbcBodyParser(header);
+        AbcBodyParser second = new AbcBodyParser(header);
+        Voice sharp = first.parse("^C D");
+        Voice natural = second.parse("C D|\n");
+        Voice sharpAgain = first.parse("D C|\n");
+        assertEquals("Accidental should not carry into another voice",
+                new Voice(seq(seq(measure(C, D), measure())), "test"), natural);
+        assertEquals("Accidental should not carry into another parse",
+                new Voice(seq(seq(measure(D, C), measure())), "test"), sharpAgain);
+        assertEquals("Written accidental should apply",
+                new Voice(seq(seq(measure(new Note(1, new Pitch('C').transpose(1)), D))), "test"), sharp);
+    }
+    //covers a tune with several voices parsed in parallel, with both ways of parsing
+    @Test
+    public void parallelVoicesMatchSequential() throws UnableToParseException{
+        for (String name : new String[] { "invention.abc", "prelude.abc" }) {
+            TuneHeader header = Music.parseHeader(new File("sample_abc", name));
+            assertTrue(name + " should have several voices", header.voiceNames().size() > 1);
+            for (BodyParsing parsing : BodyParsing.values()) {
+                List<Voice> voices = new ArrayList<>();
+                for (String voice : header.voiceNames()) {
+                    voices.add(Music.parseVoice(header.voiceMusic(voice), header, parsing));
+                }
+                assertEquals(name + " parsed in parallel should match sequential", new Piece(voices), Music.parseBody(header, parsing));
+            }
+        }
+    }
+    //covers text that is not in the grammar
+    @Test(expected=UnableToParseException.class)
+    public void unclosedChord() throws UnableToParseException{
+        new AbcBodyParser(header()).parse("[CE D|\n");
+    }
+    //covers lexer with barlines, chord start and nth repeat
+    @Test
+    public void lexerTokens() throws UnableToParseException{
+        AbcBodyLexer lexer = new AbcBodyLexer("|:[CE]|[1A||\n");
+        AbcBodyLexer.Kind[] expected = { AbcBodyLexer.Kind.REPEAT_START, AbcBodyLexer.Kind.CHORD_START,
+                AbcBodyLexer.Kind.NOTE, AbcBodyLexer.Kind.NOTE, AbcBodyLexer.Kind.CHORD_END, AbcBodyLexer.Kind.BARLINE,
+                AbcBodyLexer.Kind.NTH_REPEAT, AbcBodyLexer.Kind.NOTE, AbcBodyLexer.Kind.REPEAT_START,
+                AbcBodyLexer.Kind.NEWLINE };
+        assertEquals("Lexer should find every token", expected.length, lexer.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("Token " + i, expected[i], lexer.kind(i));
+        }
+        assertEquals("Last token should be END", AbcBodyLexer.Kind.END, lexer.kind(lexer.size()));
+    }
+    //covers lexer with an unexpected character
+    @Test(expected=UnableToParseException.class)
+    public void lexerUnexpectedCharacter() throws UnableToParseException{
+        new AbcBodyLexer("C D H|\n");
+    }
+}
@@ -0,0 +1,95 @@
+package abc.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+/**
+ * Tests for reading abc text with AbcSource.
+ */
+public class AbcSourceTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for normalize(CharSequence text):
+     *      text is empty, ends with "\n", does not end with a newline
+     *      line endings are "\n", "\r\n", "\r", mixed
+     *      text starts with a byte order mark, does not
+     * Testing strategy for read(Path), read(InputStream), read(Reader):
+     *      source is empty, has several lines
+     *      charset is given, not given; bytes are valid, invalid in the charset
+     */
+
+    //covers empty text
+    @Test
+    public void normalizeEmpty(){
+        assertEquals("Empty text should stay empty", "", AbcSource.normalize(""));
+    }
+    //covers "\n" line endings, ends with "\n"
+    @Test
+    public void normalizeAlreadyNormal(){
+        String text = "X:1\nT:Scale\nK:C\n";
+        assertSame("Normalized text should be returned as is", text, AbcSource.normalize(text));
+    }
+    //covers mixed line endings, does not end with a newline
+    @Test
+    public void normalizeMixedLineEndings(){
+        assertEquals("Line endings should become \\n", "X:1\nT:Scale\nK:C\nC D\n",
+                AbcSource.normalize("X:1\r\nT:Scale\rK:C\nC D"));
+    }
+    //covers byte order mark, "\r\n" at the very end
+    @Test
+    public void normalizeByteOrderMark(){
+        assertEquals("Byte order mark should be dropped", "X:1\n", AbcSource.normalize("\uFEFFX:1\r\n"));
+    }
+    //covers read(Path) of a sample file
+    @Test
+    public void readPath() throws IOException{
+        String text = AbcSource.read(new File("sample_abc/scale.abc").toPath());
+        assertTrue("Text should start with the header", text.startsWith("X:"));
+        assertTrue("Text should end with a newline", text.endsWith("\n"));
+        assertFalse("Text should have no carriage returns", text.contains("\r"));
+    }
+    //covers read(Path) with an explicit charset
+    @Test
+    public void readPathWithCharset() throws IOException{
+        Path path = Files.createTempFile("abc", ".abc");
+        try{
+            Files.write(path, "T:Fr\u00e8re Jacques\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            assertEquals("Text should be decoded as Latin-1", "T:Fr\u00e8re Jacques\n",
+                    AbcSource.read(path, StandardCharsets.ISO_8859_1));
+        }
+        finally{
+            Files.delete(path);
+        }
+    }
+    //covers read(InputStream) with bytes that are not valid in the charset
+    @Test(expected=CharacterCodingException.class)
+    public void readStreamInvalidBytes() throws IOException{
+        byte[] latin1 = "T:Fr\u00e8re\n".getBytes(StandardCharsets.ISO_8859_1);
+        AbcSource.read(new ByteArrayInputStream(latin1));
+    }
+    //covers read(InputStream) of an empty source
+    @Test
+    public void readEmptyStream() throws IOException{
+        assertEquals("Empty stream should give empty text", "", AbcSource.read(new ByteArrayInputStream(new byte[0])));
+    }
+    //covers read(Reader) of several lines
+    @Test
+    public void readReader() throws IOException{
+        assertEquals("Reader text should be normalized", "X:1\nK:C\nC|\n", AbcSource.read(new StringReader("X:1\r\nK:C\r\nC|")));
+    }
+}
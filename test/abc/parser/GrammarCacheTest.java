@@ -0,0 +1,63 @@
+package abc.parser;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import abc.ast.Music.AbcBodyGrammar;
+import abc.ast.Music.AbcHeaderGrammar;
+import lib6005.parser.ParseTree;
+import lib6005.parser.UnableToParseException;
+
+/**
+ * Tests for the GrammarCache registry of compiled grammars.
+ */
+public class GrammarCacheTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for headerParser(), bodyParser():
+     *      called once, called more than once
+     *      parser used to parse a valid input
+     * Testing strategy for compile(String resource, Sym root):
+     *      resource is on the classpath, resource is missing
+     */
+
+    //covers headerParser called more than once
+    @Test
+    public void headerParserIsShared(){
+        assertSame("Header parser should be compiled once", GrammarCache.headerParser(), GrammarCache.headerParser());
+    }
+    //covers bodyParser called more than once
+    @Test
+    public void bodyParserIsShared(){
+        assertSame("Body parser should be compiled once", GrammarCache.bodyParser(), GrammarCache.bodyParser());
+    }
+    //covers header parser used to parse a valid tune
+    @Test
+    public void headerParserParsesTune() throws UnableToParseException{
+        ParseTree<AbcHeaderGrammar> tree = GrammarCache.headerParser().parse("X:1\nT:Scale\nK:C\nC D E F|\n");
+        assertEquals("Root should be the whole tune", AbcHeaderGrammar.ABC_TUNE, tree.getName());
+    }
+    //covers body parser used to parse a valid voice
+    @Test
+    public void bodyParserParsesVoice() throws UnableToParseException{
+        ParseTree<AbcBodyGrammar> tree = GrammarCache.bodyParser().parse("C D E F|\n");
+        assertEquals("Root should be the music of one voice", AbcBodyGrammar.ABC_MUSIC, tree.getName());
+    }
+    //covers compile with a resource on the classpath
+    @Test
+    public void compileMakesNewParser(){
+        assertNotSame("compile should not return the cached parser", GrammarCache.headerParser(),
+                GrammarCache.compile(GrammarCache.HEADER_GRAMMAR, AbcHeaderGrammar.ABC_TUNE));
+    }
+    //covers compile with a missing resource
+    @Test(expected=IllegalStateException.class)
+    public void compileMissingGrammar(){
+        GrammarCache.compile("/abc/parser/Missing.g", AbcBodyGrammar.ABC_MUSIC);
+    }
+}
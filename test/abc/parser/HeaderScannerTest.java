@@ -0,0 +1,167 @@
+package abc.parser;
+
+import static abc.TestFiles.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+import abc.ast.KeySignature;
+import abc.ast.Music;
+import abc.ast.Rational;
+import abc.ast.TuneHeader;
+import abc.ast.TuneSummary;
+
+/**
+ * Tests for reading abc headers with HeaderScanner, and for TuneSummary.
+ */
+public class HeaderScannerTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for scan(Path), scan(InputStream):
+     *      every sample file, compared with Music.parseHeader
+     *      fields given, fields left to their defaults; meter C, C|, a fraction; no V:, several V:
+     *      line endings "\n", "\r\n", "\r"; byte order mark; comments between fields; whitespace in fields
+     *      bytes after the K: line: music, not valid UTF-8, none
+     *      header does not start with X:, has no T:, a field that is not a header field, a blank line,
+     *      ends before K:, X: or Q: not a number
+     * Testing strategy for scanFolder:
+     *      folder with valid tunes, a tune that is not valid, a file that is not an abc file
+     * Testing strategy for TuneSummary:
+     *      equals, hashCode, toString
+     */
+
+    private static InputStream bytes(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TuneSummary scan(String text) throws IOException {
+        return HeaderScanner.scan(bytes(text));
+    }
+
+    //covers every sample file
+    @Test
+    public void samples() throws IOException {
+        File[] files = new File("sample_abc").listFiles((dir, name) -> name.endsWith(".abc"));
+        assertTrue("Sample files found", files != null && files.length > 0);
+        for (File file : files) {
+            TuneHeader parsed = Music.parseHeader(AbcSource.read(file.toPath()));
+            TuneSummary scanned = HeaderScanner.scan(file.toPath());
+            String name = file.getName();
+            assertEquals(name + " index", parsed.index(), scanned.index());
+            assertEquals(name + " title", parsed.title(), scanned.title());
+            assertEquals(name + " composer", parsed.composer(), scanned.composer());
+            assertEquals(name + " meter", parsed.meter(), scanned.meter());
+            assertEquals(name + " default length", parsed.defaultLength(), scanned.defaultLength());
+            assertEquals(name + " tempo beat", parsed.tempoBeat(), scanned.tempoBeat());
+            assertEquals(name + " tempo", parsed.tempo(), scanned.tempo());
+            assertEquals(name + " key", parsed.key(), scanned.key());
+        }
+    }
+    //covers fields left to their defaults, no V:, "\n", music after K:
+    @Test
+    public void defaults() throws IOException {
+        TuneSummary tune = scan("X:1\nT:Scale\nK:C\nC D E F|]\n");
+        assertEquals("Summary", new TuneSummary(1, "Scale", "Unknown", Rational.of(1, 1), Rational.of(1, 8),
+                Rational.of(1, 8), 100, KeySignature.valueOf("C"), Collections.<String>emptyList()), tune);
+        assertEquals("Short meter", Rational.of(1, 16), scan("X:1\nT:Scale\nM:2/4\nK:C\n").defaultLength());
+    }
+    //covers fields given, meter a fraction, several V:, "\r\n", comments, whitespace, byte order mark
+    @Test
+    public void allFields() throws IOException {
+        TuneSummary tune = scan("\uFEFFX: 12\r\n% a comment\r\nT: Two Voices \r\nC:Someone\r\nV:upper\r\n"
+                + "M:6/8\r\n%another\r\nL:1/4\r\nQ:3/8=60\r\nV:lower\r\nK:Bbm\r\nV:upper\r\n");
+        assertEquals("Summary", new TuneSummary(12, "Two Voices", "Someone", Rational.of(6, 8), Rational.of(1, 4),
+                Rational.of(3, 8), 60, KeySignature.valueOf("Bbm"), Arrays.asList("upper", "lower")), tune);
+    }
+    //covers meter C, C|, "\r", no bytes after K:
+    @Test
+    public void commonTime() throws IOException {
+        assertEquals("C", Rational.of(1, 1), scan("X:1\rT:x\rM:C\rK:C").meter());
+        assertEquals("C|", Rational.of(1, 1), scan("X:1\rT:x\rM:C|\rK:C\r").meter());
+    }
+    //covers bytes after the K: line not valid UTF-8, which are never read
+    @Test
+    public void stopsAtKey() throws IOException {
+        byte[] header = "X:1\nT:x\nK:G\n".getBytes(StandardCharsets.UTF_8);
+        byte[] text = Arrays.copyOf(header, header.length + 3);
+        text[header.length] = (byte) 0xFF;
+        InputStream in = new ByteArrayInputStream(text);
+        assertEquals("Key", KeySignature.valueOf("G"), HeaderScanner.scan(in).key());
+        assertEquals("Left after the K: line", 3, in.available());
+    }
+    //covers header does not start with X:
+    @Test(expected=IllegalArgumentException.class)
+    public void noIndex() throws IOException {
+        scan("T:x\nX:1\nK:C\n");
+    }
+    //covers header has no T:
+    @Test(expected=IllegalArgumentException.class)
+    public void noTitle() throws IOException {
+        scan("X:1\nK:C\n");
+    }
+    //covers a field that is not a header field
+    @Test(expected=IllegalArgumentException.class)
+    public void unknownField() throws IOException {
+        scan("X:1\nT:x\nW:words\nK:C\n");
+    }
+    //covers a blank line
+    @Test(expected=IllegalArgumentException.class)
+    public void blankLine() throws IOException {
+        scan("X:1\nT:x\n\nK:C\n");
+    }
+    //covers ends before K:
+    @Test(expected=IllegalArgumentException.class)
+    public void noKey() throws IOException {
+        scan("X:1\nT:x\nM:4/4");
+    }
+    //covers X: not a number
+    @Test(expected=IllegalArgumentException.class)
+    public void indexNotANumber() throws IOException {
+        scan("X:one\nT:x\nK:C\n");
+    }
+    //covers Q: not a number
+    @Test(expected=IllegalArgumentException.class)
+    public void tempoNotANumber() throws IOException {
+        scan("X:1\nT:x\nQ:1/4=fast\nK:C\n");
+    }
+    //covers folder with valid tunes, a tune that is not valid, a file that is not an abc file
+    @Test
+    public void scanFolder() throws IOException {
+        Path folder = tempFolder();
+        try {
+            Path tune = write(folder, "tune.abc", "X:1\nT:x\nK:C\nC|]\n");
+            write(folder, "broken.abc", "T:x\nK:C\n");
+            write(folder, "notes.txt", "X:2\nT:y\nK:C\n");
+            Map<Path, TuneSummary> tunes = HeaderScanner.scanFolder(folder);
+            assertEquals("Only the valid tune", Collections.singleton(tune), tunes.keySet());
+            assertEquals("Its title", "x", tunes.get(tune).title());
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers equals, hashCode, toString
+    @Test
+    public void summary() throws IOException {
+        TuneSummary tune = scan("X:3\nT:Title\nC:Composer\nK:D\n");
+        TuneSummary same = scan("X:3\r\nT:Title\r\nC:Composer\r\nK:D\r\n");
+        assertEquals("Equal", tune, same);
+        assertEquals("Same hash", tune.hashCode(), same.hashCode());
+        assertNotEquals("Other key", tune, scan("X:3\nT:Title\nC:Composer\nK:E\n"));
+        assertEquals("String", "X:3 Title (Composer) K:" + KeySignature.valueOf("D").name(), tune.toString());
+    }
+}
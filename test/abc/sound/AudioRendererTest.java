@@ -0,0 +1,172 @@
+package abc.sound;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.junit.Test;
+
+import abc.ast.Chord;
+import abc.ast.CompiledScore;
+import abc.ast.Concat;
+import abc.ast.Music;
+import abc.ast.Note;
+import abc.ast.Piece;
+import abc.ast.Rational;
+import abc.ast.Voice;
+
+/**
+ * Tests for AudioRenderer. Files are read back with AudioSystem, which needs no audio device.
+ */
+public class AudioRendererTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for AudioRenderer(notes, beatsPerMinute):
+     *      notes is empty, has one note, several voices; beatsPerMinute is not positive
+     * Testing strategy for render(out), render(path), render(out, executor):
+     *      output is a channel, a path
+     *      audio before a note starts, while it is held, after it is released
+     *      more frames than one block; rendered twice
+     *      executor has one thread, fewer threads than voices, more threads than voices
+     */
+
+    private static final int C = new Pitch('C').toMidiNote();
+    private static final Note C_ONE = new Note(Rational.ONE, new Pitch('C'));
+    private static final Note G_ONE = new Note(Rational.ONE, new Pitch('G'));
+    private static final int HEADER_BYTES = 44;
+
+    private static byte[] render(AudioRenderer renderer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.render(Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static short[] samples(byte[] wav) {
+        ByteBuffer data = ByteBuffer.wrap(wav, HEADER_BYTES, wav.length - HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        short[] samples = new short[data.remaining() / 2];
+        data.asShortBuffer().get(samples);
+        return samples;
+    }
+
+    private static int peak(short[] samples, int from, int to) {
+        int peak = 0;
+        for (int i = from; i < to; i++) {
+            peak = Math.max(peak, Math.abs(samples[i]));
+        }
+        return peak;
+    }
+
+    //covers no notes
+    @Test
+    public void empty() throws IOException, UnsupportedAudioFileException {
+        AudioRenderer renderer = new AudioRenderer(new NoteRecorder(4).toSchedule(), 120);
+        assertEquals("No frames", 0, renderer.frames());
+        byte[] wav = render(renderer);
+        assertEquals("Only the header", HEADER_BYTES, wav.length);
+        AudioInputStream audio = AudioSystem.getAudioInputStream(new ByteArrayInputStream(wav));
+        assertEquals("No frames", 0, audio.getFrameLength());
+    }
+    //covers one note, before it starts, held, released, more than one block, rendered twice
+    @Test
+    public void oneNote() throws IOException, UnsupportedAudioFileException {
+        NoteRecorder recorder = new NoteRecorder(2);
+        recorder.addNote(C, 1, 2);
+        // at 60 beats per minute a tick is half a second
+        AudioRenderer renderer = new AudioRenderer(recorder.toSchedule(), 60);
+        int start = AudioRenderer.SAMPLE_RATE / 2;
+        int off = 3 * AudioRenderer.SAMPLE_RATE / 2;
+        assertTrue("The release should follow the note", renderer.frames() > off);
+        assertEquals("Seconds", renderer.frames() / (double) AudioRenderer.SAMPLE_RATE, renderer.seconds(), 0);
+
+        byte[] wav = render(renderer);
+        assertEquals("Header and two bytes per frame", HEADER_BYTES + 2 * renderer.frames(), wav.length);
+        AudioInputStream audio = AudioSystem.getAudioInputStream(new ByteArrayInputStream(wav));
+        AudioFormat format = audio.getFormat();
+        assertEquals("Sample rate", AudioRenderer.SAMPLE_RATE, format.getSampleRate(), 0);
+        assertEquals("16 bits", 16, format.getSampleSizeInBits());
+        assertEquals("Mono", 1, format.getChannels());
+        assertEquals("Frames", renderer.frames(), audio.getFrameLength());
+
+        short[] samples = samples(wav);
+        assertEquals("Silence before the note starts", 0, peak(samples, 0, start));
+        assertTrue("Sound while the note is held", peak(samples, start, off) > Short.MAX_VALUE / 10);
+        assertTrue("The release fades out", peak(samples, samples.length - 10, samples.length) < Short.MAX_VALUE / 100);
+        assertArrayEquals("Rendering again gives the same audio", wav, render(renderer));
+    }
+    //covers several voices, path output
+    @Test
+    public void voices() throws IOException {
+        Voice upper = new Voice(G_ONE, "upper");
+        Voice lower = new Voice(C_ONE, "lower");
+        CompiledScore both = CompiledScore.compile(new Piece(Arrays.asList(upper, lower)), 4);
+        Path path = Files.createTempFile("abc", ".wav");
+        try {
+            new AudioRenderer(both, 120).render(path);
+            short[] mixed = samples(Files.readAllBytes(path));
+            short[] g = samples(render(new AudioRenderer(CompiledScore.compile(upper, 4), 120)));
+            short[] c = samples(render(new AudioRenderer(CompiledScore.compile(lower, 4), 120)));
+            assertEquals("Same length", g.length, mixed.length);
+            for (int i = 0; i < mixed.length; i += 997) {
+                assertEquals("The mix is the sum of the voices", g[i] + c[i], mixed[i], 2);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+    //covers executor with one thread, fewer threads than voices, more threads than voices
+    @Test
+    public void threadsGiveIdenticalAudio() throws IOException {
+        Music line = C_ONE;
+        for (int i = 0; i < 12; i++) {
+            line = new Concat(line, i % 2 == 0 ? G_ONE : new Chord(Arrays.asList(C_ONE, G_ONE), Rational.ONE));
+        }
+        Voice[] voices = new Voice[3];
+        for (int v = 0; v < voices.length; v++) {
+            voices[v] = new Voice(line.transpose(5 * v), "voice " + v);
+        }
+        AudioRenderer renderer = new AudioRenderer(CompiledScore.compile(new Piece(Arrays.asList(voices)), 4), 120);
+        assertTrue("More than one block", renderer.frames() > AudioRenderer.BLOCK_FRAMES);
+        byte[] expected = render(renderer, 1);
+        assertTrue("Not silent", peak(samples(expected), 0, (int) renderer.frames()) > 0);
+        assertArrayEquals("Fewer threads than voices", expected, render(renderer, 2));
+        assertArrayEquals("More threads than voices", expected, render(renderer, 8));
+        assertArrayEquals("Common pool", expected, render(renderer));
+    }
+
+    private static byte[] render(AudioRenderer renderer, int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            renderer.render(Channels.newChannel(out), executor);
+            return out.toByteArray();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    //covers beatsPerMinute not positive
+    @Test(expected=IllegalArgumentException.class)
+    public void zeroTempo() {
+        new AudioRenderer(new NoteRecorder(4).toSchedule(), 0);
+    }
+}
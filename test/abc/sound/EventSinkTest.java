@@ -0,0 +1,159 @@
+package abc.sound;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+
+import org.junit.Test;
+
+/**
+ * Tests for the EventSinks that need no MIDI device: NoteRecorder, NoteCounter and MidiFileSink.
+ */
+public class EventSinkTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for NoteRecorder:
+     *      no notes, one note, notes scheduled out of order, more notes than the initial capacity
+     *      notes added one at a time, with addNotes
+     *      toString: events at the same tick, a note ending as another starts
+     *      toSchedule: notes out of order, notes starting together
+     *      index out of range; ticks per beat not positive
+     * Testing strategy for NoteCounter:
+     *      no notes, several notes; the last note scheduled ends before another
+     * Testing strategy for MidiFileSink:
+     *      no notes, notes out of order; closed twice; note added after close
+     */
+
+    private static final int C = new Pitch('C').toMidiNote();
+    private static final int E = new Pitch('E').toMidiNote();
+    private static final int G = new Pitch('G').toMidiNote();
+
+    //covers no notes
+    @Test
+    public void recorderEmpty() {
+        NoteRecorder recorder = new NoteRecorder(4);
+        assertEquals("No notes", 0, recorder.size());
+        assertEquals("Ticks per beat", 4, recorder.getTicksPerBeat());
+        assertEquals("Only the end of the track", "Meta event: END_OF_TRACK Tick: 0\n", recorder.toString());
+        assertEquals("Empty schedule", 0, recorder.toSchedule().size());
+    }
+    //covers one note, notes out of order, events at the same tick, a note ending as another starts
+    @Test
+    public void recorderEvents() {
+        NoteRecorder recorder = new NoteRecorder(2);
+        recorder.addNote(G, 2, 2);
+        recorder.addNote(C, 0, 2);
+        recorder.addNote(E, 2, 1);
+        assertEquals("Notes in the order scheduled", 3, recorder.size());
+        assertEquals("First note", G, recorder.note(0));
+        assertEquals("Second note start", 0, recorder.startTick(1));
+        assertEquals("Third note length", 1, recorder.numTicks(2));
+        assertEquals("Events sorted by tick, otherwise in the order scheduled",
+                "Event: NOTE_ON  Pitch: " + C + "  Tick: 0\n"
+                + "Event: NOTE_ON  Pitch: " + G + "  Tick: 2\n"
+                + "Event: NOTE_OFF Pitch: " + C + "  Tick: 2\n"
+                + "Event: NOTE_ON  Pitch: " + E + "  Tick: 2\n"
+                + "Event: NOTE_OFF Pitch: " + E + "  Tick: 3\n"
+                + "Event: NOTE_OFF Pitch: " + G + "  Tick: 4\n"
+                + "Meta event: END_OF_TRACK Tick: 4\n",
+                recorder.toString());
+    }
+    //covers toSchedule of notes out of order, starting together
+    @Test
+    public void recorderSchedule() {
+        NoteRecorder recorder = new NoteRecorder(2);
+        recorder.addNotes(new int[] { G, C, E }, new int[] { 2, 0, 2 }, new int[] { 2, 2, 1 }, 3);
+        NoteSchedule schedule = recorder.toSchedule();
+        assertEquals("Ticks per beat", 2, schedule.ticksPerBeat());
+        assertEquals("Sorted by start", Arrays.asList(C, G, E),
+                Arrays.asList(schedule.pitch(0), schedule.pitch(1), schedule.pitch(2)));
+        assertEquals("Starts", Arrays.asList(0, 2, 2),
+                Arrays.asList(schedule.startTick(0), schedule.startTick(1), schedule.startTick(2)));
+        assertEquals("Durations", Arrays.asList(2, 2, 1),
+                Arrays.asList(schedule.durationTicks(0), schedule.durationTicks(1), schedule.durationTicks(2)));
+        assertEquals("One unnamed voice", Arrays.asList(""), schedule.voiceNames());
+        assertEquals("Voice", 0, schedule.voice(2));
+    }
+    //covers more notes than the initial capacity
+    @Test
+    public void recorderManyNotes() {
+        final int count = 1000;
+        NoteRecorder recorder = new NoteRecorder(1);
+        for (int i = 0; i < count; i++) {
+            recorder.addNote(C, i, 1);
+        }
+        assertEquals("Size", count, recorder.size());
+        assertEquals("Last note", count - 1, recorder.startTick(count - 1));
+    }
+    //covers index out of range
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void recorderIndexOutOfRange() {
+        NoteRecorder recorder = new NoteRecorder(1);
+        recorder.addNote(C, 0, 1);
+        recorder.note(1);
+    }
+    //covers ticks per beat not positive
+    @Test(expected=IllegalArgumentException.class)
+    public void recorderZeroTicksPerBeat() {
+        new NoteRecorder(0);
+    }
+    //covers no notes, several notes, a last note that ends before another
+    @Test
+    public void counter() {
+        NoteCounter counter = new NoteCounter(4);
+        assertEquals("No notes", 0, counter.getNotes());
+        assertEquals("No end", 0, counter.getEndTick());
+        counter.addNote(C, 0, 8);
+        counter.addNotes(new int[] { E, G }, new int[] { 2, 4 }, new int[] { 2, 1 }, 2);
+        assertEquals("Notes", 3, counter.getNotes());
+        assertEquals("Events", 6, counter.getEvents());
+        assertEquals("Note ticks", 11, counter.getNoteTicks());
+        assertEquals("End of the longest note", 8, counter.getEndTick());
+        assertEquals("Ticks per beat", 4, counter.getTicksPerBeat());
+    }
+    //covers MidiFileSink with notes out of order, closed twice
+    @Test
+    public void midiFile() throws IOException, InvalidMidiDataException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MidiFileSink sink = new MidiFileSink(out, 120, 2);
+        sink.addNote(G, 2, 2);
+        sink.addNote(C, 0, 2);
+        assertEquals("Nothing written before close", 0, out.size());
+        sink.close();
+        int written = out.size();
+        sink.close();
+        assertEquals("Closing again writes nothing", written, out.size());
+        Sequence sequence = MidiSystem.getSequence(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("One track", 1, sequence.getTracks().length);
+        assertEquals("Resolution", 2, sequence.getResolution());
+        assertEquals("Four note events, a tempo and the end of the track", 6, sequence.getTracks()[0].size());
+        assertEquals("Ends with the last note", 4, sequence.getTracks()[0].ticks());
+    }
+    //covers MidiFileSink with no notes
+    @Test
+    public void midiFileEmpty() throws IOException, InvalidMidiDataException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new MidiFileSink(out, 120, 2).close();
+        Sequence sequence = MidiSystem.getSequence(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("A tempo and the end of the track", 2, sequence.getTracks()[0].size());
+    }
+    //covers note added after close
+    @Test(expected=IllegalStateException.class)
+    public void midiFileClosed() throws IOException {
+        MidiFileSink sink = new MidiFileSink(new ByteArrayOutputStream(), 120, 2);
+        sink.close();
+        sink.addNote(C, 0, 1);
+    }
+}
@@ -0,0 +1,84 @@
+package abc.sound;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for JitterHistogram.
+ */
+public class JitterHistogramTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for JitterHistogram:
+     *      no events, one event, several events
+     *      lateness 0, negative, a power of two, one less than a power of two, Long.MAX_VALUE
+     *      percentile 0, between, 1
+     *      copied then recorded; cleared
+     */
+
+    //covers no events
+    @Test
+    public void empty() {
+        JitterHistogram jitter = new JitterHistogram();
+        assertEquals("No events", 0, jitter.count());
+        assertEquals("No mean", 0, jitter.meanNanos(), 0);
+        assertEquals("No maximum", 0, jitter.maxNanos());
+        assertEquals("No percentile", 0, jitter.percentileNanos(0.99));
+        assertEquals("No lines", "", jitter.toString());
+    }
+    //covers lateness 0, negative, powers of two and one less, Long.MAX_VALUE
+    @Test
+    public void buckets() {
+        assertEquals("On time", 0, JitterHistogram.bucket(0));
+        assertEquals("One", 1, JitterHistogram.bucket(1));
+        assertEquals("Power of two starts a bucket", 11, JitterHistogram.bucket(1024));
+        assertEquals("One less ends the bucket before", 10, JitterHistogram.bucket(1023));
+        assertEquals("Largest", JitterHistogram.BUCKETS - 1, JitterHistogram.bucket(Long.MAX_VALUE));
+        assertEquals("Bucket maximum", 1023, JitterHistogram.bucketMaxNanos(10));
+        assertEquals("Last bucket maximum", Long.MAX_VALUE, JitterHistogram.bucketMaxNanos(JitterHistogram.BUCKETS - 1));
+
+        JitterHistogram jitter = new JitterHistogram();
+        jitter.record(-5);
+        assertEquals("Early counts as on time", 1, jitter.count(0));
+        assertEquals("Early adds nothing", 0, jitter.maxNanos());
+    }
+    //covers one event, several events, percentiles 0, between, 1
+    @Test
+    public void statistics() {
+        JitterHistogram jitter = new JitterHistogram();
+        jitter.record(1500);
+        assertEquals("One event", 1, jitter.count());
+        assertEquals("Its own percentile", 1500, jitter.percentileNanos(0.5));
+        for (int i = 0; i < 9; i++) {
+            jitter.record(10);
+        }
+        assertEquals("Events", 10, jitter.count());
+        assertEquals("Mean", 159, jitter.meanNanos(), 0);
+        assertEquals("Maximum", 1500, jitter.maxNanos());
+        assertEquals("Bucket of 10", 9, jitter.count(JitterHistogram.bucket(10)));
+        assertEquals("Median within a factor of two", 15, jitter.percentileNanos(0.5));
+        assertEquals("Lowest", 15, jitter.percentileNanos(0));
+        assertEquals("Every event", 1500, jitter.percentileNanos(1));
+        assertEquals("Two buckets", 2, jitter.toString().split("\n").length);
+    }
+    //covers copied then recorded, cleared
+    @Test
+    public void copyAndClear() {
+        JitterHistogram jitter = new JitterHistogram();
+        jitter.record(100);
+        JitterHistogram copy = new JitterHistogram(jitter);
+        jitter.record(200);
+        assertEquals("Copy unchanged", 1, copy.count());
+        assertEquals("Copy maximum", 100, copy.maxNanos());
+        jitter.clear();
+        assertEquals("Cleared", 0, jitter.count());
+        assertEquals("Cleared maximum", 0, jitter.maxNanos());
+        assertEquals("Copy kept", 1, copy.count(JitterHistogram.bucket(100)));
+    }
+}
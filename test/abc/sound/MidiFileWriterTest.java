@@ -0,0 +1,174 @@
+package abc.sound;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+import org.junit.Test;
+
+import abc.ast.CompiledScore;
+import abc.ast.Note;
+import abc.ast.Piece;
+import abc.ast.Rational;
+import abc.ast.Rest;
+import abc.ast.Voice;
+
+/**
+ * Tests for MidiFileWriter. Files are read back with MidiSystem.getSequence, which needs no MIDI device.
+ */
+public class MidiFileWriterTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for MidiFileWriter(format, beatsPerMinute):
+     *      format is 0, 1, not valid; tempo is valid, too slow
+     * Testing strategy for write(notes, out):
+     *      notes is empty, has one voice, several voices
+     *      output is an OutputStream, a Path
+     *      delta times fit one byte, need several bytes
+     *      a note ends on the tick another of the same pitch starts, a note lasts no ticks
+     *      ticks per beat too large, pitch not a MIDI note
+     */
+
+    private static final int C = new Pitch('C').toMidiNote();
+    private static final int G = new Pitch('G').toMidiNote();
+    private static final Note C_HALF = new Note(Rational.of(1, 2), new Pitch('C'));
+    private static final Note G_ONE = new Note(Rational.ONE, new Pitch('G'));
+
+    private static byte[] write(int format, int beatsPerMinute, CompiledScore score) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new MidiFileWriter(format, beatsPerMinute).write(score, out);
+        return out.toByteArray();
+    }
+
+    private static Sequence read(byte[] file) throws IOException, InvalidMidiDataException {
+        return MidiSystem.getSequence(new ByteArrayInputStream(file));
+    }
+
+    // "tick:pitch:velocity" of every note event of track, with velocity 0 for a note turned off
+    private static String notes(Track track) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < track.size(); i++) {
+            MidiEvent event = track.get(i);
+            if (event.getMessage() instanceof ShortMessage) {
+                ShortMessage message = (ShortMessage) event.getMessage();
+                int velocity = message.getCommand() == ShortMessage.NOTE_OFF ? 0 : message.getData2();
+                out.append(event.getTick()).append(':').append(message.getData1()).append(':')
+                    .append(velocity).append(' ');
+            }
+        }
+        return out.toString().trim();
+    }
+
+    //covers format 0, empty notes
+    @Test
+    public void emptyFile() throws IOException {
+        CompiledScore score = CompiledScore.compile(new Rest(Rational.ONE), 4);
+        byte[] expected = {
+            'M', 'T', 'h', 'd', 0, 0, 0, 6, 0, 0, 0, 1, 0, 4,
+            'M', 'T', 'r', 'k', 0, 0, 0, 11,
+            0, (byte) 0xFF, 0x51, 3, 0x07, (byte) 0xA1, 0x20, // 500000 microseconds per beat
+            0, (byte) 0xFF, 0x2F, 0,
+        };
+        assertArrayEquals("Header, tempo and end of track", expected, write(MidiFileWriter.SINGLE_TRACK, 120, score));
+    }
+    //covers format 0, one voice, running status, a note ending as the same pitch starts
+    @Test
+    public void runningStatus() throws IOException {
+        CompiledScore score = CompiledScore.compile(new Voice(
+                new abc.ast.Sequence(Arrays.asList(C_HALF, C_HALF)), "melody"), 2);
+        byte[] file = write(MidiFileWriter.SINGLE_TRACK, 120, score);
+        byte[] events = Arrays.copyOfRange(file, file.length - 4 - 13, file.length - 4);
+        byte[] expected = {
+            0, (byte) 0x90, (byte) C, 100,
+            1, (byte) C, 0,
+            0, (byte) C, 100,
+            1, (byte) C, 0,
+        };
+        assertArrayEquals("One status byte, the note turned off before it starts again", expected, events);
+    }
+    //covers a note that lasts no ticks, as "C0" does
+    @Test
+    public void zeroLength() throws IOException, InvalidMidiDataException {
+        Note none = new Note(Rational.ZERO, new Pitch('C'));
+        CompiledScore score = CompiledScore.compile(new abc.ast.Sequence(Arrays.asList(none, C_HALF)), 2);
+        Sequence sequence = read(write(MidiFileWriter.SINGLE_TRACK, 120, score));
+        assertEquals("Turned off just after it is turned on, before the next note starts",
+                "0:" + C + ":100 0:" + C + ":0 0:" + C + ":100 1:" + C + ":0", notes(sequence.getTracks()[0]));
+    }
+    //covers format 0, several voices, delta times of several bytes
+    @Test
+    public void singleTrack() throws IOException, InvalidMidiDataException {
+        Voice upper = new Voice(new abc.ast.Sequence(Arrays.asList(G_ONE, G_ONE)), "upper");
+        Voice lower = new Voice(new abc.ast.Sequence(Arrays.asList(C_HALF, C_HALF, C_HALF)), "lower");
+        CompiledScore score = CompiledScore.compile(new Piece(Arrays.asList(upper, lower)), 1000);
+        Sequence sequence = read(write(MidiFileWriter.SINGLE_TRACK, 90, score));
+        assertEquals("One track", 1, sequence.getTracks().length);
+        assertEquals("Resolution", 1000, sequence.getResolution());
+        assertEquals("Every voice in order of time",
+                "0:67:100 0:60:100 500:60:0 500:60:100 1000:67:0 1000:60:0 1000:67:100 1000:60:100 1500:60:0 2000:67:0",
+                notes(sequence.getTracks()[0]));
+    }
+    //covers format 1, several voices, Path output
+    @Test
+    public void multiTrack() throws IOException, InvalidMidiDataException {
+        Voice upper = new Voice(G_ONE, "upper");
+        Voice lower = new Voice(new abc.ast.Sequence(Arrays.asList(C_HALF, C_HALF)), "lower");
+        CompiledScore score = CompiledScore.compile(new Piece(Arrays.asList(upper, lower)), 2);
+        Path path = Files.createTempFile("abc", ".mid");
+        try {
+            new MidiFileWriter(MidiFileWriter.MULTI_TRACK, 100).write(score, path);
+            Sequence sequence = MidiSystem.getSequence(path.toFile());
+            assertEquals("Tempo track and one track per voice", 3, sequence.getTracks().length);
+            assertEquals("Tempo track has no notes", "", notes(sequence.getTracks()[0]));
+            assertEquals("Upper voice", "0:67:100 2:67:0", notes(sequence.getTracks()[1]));
+            assertEquals("Lower voice", "0:60:100 1:60:0 1:60:100 2:60:0", notes(sequence.getTracks()[2]));
+        } finally {
+            Files.delete(path);
+        }
+    }
+    //covers format not valid
+    @Test(expected=IllegalArgumentException.class)
+    public void badFormat() {
+        new MidiFileWriter(2, 120);
+    }
+    //covers tempo too slow
+    @Test(expected=IllegalArgumentException.class)
+    public void tooSlow() {
+        new MidiFileWriter(MidiFileWriter.SINGLE_TRACK, 3);
+    }
+    //covers ticks per beat too large
+    @Test(expected=IllegalArgumentException.class)
+    public void tooManyTicksPerBeat() throws IOException {
+        write(MidiFileWriter.SINGLE_TRACK, 120, CompiledScore.compile(G_ONE, 0x8000));
+    }
+    //covers pitch not a MIDI note
+    @Test(expected=IllegalArgumentException.class)
+    public void pitchTooHigh() throws IOException {
+        write(MidiFileWriter.SINGLE_TRACK, 120, CompiledScore.compile(G_ONE.transpose(100), 1));
+    }
+    //covers the pitches written, read back
+    @Test
+    public void pitches() throws IOException, InvalidMidiDataException {
+        CompiledScore score = CompiledScore.compile(new abc.ast.Sequence(Arrays.asList(C_HALF, G_ONE)), 2);
+        Sequence sequence = read(write(MidiFileWriter.SINGLE_TRACK, 120, score));
+        assertEquals("Notes", "0:" + C + ":100 1:" + C + ":0 1:" + G + ":100 3:" + G + ":0",
+                notes(sequence.getTracks()[0]));
+    }
+}
@@ -0,0 +1,342 @@
+package abc.sound;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaEventListener;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Sequencer;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+import org.junit.Test;
+
+/**
+ * Tests for PlaybackEngine, on a fake Sequencer that plays nothing, so no MIDI device is needed.
+ */
+public class PlaybackEngineTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for PlaybackEngine:
+     *      one tune, several tunes; a tune started while another plays
+     *      end of track of the tune playing, of a tune stopped before it
+     *      stopped, closed, closed twice, played after close
+     *      the sequencer cannot be opened
+     *      beatsPerMinute not positive
+     * Testing strategy for voices, setMute, setSolo, setVolume:
+     *      voice first, last, out of range; volume 0, 127, out of range
+     *      settings of one tune do not carry over to the next
+     * Testing strategy for channel:
+     *      voice before the percussion channel, at it, after the last channel
+     * Testing strategy for toSequence:
+     *      no notes, notes out of order, several voices, voices in unison; a pitch that is not a MIDI note
+     */
+
+    private static final int C = new Pitch('C').toMidiNote();
+    private static final int G = new Pitch('G').toMidiNote();
+    private static final int META_END_OF_TRACK = 47;
+
+    /**
+     * The state of a fake sequencer, which a Proxy implements Sequencer with.
+     */
+    private static class FakeSequencer {
+        private boolean open = false;
+        private boolean running = false;
+        private boolean failToOpen = false;
+        private int opens = 0;
+        private int closes = 0;
+        private Sequence sequence = null;
+        private long tick = 0;
+        private float tempo = 0;
+        private final List<MetaEventListener> listeners = new ArrayList<>();
+        private final Set<Integer> muted = new HashSet<>();
+        private final Set<Integer> soloed = new HashSet<>();
+        // the volume last sent to each channel
+        private final Map<Integer, Integer> volumes = new HashMap<>();
+        private final Receiver receiver = new Receiver() {
+            @Override
+            public void send(MidiMessage message, long timeStamp) {
+                ShortMessage control = (ShortMessage) message;
+                assertEquals("Only volume changes", ShortMessage.CONTROL_CHANGE, control.getCommand());
+                volumes.put(control.getChannel(), control.getData2());
+            }
+
+            @Override
+            public void close() {
+                throw new AssertionError("the engine should not close the receiver");
+            }
+        };
+
+        Sequencer sequencer() {
+            return (Sequencer) Proxy.newProxyInstance(Sequencer.class.getClassLoader(),
+                    new Class<?>[] { Sequencer.class }, (proxy, method, args) -> {
+                switch (method.getName()) {
+                case "open":
+                    if (failToOpen) {
+                        throw new MidiUnavailableException("no device");
+                    }
+                    open = true;
+                    opens++;
+                    return null;
+                case "close":
+                    open = false;
+                    running = false;
+                    closes++;
+                    return null;
+                case "isOpen": return open;
+                case "isRunning": return running;
+                case "start": running = true; return null;
+                case "stop": running = false; return null;
+                case "setSequence": sequence = (Sequence) args[0]; return null;
+                case "getSequence": return sequence;
+                case "setTickPosition": tick = (Long) args[0]; return null;
+                case "getTickPosition": return tick;
+                case "setTempoInBPM": tempo = (Float) args[0]; return null;
+                case "addMetaEventListener": return listeners.add((MetaEventListener) args[0]);
+                case "removeMetaEventListener": listeners.remove(args[0]); return null;
+                case "setTrackMute": mark(muted, (Integer) args[0], (Boolean) args[1]); return null;
+                case "setTrackSolo": mark(soloed, (Integer) args[0], (Boolean) args[1]); return null;
+                default: throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        }
+
+        private static void mark(Set<Integer> tracks, int track, boolean marked) {
+            if (marked) {
+                tracks.add(track);
+            } else {
+                tracks.remove(track);
+            }
+        }
+
+        /** play to the end of the sequence, and report the end of the track */
+        void finish() throws InvalidMidiDataException {
+            tick = sequence.getTickLength();
+            running = false;
+            endOfTrack();
+        }
+
+        /** report the end of a track, wherever the sequencer is */
+        void endOfTrack() throws InvalidMidiDataException {
+            MetaMessage end = new MetaMessage(META_END_OF_TRACK, new byte[0], 0);
+            for (MetaEventListener listener : new ArrayList<>(listeners)) {
+                listener.meta(end);
+            }
+        }
+    }
+
+    private static NoteSchedule tune(int pitch) {
+        NoteRecorder recorder = new NoteRecorder(2);
+        recorder.addNote(pitch, 0, 4);
+        return recorder.toSchedule();
+    }
+
+    //covers one tune, several tunes, end of track of the tune playing
+    @Test
+    public void tunes() throws MidiUnavailableException, InvalidMidiDataException {
+        FakeSequencer fake = new FakeSequencer();
+        try (PlaybackEngine engine = new PlaybackEngine(fake.sequencer(), fake.receiver)) {
+            CompletableFuture<Void> first = engine.play(tune(C), 120);
+            assertTrue("Playing", engine.isPlaying());
+            assertEquals("Tempo", 120, fake.tempo, 0);
+            assertFalse("Not finished", first.isDone());
+            fake.finish();
+            assertTrue("Finished", first.isDone() && !first.isCancelled());
+            assertFalse("Nothing playing", engine.isPlaying());
+
+            CompletableFuture<Void> second = engine.play(tune(G), 90);
+            assertEquals("Tempo of the second tune", 90, fake.tempo, 0);
+            assertEquals("From the start", 0, fake.tick);
+            fake.finish();
+            assertTrue("Second finished", second.isDone() && !second.isCancelled());
+            assertEquals("Opened once", 1, fake.opens);
+            assertEquals("Not closed between tunes", 0, fake.closes);
+        }
+        assertEquals("Closed with the engine", 1, fake.closes);
+    }
+    //covers a tune started while another plays, end of track of a tune stopped before it
+    @Test
+    public void replaced() throws MidiUnavailableException, InvalidMidiDataException {
+        FakeSequencer fake = new FakeSequencer();
+        try (PlaybackEngine engine = new PlaybackEngine(fake.sequencer(), fake.receiver)) {
+            CompletableFuture<Void> first = engine.play(tune(C), 120);
+            CompletableFuture<Void> second = engine.play(tune(G), 120);
+            assertTrue("First cancelled", first.isCancelled());
+            fake.endOfTrack();
+            assertFalse("A late end of the first tune does not end the second", second.isDone());
+            fake.finish();
+            assertTrue("Second finished", second.isDone() && !second.isCancelled());
+        }
+    }
+    //covers stopped, closed twice, played after close
+    @Test
+    public void stopAndClose() throws MidiUnavailableException {
+        FakeSequencer fake = new FakeSequencer();
+        PlaybackEngine engine = new PlaybackEngine(fake.sequencer(), fake.receiver);
+        CompletableFuture<Void> playing = engine.play(tune(C), 120);
+        engine.stop();
+        assertTrue("Cancelled", playing.isCancelled());
+        assertFalse("Sequencer stopped", fake.running);
+        engine.close();
+        engine.close();
+        assertEquals("Closed once", 1, fake.closes);
+        assertTrue("Listener removed", fake.listeners.isEmpty());
+        try {
+            engine.play(tune(C), 120);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+    //covers the sequencer cannot be opened
+    @Test
+    public void cannotOpen() {
+        FakeSequencer fake = new FakeSequencer();
+        fake.failToOpen = true;
+        try {
+            new PlaybackEngine(fake.sequencer(), fake.receiver);
+            fail("expected MidiUnavailableException");
+        } catch (MidiUnavailableException e) {
+            assertEquals("Closed again", 1, fake.closes);
+        }
+    }
+    //covers beatsPerMinute not positive
+    @Test(expected=IllegalArgumentException.class)
+    public void zeroTempo() throws MidiUnavailableException {
+        FakeSequencer fake = new FakeSequencer();
+        try (PlaybackEngine engine = new PlaybackEngine(fake.sequencer(), fake.receiver)) {
+            engine.play(tune(C), 0);
+        }
+    }
+    //covers toSequence of no notes, notes out of order
+    @Test
+    public void sequence() {
+        NoteRecorder recorder = new NoteRecorder(3);
+        recorder.addNote(G, 3, 3);
+        recorder.addNote(C, 0, 3);
+        Sequence empty = PlaybackEngine.toSequence(new NoteRecorder(3).toSchedule());
+        assertEquals("Only the end of the track", 1, empty.getTracks()[0].size());
+
+        Sequence sequence = PlaybackEngine.toSequence(recorder.toSchedule());
+        assertEquals("Resolution", 3, sequence.getResolution());
+        Track track = sequence.getTracks()[0];
+        assertEquals("The name, four events and the end of the track", 6, track.size());
+        ShortMessage off = (ShortMessage) track.get(2).getMessage();
+        ShortMessage on = (ShortMessage) track.get(3).getMessage();
+        assertEquals("C turned off before G starts", ShortMessage.NOTE_OFF, off.getCommand());
+        assertEquals("C", C, off.getData1());
+        assertEquals("G", G, on.getData1());
+        assertEquals("Ends with G", 6, sequence.getTickLength());
+    }
+    private static NoteSchedule unison() {
+        NoteRecorder upper = new NoteRecorder(2);
+        // three voices, the first two in unison
+        upper.addNote(C, 0, 4);
+        upper.addNote(C, 0, 2);
+        upper.addNote(G, 2, 2);
+        int[] voices = { 0, 1, 2 };
+        NoteSchedule notes = upper.toSchedule();
+        return new NoteSchedule() {
+        @Override public int ticksPerBeat() { return notes.ticksPerBeat(); }
+        @Override public int size() { return notes.size(); }
+        @Override public int startTick(int i) { return notes.startTick(i); }
+        @Override public int durationTicks(int i) { return notes.durationTicks(i); }
+        @Override public int pitch(int i) { return notes.pitch(i); }
+        @Override public int voice(int i) { return voices[i]; }
+        @Override public List<String> voiceNames() { return Arrays.asList("upper", "lower", "bass"); }
+        };
+    }
+
+    //covers voice first, last, out of range, volume 0, 127, settings not carried over
+    @Test
+    public void voiceControls() throws MidiUnavailableException {
+        FakeSequencer fake = new FakeSequencer();
+        try (PlaybackEngine engine = new PlaybackEngine(fake.sequencer(), fake.receiver)) {
+            assertEquals("No tune yet", 0, engine.voices());
+            engine.play(unison(), 120);
+            assertEquals("Voices", 3, engine.voices());
+            assertEquals("Every voice at the default volume", PlaybackEngine.DEFAULT_VOLUME, (int) fake.volumes.get(2));
+            engine.setMute(0, true);
+            engine.setSolo(2, true);
+            engine.setVolume(2, 127);
+            engine.setVolume(1, 0);
+            assertEquals("Muted", new HashSet<>(Arrays.asList(0)), fake.muted);
+            assertEquals("Soloed", new HashSet<>(Arrays.asList(2)), fake.soloed);
+            assertEquals("Loudest", 127, (int) fake.volumes.get(PlaybackEngine.channel(2)));
+            assertEquals("Silent", 0, (int) fake.volumes.get(PlaybackEngine.channel(1)));
+
+            engine.play(unison(), 120);
+            assertTrue("Unmuted for the next tune", fake.muted.isEmpty() && fake.soloed.isEmpty());
+            assertEquals("Volume reset", PlaybackEngine.DEFAULT_VOLUME, (int) fake.volumes.get(PlaybackEngine.channel(2)));
+        }
+    }
+    //covers voice out of range
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void noSuchVoice() throws MidiUnavailableException {
+        FakeSequencer fake = new FakeSequencer();
+        try (PlaybackEngine engine = new PlaybackEngine(fake.sequencer(), fake.receiver)) {
+            engine.play(unison(), 120);
+            engine.setMute(3, true);
+        }
+    }
+    //covers volume out of range
+    @Test(expected=IllegalArgumentException.class)
+    public void volumeOutOfRange() throws MidiUnavailableException {
+        FakeSequencer fake = new FakeSequencer();
+        try (PlaybackEngine engine = new PlaybackEngine(fake.sequencer(), fake.receiver)) {
+            engine.play(unison(), 120);
+            engine.setVolume(0, 128);
+        }
+    }
+    //covers voice before the percussion channel, at it, after the last channel
+    @Test
+    public void channels() {
+        assertEquals("First", 0, PlaybackEngine.channel(0));
+        assertEquals("Before percussion", 8, PlaybackEngine.channel(8));
+        assertEquals("Skips percussion", 10, PlaybackEngine.channel(9));
+        assertEquals("Last", 15, PlaybackEngine.channel(14));
+        assertEquals("Shared beyond the last", 0, PlaybackEngine.channel(15));
+    }
+    //covers several voices, voices in unison
+    @Test
+    public void voiceTracks() {
+        Sequence sequence = PlaybackEngine.toSequence(unison());
+        Track[] tracks = sequence.getTracks();
+        assertEquals("A track per voice", 3, tracks.length);
+        for (int v = 0; v < tracks.length; v++) {
+            MetaMessage name = (MetaMessage) tracks[v].get(0).getMessage();
+            assertEquals("Named", Arrays.asList("upper", "lower", "bass").get(v), new String(name.getData()));
+            for (int i = 1; i < tracks[v].size() - 1; i++) {
+                ShortMessage note = (ShortMessage) tracks[v].get(i).getMessage();
+                assertEquals("On the voice's channel", PlaybackEngine.channel(v), note.getChannel());
+            }
+        }
+        assertEquals("Name, one note and the end of the track", 4, tracks[1].size());
+        assertEquals("Unison note ends with its own voice", 2, tracks[1].get(2).getTick());
+        assertEquals("Unison note in the other voice ends later", 4, tracks[0].get(2).getTick());
+    }
+    //covers a pitch that is not a MIDI note
+    @Test(expected=IllegalArgumentException.class)
+    public void badPitch() {
+        PlaybackEngine.toSequence(tune(200));
+    }
+}
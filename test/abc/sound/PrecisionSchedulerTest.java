@@ -0,0 +1,152 @@
+package abc.sound;
+
+import static abc.sound.TestNotes.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+
+import org.junit.Test;
+
+/**
+ * Tests for PrecisionScheduler, playing onto a Receiver that records what it is sent, so no MIDI device is needed.
+ */
+public class PrecisionSchedulerTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for PrecisionScheduler:
+     *      no notes, several notes; notes out of order, ending as another starts, of the same pitch
+     *      ring larger than the events, smaller than them, of one event; capacity not a power of two
+     *      played once, twice
+     *      interrupted while playing; the receiver fails; a pitch that is not a MIDI note
+     *      a note too late for its time in nanoseconds to fit in a long
+     *      capacity not positive, beatsPerMinute not positive
+     * Testing strategy for getJitter:
+     *      before playing, after playing
+     */
+
+    private static final long NANOS_PER_TICK = 10_000_000;
+
+    private static String event(String type, int pitch) {
+        return type + " Pitch: " + pitch + " Time: -1";
+    }
+
+    private static final List<String> CHORD_EVENTS = Arrays.asList(
+            event("NOTE_ON ", C),
+            event("NOTE_OFF", C),
+            event("NOTE_ON ", G),
+            event("NOTE_ON ", E),
+            event("NOTE_ON ", C),
+            event("NOTE_OFF", E),
+            event("NOTE_OFF", C),
+            event("NOTE_OFF", G));
+
+    //covers no notes, getJitter before playing
+    @Test
+    public void empty() throws InterruptedException {
+        Recording receiver = new Recording();
+        PrecisionScheduler scheduler = new PrecisionScheduler(receiver);
+        assertEquals("Nothing recorded yet", 0, scheduler.getJitter().count());
+        scheduler.play(new NoteRecorder(1).toSchedule(), FAST);
+        assertEquals("Nothing sent", Collections.emptyList(), receiver.sent);
+        assertEquals("Nothing recorded", 0, scheduler.getJitter().count());
+    }
+    //covers several notes, out of order, ending as another of the same pitch starts, ring larger than the events
+    @Test
+    public void events() throws InterruptedException {
+        Recording receiver = new Recording();
+        PrecisionScheduler scheduler = new PrecisionScheduler(receiver);
+        long start = System.nanoTime();
+        scheduler.play(chords(), FAST);
+        long elapsed = System.nanoTime() - start;
+        assertEquals("Events in order, unstamped", CHORD_EVENTS, receiver.sent);
+        assertTrue("Returns once the last note is off", elapsed >= 4 * NANOS_PER_TICK);
+        JitterHistogram jitter = scheduler.getJitter();
+        assertEquals("Every event recorded", CHORD_EVENTS.size(), jitter.count());
+        assertTrue("Median within the maximum", jitter.percentileNanos(0.5) <= jitter.maxNanos());
+    }
+    //covers ring smaller than the events, of one event, capacity not a power of two, played twice
+    @Test
+    public void smallRing() throws InterruptedException {
+        assertEquals("Rounded up to a power of two", 4, new PrecisionScheduler(new Recording(), 3).capacity());
+        Recording receiver = new Recording();
+        PrecisionScheduler scheduler = new PrecisionScheduler(receiver, 1);
+        assertEquals("One event", 1, scheduler.capacity());
+        scheduler.play(chords(), FAST);
+        scheduler.play(chords(), FAST);
+        List<String> twice = new ArrayList<>(CHORD_EVENTS);
+        twice.addAll(CHORD_EVENTS);
+        assertEquals("All events, twice", twice, receiver.sent);
+        assertEquals("Jitter of the last tune only", CHORD_EVENTS.size(), scheduler.getJitter().count());
+    }
+    //covers interrupted while playing
+    @Test
+    public void interrupted() throws InterruptedException {
+        NoteRecorder recorder = new NoteRecorder(1);
+        recorder.addNote(C, 0, 1000);
+        recorder.addNote(E, 1, 1000);
+        Recording receiver = new Recording();
+        PrecisionScheduler scheduler = new PrecisionScheduler(receiver, 4);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread playing = new Thread(() -> {
+            try {
+                scheduler.play(recorder.toSchedule(), FAST);
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        playing.start();
+        receiver.firstSent.await();
+        playing.interrupt();
+        playing.join();
+        assertTrue("Interrupted", thrown.get() instanceof InterruptedException);
+        assertEquals("Every note turned off", "CONTROL  Pitch: 123 Time: -1",
+                receiver.sent.get(receiver.sent.size() - 1));
+    }
+    //covers the receiver fails
+    @Test(expected=IllegalStateException.class)
+    public void receiverFails() throws InterruptedException {
+        Receiver failing = new Recording() {
+            @Override
+            public void send(MidiMessage message, long timeStamp) {
+                throw new IllegalStateException("closed");
+            }
+        };
+        new PrecisionScheduler(failing, 2).play(chords(), FAST);
+    }
+    //covers a pitch that is not a MIDI note
+    @Test(expected=IllegalArgumentException.class)
+    public void badPitch() throws InterruptedException {
+        NoteRecorder recorder = new NoteRecorder(1);
+        recorder.addNote(200, 0, 1);
+        new PrecisionScheduler(new Recording()).play(recorder.toSchedule(), FAST);
+    }
+    //covers a note too late for its time in nanoseconds to fit in a long
+    @Test(expected=ArithmeticException.class)
+    public void tooLate() throws InterruptedException {
+        NoteRecorder recorder = new NoteRecorder(1);
+        recorder.addNote(C, 1 << 30, 1);
+        new PrecisionScheduler(new Recording()).play(recorder.toSchedule(), 1);
+    }
+    //covers capacity not positive
+    @Test(expected=IllegalArgumentException.class)
+    public void zeroCapacity() {
+        new PrecisionScheduler(new Recording(), 0);
+    }
+    //covers beatsPerMinute not positive
+    @Test(expected=IllegalArgumentException.class)
+    public void zeroTempo() throws InterruptedException {
+        new PrecisionScheduler(new Recording()).play(chords(), 0);
+    }
+}
@@ -3,6 +3,8 @@ package abc.sound;
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiUnavailableException;
 
+import static org.junit.Assert.*;
+
 import org.junit.Test;
 
 /**
@@ -134,7 +136,61 @@ public class SequencePlayerTest {
             imde.printStackTrace();
         }
     }
-    
-    
+
+    /**
+     *  Tests for addNotes
+     *  Purpose: scheduling notes in a batch, given out of order as a second voice or a repeat gives them,
+     *  builds the same track as scheduling them one at a time in order, and counts the events added.
+     */
+    @Test
+    public void testAddNotesOutOfOrder() throws MidiUnavailableException, InvalidMidiDataException {
+        final int c = new Pitch('C').toMidiNote();
+        final int e = new Pitch('E').toMidiNote();
+        final int g = new Pitch('G').toMidiNote();
+        // upper voice first, then the lower voice; C is repeated back to back
+        int[] notes = { g, g, c, c, e, c };
+        int[] startTicks = { 0, 24, 0, 12, 24, 36 };
+        int[] numTicks = { 24, 24, 12, 12, 12, 12 };
+
+        SequencePlayer batch = new SequencePlayer(120, 12);
+        batch.addNotes(notes, startTicks, numTicks, notes.length);
+
+        SequencePlayer inOrder = new SequencePlayer(120, 12);
+        inOrder.addNote(g, 0, 24);
+        inOrder.addNote(c, 0, 12);
+        inOrder.addNote(c, 12, 12);
+        inOrder.addNote(g, 24, 24);
+        inOrder.addNote(e, 24, 12);
+        inOrder.addNote(c, 36, 12);
+
+        assertEquals("Notes added", 6, batch.getNotesAdded());
+        assertEquals("Two events per note", 12, batch.getEventsAdded());
+        assertEquals("Same events in the same order", inOrder.toString(), batch.toString());
+    }
+
+    /**
+     *  Purpose: a note that lasts no ticks, as "C0" compiles to, is turned off just after it is turned on,
+     *  and before a note of the same pitch starting on the same tick is turned on.
+     */
+    @Test
+    public void testAddNotesZeroLength() throws MidiUnavailableException, InvalidMidiDataException {
+        final int c = new Pitch('C').toMidiNote();
+        final int d = new Pitch('D').toMidiNote();
+        int[] notes = { c, d, c };
+        int[] startTicks = { 0, 0, 0 };
+        int[] numTicks = { 0, 12, 12 };
+
+        SequencePlayer batch = new SequencePlayer(120, 12);
+        batch.addNotes(notes, startTicks, numTicks, notes.length);
+
+        SequencePlayer inOrder = new SequencePlayer(120, 12);
+        inOrder.addNote(c, 0, 0);
+        inOrder.addNote(d, 0, 12);
+        inOrder.addNote(c, 0, 12);
+
+        String events = batch.toString();
+        assertTrue("Turned on before off", events.indexOf("NOTE_ON Pitch: " + c) < events.indexOf("NOTE_OFF Pitch: " + c));
+        assertEquals("Same events in the same order", inOrder.toString(), events);
+    }
 
 }
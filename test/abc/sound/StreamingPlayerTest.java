@@ -0,0 +1,116 @@
+package abc.sound;
+
+import static abc.sound.TestNotes.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for StreamingPlayer, playing onto a Receiver that records what it is sent, so no MIDI device is needed.
+ */
+public class StreamingPlayerTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for StreamingPlayer:
+     *      no notes, several notes; notes out of order, ending as another starts, of the same pitch
+     *      with a clock, without a clock
+     *      queue smaller than the events of the first measure, larger than all of them
+     *      startTicks before the first note, after the last
+     *      interrupted while playing; a pitch that is not a MIDI note
+     *      capacity not positive, beatsPerMinute not positive
+     */
+
+    private static String event(String type, int pitch, long micros) {
+        return type + " Pitch: " + pitch + " Time: " + micros;
+    }
+
+    private static long stamp(int tick) {
+        return StreamingPlayer.LOOKAHEAD_MICROS + tick * 10_000L;
+    }
+
+    //covers no notes
+    @Test
+    public void empty() throws InterruptedException {
+        Recording receiver = new Recording();
+        new StreamingPlayer(receiver, () -> 0, 4).play(new NoteRecorder(1).toSchedule(), FAST, 4);
+        assertEquals("Nothing sent", Collections.emptyList(), receiver.sent);
+    }
+    //covers several notes, out of order, ending as another of the same pitch starts, with a clock
+    @Test
+    public void events() throws InterruptedException {
+        Recording receiver = new Recording();
+        StreamingPlayer player = new StreamingPlayer(receiver, () -> 0, StreamingPlayer.DEFAULT_CAPACITY);
+        long start = System.nanoTime();
+        player.play(chords(), FAST, 1);
+        long elapsedMicros = (System.nanoTime() - start) / 1000;
+        assertEquals("Events in order, stamped with their time on the clock", Arrays.asList(
+                event("NOTE_ON ", C, stamp(0)),
+                event("NOTE_OFF", C, stamp(2)),
+                event("NOTE_ON ", G, stamp(2)),
+                event("NOTE_ON ", E, stamp(2)),
+                event("NOTE_ON ", C, stamp(2)),
+                event("NOTE_OFF", E, stamp(3)),
+                event("NOTE_OFF", C, stamp(3)),
+                event("NOTE_OFF", G, stamp(4))), receiver.sent);
+        assertTrue("Returns once the last note has sounded", elapsedMicros >= stamp(4));
+        assertTrue("Start delay measured", player.getStartDelayNanos() >= 0);
+    }
+    //covers without a clock, queue smaller than the first measure, startTicks after the last note
+    @Test
+    public void smallQueueNoClock() throws InterruptedException {
+        Recording receiver = new Recording();
+        new StreamingPlayer(receiver, null, 1).play(chords(), FAST, 100);
+        assertEquals("All events", 8, receiver.sent.size());
+        assertEquals("Unstamped", event("NOTE_OFF", G, -1), receiver.sent.get(7));
+    }
+    //covers interrupted while playing, startTicks before the first note
+    @Test
+    public void interrupted() throws InterruptedException {
+        NoteRecorder recorder = new NoteRecorder(1);
+        recorder.addNote(C, 0, 1000);
+        recorder.addNote(E, 1, 1000);
+        Recording receiver = new Recording();
+        StreamingPlayer player = new StreamingPlayer(receiver, null, 4);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread playing = new Thread(() -> {
+            try {
+                player.play(recorder.toSchedule(), FAST, 0);
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        playing.start();
+        receiver.firstSent.await();
+        playing.interrupt();
+        playing.join();
+        assertTrue("Interrupted", thrown.get() instanceof InterruptedException);
+        assertEquals("Every note turned off", "CONTROL  Pitch: 123 Time: -1",
+                receiver.sent.get(receiver.sent.size() - 1));
+    }
+    //covers a pitch that is not a MIDI note
+    @Test(expected=IllegalArgumentException.class)
+    public void badPitch() throws InterruptedException {
+        NoteRecorder recorder = new NoteRecorder(1);
+        recorder.addNote(200, 0, 1);
+        new StreamingPlayer(new Recording(), null, 4).play(recorder.toSchedule(), FAST, 0);
+    }
+    //covers capacity not positive
+    @Test(expected=IllegalArgumentException.class)
+    public void zeroCapacity() {
+        new StreamingPlayer(new Recording(), null, 0);
+    }
+    //covers beatsPerMinute not positive
+    @Test(expected=IllegalArgumentException.class)
+    public void zeroTempo() throws InterruptedException {
+        new StreamingPlayer(new Recording(), null, 4).play(chords(), 0, 0);
+    }
+}
@@ -0,0 +1,61 @@
+package abc.sound;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+
+/**
+ * Notes and a recording Receiver shared by the tests that play onto a Receiver, so no MIDI device is needed.
+ */
+final class TestNotes {
+
+    static final int C = new Pitch('C').toMidiNote();
+    static final int E = new Pitch('E').toMidiNote();
+    static final int G = new Pitch('G').toMidiNote();
+    // at 6000 beats per minute and one tick per beat, a tick is 10 ms
+    static final int FAST = 6000;
+
+    private TestNotes() {
+        // only static members
+    }
+
+    /**
+     * @return a C lasting two ticks, then a C, E and G starting together at tick 2, the G lasting
+     *         two ticks and the others one, added out of order
+     */
+    static NoteSchedule chords() {
+        NoteRecorder recorder = new NoteRecorder(1);
+        recorder.addNote(G, 2, 2);
+        recorder.addNote(C, 0, 2);
+        recorder.addNote(E, 2, 1);
+        recorder.addNote(C, 2, 1);
+        return recorder.toSchedule();
+    }
+
+    /**
+     * Records the messages it is sent, with their timestamps, as strings.
+     */
+    static class Recording implements Receiver {
+        final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch firstSent = new CountDownLatch(1);
+
+        @Override
+        public void send(MidiMessage message, long timeStamp) {
+            ShortMessage event = (ShortMessage) message;
+            String type = event.getCommand() == ShortMessage.NOTE_ON ? "NOTE_ON "
+                    : event.getCommand() == ShortMessage.NOTE_OFF ? "NOTE_OFF" : "CONTROL ";
+            sent.add(type + " Pitch: " + event.getData1() + " Time: " + timeStamp);
+            firstSent.countDown();
+        }
+
+        @Override
+        public void close() {
+            throw new AssertionError("whoever plays onto a receiver should not close it");
+        }
+    }
+}
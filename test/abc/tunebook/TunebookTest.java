@@ -0,0 +1,161 @@
+package abc.tunebook;
+
+import static abc.TestFiles.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import abc.cache.ParsedTune;
+
+/**
+ * Tests for Tunebook and TuneEntry, each using a fresh temporary folder.
+ */
+public class TunebookTest {
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Testing strategy for Tunebook.scan:
+     *      no tunes, one tune, several tunes
+     *      text before the first tune; blank lines between tunes; no newline at the end; "\r\n" line endings
+     *      tune with a title, without one, with a T: line after K:; X: not a number; X or T not at a line start
+     * Testing strategy for Tunebook.open:
+     *      no index, index of the file as it is, index of the file before it changed, index damaged,
+     *      folder of indexes cannot be created
+     * Testing strategy for find, contains, parse:
+     *      first tune, last tune, a number two tunes share, a number no tune has
+     */
+
+    private static final String FIRST = "X:1\nT:First\nM:4/4\nL:1/4\nK:C\nC D E F |]\n";
+    private static final String SECOND = "X:2\nT:Second\nL:1/8\nK:G\nG A B c |]\n";
+    private static final String UNTITLED = "X:3\nK:C\nC4 |]\nT:not a title\n";
+    private static final String BOOK = "%abc-2.1\nA tunebook X:0\n\n" + FIRST + "\n\n" + SECOND + "\n" + UNTITLED;
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //covers no tunes
+    @Test
+    public void noTunes() {
+        assertEquals("Empty", Collections.emptyList(), Tunebook.scan(bytes("")).entries());
+        assertEquals("Only text", Collections.emptyList(), Tunebook.scan(bytes("% just a comment\n T:x\n")).entries());
+    }
+    //covers several tunes, text before the first, blank lines between, titles, T: after K:, untitled
+    @Test
+    public void scan() {
+        List<TuneEntry> tunes = Tunebook.scan(bytes(BOOK)).entries();
+        int first = BOOK.indexOf("X:1");
+        int second = BOOK.indexOf("X:2");
+        int third = BOOK.indexOf("X:3");
+        assertEquals("Tunes", Arrays.asList(
+                new TuneEntry(1, first, first + FIRST.length(), "First"),
+                new TuneEntry(2, second, second + SECOND.length(), "Second"),
+                new TuneEntry(3, third, BOOK.length(), "")), tunes);
+    }
+    //covers one tune, no newline at the end, "\r\n", X: not a number
+    @Test
+    public void oddLines() {
+        String text = "X: 7\r\nT: Title \r\nK:C\r\nC |]";
+        assertEquals("One tune", Collections.singletonList(new TuneEntry(7, 0, text.length(), "Title")),
+                Tunebook.scan(bytes(text)).entries());
+        assertEquals("Not a number", -1, Tunebook.scan(bytes("X:one\nK:C\nC|]\n")).entries().get(0).number());
+    }
+    //covers no index, index of the file as it is, first tune, last tune, parse
+    @Test
+    public void openAndParse() throws IOException {
+        Path folder = tempFolder();
+        try {
+            Path book = write(folder, "book.abc", BOOK);
+            Path indexes = folder.resolve("indexes");
+            Tunebook tunebook = Tunebook.open(book, indexes);
+            assertEquals("Three tunes", 3, tunebook.tunes().size());
+            Path index = indexes.resolve(Tunebook.indexName(book.toAbsolutePath().normalize()));
+            assertTrue("Index saved", Files.exists(index));
+            assertEquals("Index read back", tunebook.tunes(),
+                    Tunebook.readIndex(index, Files.size(book), Files.getLastModifiedTime(book).toMillis()).entries());
+
+            Tunebook reopened = Tunebook.open(book, indexes);
+            assertEquals("Same tunes", tunebook.tunes(), reopened.tunes());
+            assertEquals("First tune", FIRST, reopened.text(reopened.find(1)));
+            assertEquals("Last tune", UNTITLED, reopened.text(reopened.find(3)));
+            assertEquals("Parsed", ParsedTune.parse(SECOND, 0), reopened.parse(2, 0));
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers index of the file before it changed
+    @Test
+    public void changedBook() throws IOException {
+        Path folder = tempFolder();
+        try {
+            Path book = write(folder, "book.abc", BOOK);
+            Tunebook.open(book, folder.resolve("indexes"));
+            write(folder, "book.abc", FIRST);
+            Files.setLastModifiedTime(book, FileTime.fromMillis(Files.getLastModifiedTime(book).toMillis() + 2000));
+            Tunebook changed = Tunebook.open(book, folder.resolve("indexes"));
+            assertEquals("Scanned again", Collections.singletonList(new TuneEntry(1, 0, FIRST.length(), "First")),
+                    changed.tunes());
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers index damaged, folder of indexes cannot be created
+    @Test
+    public void badIndexes() throws IOException {
+        Path folder = tempFolder();
+        try {
+            Path book = write(folder, "book.abc", BOOK);
+            Path indexes = folder.resolve("indexes");
+            List<TuneEntry> tunes = Tunebook.open(book, indexes).tunes();
+            Path index = indexes.resolve(Tunebook.indexName(book.toAbsolutePath().normalize()));
+            byte[] damaged = Files.readAllBytes(index);
+            damaged[damaged.length / 2] ^= 1;
+            Files.write(index, damaged);
+            assertNull("Damaged index not used",
+                    Tunebook.readIndex(index, Files.size(book), Files.getLastModifiedTime(book).toMillis()));
+            assertEquals("Scanned again", tunes, Tunebook.open(book, indexes).tunes());
+
+            assertEquals("Opened without an index", tunes, Tunebook.open(book, book.resolve("indexes")).tunes());
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers a number two tunes share
+    @Test
+    public void numbers() throws IOException {
+        Path folder = tempFolder();
+        try {
+            Path book = write(folder, "book.abc", FIRST + SECOND.replace("X:2", "X:1"));
+            Tunebook tunebook = Tunebook.open(book, folder.resolve("indexes"));
+            assertEquals("Both listed", 2, tunebook.tunes().size());
+            assertEquals("First of the two", "First", tunebook.find(1).title());
+            assertFalse("No tune 2", tunebook.contains(2));
+        } finally {
+            delete(folder);
+        }
+    }
+    //covers a number no tune has
+    @Test(expected=IllegalArgumentException.class)
+    public void noSuchTune() throws IOException {
+        Path folder = tempFolder();
+        try {
+            Tunebook.open(write(folder, "book.abc", BOOK), folder.resolve("indexes")).parse(4, 0);
+        } finally {
+            delete(folder);
+        }
+    }
+}